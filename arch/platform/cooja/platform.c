@@ -86,6 +86,8 @@
 #define Java_org_contikios_cooja_corecomm_CLASSNAME_init COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_init)
 #define Java_org_contikios_cooja_corecomm_CLASSNAME_getMemory COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_getMemory)
 #define Java_org_contikios_cooja_corecomm_CLASSNAME_setMemory COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_setMemory)
+#define Java_org_contikios_cooja_corecomm_CLASSNAME_getMemoryBuffer COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_getMemoryBuffer)
+#define Java_org_contikios_cooja_corecomm_CLASSNAME_setMemoryBuffer COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_setMemoryBuffer)
 #define Java_org_contikios_cooja_corecomm_CLASSNAME_tick COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_tick)
 #define Java_org_contikios_cooja_corecomm_CLASSNAME_setReferenceAddress COOJA__QUOTEME(COOJA_JNI_PATH,CLASSNAME,_setReferenceAddress)
 
@@ -292,6 +294,79 @@ Java_org_contikios_cooja_corecomm_CLASSNAME_setMemory(JNIEnv *env, jobject obj,
   (*env)->ReleaseByteArrayElements(env, mem_arr, mem, 0);
 }
 /*---------------------------------------------------------------------------*/
+/**
+ * \brief      Get the native storage of a direct byte buffer.
+ * \param env     JNI Environment interface pointer
+ * \param mem_buf Direct byte buffer
+ * \return        Buffer address, or NULL with an IllegalArgumentException
+ *                pending if the buffer is not a direct buffer.
+ */
+static char *
+get_direct_buffer_address(JNIEnv *env, jobject mem_buf)
+{
+  char *mem = (*env)->GetDirectBufferAddress(env, mem_buf);
+  if(mem == NULL) {
+    (*env)->ThrowNew(env,
+                     (*env)->FindClass(env, "java/lang/IllegalArgumentException"),
+                     "Memory buffer is not a direct buffer");
+  }
+  return mem;
+}
+/*---------------------------------------------------------------------------*/
+/**
+ * \brief      Get a segment from the process memory into a direct byte buffer.
+ * \param env        JNI Environment interface pointer
+ * \param obj        unused
+ * \param rel_addr   Start address of segment
+ * \param length     Size of memory segment
+ * \param mem_buf    Direct byte buffer to fill with memory segment
+ * \param buf_offset Offset in buffer
+ *
+ *             Same as getMemory(), but copies directly into the buffer's
+ *             native storage without any JNI array copying or pinning.
+ *
+ *             This is a JNI function and should only be called via the
+ *             responsible Java part (MoteType.java).
+ */
+JNIEXPORT void JNICALL
+Java_org_contikios_cooja_corecomm_CLASSNAME_getMemoryBuffer(JNIEnv *env, jobject obj, jint rel_addr, jint length, jobject mem_buf, jint buf_offset)
+{
+  char *mem = get_direct_buffer_address(env, mem_buf);
+  if(mem == NULL) {
+    return;
+  }
+  memcpy(mem + buf_offset,
+         (char*) (((long)rel_addr) + referenceVar),
+         length);
+}
+/*---------------------------------------------------------------------------*/
+/**
+ * \brief      Replace a segment of the process memory with a direct byte buffer.
+ * \param env        JNI Environment interface pointer
+ * \param obj        unused
+ * \param rel_addr   Start address of segment
+ * \param length     Size of memory segment
+ * \param mem_buf    Direct byte buffer containing new memory
+ * \param buf_offset Offset in buffer
+ *
+ *             Same as setMemory(), but copies directly from the buffer's
+ *             native storage without any JNI array copying or pinning.
+ *
+ *             This is a JNI function and should only be called via the
+ *             responsible Java part (MoteType.java).
+ */
+JNIEXPORT void JNICALL
+Java_org_contikios_cooja_corecomm_CLASSNAME_setMemoryBuffer(JNIEnv *env, jobject obj, jint rel_addr, jint length, jobject mem_buf, jint buf_offset)
+{
+  char *mem = get_direct_buffer_address(env, mem_buf);
+  if(mem == NULL) {
+    return;
+  }
+  memcpy((char*) (((long)rel_addr) + referenceVar),
+         mem + buf_offset,
+         length);
+}
+/*---------------------------------------------------------------------------*/
 /**
  * \brief      Let mote execute one "block" of code (tick mote).
  * \param env  JNI Environment interface pointer
@@ -0,0 +1,28 @@
+/* Runs in the simulation thread, passes in the timeout handler */
+TIMEOUT(35000, if (hellos >= 3 && ticks == hellos) { log.testOK(); });
+
+/* Scripts that cannot be converted fall back to a thread of their own */
+if (typeof SEMAPHORE_SIM != "undefined") {
+  log.log("Test script does not run in simulation thread\n");
+  log.testFailed();
+}
+
+var hellos = 0;
+var ticks = 0;
+
+WAIT_UNTIL(msg.equals("Hello, world"));
+hellos++;
+GENERATE_MSG(1000, "tick");
+YIELD_THEN_WAIT_UNTIL(msg.equals("tick"));
+ticks++;
+
+while (true) {
+  YIELD();
+  log.log("> " + msg + "\n");
+  if (msg.equals("Hello, world")) {
+    hellos++;
+    GENERATE_MSG(1000, "tick");
+  } else if (msg.equals("tick")) {
+    ticks++;
+  }
+}
@@ -43,6 +43,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import org.contikios.cooja.mote.memory.MemoryBuffer;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.mote.memory.MemoryInterface.SegmentMonitor.EventType;
 import org.contikios.cooja.mote.memory.MemoryLayout;
@@ -100,6 +101,12 @@ public class AvrMoteMemory implements MemoryInterface {
     return data;
   }
 
+  @Override
+  public MemoryBuffer getMemoryView(long address, int size) throws MoteMemoryException {
+    /* Interpreter memory is read byte by byte, view a copy */
+    return MemoryBuffer.wrap(memLayout, getMemorySegment(address, size));
+  }
+
   @Override
   public void setMemorySegment(long address, byte[] data) throws MoteMemoryException {
     if (!accessInRange(address, data.length)) {
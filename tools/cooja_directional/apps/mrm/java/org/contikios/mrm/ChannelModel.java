@@ -37,12 +37,15 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 
@@ -80,8 +83,8 @@ public class ChannelModel {
   private Properties parameterDescriptions = new Properties();
 
   // Parameters used for speeding up calculations
-  private boolean needToPrecalculateFSPL = true;
-  private static double paramFSPL = 0;
+  private volatile boolean needToPrecalculateFSPL = true;
+  private volatile double paramFSPL = 0;
   private boolean needToPrecalculateOutputPower = true;
   private static double paramOutputPower = 0;
 
@@ -95,13 +98,54 @@ public class ChannelModel {
   private Simulation simulation;
 
   
-  // Ray tracing components temporary vector
+  // Ray tracing components temporary vector (guarded by calculatedVisibleSides)
   private Vector<Vector<Line2D>> calculatedVisibleSides = new Vector<Vector<Line2D>>();
   private Vector<Point2D> calculatedVisibleSidesSources = new Vector<Point2D>();
   private Vector<Line2D> calculatedVisibleSidesLines = new Vector<Line2D>();
   private Vector<AngleInterval> calculatedVisibleSidesAngleIntervals = new Vector<AngleInterval>();
   private static int maxSavedVisibleSides = 30; // Max size of lists above
 
+  /* Minimum number of paths traced in parallel */
+  private static final int PARALLEL_TRACE_THRESHOLD = 4;
+
+  /* Ray traced path data of radio pairs: source -> destination -> path */
+  private HashMap<Radio, HashMap<Radio, PathData>> pathCache =
+    new HashMap<Radio, HashMap<Radio, PathData>>();
+  /* Potential receivers of each source radio */
+  private HashMap<Radio, PotentialReceivers> receiversCache =
+    new HashMap<Radio, PotentialReceivers>();
+
+  /**
+   * Output power independent transmission data between two positions.
+   */
+  private static class PathData {
+    final double fromX, fromY, toX, toY;
+    final double[] data; /* [total path gain, delay spread, RMS delay spread] */
+
+    PathData(TxPair txPair, double[] data) {
+      this.fromX = txPair.getFromX();
+      this.fromY = txPair.getFromY();
+      this.toX = txPair.getToX();
+      this.toY = txPair.getToY();
+      this.data = data;
+    }
+
+    boolean isValid(TxPair txPair) {
+      return fromX == txPair.getFromX() && fromY == txPair.getFromY() &&
+          toX == txPair.getToX() && toY == txPair.getToY();
+    }
+  }
+
+  private static class PotentialReceivers {
+    final double txPower;
+    final Radio[] receivers;
+
+    PotentialReceivers(double txPower, Radio[] receivers) {
+      this.txPower = txPower;
+      this.receivers = receivers;
+    }
+  }
+
   /**
    * Notifies observers when this channel model has changed settings.
    */
@@ -118,6 +162,7 @@ public class ChannelModel {
     tx_with_gain,
     rx_sensitivity,
     rx_with_gain,
+    rx_prune_weak,
     rt_disallow_direct_path,
     rt_ignore_non_direct,
     rt_fspl_on_total_length,
@@ -159,6 +204,8 @@ public class ChannelModel {
         return new Double(-100);
       case rx_with_gain:
         return new Boolean(false);
+      case rx_prune_weak:
+        return new Boolean(false);
       case rt_disallow_direct_path:
         return new Boolean(false);
       case rt_ignore_non_direct:
@@ -262,6 +309,7 @@ public class ChannelModel {
       case tx_with_gain: return "Directional antennas: with TX gain";
       case rx_sensitivity: return "Receiver sensitivity (dBm)";
       case rx_with_gain: return "Directional antennas: with RX gain";
+      case rx_prune_weak: return "Ignore receivers far below background noise";
       case rt_disallow_direct_path: return "Disallow direct path";
       case rt_ignore_non_direct: return "If existing: return only use direct path";
       case rt_fspl_on_total_length: return "Use FSPL on total path lengths only";
@@ -326,6 +374,7 @@ public class ChannelModel {
    */
   public void removeAllObstacles() {
     myObstacleWorld.removeAll();
+    clearLinkCache();
     settingsObservable.setChangedAndNotify();
   }
 
@@ -354,6 +403,7 @@ public class ChannelModel {
    */
   public void addRectObstacle(double startX, double startY, double width, double height, boolean notify) {
     myObstacleWorld.addObstacle(startX, startY, width, height);
+    clearLinkCache();
 
     if (notify) {
       settingsObservable.setChangedAndNotify();
@@ -437,6 +487,7 @@ public class ChannelModel {
     // Guessing we need to recalculate input to FSPL+Output power
     needToPrecalculateFSPL = true;
     needToPrecalculateOutputPower = true;
+    clearLinkCache();
 
     settingsObservable.setChangedAndNotify();
   }
@@ -446,8 +497,98 @@ public class ChannelModel {
    * will be notified.
    */
   public void notifySettingsChanged() {
+    clearLinkCache();
     settingsObservable.setChangedAndNotify();
   }
+
+  /**
+   * Drops all cached link data.
+   * Called when obstacles or parameters change.
+   */
+  public synchronized void clearLinkCache() {
+    pathCache.clear();
+    receiversCache.clear();
+  }
+
+  /**
+   * Drops cached potential receivers, e.g. when a radio moved or turned.
+   * Cached path data is checked against current radio positions, and
+   * is kept.
+   *
+   * @see #getPotentialReceivers(Radio, Radio[])
+   */
+  public synchronized void clearPotentialReceivers() {
+    receiversCache.clear();
+  }
+
+  /**
+   * Drops all cached link data of given radio.
+   *
+   * @param radio Removed radio
+   */
+  public synchronized void removeLinkCache(Radio radio) {
+    pathCache.remove(radio);
+    for (HashMap<Radio, PathData> dests: pathCache.values()) {
+      dests.remove(radio);
+    }
+    receiversCache.clear();
+  }
+
+  /**
+   * Returns the radios that may receive or be interfered by a transmission
+   * from the given source radio: radios whose mean received signal
+   * strength, at the current source output power, is no more than three
+   * standard deviations below the background noise mean.
+   * <p>
+   * Results are cached until the source output power changes, or until
+   * cleared.
+   *
+   * @param source Source radio
+   * @param radios All radios
+   * @return Potential receivers, excluding source
+   * @see #clearPotentialReceivers()
+   */
+  public synchronized Radio[] getPotentialReceivers(final Radio source, Radio[] radios) {
+    double txPower = source.getCurrentOutputPower();
+    PotentialReceivers cached = receiversCache.get(source);
+    if (cached != null && cached.txPower == txPower) {
+      return cached.receivers;
+    }
+
+    double noiseMean = getParameterDoubleValue(Parameter.bg_noise_mean);
+    double stdDev = Math.sqrt(getParameterDoubleValue(Parameter.system_gain_var) +
+        getParameterDoubleValue(Parameter.bg_noise_var));
+    double threshold = noiseMean - 3*stdDev - getParameterDoubleValue(Parameter.system_gain_mean);
+
+    tracePaths(source, radios);
+    ArrayList<Radio> receivers = new ArrayList<Radio>();
+    for (final Radio dest: radios) {
+      if (dest == source) {
+        continue;
+      }
+      RadioPair txPair = new RadioPair() {
+        public Radio getFromRadio() {
+          return source;
+        }
+        public Radio getToRadio() {
+          return dest;
+        }
+      };
+      double signal = txPower + getPathData(txPair)[0];
+      if (getParameterBooleanValue(Parameter.tx_with_gain)) {
+        signal += txPair.getTxGain();
+      }
+      if (getParameterBooleanValue(Parameter.rx_with_gain)) {
+        signal += txPair.getRxGain();
+      }
+      if (signal >= threshold) {
+        receivers.add(dest);
+      }
+    }
+    cached = new PotentialReceivers(txPower, receivers.toArray(new Radio[receivers.size()]));
+    receiversCache.put(source, cached);
+    return cached.receivers;
+  }
   
   /**
    * Path loss component from Friis' transmission equation.
@@ -909,6 +1050,11 @@ public class ChannelModel {
    * @return True if no obstacles between source and destination
    */
   private boolean isDirectPath(Point2D source, Point2D dest) {
+    // Visible sides lie on obstacles: no obstacle touched, no side intersected
+    if (!myObstacleWorld.intersectsObstacle(source.getX(), source.getY(), dest.getX(), dest.getY())) {
+      return true;
+    }
+
     Line2D sourceToDest = new Line2D.Double(source, dest);
 
     // Get angle
@@ -1013,6 +1159,7 @@ public class ChannelModel {
     Point2D source = new Point2D.Double(sourceX, sourceY);
 
     // Check if results were already calculated earlier
+    synchronized (calculatedVisibleSides) {
     for (int i=0; i < calculatedVisibleSidesSources.size(); i++) {
       if (
           // Compare sources
@@ -1041,6 +1188,7 @@ public class ChannelModel {
         return oldVisibleLines;
       }
     }
+    }
 
     Vector<Line2D> visibleLines = new Vector<Line2D>();
     Vector<AngleInterval> unhandledAngles = new Vector<AngleInterval>();
@@ -1380,19 +1528,21 @@ public class ChannelModel {
     } // End of outer loop
 
     // Save results in order to speed up later calculations
-    int size = calculatedVisibleSides.size();
-    // Crop saved sides vectors
-    if (size >= maxSavedVisibleSides) {
-      calculatedVisibleSides.remove(size-1);
-      calculatedVisibleSidesSources.remove(size-1);
-      calculatedVisibleSidesAngleIntervals.remove(size-1);
-      calculatedVisibleSidesLines.remove(size-1);
-    }
+    synchronized (calculatedVisibleSides) {
+      int size = calculatedVisibleSides.size();
+      // Crop saved sides vectors
+      if (size >= maxSavedVisibleSides) {
+        calculatedVisibleSides.remove(size-1);
+        calculatedVisibleSidesSources.remove(size-1);
+        calculatedVisibleSidesAngleIntervals.remove(size-1);
+        calculatedVisibleSidesLines.remove(size-1);
+      }
 
-    calculatedVisibleSides.add(0, visibleLines);
-    calculatedVisibleSidesSources.add(0, source);
-    calculatedVisibleSidesAngleIntervals.add(0, angleInterval);
-    calculatedVisibleSidesLines.add(0, lookThrough);
+      calculatedVisibleSides.add(0, visibleLines);
+      calculatedVisibleSidesSources.add(0, source);
+      calculatedVisibleSidesAngleIntervals.add(0, angleInterval);
+      calculatedVisibleSidesLines.add(0, lookThrough);
+    }
 
     return visibleLines;
   }
@@ -1421,11 +1571,173 @@ public class ChannelModel {
 
   // TODO Fix better data type support
   private double[] getTransmissionData(TxPair txPair, TransmissionData dataType) {
-    Point2D source = txPair.getFrom();
-    Point2D dest = txPair.getTo();
     double accumulatedVariance = 0;
 
-    // - Get all ray paths from source to destination -
+    double[] pathData = getPathData(txPair);
+    double totalPathGain = pathData[0];
+    double delaySpread = pathData[1];
+    double delaySpreadRMS = pathData[2];
+
+    // - Calculate received power -
+    // Using formula (dB)
+    //  Received power = Output power + System gain + Transmitter gain + Path Loss + Receiver gain
+    // TODO Update formulas
+    double outputPower = txPair.getTxPower();
+    double systemGain = getParameterDoubleValue(Parameter.system_gain_mean);
+    if (getParameterBooleanValue(Parameter.apply_random)) {
+      Random random = new Random(); /* TODO Use main random generator? */
+      systemGain += Math.sqrt(getParameterDoubleValue(Parameter.system_gain_var)) * random.nextGaussian();
+    } else {
+      accumulatedVariance += getParameterDoubleValue(Parameter.system_gain_var);
+    }
+
+    double transmitterGain = 0;
+    if (getParameterBooleanValue(Parameter.tx_with_gain)) {
+      transmitterGain = txPair.getTxGain();
+    }
+
+    double receivedPower = outputPower + systemGain + transmitterGain + totalPathGain;
+    if (logMode) {
+        logInfo.append("\nReceived signal strength: " + String.format("%2.3f", receivedPower) + " dB (variance " + accumulatedVariance + ")\n");
+    }
+
+    if (dataType == TransmissionData.DELAY_SPREAD || dataType == TransmissionData.DELAY_SPREAD_RMS) {
+      return new double[] {delaySpread, delaySpreadRMS};
+    }
+
+    return new double[] {receivedPower, accumulatedVariance};
+  }
+
+  /**
+   * Returns output power independent transmission data.
+   * Data of radio pairs is cached, except in log mode.
+   *
+   * @param txPair Transmission pair
+   * @return [Total path gain (dB), delay spread, RMS delay spread]
+   */
+  private double[] getPathData(TxPair txPair) {
+    if (logMode || !(txPair instanceof RadioPair)) {
+      return tracePaths(txPair.getFrom(), txPair.getTo());
+    }
+
+    Radio from = ((RadioPair) txPair).getFromRadio();
+    Radio to = ((RadioPair) txPair).getToRadio();
+    synchronized (this) {
+      HashMap<Radio, PathData> dests = pathCache.get(from);
+      if (dests == null) {
+        dests = new HashMap<Radio, PathData>();
+        pathCache.put(from, dests);
+      }
+      PathData path = dests.get(to);
+      if (path == null || !path.isValid(txPair)) {
+        path = new PathData(txPair, tracePaths(txPair.getFrom(), txPair.getTo()));
+        dests.put(to, path);
+      }
+      return path.data;
+    }
+  }
+
+  /**
+   * Ray traces output power independent data from source radio to all given
+   * destinations without valid cached data, and caches the results.
+   * <p>
+   * The visible lines tree of the source is built once, and is then only
+   * read while paths to all destinations are traced in parallel.
+   *
+   * @param source Source radio
+   * @param dests Destination radios
+   */
+  public synchronized void tracePaths(final Radio source, Radio[] dests) {
+    HashMap<Radio, PathData> cached = pathCache.get(source);
+    if (cached == null) {
+      cached = new HashMap<Radio, PathData>();
+      pathCache.put(source, cached);
+    }
+
+    ArrayList<RadioPair> pairs = new ArrayList<RadioPair>();
+    for (final Radio dest: dests) {
+      if (dest == source) {
+        continue;
+      }
+      RadioPair txPair = new RadioPair() {
+        public Radio getFromRadio() {
+          return source;
+        }
+        public Radio getToRadio() {
+          return dest;
+        }
+      };
+      PathData path = cached.get(dest);
+      if (path == null || !path.isValid(txPair)) {
+        pairs.add(txPair);
+      }
+    }
+    if (pairs.isEmpty()) {
+      return;
+    }
+
+    final Point2D from = pairs.get(0).getFrom();
+    final Point2D[] to = new Point2D[pairs.size()];
+    for (int i=0; i < to.length; i++) {
+      to[i] = pairs.get(i).getTo();
+    }
+    final double[][] results = new double[to.length][];
+
+    /* Shared state lazily updated by tracing is prepared here */
+    final DefaultMutableTreeNode visibleLinesTree = buildOriginTree(from);
+    myObstacleWorld.organize();
+    getFSPL(1);
+
+    if (to.length < PARALLEL_TRACE_THRESHOLD || Runtime.getRuntime().availableProcessors() < 2) {
+      for (int i=0; i < to.length; i++) {
+        results[i] = tracePaths(from, to[i], visibleLinesTree, false);
+      }
+    } else {
+      ForkJoinPool.commonPool().invoke(
+          new TraceTask(from, to, results, visibleLinesTree, 0, to.length));
+    }
+
+    for (int i=0; i < results.length; i++) {
+      cached.put(pairs.get(i).getToRadio(), new PathData(pairs.get(i), results[i]));
+    }
+  }
+
+  /**
+   * Traces paths to a range of destinations, splitting the range
+   * until small enough.
+   */
+  private class TraceTask extends RecursiveAction {
+    private final Point2D from;
+    private final Point2D[] to;
+    private final double[][] results;
+    private final DefaultMutableTreeNode visibleLinesTree;
+    private final int start, end;
+
+    TraceTask(Point2D from, Point2D[] to, double[][] results,
+        DefaultMutableTreeNode visibleLinesTree, int start, int end) {
+      this.from = from;
+      this.to = to;
+      this.results = results;
+      this.visibleLinesTree = visibleLinesTree;
+      this.start = start;
+      this.end = end;
+    }
+
+    protected void compute() {
+      if (end - start <= 1) {
+        for (int i=start; i < end; i++) {
+          results[i] = tracePaths(from, to[i], visibleLinesTree, false);
+        }
+        return;
+      }
+      int mid = (start + end) >>> 1;
+      invokeAll(
+          new TraceTask(from, to, results, visibleLinesTree, start, mid),
+          new TraceTask(from, to, results, visibleLinesTree, mid, end));
+    }
+  }
+
+  private DefaultMutableTreeNode buildOriginTree(Point2D source) {
     RayData originRayData = new RayData(
         RayData.RayType.ORIGIN,
         source,
@@ -1435,14 +1747,29 @@ public class ChannelModel {
         getParameterIntegerValue(Parameter.rt_max_reflections),
         getParameterIntegerValue(Parameter.rt_max_diffractions)
     );
+    return buildVisibleLinesTree(originRayData);
+  }
 
-    // Check if origin tree is already calculated and saved
-    DefaultMutableTreeNode visibleLinesTree = buildVisibleLinesTree(originRayData);
+  private double[] tracePaths(Point2D source, Point2D dest) {
+    return tracePaths(source, dest, buildOriginTree(source), logMode);
+  }
 
+  /**
+   * Calculates output power independent transmission data from the paths
+   * found in the given visible lines tree.
+   * Does not modify shared state, except in log mode.
+   *
+   * @param source Source position
+   * @param dest Destination position
+   * @param visibleLinesTree Visible lines tree of source
+   * @param log Log signal components
+   * @return [Total path gain (dB), delay spread, RMS delay spread]
+   */
+  private double[] tracePaths(Point2D source, Point2D dest, DefaultMutableTreeNode visibleLinesTree, boolean log) {
     // Calculate all paths from source to destination, using above calculated tree
     Vector<RayPath> allPaths = getConnectingPaths(source, dest, visibleLinesTree);
 
-    if (logMode) {
+    if (log) {
       logInfo.append("Signal components:\n");
       Enumeration<RayPath> pathsEnum = allPaths.elements();
       while (pathsEnum.hasMoreElements()) {
@@ -1570,10 +1897,10 @@ public class ChannelModel {
 
         // Using Rician fading approach, TODO Only one best signal considered - combine these? (need two limits)
         totalPathGain += Math.pow(10, pathGain[i]/10.0)*Math.cos(2*Math.PI * pathModdedLengths[i]/wavelength);
-        if (logMode) {
+        if (log) {
           logInfo.append("Signal component: " + String.format("%2.3f", pathGain[i]) + " dB, phase " + String.format("%2.3f", (2*/*Math.PI* */ pathModdedLengths[i]/wavelength)) + " pi\n");
         }
-      } else if (logMode) {
+      } else if (log) {
         /* TODO Log mode affects result? */
         pathModdedLengths[i] = (pathLengths[i] - pathLengths[bestSignalNr]) % wavelength;
         logInfo.append("(IGNORED) Signal component: " + String.format("%2.3f", pathGain[i]) + " dB, phase " + String.format("%2.3f", (2*/*Math.PI* */ pathModdedLengths[i]/wavelength)) + " pi\n");
@@ -1589,40 +1916,13 @@ public class ChannelModel {
     // Convert back to dB
     totalPathGain = 10*Math.log10(Math.abs(totalPathGain));
 
-    if (logMode) {
+    if (log) {
         logInfo.append("\nTotal path gain: " + String.format("%2.3f", totalPathGain) + " dB\n");
         logInfo.append("Delay spread: " + String.format("%2.3f", delaySpread) + "\n");
         logInfo.append("RMS delay spread: " + String.format("%2.3f", delaySpreadRMS) + "\n");
     }
 
-    // - Calculate received power -
-    // Using formula (dB)
-    //  Received power = Output power + System gain + Transmitter gain + Path Loss + Receiver gain
-    // TODO Update formulas
-    double outputPower = txPair.getTxPower();
-    double systemGain = getParameterDoubleValue(Parameter.system_gain_mean);
-    if (getParameterBooleanValue(Parameter.apply_random)) {
-      Random random = new Random(); /* TODO Use main random generator? */
-      systemGain += Math.sqrt(getParameterDoubleValue(Parameter.system_gain_var)) * random.nextGaussian();
-    } else {
-      accumulatedVariance += getParameterDoubleValue(Parameter.system_gain_var);
-    }
-
-    double transmitterGain = 0;
-    if (getParameterBooleanValue(Parameter.tx_with_gain)) {
-      transmitterGain = txPair.getTxGain();
-    }
-
-    double receivedPower = outputPower + systemGain + transmitterGain + totalPathGain;
-    if (logMode) {
-        logInfo.append("\nReceived signal strength: " + String.format("%2.3f", receivedPower) + " dB (variance " + accumulatedVariance + ")\n");
-    }
-
-    if (dataType == TransmissionData.DELAY_SPREAD || dataType == TransmissionData.DELAY_SPREAD_RMS) {
-      return new double[] {delaySpread, delaySpreadRMS};
-    }
-
-    return new double[] {receivedPower, accumulatedVariance};
+    return new double[] {totalPathGain, delaySpread, delaySpreadRMS};
   }
 
   public class TrackedSignalComponents {
@@ -1880,6 +2180,7 @@ public class ChannelModel {
     }
     needToPrecalculateFSPL = true;
     needToPrecalculateOutputPower = true;
+    clearLinkCache();
     settingsObservable.setChangedAndNotify();
     return true;
   }
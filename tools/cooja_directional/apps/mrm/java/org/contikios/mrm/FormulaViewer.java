@@ -229,6 +229,13 @@ public class FormulaViewer extends org.contikios.cooja.VisPlugin {
         channelModel.getParameterBooleanValue(Parameter.rx_with_gain)
     );
 
+    addBooleanParameter(
+        Parameter.rx_prune_weak,
+        Parameter.getDescription(Parameter.rx_prune_weak),
+        collapsableArea,
+        channelModel.getParameterBooleanValue(Parameter.rx_prune_weak)
+    );
+
     // Ray Tracer parameters
     collapsableArea = createCollapsableArea("Ray Tracer parameters", allComponents);
     areaRayTracer = collapsableArea;
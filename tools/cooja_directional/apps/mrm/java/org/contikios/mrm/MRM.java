@@ -43,6 +43,7 @@ import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.interfaces.DirectionalAntennaRadio;
+import org.contikios.cooja.interfaces.DirectionalAntennaRadio.DirectionChangeListener;
 import org.contikios.cooja.interfaces.NoiseSourceRadio;
 import org.contikios.cooja.interfaces.NoiseSourceRadio.NoiseLevelListener;
 import org.contikios.cooja.interfaces.Position;
@@ -138,6 +139,17 @@ public class MRM extends AbstractRadioMedium {
                 updateSignalStrengths();
         };
   };
+  /* Moved or turned radios may change potential receivers */
+  private Observer positionObserver = new Observer() {
+    public void update(Observable o, Object arg) {
+      currentChannelModel.clearPotentialReceivers();
+    }
+  };
+  private DirectionChangeListener directionListener = new DirectionChangeListener() {
+    public void newDirection(DirectionalAntennaRadio radio, double direction) {
+      currentChannelModel.clearPotentialReceivers();
+    }
+  };
   public void registerRadioInterface(Radio radio, Simulation sim) {
         super.registerRadioInterface(radio, sim);
         
@@ -147,6 +159,11 @@ public class MRM extends AbstractRadioMedium {
         if (WITH_NOISE && radio instanceof NoiseSourceRadio) {
                 ((NoiseSourceRadio)radio).addNoiseLevelListener(noiseListener);
         }
+        if (WITH_DIRECTIONAL && radio instanceof DirectionalAntennaRadio) {
+                ((DirectionalAntennaRadio)radio).addDirectionChangeListener(directionListener);
+        }
+        radio.getPosition().addObserver(positionObserver);
+        currentChannelModel.clearPotentialReceivers();
   }
   public void unregisterRadioInterface(Radio radio, Simulation sim) {
         super.unregisterRadioInterface(radio, sim);
@@ -157,15 +174,24 @@ public class MRM extends AbstractRadioMedium {
         if (WITH_NOISE && radio instanceof NoiseSourceRadio) {
                 ((NoiseSourceRadio)radio).removeNoiseLevelListener(noiseListener);
         }
+        if (WITH_DIRECTIONAL && radio instanceof DirectionalAntennaRadio) {
+                ((DirectionalAntennaRadio)radio).removeDirectionChangeListener(directionListener);
+        }
+        radio.getPosition().deleteObserver(positionObserver);
+        currentChannelModel.removeLinkCache(radio);
   }
   
   public MRMRadioConnection createConnections(final Radio sender) {
     MRMRadioConnection newConnection = new MRMRadioConnection(sender);
     final Position senderPos = sender.getPosition();
 
-    /* TODO Cache potential destination in DGRM */
     /* Loop through all potential destinations */
-    for (Radio recv: getRegisteredRadios()) {
+    Radio[] receivers = getRegisteredRadios();
+    if (currentChannelModel.getParameterBooleanValue(Parameter.rx_prune_weak)) {
+      receivers = currentChannelModel.getPotentialReceivers(sender, receivers);
+    }
+    currentChannelModel.tracePaths(sender, receivers);
+    for (Radio recv: receivers) {
       if (sender == recv) {
         continue;
       }
@@ -350,7 +376,9 @@ public class MRM extends AbstractRadioMedium {
       }
 
       /* Calculate how noise source affects surrounding radios */
-      for (Radio affectedRadio : getRegisteredRadios()) {
+      Radio[] affectedRadios = getRegisteredRadios();
+      currentChannelModel.tracePaths(noiseRadio, affectedRadios);
+      for (Radio affectedRadio : affectedRadios) {
         if (noiseRadio == affectedRadio) {
           continue;
         }
@@ -30,10 +30,9 @@
 
 package org.contikios.mrm;
 
-import java.awt.Point;
 import java.awt.geom.*;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Enumeration;
 import java.util.Vector;
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -41,38 +40,227 @@ import org.jdom.Element;
 /**
  * This class represents an area with obstacles.
  * Obstacles may only be of rectangular shape.
- * 
+ * <p>
+ * Obstacles are organized in a uniform grid, packed into flat arrays.
+ * The grid resolution grows with the number of obstacles.
+ * Searches using a caller-supplied result array, and segment intersection
+ * tests, do not allocate any objects.
+ *
  * @author Fredrik Osterlind
  */
 class ObstacleWorld {
   private static Logger logger = Logger.getLogger(ObstacleWorld.class);
-  
+
   // All registered obstacles
   private Vector<Rectangle2D> allObstacles = null;
-  
+
   // All registered obstacles, with spatial information
-  private int spatialResolution = 10;
-  private Vector<Rectangle2D>[][] allObstaclesSpatial = new Vector[spatialResolution][spatialResolution];
-  private boolean obstaclesOrganized = false;
-  
+  private static final int MIN_SPATIAL_RESOLUTION = 10;
+  private static final int MAX_SPATIAL_RESOLUTION = 128;
+  private static final int OBSTACLES_PER_BOX = 4;
+  private volatile SpatialIndex spatialIndex;
+  private volatile boolean obstaclesOrganized = false;
+
   // Outer bounds of all obstacles
   private Rectangle2D outerBounds = null;
-  
-  
+
+  // Tolerance of segment intersection tests (obstacles are rounded to mm)
+  private static final double INTERSECTION_TOLERANCE = 1e-6;
+
+  /**
+   * Obstacles organized in a grid of boxes. Box (x, y) has index
+   * x*resolution + y, and its obstacles are found in cellObstacles,
+   * from cellStart[index] up to cellStart[index+1].
+   * An index is never changed once built.
+   */
+  private static class SpatialIndex {
+    final int resolution;
+    final double areaStartX, areaStartY, boxWidth, boxHeight;
+    final Rectangle2D[] obstacles;
+    final double[] bounds; // minX, minY, maxX, maxY of each obstacle
+    final int[] cellStart;
+    final int[] cellObstacles;
+
+    SpatialIndex(Rectangle2D[] obstacles, Rectangle2D area) {
+      this.obstacles = obstacles;
+      resolution = Math.max(MIN_SPATIAL_RESOLUTION, Math.min(MAX_SPATIAL_RESOLUTION,
+          (int) Math.ceil(Math.sqrt(obstacles.length / (double) OBSTACLES_PER_BOX))));
+      boxWidth = area.getWidth() / (double) resolution;
+      boxHeight = area.getHeight() / (double) resolution;
+      areaStartX = area.getMinX();
+      areaStartY = area.getMinY();
+
+      bounds = new double[4*obstacles.length];
+      for (int i=0; i < obstacles.length; i++) {
+        bounds[4*i] = obstacles[i].getMinX();
+        bounds[4*i+1] = obstacles[i].getMinY();
+        bounds[4*i+2] = obstacles[i].getMaxX();
+        bounds[4*i+3] = obstacles[i].getMaxY();
+      }
+
+      /* Count, then fill. Boxes list obstacles in registration order. */
+      int nrBoxes = resolution*resolution;
+      cellStart = new int[nrBoxes + 1];
+      int[] boxRanges = new int[4*obstacles.length];
+      for (int i=0; i < obstacles.length; i++) {
+        findBoxRange(i, boxRanges);
+        for (int x=boxRanges[4*i]; x <= boxRanges[4*i+2]; x++) {
+          for (int y=boxRanges[4*i+1]; y <= boxRanges[4*i+3]; y++) {
+            if (inBox(i, x, y)) {
+              cellStart[x*resolution + y + 1]++;
+            }
+          }
+        }
+      }
+      for (int c=0; c < nrBoxes; c++) {
+        cellStart[c+1] += cellStart[c];
+      }
+      cellObstacles = new int[cellStart[nrBoxes]];
+      int[] fill = Arrays.copyOf(cellStart, nrBoxes);
+      for (int i=0; i < obstacles.length; i++) {
+        for (int x=boxRanges[4*i]; x <= boxRanges[4*i+2]; x++) {
+          for (int y=boxRanges[4*i+1]; y <= boxRanges[4*i+3]; y++) {
+            if (inBox(i, x, y)) {
+              cellObstacles[fill[x*resolution + y]++] = i;
+            }
+          }
+        }
+      }
+    }
+
+    /* Boxes possibly overlapped by obstacle, with one box margin for rounding */
+    private void findBoxRange(int i, int[] ranges) {
+      if (!(boxWidth > 0) || !(boxHeight > 0)) {
+        /* Boxes have no area, and hence contain no obstacles */
+        ranges[4*i] = ranges[4*i+1] = 0;
+        ranges[4*i+2] = ranges[4*i+3] = -1;
+        return;
+      }
+      ranges[4*i] = clamp(floorBox(bounds[4*i] - areaStartX, boxWidth) - 1);
+      ranges[4*i+1] = clamp(floorBox(bounds[4*i+1] - areaStartY, boxHeight) - 1);
+      ranges[4*i+2] = clamp(floorBox(bounds[4*i+2] - areaStartX, boxWidth) + 1);
+      ranges[4*i+3] = clamp(floorBox(bounds[4*i+3] - areaStartY, boxHeight) + 1);
+    }
+
+    private boolean inBox(int i, int x, int y) {
+      return obstacles[i].intersects(
+          areaStartX + x*boxWidth, areaStartY + y*boxHeight, boxWidth, boxHeight);
+    }
+
+    int floorBox(double offset, double boxSize) {
+      double box = Math.floor(offset/boxSize);
+      if (box < -1) {
+        return -1;
+      }
+      if (box > resolution) {
+        return resolution;
+      }
+      return (int) box;
+    }
+
+    int clamp(int box) {
+      return Math.max(0, Math.min(resolution - 1, box));
+    }
+  }
+
+  /**
+   * Per-thread search state: obstacle marks avoiding duplicate results,
+   * and a result array reused by the searches returning vectors.
+   */
+  private static class SearchState {
+    private int[] marks = new int[0];
+    private int mark = 0;
+    private Rectangle2D[] results = new Rectangle2D[0];
+
+    /* Directions of sector narrower than PI, used to skip boxes far outside */
+    private boolean narrowSector;
+    private double startDirX, startDirY, endDirX, endDirY, midDirX, midDirY;
+
+    void setSector(AngleInterval angleInterval) {
+      Vector<Interval> subIntervals = angleInterval.subIntervals;
+      double low, high;
+      if (subIntervals.size() == 1) {
+        low = subIntervals.get(0).getLow();
+        high = subIntervals.get(0).getHigh();
+      } else if (subIntervals.size() == 2 &&
+          subIntervals.get(0).getHigh() == 2*Math.PI &&
+          subIntervals.get(1).getLow() == 0) {
+        low = subIntervals.get(0).getLow();
+        high = subIntervals.get(1).getHigh() + 2*Math.PI;
+      } else {
+        narrowSector = false;
+        return;
+      }
+      narrowSector = high >= low && high - low < 0.9*Math.PI;
+      startDirX = Math.cos(low);
+      startDirY = Math.sin(low);
+      endDirX = Math.cos(high);
+      endDirY = Math.sin(high);
+      midDirX = Math.cos((low + high)/2);
+      midDirY = Math.sin((low + high)/2);
+    }
+
+    /**
+     * True if box lies entirely outside the sector: all corners before the
+     * start direction, after the end direction, or behind the center.
+     * The margin keeps rounding errors from rejecting boxes touching the sector.
+     */
+    boolean outsideSector(double minX, double minY, double maxX, double maxY) {
+      if (!narrowSector) {
+        return false;
+      }
+      double margin = 1e-9*(Math.abs(minX) + Math.abs(minY) + Math.abs(maxX) + Math.abs(maxY));
+      return (cross(startDirX, startDirY, minX, minY, maxX, maxY) < -margin) ||
+          (cross(-endDirX, -endDirY, minX, minY, maxX, maxY) < -margin) ||
+          (dot(midDirX, midDirY, minX, minY, maxX, maxY) < -margin);
+    }
+
+    /* Largest cross product of direction and box corners */
+    private static double cross(double dirX, double dirY, double minX, double minY, double maxX, double maxY) {
+      return dirX*(dirX >= 0 ? maxY : minY) - dirY*(dirY >= 0 ? minX : maxX);
+    }
+
+    /* Largest dot product of direction and box corners */
+    private static double dot(double dirX, double dirY, double minX, double minY, double maxX, double maxY) {
+      return dirX*(dirX >= 0 ? maxX : minX) + dirY*(dirY >= 0 ? maxY : minY);
+    }
+
+    void nextMark(int nrObstacles) {
+      if (marks.length < nrObstacles) {
+        marks = new int[nrObstacles];
+        mark = 0;
+      }
+      if (++mark == 0) {
+        Arrays.fill(marks, 0);
+        mark = 1;
+      }
+    }
+
+    Rectangle2D[] results(int nrObstacles) {
+      if (results.length < nrObstacles) {
+        results = new Rectangle2D[nrObstacles];
+      }
+      return results;
+    }
+  }
+
+  private static final ThreadLocal<SearchState> searchState = new ThreadLocal<SearchState>() {
+    @Override
+    protected SearchState initialValue() {
+      return new SearchState();
+    }
+  };
+
   /**
    * Creates a new obstacle world without any obstacles.
    */
   public ObstacleWorld() {
     // No obstacles present so far
     allObstacles = new Vector<Rectangle2D>();
-    
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) 
-        allObstaclesSpatial[x][y] = new Vector<Rectangle2D>();
-    
     outerBounds = new Rectangle2D.Double(0,0,0,0);
+    spatialIndex = new SpatialIndex(new Rectangle2D[0], outerBounds);
   }
-  
+
   /**
    * @return The total number of registered obstacles
    */
@@ -108,283 +296,436 @@ class ObstacleWorld {
     return allObstacles;
   }
   
+  private SpatialIndex getSpatialIndex() {
+    if (!obstaclesOrganized) {
+      reorganizeSpatialObstacles();
+    }
+    return spatialIndex;
+  }
+
   /**
    * Returns at least all registered obstacles that contains given point.
    * Note that obstacles close to but not containing the point may also
    * be returned.
-   * 
+   *
    * @param center Center point
    * @return All obstacles containing or near center
    */
   public Vector<Rectangle2D> getAllObstaclesNear(Point2D center) {
-    double boxWidth = outerBounds.getWidth() / (double) spatialResolution;
-    double boxHeight = outerBounds.getHeight() / (double) spatialResolution;
-    double areaStartX = outerBounds.getMinX();
-    double areaStartY = outerBounds.getMinY();
-    
-    double centerX = (center.getX() - areaStartX)/boxWidth;
-    double centerY = (center.getY() - areaStartY)/boxHeight;
+    Rectangle2D[] results = searchState.get().results(getSpatialIndex().obstacles.length);
+    int count = getObstaclesNear(center, results);
+    Vector<Rectangle2D> allNearObstacles = new Vector<Rectangle2D>(count);
+    for (int i=0; i < count; i++) {
+      allNearObstacles.add(results[i]);
+      results[i] = null;
+    }
+    return allNearObstacles;
+  }
 
-    Vector<Rectangle2D> allNearObstacles = new Vector<Rectangle2D>();
+  /**
+   * Finds at least all registered obstacles that contains given point,
+   * see {@link #getAllObstaclesNear(Point2D)}. No objects are allocated.
+   *
+   * @param center Center point
+   * @param result Obstacles found, must have room for all obstacles
+   * @return Number of obstacles found
+   */
+  public int getObstaclesNear(Point2D center, Rectangle2D[] result) {
+    SpatialIndex index = getSpatialIndex();
+    double centerX = (center.getX() - index.areaStartX)/index.boxWidth;
+    double centerY = (center.getY() - index.areaStartY)/index.boxHeight;
+    int x = (int) centerX;
+    int y = (int) centerY;
+    SearchState state = searchState.get();
+    state.nextMark(index.obstacles.length);
 
-    Point pointToAdd = new Point((int) centerX, (int) centerY);
-    if (pointToAdd.x >= 0 &&
-        pointToAdd.x < allObstaclesSpatial.length &&
-        pointToAdd.y >= 0 &&
-        pointToAdd.y < allObstaclesSpatial[0].length)
-      allNearObstacles.addAll(allObstaclesSpatial[pointToAdd.x][pointToAdd.y]);
+    int count = addBox(index, x, y, result, 0, state);
 
     // Add borders if needed
     boolean addedXBorder = false;
     boolean addedYBorder = false;
-    if (Math.floor(centerX) == centerX) {
-      pointToAdd = new Point((int) centerX-1, (int) centerY);
-      if (pointToAdd.x >= 0 &&
-          pointToAdd.x < allObstaclesSpatial.length &&
-          pointToAdd.y >= 0 &&
-          pointToAdd.y < allObstaclesSpatial[0].length) {
-        allNearObstacles.addAll(allObstaclesSpatial[pointToAdd.x][pointToAdd.y]);
-        addedXBorder = true;
-      }
+    if (Math.floor(centerX) == centerX && isBox(index, x-1, y)) {
+      count = addBox(index, x-1, y, result, count, state);
+      addedXBorder = true;
     }
-
-    if (Math.floor(centerY) == centerY) {
-      pointToAdd = new Point((int) centerX, (int) centerY-1);
-      if (pointToAdd.x >= 0 &&
-          pointToAdd.x < allObstaclesSpatial.length &&
-          pointToAdd.y >= 0 &&
-          pointToAdd.y < allObstaclesSpatial[0].length) {
-        allNearObstacles.addAll(allObstaclesSpatial[pointToAdd.x][pointToAdd.y]);
-        addedYBorder = true;
-      }
+    if (Math.floor(centerY) == centerY && isBox(index, x, y-1)) {
+      count = addBox(index, x, y-1, result, count, state);
+      addedYBorder = true;
     }
-    
     if (addedXBorder && addedYBorder) {
-      pointToAdd = new Point((int) centerX-1, (int) centerY-1);
-      allNearObstacles.addAll(allObstaclesSpatial[pointToAdd.x][pointToAdd.y]);
+      count = addBox(index, x-1, y-1, result, count, state);
     }
-      
-    return allNearObstacles;
+    return count;
   }
 
   /**
    * Returns at least all registered obstacles inside the given angle
-   * interval when at the given center point. Note that obstacles partly or 
+   * interval when at the given center point. Note that obstacles partly or
    * completely outside the interval may also be returned.
    * All obstacles are preferably returned in order of distance from given
    * center point, although this is not guaranteed.
-   * 
+   *
    * @param center Center point
    * @param angleInterval Angle interval
    * @return All obstacles in given angle interval
    */
   public Vector<Rectangle2D> getAllObstaclesInAngleInterval(Point2D center, AngleInterval angleInterval) {
-    Vector<Rectangle2D> obstaclesToReturn = new Vector<Rectangle2D>();
-    if (!obstaclesOrganized) {
-      reorganizeSpatialObstacles();
+    Rectangle2D[] results = searchState.get().results(getSpatialIndex().obstacles.length);
+    int count = getObstaclesInAngleInterval(center, angleInterval, results);
+    Vector<Rectangle2D> obstaclesToReturn = new Vector<Rectangle2D>(count);
+    for (int i=0; i < count; i++) {
+      obstaclesToReturn.add(results[i]);
+      results[i] = null;
     }
-    
-    double boxWidth = outerBounds.getWidth() / (double) spatialResolution;
-    double boxHeight = outerBounds.getHeight() / (double) spatialResolution;
-    double areaStartX = outerBounds.getMinX();
-    double areaStartY = outerBounds.getMinY();
-    
-    // Calculate which boxes to check (and in which order)
-    Point centerInArray = new Point(
-        (int) ((center.getX() - areaStartX)/boxWidth),
-        (int) ((center.getY() - areaStartY)/boxHeight)
-    );
-    Vector<Point> pointsToCheck = new Vector<Point>();
-    
-    int currentDistance = 0;
-    while (currentDistance < 2*spatialResolution) {
-      
-      if (currentDistance > 0) {
-        int currentX = centerInArray.x - currentDistance;
-        int currentY = centerInArray.y - currentDistance;
-        
-        // Step right
-        while (currentX < centerInArray.x + currentDistance) {
-          if (currentX >= 0 &&
-              currentX < allObstaclesSpatial.length &&
-              currentY >= 0 &&
-              currentY < allObstaclesSpatial[0].length)
-            pointsToCheck.add(new Point(currentX, currentY));
-          currentX++;
+    return obstaclesToReturn;
+  }
+
+  /**
+   * Finds at least all registered obstacles inside the given angle interval
+   * when at the given center point, see
+   * {@link #getAllObstaclesInAngleInterval(Point2D, AngleInterval)}.
+   * No objects are allocated.
+   *
+   * @param center Center point
+   * @param angleInterval Angle interval
+   * @param result Obstacles found, must have room for all obstacles
+   * @return Number of obstacles found
+   */
+  public int getObstaclesInAngleInterval(Point2D center, AngleInterval angleInterval, Rectangle2D[] result) {
+    SpatialIndex index = getSpatialIndex();
+    int resolution = index.resolution;
+    SearchState state = searchState.get();
+    state.nextMark(index.obstacles.length);
+    state.setSector(angleInterval);
+    int count = 0;
+
+    // Check boxes in rings around center box, boxes further away are never reached
+    int centerX = (int) ((center.getX() - index.areaStartX)/index.boxWidth);
+    int centerY = (int) ((center.getY() - index.areaStartY)/index.boxHeight);
+    centerX = Math.max(-2*resolution - 1, Math.min(3*resolution, centerX));
+    centerY = Math.max(-2*resolution - 1, Math.min(3*resolution, centerY));
+
+    count = checkBox(index, centerX, centerY, center, angleInterval, result, count, state);
+    for (int distance=1; distance < 2*resolution; distance++) {
+      int minX = centerX - distance, maxX = centerX + distance;
+      int minY = centerY - distance, maxY = centerY + distance;
+      if (minX < 0 && maxX >= resolution && minY < 0 && maxY >= resolution) {
+        break; // Entire grid already checked
+      }
+
+      // Step right
+      if (minY >= 0 && minY < resolution) {
+        for (int x=Math.max(minX, 0); x < Math.min(maxX, resolution); x++) {
+          count = checkBox(index, x, minY, center, angleInterval, result, count, state);
         }
-        
-        // Step right
-        while (currentY < centerInArray.y + currentDistance) {
-          if (currentX >= 0 &&
-              currentX < allObstaclesSpatial.length &&
-              currentY >= 0 &&
-              currentY < allObstaclesSpatial[0].length)
-            pointsToCheck.add(new Point(currentX, currentY));
-          currentY++;
+      }
+      // Step down
+      if (maxX >= 0 && maxX < resolution) {
+        for (int y=Math.max(minY, 0); y < Math.min(maxY, resolution); y++) {
+          count = checkBox(index, maxX, y, center, angleInterval, result, count, state);
         }
-        
-        // Step left
-        while (currentX > centerInArray.x - currentDistance) {
-          if (currentX >= 0 &&
-              currentX < allObstaclesSpatial.length &&
-              currentY >= 0 &&
-              currentY < allObstaclesSpatial[0].length)
-            pointsToCheck.add(new Point(currentX, currentY));
-          currentX--;
+      }
+      // Step left
+      if (maxY >= 0 && maxY < resolution) {
+        for (int x=Math.min(maxX, resolution-1); x > Math.max(minX, -1); x--) {
+          count = checkBox(index, x, maxY, center, angleInterval, result, count, state);
         }
-        
-        // Step up
-        while (currentY > centerInArray.y - currentDistance) {
-          if (currentX >= 0 &&
-              currentX < allObstaclesSpatial.length &&
-              currentY >= 0 &&
-              currentY < allObstaclesSpatial[0].length)
-            pointsToCheck.add(new Point(currentX, currentY));
-          currentY--;
+      }
+      // Step up
+      if (minX >= 0 && minX < resolution) {
+        for (int y=Math.min(maxY, resolution-1); y > Math.max(minY, -1); y--) {
+          count = checkBox(index, minX, y, center, angleInterval, result, count, state);
         }
-            
+      }
+    }
+    return count;
+  }
+
+  /* Adds obstacles of box if box contains center, or if a box diagonal is in angle interval */
+  private static int checkBox(SpatialIndex index, int x, int y, Point2D center,
+      AngleInterval angleInterval, Rectangle2D[] result, int count, SearchState state) {
+    if (!isBox(index, x, y) || index.cellStart[x*index.resolution + y] == index.cellStart[x*index.resolution + y + 1]) {
+      return count;
+    }
+    double boxMinX = index.areaStartX + x*index.boxWidth;
+    double boxMinY = index.areaStartY + y*index.boxHeight;
+    double boxMaxX = index.areaStartX + (x+1)*index.boxWidth;
+    double boxMaxY = index.areaStartY + (y+1)*index.boxHeight;
+
+    // Test if we are inside test box
+    if (center.getX() >= boxMinX &&
+        center.getY() >= boxMinY &&
+        center.getX() < boxMinX + index.boxWidth &&
+        center.getY() < boxMinY + index.boxHeight) {
+      return addBox(index, x, y, result, count, state);
+    }
+
+    if (state.outsideSector(boxMinX - center.getX(), boxMinY - center.getY(),
+        boxMaxX - center.getX(), boxMaxY - center.getY())) {
+      return count;
+    }
+
+    // Test first and second diagonal
+    if (lineIntersectsAngleInterval(center, boxMinX, boxMinY, boxMaxX, boxMaxY, angleInterval) ||
+        lineIntersectsAngleInterval(center, boxMinX, boxMaxY, boxMaxX, boxMinY, angleInterval)) {
+      return addBox(index, x, y, result, count, state);
+    }
+    return count;
+  }
+
+  /**
+   * Same as AngleInterval.getAngleIntervalOfLine(center, line).intersects(angleInterval),
+   * without creating the intervals.
+   */
+  private static boolean lineIntersectsAngleInterval(Point2D center,
+      double x1, double y1, double x2, double y2, AngleInterval angleInterval) {
+    double angle1 = Math.atan2(y1 - center.getY(), x1 - center.getX());
+    double angle2 = Math.atan2(y2 - center.getY(), x2 - center.getX());
+
+    // If interval is bigger than PI, line angles must wrap
+    if (Math.abs(angle1 - angle2) > Math.PI) {
+      if (angle1 < 0)
+        angle1 += 2*Math.PI;
+      else
+        angle2 += 2*Math.PI;
+    }
+    double startAngle = Math.min(angle1, angle2);
+    double endAngle = Math.max(angle1, angle2);
+
+    // Sub intervals, see AngleInterval(double, double)
+    double low1, high1, low2 = 0, high2 = 0;
+    boolean second = false;
+    if (endAngle < startAngle) {
+      return false;
+    } else if (endAngle - startAngle >= 2*Math.PI) {
+      low1 = 0;
+      high1 = 2*Math.PI;
+    } else {
+      while (startAngle < 0)
+        startAngle += 2*Math.PI;
+      while (endAngle < 0)
+        endAngle += 2*Math.PI;
+      startAngle %= 2*Math.PI;
+      endAngle %= 2*Math.PI;
+
+      if (startAngle < endAngle) {
+        low1 = Math.min(startAngle, endAngle);
+        high1 = endAngle;
       } else {
-        if (centerInArray.x >= 0 &&
-            centerInArray.x < allObstaclesSpatial.length &&
-            centerInArray.y >= 0 &&
-            centerInArray.y < allObstaclesSpatial[0].length) {
-          pointsToCheck.add(new Point(centerInArray.x, centerInArray.y));
+        low1 = Math.min(startAngle, 2*Math.PI);
+        high1 = 2*Math.PI;
+        low2 = Math.min(0, endAngle);
+        high2 = endAngle;
+        second = !(high2 <= low2);
+        if (high1 <= low1) {
+          low1 = low2;
+          high1 = high2;
+          second = false;
         }
       }
-      currentDistance++;  
+      if (high1 <= low1) {
+        return false;
+      }
     }
-      
-    for (int pointNr=0; pointNr < pointsToCheck.size(); pointNr++) {
-      // Check which obstacles should be in this box
-      boolean hit = false;
-      int x = pointsToCheck.get(pointNr).x;
-      int y = pointsToCheck.get(pointNr).y;
-      
-      // Test if we are inside test box
-      if (!hit) {
-        if (new Rectangle2D.Double(
-            areaStartX + x*boxWidth, 
-            areaStartY + y*boxHeight, 
-            boxWidth, 
-            boxHeight).contains(center)) {
-          hit = true;
-          for (int i=0; i < allObstaclesSpatial[x][y].size(); i++) {
-            if (!obstaclesToReturn.contains(allObstaclesSpatial[x][y].get(i)))
-              obstaclesToReturn.add(allObstaclesSpatial[x][y].get(i));
-          }
-        }
+
+    // Count intersecting sub intervals, see AngleInterval.intersectWith(AngleInterval)
+    int intersections = 0;
+    Vector<Interval> subIntervals = angleInterval.subIntervals;
+    for (int i=0; i < subIntervals.size(); i++) {
+      Interval interval = subIntervals.get(i);
+      if (intervalsIntersect(interval.getLow(), interval.getHigh(), low1, high1)) {
+        intersections++;
       }
-      
-      // Test first diagonal
-      if (!hit) {
-        AngleInterval testInterval = AngleInterval.getAngleIntervalOfLine(
-            center,
-            new Line2D.Double(
-                areaStartX + x*boxWidth, 
-                areaStartY + y*boxHeight, 
-                areaStartX + (x+1)*boxWidth, 
-                areaStartY + (y+1)*boxHeight)
-        );
-        if (testInterval.intersects(angleInterval)) {
-          hit = true;
-          for (int i=0; i < allObstaclesSpatial[x][y].size(); i++) {
-            if (!obstaclesToReturn.contains(allObstaclesSpatial[x][y].get(i)))
-              obstaclesToReturn.add(allObstaclesSpatial[x][y].get(i));
-          }
+      if (second && intervalsIntersect(interval.getLow(), interval.getHigh(), low2, high2)) {
+        intersections++;
+      }
+    }
+    return intersections > 0 && intersections <= 2;
+  }
+
+  /**
+   * Same as new Interval(low, high).intersectWith(new Interval(otherLow, otherHigh)),
+   * followed by a check that the result is not null and not empty.
+   */
+  private static boolean intervalsIntersect(double low, double high, double otherLow, double otherHigh) {
+    if (high <= otherLow || low >= otherHigh)
+      return false;
+    if (low >= otherLow && high <= otherHigh)
+      return !(high <= low);
+    if (low <= otherLow && high >= otherHigh)
+      return !(otherHigh <= otherLow);
+    if (low >= otherLow && high >= otherHigh)
+      return !(otherHigh <= Math.min(low, otherHigh));
+    if (low <= otherLow && high <= otherHigh)
+      return !(high <= Math.min(otherLow, high));
+    return false;
+  }
+
+  private static boolean isBox(SpatialIndex index, int x, int y) {
+    return x >= 0 && x < index.resolution && y >= 0 && y < index.resolution;
+  }
+
+  /* Adds obstacles of box not already marked */
+  private static int addBox(SpatialIndex index, int x, int y, Rectangle2D[] result, int count, SearchState state) {
+    if (!isBox(index, x, y)) {
+      return count;
+    }
+    int[] marks = state.marks;
+    int mark = state.mark;
+    int box = x*index.resolution + y;
+    for (int c=index.cellStart[box]; c < index.cellStart[box+1]; c++) {
+      int i = index.cellObstacles[c];
+      if (marks[i] != mark) {
+        marks[i] = mark;
+        result[count++] = index.obstacles[i];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns true if the given line segment touches any registered obstacle.
+   * Touching an obstacle border counts as an intersection, as does passing
+   * within a small tolerance of it; a false result is hence always exact.
+   * No objects are allocated.
+   *
+   * @param x1 Segment start X coordinate
+   * @param y1 Segment start Y coordinate
+   * @param x2 Segment end X coordinate
+   * @param y2 Segment end Y coordinate
+   * @return True if segment intersects any obstacle
+   */
+  public boolean intersectsObstacle(double x1, double y1, double x2, double y2) {
+    SpatialIndex index = getSpatialIndex();
+    if (index.cellObstacles.length == 0) {
+      return false;
+    }
+    int resolution = index.resolution;
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+
+    // Check boxes row by row, only the boxes passed by the segment
+    int firstRow = index.floorBox(Math.min(y1, y2) - INTERSECTION_TOLERANCE - index.areaStartY, index.boxHeight);
+    int lastRow = index.floorBox(Math.max(y1, y2) + INTERSECTION_TOLERANCE - index.areaStartY, index.boxHeight);
+    if (lastRow < 0 || firstRow >= resolution) {
+      return false;
+    }
+    firstRow = index.clamp(firstRow);
+    lastRow = index.clamp(lastRow);
+
+    for (int y=firstRow; y <= lastRow; y++) {
+      // Part of segment inside this row
+      double tStart = 0, tEnd = 1;
+      if (dy != 0) {
+        double rowMinY = index.areaStartY + y*index.boxHeight - INTERSECTION_TOLERANCE;
+        double rowMaxY = index.areaStartY + (y+1)*index.boxHeight + INTERSECTION_TOLERANCE;
+        double t1 = (rowMinY - y1)/dy;
+        double t2 = (rowMaxY - y1)/dy;
+        tStart = Math.max(tStart, Math.min(t1, t2));
+        tEnd = Math.min(tEnd, Math.max(t1, t2));
+        if (tStart > tEnd) {
+          continue;
         }
       }
-        
-      // Test second diagonal
-      if (!hit) {
-        AngleInterval testInterval = AngleInterval.getAngleIntervalOfLine(
-            center,
-            new Line2D.Double(
-                areaStartX + x*boxWidth, 
-                areaStartY + (y+1)*boxHeight,
-                areaStartX + (x+1)*boxWidth, 
-                areaStartY + y*boxHeight)
-        );
-        if (testInterval.intersects(angleInterval)) {
-          hit = true;
-          for (int i=0; i < allObstaclesSpatial[x][y].size(); i++) {
-            if (!obstaclesToReturn.contains(allObstaclesSpatial[x][y].get(i)))
-              obstaclesToReturn.add(allObstaclesSpatial[x][y].get(i));
+      double rowX1 = x1 + tStart*dx;
+      double rowX2 = x1 + tEnd*dx;
+      int firstColumn = index.floorBox(Math.min(rowX1, rowX2) - INTERSECTION_TOLERANCE - index.areaStartX, index.boxWidth);
+      int lastColumn = index.floorBox(Math.max(rowX1, rowX2) + INTERSECTION_TOLERANCE - index.areaStartX, index.boxWidth);
+      if (lastColumn < 0 || firstColumn >= resolution) {
+        continue;
+      }
+      firstColumn = index.clamp(firstColumn);
+      lastColumn = index.clamp(lastColumn);
+
+      for (int x=firstColumn; x <= lastColumn; x++) {
+        int box = x*resolution + y;
+        for (int c=index.cellStart[box]; c < index.cellStart[box+1]; c++) {
+          int i = index.cellObstacles[c];
+          if (segmentIntersectsBox(x1, y1, dx, dy,
+              index.bounds[4*i] - INTERSECTION_TOLERANCE,
+              index.bounds[4*i+1] - INTERSECTION_TOLERANCE,
+              index.bounds[4*i+2] + INTERSECTION_TOLERANCE,
+              index.bounds[4*i+3] + INTERSECTION_TOLERANCE)) {
+            return true;
           }
         }
       }
     }
-        
-    return obstaclesToReturn;
+    return false;
   }
-  
+
+  /* Clips segment (x, y) + t*(dx, dy), t in [0, 1], against closed box */
+  private static boolean segmentIntersectsBox(double x, double y, double dx, double dy,
+      double minX, double minY, double maxX, double maxY) {
+    double tStart = 0, tEnd = 1;
+    if (dx == 0) {
+      if (x < minX || x > maxX) {
+        return false;
+      }
+    } else {
+      double t1 = (minX - x)/dx;
+      double t2 = (maxX - x)/dx;
+      tStart = Math.max(tStart, Math.min(t1, t2));
+      tEnd = Math.min(tEnd, Math.max(t1, t2));
+    }
+    if (dy == 0) {
+      if (y < minY || y > maxY) {
+        return false;
+      }
+    } else {
+      double t1 = (minY - y)/dy;
+      double t2 = (maxY - y)/dy;
+      tStart = Math.max(tStart, Math.min(t1, t2));
+      tEnd = Math.min(tEnd, Math.max(t1, t2));
+    }
+    return tStart <= tEnd;
+  }
+
   /**
    * Removes all registered obstacles.
    */
   public void removeAll() {
     allObstacles.removeAllElements();
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) 
-        allObstaclesSpatial[x][y].removeAllElements();
-    
     outerBounds = new Rectangle2D.Double(0,0,0,0);
+    obstaclesOrganized = false;
   }
-  
+
   /**
    * Returns true of given point is on a corner of
    * any of the structures build from the obstacles.
-   * Internally this method checks how many of four point 
-   * close to and located around given point (diagonally) are 
+   * Internally this method checks how many of four point
+   * close to and located around given point (diagonally) are
    * inside any obstacle.
    * This method returns true if exactly one point is inside an obstacle.
-   * 
+   *
    * @param point Point to check
    * @return True of point is on a corner, false otherwise
    */
   public boolean pointIsNearCorner(Point2D point) {
-    double boxWidth = outerBounds.getWidth() / (double) spatialResolution;
-    double boxHeight = outerBounds.getHeight() / (double) spatialResolution;
-    double areaStartX = outerBounds.getMinX();
-    double areaStartY = outerBounds.getMinY();
+    SpatialIndex index = getSpatialIndex();
 
     // Which obstacles should be checked
-    Point centerInArray = new Point(
-        (int) ((point.getX() - areaStartX)/boxWidth),
-        (int) ((point.getY() - areaStartY)/boxHeight)
-    );
-    Vector<Rectangle2D> allObstaclesToCheck = null;
-    if (centerInArray.x < 0)
-      centerInArray.x = 0;
-    if (centerInArray.x >= spatialResolution)
-      centerInArray.x = spatialResolution-1;
-    if (centerInArray.y < 0)
-      centerInArray.y = 0;
-    if (centerInArray.y >= spatialResolution)
-      centerInArray.y = spatialResolution-1;
-    
-    allObstaclesToCheck = allObstaclesSpatial[centerInArray.x][centerInArray.y];
+    int x = index.clamp((int) ((point.getX() - index.areaStartX)/index.boxWidth));
+    int y = index.clamp((int) ((point.getY() - index.areaStartY)/index.boxHeight));
+    int box = x*index.resolution + y;
 
-    if (allObstaclesToCheck.size() == 0) {
-      return false;
-    } 
-    
-    // Create the four point to check
+    // The four points to check
     double deltaDistance = 0.01; // 1 cm TODO Change this?
-    Point2D point1 = new Point2D.Double(point.getX() - deltaDistance, point.getY() - deltaDistance);
-    Point2D point2 = new Point2D.Double(point.getX() - deltaDistance, point.getY() + deltaDistance);
-    Point2D point3 = new Point2D.Double(point.getX() + deltaDistance, point.getY() - deltaDistance);
-    Point2D point4 = new Point2D.Double(point.getX() + deltaDistance, point.getY() + deltaDistance);
+    double minX = point.getX() - deltaDistance;
+    double minY = point.getY() - deltaDistance;
+    double maxX = point.getX() + deltaDistance;
+    double maxY = point.getY() + deltaDistance;
 
     int containedPoints = 0;
-    Enumeration<Rectangle2D> allObstaclesToCheckEnum = allObstaclesToCheck.elements();
-    while (allObstaclesToCheckEnum.hasMoreElements()) {
-      Rectangle2D obstacleToCheck = allObstaclesToCheckEnum.nextElement();
-      if (obstacleToCheck.contains(point1))
+    for (int c=index.cellStart[box]; c < index.cellStart[box+1]; c++) {
+      Rectangle2D obstacleToCheck = index.obstacles[index.cellObstacles[c]];
+      if (obstacleToCheck.contains(minX, minY))
         containedPoints++;
-      if (obstacleToCheck.contains(point2))
+      if (obstacleToCheck.contains(minX, maxY))
         containedPoints++;
-      if (obstacleToCheck.contains(point3))
+      if (obstacleToCheck.contains(maxX, minY))
         containedPoints++;
-      if (obstacleToCheck.contains(point4))
+      if (obstacleToCheck.contains(maxX, maxY))
         containedPoints++;
 
       // Abort if already to many contained points
@@ -392,10 +733,10 @@ class ObstacleWorld {
         return false;
       }
     }
-    
+
     return (containedPoints == 1);
   }
-  
+
   /**
    * Checks if specified obstacle can be merged with any existing obstacle
    * in order to reduce the total number of obstacles. And in that case a merge
@@ -539,36 +880,26 @@ class ObstacleWorld {
     obstaclesOrganized = false;
   }
   
+  /**
+   * Reorganizes obstacles, unless already organized.
+   * Searches do this lazily; call before searching from several threads.
+   */
+  public void organize() {
+    if (!obstaclesOrganized) {
+      reorganizeSpatialObstacles();
+    }
+  }
+
   /**
    * Reorganizes all registered obstacles in order to speed up
    * searches for obstacles in spatial areas.
    * This method is run automatically 
    */
-  public void reorganizeSpatialObstacles() {
-    // Remove all spatial obstacles
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) 
-        allObstaclesSpatial[x][y].removeAllElements();
-    
-    double boxWidth = outerBounds.getWidth() / (double) spatialResolution;
-    double boxHeight = outerBounds.getHeight() / (double) spatialResolution;
-    double currentBoxMinX = outerBounds.getMinX();
-    double currentBoxMinY = outerBounds.getMinY();
-    
-    // For each box, add obstacles that belong there
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) {
-        // Check which obstacles should be in this box
-        Rectangle2D boxToCheck = new Rectangle2D.Double(currentBoxMinX + x*boxWidth, currentBoxMinY + y*boxHeight, boxWidth, boxHeight);
-        for (int i=0; i < allObstacles.size(); i++) {
-          if (allObstacles.get(i).intersects(boxToCheck)) {
-            allObstaclesSpatial[x][y].add(allObstacles.get(i));
-          }
-        }
-      }
-    
+  public synchronized void reorganizeSpatialObstacles() {
+    spatialIndex = new SpatialIndex(
+        allObstacles.toArray(new Rectangle2D[allObstacles.size()]), outerBounds);
     obstaclesOrganized = true;
-    
+
     //printObstacleGridToConsole();
   }
   
@@ -576,30 +907,28 @@ class ObstacleWorld {
    * Prints a description of all obstacles to the console
    */
   public void printObstacleGridToConsole() {
+    SpatialIndex index = getSpatialIndex();
     logger.info("<<<<<<< printObstacleGridToConsole >>>>>>>");
     logger.info(". Number of obstacles:\t" + getNrObstacles());
     logger.info(". Outer boundary min:\t" + getOuterBounds().getMinX() + ", " + getOuterBounds().getMinY());
     logger.info(". Outer boundary max:\t" + getOuterBounds().getMaxX() + ", " + getOuterBounds().getMaxY());
     
-    Vector<Rectangle2D> uniqueSpatialObstacles = new Vector<Rectangle2D>();
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) 
-        for (int i=0; i < allObstaclesSpatial[x][y].size(); i++) 
-          if (!uniqueSpatialObstacles.contains(allObstaclesSpatial[x][y].get(i)))
-            uniqueSpatialObstacles.add(allObstaclesSpatial[x][y].get(i));
-    logger.info(". Unique spatial obstacles:\t" + uniqueSpatialObstacles.size());
-    
-    int allSpatialObstacles = 0;
-    for (int x=0; x < spatialResolution; x++)
-      for (int y=0; y < spatialResolution; y++) 
-        for (int i=0; i < allObstaclesSpatial[x][y].size(); i++) 
-          allSpatialObstacles++;
-    logger.debug(". All spatial obstacles:\t" + allSpatialObstacles);
+    boolean[] unique = new boolean[index.obstacles.length];
+    int uniqueSpatialObstacles = 0;
+    for (int c=0; c < index.cellObstacles.length; c++) {
+      if (!unique[index.cellObstacles[c]]) {
+        unique[index.cellObstacles[c]] = true;
+        uniqueSpatialObstacles++;
+      }
+    }
+    logger.info(". Unique spatial obstacles:\t" + uniqueSpatialObstacles);
+    logger.debug(". All spatial obstacles:\t" + index.cellObstacles.length);
     
-    logger.info(". Spatial map counts:");
-    for (int y=0; y < spatialResolution; y++) {
-      for (int x=0; x < spatialResolution; x++) {
-        System.out.print(allObstaclesSpatial[x][y].size() + " ");
+    logger.info(". Spatial map counts (" + index.resolution + "x" + index.resolution + "):");
+    for (int y=0; y < index.resolution; y++) {
+      for (int x=0; x < index.resolution; x++) {
+        int box = x*index.resolution + y;
+        System.out.print((index.cellStart[box+1] - index.cellStart[box]) + " ");
       }
       System.out.println("");
     }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.mrm;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+/**
+ * ObstacleWorldBenchmark - times obstacle searches on a synthetic building
+ * floorplan: a grid of rooms separated by walls with door openings.
+ * Segment intersection results are compared to a brute force search.
+ *
+ * Usage: ObstacleWorldBenchmark [walls] [queries]
+ *
+ * @author agent
+ */
+public class ObstacleWorldBenchmark {
+
+  private static final double ROOM_SIZE = 4.0;
+  private static final double WALL = 0.2;
+  private static final double DOOR = 1.0;
+
+  /* Each room adds one horizontal and one vertical wall */
+  private static ObstacleWorld createFloorplan(int walls) {
+    ObstacleWorld world = new ObstacleWorld();
+    int rooms = (int) Math.ceil(Math.sqrt(walls / 2.0));
+    int added = 0;
+    for (int x = 0; x < rooms && added < walls; x++) {
+      for (int y = 0; y < rooms && added < walls; y++) {
+        double roomX = x * ROOM_SIZE;
+        double roomY = y * ROOM_SIZE;
+        world.addObstacle(roomX, roomY, ROOM_SIZE - DOOR, WALL, false);
+        if (++added < walls) {
+          world.addObstacle(roomX, roomY + WALL + DOOR, WALL, ROOM_SIZE - WALL - DOOR, false);
+          added++;
+        }
+      }
+    }
+    return world;
+  }
+
+  private static boolean bruteForceIntersects(ObstacleWorld world, double x1, double y1, double x2, double y2) {
+    for (int i = 0; i < world.getNrObstacles(); i++) {
+      Rectangle2D obstacle = world.getObstacle(i);
+      if (obstacle.intersectsLine(x1, y1, x2, y2) || obstacle.contains(x1, y1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static void main(String[] args) {
+    int walls = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    long start = System.nanoTime();
+    ObstacleWorld world = createFloorplan(walls);
+    world.organize();
+    long elapsed = System.nanoTime() - start;
+    Rectangle2D bounds = world.getOuterBounds();
+    System.out.println("Floorplan: " + world.getNrObstacles() + " walls, "
+        + bounds.getWidth() + " x " + bounds.getHeight() + " m, built in "
+        + (elapsed / 1000000) + " ms");
+
+    Rectangle2D[] result = new Rectangle2D[world.getNrObstacles()];
+    Point2D.Double center = new Point2D.Double();
+    for (int pass = 0; pass < 2; pass++) {
+      // First pass warms up
+      int n = pass == 0 ? queries / 10 : queries;
+
+      /* Angle sectors of 5 to 30 degrees */
+      Random random = new Random(4711);
+      long checksum = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < n; i++) {
+        center.setLocation(random.nextDouble() * bounds.getWidth(), random.nextDouble() * bounds.getHeight());
+        double angle = random.nextDouble() * 2 * Math.PI;
+        AngleInterval sector = new AngleInterval(angle, angle + Math.toRadians(5 + random.nextInt(26)));
+        checksum = checksum * 31 + world.getObstaclesInAngleInterval(center, sector, result);
+      }
+      elapsed = System.nanoTime() - start;
+      if (pass > 0) {
+        System.out.println("Sector searches: " + n + " queries: " + (elapsed / 1000000) + " ms ("
+            + (elapsed / n) + " ns/query), checksum " + checksum);
+      }
+
+      /* Segments of up to 20 m */
+      random = new Random(4711);
+      int hits = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < n; i++) {
+        double x1 = random.nextDouble() * bounds.getWidth();
+        double y1 = random.nextDouble() * bounds.getHeight();
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double length = random.nextDouble() * 20;
+        if (world.intersectsObstacle(x1, y1, x1 + length * Math.cos(angle), y1 + length * Math.sin(angle))) {
+          hits++;
+        }
+      }
+      elapsed = System.nanoTime() - start;
+      if (pass > 0) {
+        System.out.println("Segment searches: " + n + " queries: " + (elapsed / 1000000) + " ms ("
+            + (elapsed / n) + " ns/query), " + hits + " intersections");
+      }
+    }
+
+    /* Brute force comparison, fewer queries */
+    int n = Math.max(1, queries / 100);
+    Random random = new Random(4712);
+    int missed = 0, tolerated = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < n; i++) {
+      double x1 = random.nextDouble() * bounds.getWidth();
+      double y1 = random.nextDouble() * bounds.getHeight();
+      double angle = random.nextDouble() * 2 * Math.PI;
+      double length = random.nextDouble() * 20;
+      double x2 = x1 + length * Math.cos(angle);
+      double y2 = y1 + length * Math.sin(angle);
+      boolean indexed = world.intersectsObstacle(x1, y1, x2, y2);
+      boolean brute = bruteForceIntersects(world, x1, y1, x2, y2);
+      if (brute && !indexed) {
+        missed++;
+      } else if (indexed && !brute) {
+        tolerated++;
+      }
+    }
+    elapsed = System.nanoTime() - start;
+    System.out.println("Brute force comparison: " + n + " queries: " + (elapsed / 1000000) + " ms, "
+        + missed + " missed, " + tolerated + " within tolerance");
+    if (missed > 0) {
+      System.exit(1);
+    }
+  }
+}
@@ -234,7 +234,8 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
 
     logger.info("Loading firmware from: " + fileELF.getAbsolutePath());
     Cooja.setProgressMessage("Loading " + fileELF.getName());
-    node.loadFirmware(((MspMoteType)getType()).getELF());
+    MspMoteType type = (MspMoteType) getType();
+    node.loadFirmware(type.getELF(), type.getMemoryImage(myCpu));
 
     /* Throw exceptions at bad memory access */
     /*myCpu.setThrowIfWarning(true);*/
@@ -295,10 +296,33 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   private long skipped = 0;
   
   public void execute(long time) {
-    execute(time, EXECUTE_DURATION_US);
+    /* An active CPU executes in 1 us steps. Keep executing as long as the
+     * simulation would run nothing else before the next step, instead of
+     * scheduling every step in the event queue. A wakeup requested during
+     * the step must go through the event queue. */
+    long t = time;
+    while (executeStep(t, EXECUTE_DURATION_US)) {
+      if (getNextWakeupTime() >= 0 || !simulation.advanceSimulationTime(nextExecute)) {
+        scheduleNextWakeup(nextExecute);
+        return;
+      }
+      t = nextExecute;
+    }
   }
 
   public void execute(long t, int duration) {
+    if (executeStep(t, duration)) {
+      scheduleNextWakeup(nextExecute);
+    }
+  }
+
+  /**
+   * Executes the CPU for the given duration.
+   *
+   * @return True iff the mote should next execute at nextExecute, which
+   * the caller must schedule
+   */
+  private boolean executeStep(long t, int duration) {
     MspClock clock = ((MspClock) (myMoteInterfaceHandler.getClock()));
     double deviation = clock.getDeviation();
     long drift = clock.getDrift();
@@ -306,7 +330,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     /* Wait until mote boots */
     if (!booted && clock.getTime() < 0) {
       scheduleNextWakeup(t - clock.getTime());
-      return;
+      return false;
     }
     booted = true;
 
@@ -349,10 +373,10 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
 
     /*logger.debug(t + ": Schedule next wakeup at " + nextExecute);*/
     executed += duration; 
-    scheduleNextWakeup(nextExecute);
 
     if (stopNextInstruction) {
       stopNextInstruction = false;
+      scheduleNextWakeup(nextExecute);
       throw new RuntimeException("MSPSim requested simulation stop");
     }
 
@@ -370,6 +394,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
         }
       }
     }*/
+    return true;
   }
 
   public String getStackTrace() {
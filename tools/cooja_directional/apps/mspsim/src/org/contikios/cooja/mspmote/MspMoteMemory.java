@@ -29,15 +29,16 @@
 
 package org.contikios.cooja.mspmote;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import org.contikios.cooja.Mote;
+import org.contikios.cooja.mote.memory.MemoryBuffer;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.mote.memory.MemoryInterface.SegmentMonitor.EventType;
 import org.contikios.cooja.mote.memory.MemoryLayout;
@@ -68,7 +69,7 @@ public class MspMoteMemory implements MemoryInterface {
 
   @Override
   public int getTotalSize() {
-    return cpu.memory.length;
+    return cpu.MAX_MEM;
   }
 
   @Override
@@ -78,33 +79,32 @@ public class MspMoteMemory implements MemoryInterface {
 
   @Override
   public byte[] getMemorySegment(long address, int size) {
-    int[] memInts = new int[size];
-
-    System.arraycopy(cpu.memory, (int) address, memInts, 0, size);
-
-    /* Convert to byte array */
     byte[] memBytes = new byte[size];
-    for (int i = 0; i < size; i++) {
-      memBytes[i] = (byte) memInts[i];
-    }
-
+    cpu.getMemory((int) address, memBytes, 0, size);
     return memBytes;
   }
 
   @Override
-  public void setMemorySegment(long address, byte[] data) {
-    /* Convert to int array */
-    int[] memInts = new int[data.length];
-    for (int i = 0; i < data.length; i++) {
-      memInts[i] = data[i];
+  public MemoryBuffer getMemoryView(long address, int size) {
+    /* IO registers are not byte backed and flash pages may be shared with
+     * other motes, both are copied instead */
+    if (address < cpu.MAX_MEM_IO || address + size > cpu.memoryBytes.length
+        || cpu.flashMemory.isFlash((int) address, size)) {
+      return MemoryBuffer.wrap(memLayout,
+          ByteBuffer.wrap(getMemorySegment(address, size)).asReadOnlyBuffer());
     }
+    return MemoryBuffer.wrap(memLayout,
+        ByteBuffer.wrap(cpu.memoryBytes, (int) address, size).asReadOnlyBuffer());
+  }
 
-    System.arraycopy(memInts, 0, cpu.memory, (int) address, data.length);
+  @Override
+  public void setMemorySegment(long address, byte[] data) {
+    cpu.setMemory((int) address, data, 0, data.length);
   }
 
   @Override
   public void clearMemory() {
-    Arrays.fill(cpu.memory, 0);
+    cpu.setMemory(0, new byte[cpu.MAX_MEM], 0, cpu.MAX_MEM);
   }
 
   @Override
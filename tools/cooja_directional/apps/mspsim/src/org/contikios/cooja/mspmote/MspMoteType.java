@@ -31,8 +31,10 @@ package org.contikios.cooja.mspmote;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
 
 import javax.swing.Icon;
@@ -52,6 +54,8 @@ import org.contikios.cooja.Simulation;
 import org.contikios.cooja.interfaces.IPAddress;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
 import org.contikios.cooja.mspmote.interfaces.MspSerial;
+import se.sics.mspsim.core.MSP430;
+import se.sics.mspsim.core.MemoryImage;
 import se.sics.mspsim.util.DebugInfo;
 import se.sics.mspsim.util.ELF;
 
@@ -328,8 +332,45 @@ public abstract class MspMoteType implements MoteType {
   public abstract Class<? extends MoteInterface>[] getDefaultMoteInterfaceClasses();
   public abstract File getExpectedFirmwareFile(File source);
 
-  private static ELF loadELF(String filepath) throws IOException {
-    return ELF.readELF(filepath);
+  /**
+   * Firmware file contents and debugging info, shared by all mote types
+   * (possibly in different simulations) using the same unmodified file.
+   * ELF objects keep a read position and are not shared.
+   */
+  private static class FirmwareImage {
+    final long lastModified;
+    final long length;
+    final byte[] data;
+    Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null;
+
+    FirmwareImage(long lastModified, long length, byte[] data) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.data = data;
+    }
+  }
+  private static final HashMap<File, FirmwareImage> firmwareImages =
+    new HashMap<File, FirmwareImage>();
+
+  private static FirmwareImage getFirmwareImage(File file) throws IOException {
+    file = file.getCanonicalFile();
+    synchronized (firmwareImages) {
+      FirmwareImage image = firmwareImages.get(file);
+      if (image == null
+          || image.lastModified != file.lastModified()
+          || image.length != file.length()) {
+        image = new FirmwareImage(
+            file.lastModified(), file.length(), Files.readAllBytes(file.toPath()));
+        firmwareImages.put(file, image);
+      }
+      return image;
+    }
+  }
+
+  private static ELF loadELF(FirmwareImage image) throws IOException {
+    ELF elf = new ELF(image.data);
+    elf.readAll();
+    return elf;
   }
 
   private ELF elf; /* cached */
@@ -338,16 +379,36 @@ public abstract class MspMoteType implements MoteType {
       if (Cooja.isVisualizedInApplet()) {
         logger.warn("ELF loading in applet not implemented");
       }
-      elf = loadELF(getContikiFirmwareFile().getPath());
+      elf = loadELF(getFirmwareImage(getContikiFirmwareFile()));
     }
     return elf;
   }
 
+  private MemoryImage memoryImage; /* cached */
+  /**
+   * Returns the firmware memory image loaded by all motes of this type,
+   * which share its flash pages until they write to them.
+   *
+   * @param cpu CPU of a mote of this type
+   */
+  public MemoryImage getMemoryImage(MSP430 cpu) throws IOException {
+    if (memoryImage == null) {
+      memoryImage = cpu.createMemoryImage(getELF());
+    }
+    return memoryImage;
+  }
+
   private Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null; /* cached */
   public Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo()
   throws IOException {
     if (debuggingInfo == null) {
-      debuggingInfo = getFirmwareDebugInfo(getELF());
+      FirmwareImage image = getFirmwareImage(getContikiFirmwareFile());
+      synchronized (image) {
+        if (image.debuggingInfo == null) {
+          image.debuggingInfo = getFirmwareDebugInfo(getELF());
+        }
+        debuggingInfo = image.debuggingInfo;
+      }
     }
     return debuggingInfo;
   }
@@ -0,0 +1,579 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+
+/**
+ * Runs a parameter sweep of headless simulations in one JVM.
+ *
+ * The sweep file names a base simulation config and a parameter matrix:
+ *
+ * <pre>
+ * &lt;sweep&gt;
+ *   &lt;simulation&gt;base.csc&lt;/simulation&gt;
+ *   &lt;threads&gt;4&lt;/threads&gt;
+ *   &lt;output&gt;results.csv&lt;/output&gt;
+ *   &lt;parameter name="beamwidth"&gt;30 60 90&lt;/parameter&gt;
+ *   &lt;parameter name="seed"&gt;1 2 3&lt;/parameter&gt;
+ * &lt;/sweep&gt;
+ * </pre>
+ *
+ * One run is created per combination of parameter values, and each
+ * occurrence of ${name} in the base config is replaced by the run's value.
+ * Runs are controlled by their test scripts exactly as with -nogui, but
+ * ending a test stops the run instead of quitting Cooja. Results are
+ * written as CSV, or as JSON if the output file ends with .json, and test
+ * script output is written to one .testlog file per run.
+ *
+ * All runs share one Cooja instance, and hence the loaded extensions and
+ * their classes. Configs are loaded one at a time, since loading (and
+ * compiling Contiki mote types) uses Cooja state; the loaded simulations
+ * then execute concurrently on a fixed thread pool.
+ *
+ * @author agent
+ */
+public class BatchRunner {
+  private static Logger logger = Logger.getLogger(BatchRunner.class);
+
+  public static final String STATUS_OK = "OK";
+  public static final String STATUS_FAILED = "FAILED";
+  public static final String STATUS_ERROR = "ERROR";
+
+  /* Runs of created simulations, registered before they are loaded */
+  private static final HashMap<Simulation, Run> activeRuns = new HashMap<Simulation, Run>();
+
+  private static final Object loadLock = new Object();
+
+  private final Cooja gui;
+  private final File configFile;
+  private final String baseConfig;
+  private final LinkedHashMap<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+  private final File outputFile;
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Parses sweep file and reads base config.
+   *
+   * @param gui Cooja, used to load all simulations
+   * @param sweepFile Sweep file
+   * @throws IOException If sweep file or base config could not be read
+   */
+  public BatchRunner(Cooja gui, File sweepFile) throws IOException {
+    this.gui = gui;
+
+    Element root;
+    try {
+      root = new SAXBuilder().build(sweepFile).getRootElement();
+    } catch (JDOMException e) {
+      throw new IOException("Sweep file not wellformed: " + e.getMessage(), e);
+    }
+    if (!root.getName().equals("sweep")) {
+      throw new IOException("Not a sweep file: " + sweepFile);
+    }
+
+    File dir = sweepFile.getAbsoluteFile().getParentFile();
+    File config = null, output = null;
+    for (Object o : root.getChildren()) {
+      Element element = (Element) o;
+      String name = element.getName();
+      if (name.equals("simulation")) {
+        config = resolve(dir, element.getTextTrim());
+      } else if (name.equals("threads")) {
+        threads = Integer.parseInt(element.getTextTrim());
+      } else if (name.equals("output")) {
+        output = resolve(dir, element.getTextTrim());
+      } else if (name.equals("parameter")) {
+        String param = element.getAttributeValue("name");
+        String[] values = element.getTextTrim().split("[\\s,]+");
+        if (param == null || values.length == 0 || values[0].isEmpty()) {
+          throw new IOException("Bad sweep parameter: " + param);
+        }
+        parameters.put(param, values);
+      } else {
+        logger.warn("Unknown sweep element: " + name);
+      }
+    }
+    if (config == null) {
+      throw new IOException("No simulation config in sweep file: " + sweepFile);
+    }
+    if (threads < 1) {
+      threads = 1;
+    }
+
+    configFile = config.getCanonicalFile();
+    baseConfig = readConfig(configFile);
+    if (output == null) {
+      String base = sweepFile.getName();
+      if (base.contains(".")) {
+        base = base.substring(0, base.lastIndexOf('.'));
+      }
+      output = new File(dir, base + ".csv");
+    }
+    outputFile = output;
+  }
+
+  /**
+   * Returns the batch run of the given simulation.
+   *
+   * @param sim Simulation
+   * @return Run, or null if simulation is not part of a batch
+   */
+  public static Run getRun(Simulation sim) {
+    synchronized (activeRuns) {
+      return activeRuns.get(sim);
+    }
+  }
+
+  /**
+   * Runs all parameter combinations and writes results.
+   *
+   * @return True if all runs passed
+   * @throws IOException If results could not be written
+   */
+  public boolean runAll() throws IOException {
+    List<Run> runs = createRuns();
+    logger.info("Starting " + runs.size() + " simulation runs on " + threads + " threads");
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+    for (final Run run : runs) {
+      futures.add(pool.submit(new Runnable() {
+        public void run() {
+          execute(run);
+        }
+      }));
+    }
+    pool.shutdown();
+    for (Future<?> f : futures) {
+      try {
+        f.get();
+      } catch (Exception e) {
+        logger.fatal("Batch run error: " + e.getMessage(), e);
+      }
+    }
+
+    boolean allOK = true;
+    for (Run run : runs) {
+      if (!STATUS_OK.equals(run.status)) {
+        allOK = false;
+      }
+    }
+
+    if (outputFile.getName().endsWith(".json")) {
+      writeJSON(runs);
+    } else {
+      writeCSV(runs);
+    }
+    logger.info("Wrote results of " + runs.size() + " runs to " + outputFile);
+    return allOK;
+  }
+
+  private List<Run> createRuns() {
+    ArrayList<Run> runs = new ArrayList<Run>();
+    String[] names = parameters.keySet().toArray(new String[0]);
+    int[] indices = new int[names.length];
+    while (true) {
+      LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+      for (int i = 0; i < names.length; i++) {
+        values.put(names[i], parameters.get(names[i])[indices[i]]);
+      }
+      runs.add(new Run(runs.size(), values));
+
+      /* Next combination, last parameter varies fastest */
+      int i = names.length - 1;
+      while (i >= 0 && ++indices[i] == parameters.get(names[i]).length) {
+        indices[i] = 0;
+        i--;
+      }
+      if (i < 0) {
+        break;
+      }
+    }
+    return runs;
+  }
+
+  private void execute(final Run run) {
+    long startTime = System.currentTimeMillis();
+    Simulation sim = null, loaded = null;
+    ArrayList<Plugin> plugins = new ArrayList<Plugin>();
+
+    try {
+      String config = baseConfig;
+      for (Map.Entry<String, String> value : run.parameters.entrySet()) {
+        config = config.replace("${" + value.getKey() + "}", value.getValue());
+      }
+      Element root = new SAXBuilder().build(new StringReader(config)).getRootElement();
+
+      synchronized (loadLock) {
+        logger.info("Loading run " + run.index + ": " + run.parameters);
+        List<Plugin> before = Arrays.asList(gui.getStartedPlugins());
+
+        /* Register the simulation before its plugins ask for their run */
+        sim = new Simulation(gui);
+        run.simulation = sim;
+        synchronized (activeRuns) {
+          activeRuns.put(sim, run);
+        }
+        try {
+          gui.currentConfigFile = configFile;
+          loaded = gui.loadSimulationConfig(root, sim, true, null);
+        } finally {
+          for (Plugin p : gui.getStartedPlugins()) {
+            if (!before.contains(p)) {
+              plugins.add(p);
+            }
+          }
+        }
+      }
+      if (loaded == null) {
+        run.fail(STATUS_ERROR, "simulation not loaded");
+        return;
+      }
+      run.randomSeed = sim.getRandomSeed();
+
+      /* Wait for the controlling plugin to stop the simulation */
+      final Simulation s = sim;
+      Observer observer = new Observer() {
+        public void update(Observable obs, Object obj) {
+          synchronized (run) {
+            run.notifyAll();
+          }
+        }
+      };
+      sim.addObserver(observer);
+      synchronized (run) {
+        if (!sim.isRunning() && run.status == null) {
+          run.fail(STATUS_ERROR, "no plugin controlling simulation");
+        }
+        while (s.isRunning()) {
+          run.wait();
+        }
+      }
+      sim.deleteObserver(observer);
+      run.simulationTime = sim.getSimulationTimeMillis();
+    } catch (Exception e) {
+      logger.fatal("Run " + run.index + " failed: " + e.getMessage(), e);
+      run.fail(STATUS_ERROR, e.getMessage());
+    } finally {
+      run.realTime = System.currentTimeMillis() - startTime;
+      synchronized (loadLock) {
+        for (Plugin p : plugins) {
+          gui.removePlugin(p, false);
+        }
+        if (sim != null) {
+          sim.stopSimulation();
+          sim.removed();
+        }
+      }
+      synchronized (activeRuns) {
+        activeRuns.remove(sim);
+      }
+      run.finish();
+    }
+  }
+
+  private List<String> getMetricNames(List<Run> runs) {
+    LinkedHashSet<String> names = new LinkedHashSet<String>();
+    for (Run run : runs) {
+      names.addAll(run.metrics.keySet());
+    }
+    return new ArrayList<String>(names);
+  }
+
+  private void writeCSV(List<Run> runs) throws IOException {
+    List<String> metrics = getMetricNames(runs);
+    BufferedWriter out = new BufferedWriter(new FileWriter(outputFile));
+    try {
+      StringBuilder sb = new StringBuilder("run");
+      for (String name : parameters.keySet()) {
+        sb.append(',').append(csv(name));
+      }
+      sb.append(",random_seed,status,simulation_time_ms,real_time_ms");
+      for (String name : metrics) {
+        sb.append(',').append(csv(name));
+      }
+      sb.append(",error");
+      out.write(sb.toString());
+      out.newLine();
+
+      for (Run run : runs) {
+        sb = new StringBuilder().append(run.index);
+        for (String value : run.parameters.values()) {
+          sb.append(',').append(csv(value));
+        }
+        sb.append(',').append(run.randomSeed);
+        sb.append(',').append(run.status);
+        sb.append(',').append(run.simulationTime);
+        sb.append(',').append(run.realTime);
+        for (String name : metrics) {
+          String value = run.metrics.get(name);
+          sb.append(',').append(value == null ? "" : csv(value));
+        }
+        sb.append(',').append(run.error == null ? "" : csv(run.error));
+        out.write(sb.toString());
+        out.newLine();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private void writeJSON(List<Run> runs) throws IOException {
+    BufferedWriter out = new BufferedWriter(new FileWriter(outputFile));
+    try {
+      out.write("[");
+      out.newLine();
+      for (int i = 0; i < runs.size(); i++) {
+        Run run = runs.get(i);
+        StringBuilder sb = new StringBuilder("  {\"run\": ").append(run.index);
+        sb.append(", \"parameters\": {");
+        appendJSON(sb, run.parameters);
+        sb.append("}, \"random_seed\": ").append(run.randomSeed);
+        sb.append(", \"status\": ").append(json(run.status));
+        sb.append(", \"simulation_time_ms\": ").append(run.simulationTime);
+        sb.append(", \"real_time_ms\": ").append(run.realTime);
+        sb.append(", \"results\": {");
+        appendJSON(sb, run.metrics);
+        sb.append("}");
+        if (run.error != null) {
+          sb.append(", \"error\": ").append(json(run.error));
+        }
+        sb.append(i < runs.size() - 1 ? "}," : "}");
+        out.write(sb.toString());
+        out.newLine();
+      }
+      out.write("]");
+      out.newLine();
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void appendJSON(StringBuilder sb, Map<String, String> values) {
+    boolean first = true;
+    for (Map.Entry<String, String> e : values.entrySet()) {
+      if (!first) {
+        sb.append(", ");
+      }
+      first = false;
+      sb.append(json(e.getKey())).append(": ").append(json(e.getValue()));
+    }
+  }
+
+  private static String csv(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static String json(String value) {
+    StringBuilder sb = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  private static File resolve(File dir, String path) {
+    File file = new File(path);
+    return file.isAbsolute() ? file : new File(dir, path);
+  }
+
+  private static String readConfig(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      if (file.getName().endsWith(".gz")) {
+        in = new GZIPInputStream(in);
+      }
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      byte[] buf = new byte[4096];
+      for (int read; (read = in.read(buf)) != -1; ) {
+        data.write(buf, 0, read);
+      }
+      return data.toString("UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * One simulation run of a sweep.
+   */
+  public class Run {
+    private final int index;
+    private final LinkedHashMap<String, String> parameters;
+    private final LinkedHashMap<String, String> metrics = new LinkedHashMap<String, String>();
+
+    private Simulation simulation = null;
+    private long randomSeed;
+    private long simulationTime;
+    private long realTime;
+    private String status = null;
+    private String error = null;
+
+    private BufferedWriter logWriter = null;
+
+    private Run(int index, LinkedHashMap<String, String> parameters) {
+      this.index = index;
+      this.parameters = parameters;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public Map<String, String> getParameters() {
+      return parameters;
+    }
+
+    /**
+     * Records the test result, called when the test script ends.
+     *
+     * @param exitCode Exit code Cooja would have used without batch mode
+     */
+    public synchronized void setExitCode(int exitCode) {
+      if (status == null) {
+        status = exitCode == 0 ? STATUS_OK : STATUS_FAILED;
+      }
+    }
+
+    /**
+     * Records a named result value, written as a column in the output.
+     *
+     * @param name Name
+     * @param value Value
+     */
+    public synchronized void setResult(String name, String value) {
+      metrics.put(name, value);
+    }
+
+    /**
+     * Marks run as failed due to an error, e.g. a simulation or script
+     * error that would have terminated Cooja without batch mode.
+     *
+     * @param message Error message
+     */
+    public synchronized void setError(String message) {
+      fail(STATUS_ERROR, message);
+    }
+
+    private synchronized void fail(String status, String message) {
+      if (this.status == null || STATUS_OK.equals(this.status)) {
+        this.status = status;
+        this.error = message;
+      }
+    }
+
+    /**
+     * @return Observer writing test script output to this run's log file
+     */
+    public Observer getScriptLogObserver() {
+      return new Observer() {
+        public void update(Observable obs, Object obj) {
+          writeLog((String) obj);
+        }
+      };
+    }
+
+    private synchronized void writeLog(String msg) {
+      try {
+        if (logWriter == null) {
+          String base = outputFile.getName();
+          if (base.contains(".")) {
+            base = base.substring(0, base.lastIndexOf('.'));
+          }
+          File logFile = new File(outputFile.getAbsoluteFile().getParentFile(),
+              base + ".run" + index + ".testlog");
+          logWriter = new BufferedWriter(new FileWriter(logFile));
+          logWriter.write("Parameters: " + parameters + "\n");
+          if (simulation != null) {
+            logWriter.write("Random seed: " + simulation.getRandomSeed() + "\n");
+          }
+        }
+        logWriter.write(msg);
+        logWriter.flush();
+      } catch (IOException e) {
+        logger.fatal("Error when writing to test log file: " + msg, e);
+      }
+    }
+
+    private synchronized void finish() {
+      if (status == null) {
+        status = STATUS_FAILED;
+      }
+      if (logWriter != null) {
+        try {
+          logWriter.write("Test ended at simulation time: " + simulationTime + " ms\n");
+          logWriter.close();
+        } catch (IOException e) {
+        }
+        logWriter = null;
+      }
+      logger.info("Run " + index + " " + parameters + ": " + status +
+          (error != null ? " (" + error + ")" : "") +
+          ", " + realTime + " ms");
+    }
+  }
+
+}
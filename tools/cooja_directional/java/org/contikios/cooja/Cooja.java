@@ -3277,7 +3277,21 @@ public class Cooja extends Observable {
       }
 
 
-      
+
+    } else if (args.length > 0 && args[0].startsWith("-batch=")) {
+
+      /* Run parameter sweep */
+      File sweepFile = new File(args[0].substring("-batch=".length()));
+      logger.info("> Starting Cooja");
+      Cooja gui = new Cooja(createDesktopPane());
+      try {
+        BatchRunner runner = new BatchRunner(gui, sweepFile);
+        System.exit(runner.runAll() ? 0 : 1);
+      } catch (IOException e) {
+        logger.fatal("Batch run error: " + e.getMessage(), e);
+        System.exit(1);
+      }
+
     } else if (args.length > 0 && args[0].startsWith("-applet")) {
 
       String tmpWebPath=null, tmpBuildPath=null, tmpEsbFirmware=null, tmpSkyFirmware=null;
@@ -3368,6 +3382,23 @@ public class Cooja extends Observable {
   }
 
   public Simulation loadSimulationConfig(Element root, boolean quick, Long manualRandomSeed)
+  throws SimulationCreationException {
+    return loadSimulationConfig(root, null, quick, manualRandomSeed);
+  }
+
+  /**
+   * Loads a simulation config into the given simulation. Callers that need
+   * to know the simulation before its mote types and plugins are created,
+   * such as the batch runner, create it themselves.
+   *
+   * @param root Simulation config
+   * @param sim New, empty simulation, or null to create one
+   * @param quick Do not show mote type configuration dialogs
+   * @param manualRandomSeed Random seed, or null to use the configured seed
+   * @return Loaded simulation, or null if it could not be loaded
+   * @throws SimulationCreationException If the config could not be loaded
+   */
+  public Simulation loadSimulationConfig(Element root, Simulation sim, boolean quick, Long manualRandomSeed)
   throws SimulationCreationException {
     Simulation newSim = null;
 
@@ -3427,7 +3458,7 @@ public class Cooja extends Observable {
       for (Object element : root.getChildren()) {
         if (((Element) element).getName().equals("simulation")) {
           Collection<Element> config = ((Element) element).getChildren();
-          newSim = new Simulation(this);
+          newSim = sim != null ? sim : new Simulation(this);
           System.gc();
           
           boolean createdOK = newSim.setConfigXML(config, isVisualized(), quick, manualRandomSeed);
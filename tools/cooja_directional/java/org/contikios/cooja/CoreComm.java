@@ -31,6 +31,7 @@ package org.contikios.cooja;
 import java.io.*;
 import java.lang.reflect.*;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 import org.contikios.cooja.MoteType.MoteTypeCreationException;
@@ -67,6 +68,8 @@ import org.contikios.cooja.dialogs.MessageList;
  * <li>getReferenceAbsAddr()
  * <li>getMemory(int start, int length, byte[] mem)
  * <li>setMemory(int start, int length, byte[] mem)
+ * <li>getMemoryBuffer(int start, int length, ByteBuffer mem, int offset)
+ * <li>setMemoryBuffer(int start, int length, ByteBuffer mem, int offset)
  *
  * @author Fredrik Osterlind
  */
@@ -366,4 +369,28 @@ public abstract class CoreComm {
    */
   public abstract void setMemory(int relAddr, int length, byte[] mem);
 
+  /**
+   * Fills a direct byte buffer with memory segment identified by start and
+   * length, without copying via a Java array.
+   *
+   * @param relAddr Relative memory start address
+   * @param length Length of segment
+   * @param mem Direct buffer to fill with memory segment
+   * @param memOffset Offset in buffer
+   * @throws IllegalArgumentException if mem is not a direct buffer
+   */
+  public abstract void getMemoryBuffer(int relAddr, int length, ByteBuffer mem, int memOffset);
+
+  /**
+   * Overwrites a memory segment identified by start and length with the
+   * contents of a direct byte buffer, without copying via a Java array.
+   *
+   * @param relAddr Relative memory start address
+   * @param length Length of segment
+   * @param mem Direct buffer with new memory segment data
+   * @param memOffset Offset in buffer
+   * @throws IllegalArgumentException if mem is not a direct buffer
+   */
+  public abstract void setMemoryBuffer(int relAddr, int length, ByteBuffer mem, int memOffset);
+
 }
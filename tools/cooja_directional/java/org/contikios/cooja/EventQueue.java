@@ -31,130 +31,90 @@
 package org.contikios.cooja;
 
 /**
+ * Simulation event queue.
+ *
+ * Events are executed in time order. Events scheduled for the same time
+ * are executed in the order they were added.
+ * Removed events ({@link TimeEvent#remove()}) are discarded when popped.
+ *
+ * The queue implementation is selected in the simulation config.
+ *
+ * @see LinkedEventQueue
+ * @see HeapEventQueue
  * @author Joakim Eriksson (ported to COOJA by Fredrik Osterlind)
  */
-public class EventQueue {
+public abstract class EventQueue {
 
-  private TimeEvent first;
-  private int eventCount = 0;
+  public static final String LINKED = "linked";
+  public static final String HEAP = "heap";
 
   /**
-   * Should only be called from simulation thread!
+   * Creates an event queue of given type.
    *
-   * @param event Event
-   * @param time Time
+   * @param type Queue type: {@link #LINKED} or {@link #HEAP}
+   * @return Event queue, or null if type is unknown
    */
-  public void addEvent(TimeEvent event, long time) {
-    event.time = time;
-    addEvent(event);
-  }
-
-  private void addEvent(TimeEvent event) {
-    if (event.queue != null) {
-      if (event.isScheduled) {
-        throw new IllegalStateException("Event is already scheduled: " + event);
-      }
-      removeFromQueue(event);
+  public static EventQueue create(String type) {
+    if (LINKED.equals(type)) {
+      return new LinkedEventQueue();
     }
-
-    if (first == null) {
-      first = event;
-    } else {
-      TimeEvent pos = first;
-      TimeEvent lastPos = first;
-      while (pos != null && pos.time <= event.time) {
-        lastPos = pos;
-        pos = pos.nextEvent;
-      }
-      // Here pos will be the first TE after event
-      // and lastPos the first before
-      if (pos == first) {
-        // Before all other
-        event.nextEvent = pos;
-        first = event;
-      } else {
-        event.nextEvent = pos;
-        lastPos.nextEvent = event;
-      }
+    if (HEAP.equals(type)) {
+      return new HeapEventQueue();
     }
-    event.queue = this;
-    event.isScheduled = true;
-    eventCount++;
+    return null;
   }
 
+  /**
+   * @return Queue type, as accepted by {@link #create(String)}
+   */
+  public abstract String getType();
+
   /**
    * Should only be called from simulation thread!
    *
    * @param event Event
-   * @return True if event was removed
+   * @param time Time
    */
-  private boolean removeFromQueue(TimeEvent event) {
-    TimeEvent pos = first;
-    TimeEvent lastPos = first;
+  public abstract void addEvent(TimeEvent event, long time);
 
-    while (pos != null && pos != event) {
-      lastPos = pos;
-      pos = pos.nextEvent;
-    }
-    if (pos == null) {
-      return false;
-    }
-    // pos == event!
-    if (pos == first) {
-      // remove it from first pos.
-      first = pos.nextEvent;
-    } else {
-      // else link prev to next...
-      lastPos.nextEvent = pos.nextEvent;
-    }
-    // unlink
-    pos.nextEvent = null;
-
-    event.queue = null;
-    event.isScheduled = false;
-    eventCount--;
-    return true;
-  }
+  public abstract void removeAll();
 
-  public void removeAll() {
-    TimeEvent event = popFirst();
-    while (event != null) {
-      event = popFirst();
-    }
-  }
+  /**
+   * Should only be called from simulation thread!
+   *
+   * @param event Event
+   * @return True if event was removed
+   */
+  abstract boolean removeFromQueue(TimeEvent event);
 
   /**
    * Should only be called from simulation thread!
    *
-   * @return Event
+   * @return First scheduled event, or null
    */
-  public TimeEvent popFirst() {
-    TimeEvent tmp = first;
-    if (tmp == null) {
-      return null;
-    }
+  public abstract TimeEvent popFirst();
 
-    first = tmp.nextEvent;
-    // Unlink.
-    tmp.nextEvent = null;
+  /**
+   * @return First queued event, or null. May be a removed event.
+   */
+  public abstract TimeEvent peekFirst();
 
-    // No longer scheduled!
-    tmp.queue = null;
-    eventCount--;
+  /**
+   * @return All queued events, in no particular order. May include removed events.
+   */
+  public abstract TimeEvent[] getEvents();
 
-    if (!tmp.isScheduled) {
-      /* pop and return another event instead */
-      return popFirst();
+  /**
+   * Moves all scheduled events from given queue to this queue.
+   * The execution order of the events is preserved.
+   *
+   * @param queue Queue to empty
+   */
+  public void moveEvents(EventQueue queue) {
+    TimeEvent event;
+    while ((event = queue.popFirst()) != null) {
+      addEvent(event, event.time);
     }
-    tmp.isScheduled = false;
-    return tmp;
-  }
-
-  public TimeEvent peekFirst() {
-    return first;
   }
 
-  public String toString() {
-    return "EventQueue with " + eventCount + " events";
-  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.util.Arrays;
+
+/**
+ * Event queue implemented as an indexed binary heap.
+ * Adding and removing events is logarithmic in the number of queued events.
+ *
+ * Events with equal time are ordered by a sequence number assigned when
+ * added, keeping the same execution order as {@link LinkedEventQueue}.
+ *
+ * @author agent
+ */
+public class HeapEventQueue extends EventQueue {
+
+  private TimeEvent[] heap = new TimeEvent[64];
+  private int size = 0;
+  private long nextSequence = 0;
+
+  public String getType() {
+    return HEAP;
+  }
+
+  public void addEvent(TimeEvent event, long time) {
+    if (event.queue != null) {
+      if (event.isScheduled) {
+        throw new IllegalStateException("Event is already scheduled: " + event);
+      }
+      event.queue.removeFromQueue(event);
+    }
+    event.time = time;
+    event.sequence = nextSequence++;
+
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, 2 * size);
+    }
+    heap[size] = event;
+    event.heapIndex = size;
+    size++;
+    siftUp(event.heapIndex);
+
+    event.queue = this;
+    event.isScheduled = true;
+  }
+
+  boolean removeFromQueue(TimeEvent event) {
+    if (event.queue != this) {
+      return false;
+    }
+    removeAt(event.heapIndex);
+    event.queue = null;
+    event.isScheduled = false;
+    return true;
+  }
+
+  public void removeAll() {
+    for (int i = 0; i < size; i++) {
+      heap[i].queue = null;
+      heap[i].heapIndex = -1;
+      heap[i].isScheduled = false;
+      heap[i] = null;
+    }
+    size = 0;
+  }
+
+  public TimeEvent popFirst() {
+    while (size > 0) {
+      TimeEvent tmp = heap[0];
+      removeAt(0);
+
+      // No longer scheduled!
+      tmp.queue = null;
+      if (tmp.isScheduled) {
+        tmp.isScheduled = false;
+        return tmp;
+      }
+      /* pop and return another event instead */
+    }
+    return null;
+  }
+
+  public TimeEvent peekFirst() {
+    return size > 0 ? heap[0] : null;
+  }
+
+  public TimeEvent[] getEvents() {
+    return Arrays.copyOf(heap, size);
+  }
+
+  private void removeAt(int index) {
+    TimeEvent removed = heap[index];
+    size--;
+    TimeEvent last = heap[size];
+    heap[size] = null;
+    removed.heapIndex = -1;
+    if (index == size) {
+      return;
+    }
+    heap[index] = last;
+    last.heapIndex = index;
+    siftDown(index);
+    if (heap[index] == last) {
+      siftUp(index);
+    }
+  }
+
+  private void siftUp(int index) {
+    TimeEvent event = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      TimeEvent p = heap[parent];
+      if (!before(event, p)) {
+        break;
+      }
+      heap[index] = p;
+      p.heapIndex = index;
+      index = parent;
+    }
+    heap[index] = event;
+    event.heapIndex = index;
+  }
+
+  private void siftDown(int index) {
+    TimeEvent event = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && before(heap[right], heap[child])) {
+        child = right;
+      }
+      TimeEvent c = heap[child];
+      if (!before(c, event)) {
+        break;
+      }
+      heap[index] = c;
+      c.heapIndex = index;
+      index = child;
+    }
+    heap[index] = event;
+    event.heapIndex = index;
+  }
+
+  private static boolean before(TimeEvent a, TimeEvent b) {
+    if (a.time != b.time) {
+      return a.time < b.time;
+    }
+    return a.sequence < b.sequence;
+  }
+
+  public String toString() {
+    return "HeapEventQueue with " + size + " events";
+  }
+}
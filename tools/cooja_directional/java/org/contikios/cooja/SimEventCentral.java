@@ -29,7 +29,6 @@
 package org.contikios.cooja;
 
 import java.io.File;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Observable;
@@ -42,12 +41,17 @@ import org.jdom.Element;
 import org.contikios.cooja.MoteType.MoteTypeCreationException;
 import org.contikios.cooja.interfaces.Log;
 import org.contikios.cooja.util.ArrayUtils;
+import org.contikios.cooja.util.RingBuffer;
 
 /**
  * Simulation event central. Simplifies implementations of plugins that observe
  * motes and mote interfaces by keeping track of added and removed motes. For a
  * selected set of interfaces, the event central also maintains an event
  * history.
+ * <p>
+ * The log output history is a fixed size ring buffer written by the
+ * simulation thread. Other threads may read it without locking, from a
+ * position cursor.
  * 
  * @see LogOutputEvent
  * @author Fredrik Osterlind
@@ -71,7 +75,7 @@ public class SimEventCentral {
 
     /* Log output: notifications and history */
     logOutputListeners = new LogOutputListener[0];
-    logOutputEvents = new ArrayDeque<LogOutputEvent>();
+    logOutputEvents = new RingBuffer<LogOutputEvent>(Math.max(1, logOutputBufferSize));
   }
   
 
@@ -197,7 +201,7 @@ public class SimEventCentral {
     }
   }
   private int logOutputBufferSize;
-  private ArrayDeque<LogOutputEvent> logOutputEvents;
+  private RingBuffer<LogOutputEvent> logOutputEvents;
   public interface LogOutputListener extends MoteCountListener {
     public void removedLogOutput(LogOutputEvent ev);
     public void newLogOutput(LogOutputEvent ev);
@@ -214,26 +218,18 @@ public class SimEventCentral {
         msg = msg.substring(0, msg.length() - 1);
       }
 
-      /* We may have to remove some events now */
-      while (logOutputEvents.size() > logOutputBufferSize-1) {
-        LogOutputEvent removed;
-        synchronized (logOutputEvents) {
-          removed = logOutputEvents.pollFirst();
-        }
-        if (removed == null) {
-          break;
-        }
-        for (LogOutputListener l: logOutputListeners) {
+      /* Store log output, replacing the oldest event when full */
+      LogOutputEvent ev = new LogOutputEvent(mote, simulation.getSimulationTime(), msg);
+      LogOutputEvent removed = logOutputEvents.add(ev);
+
+      /* Notify listeners */
+      LogOutputListener[] listeners = logOutputListeners;
+      if (removed != null) {
+        for (LogOutputListener l: listeners) {
           l.removedLogOutput(removed);
         }
       }
-
-      /* Store log output, and notify listeners */
-      LogOutputEvent ev = new LogOutputEvent(mote, simulation.getSimulationTime(), msg);
-      synchronized (logOutputEvents) {
-        logOutputEvents.add(ev);
-      }
-      for (LogOutputListener l: logOutputListeners) {
+      for (LogOutputListener l: listeners) {
         l.newLogOutput(ev);
       }
     }
@@ -269,30 +265,66 @@ public class SimEventCentral {
       }
 
       /* Clear logs (TODO config) */
-      logOutputEvents.clear();
+      invokeSimulationThread(new Runnable() {
+        public void run() {
+          logOutputEvents.clear();
+        }
+      });
     }
   }
 
   public LogOutputEvent[] getLogOutputHistory() {
-    synchronized (logOutputEvents) {
-      return logOutputEvents.toArray(new LogOutputEvent[0]);
-    }
+    ArrayList<LogOutputEvent> history = new ArrayList<LogOutputEvent>();
+    logOutputEvents.read(0, history);
+    return history.toArray(new LogOutputEvent[history.size()]);
+  }
+
+  /**
+   * Reads log output history from given position, without locking.
+   * Events no longer in the history buffer are skipped.
+   *
+   * @param position Position of first event to read, 0 for all history
+   * @param events Collection to which read events are added
+   * @return Position of next event to read
+   * @see #getLogOutputPosition()
+   */
+  public long getLogOutput(long position, Collection<LogOutputEvent> events) {
+    return logOutputEvents.read(position, events);
+  }
+
+  /**
+   * @return Position of next log output event
+   */
+  public long getLogOutputPosition() {
+    return logOutputEvents.getSequence();
   }
+
   public int getLogOutputBufferSize() {
     return logOutputBufferSize;
   }
-  public void setLogOutputBufferSize(int size) {
+  public void setLogOutputBufferSize(final int size) {
     logOutputBufferSize = size;
-    
+
     /* We may have to remove some events now */
-    while (logOutputEvents.size() > logOutputBufferSize) {
-      LogOutputEvent removed = logOutputEvents.pollFirst();
-      if (removed == null) {
-        break;
-      }
-      for (LogOutputListener l: logOutputListeners) {
-        l.removedLogOutput(removed);
+    invokeSimulationThread(new Runnable() {
+      public void run() {
+        ArrayList<LogOutputEvent> removed = new ArrayList<LogOutputEvent>();
+        logOutputEvents.setCapacity(Math.max(1, size), removed);
+        for (LogOutputEvent ev: removed) {
+          for (LogOutputListener l: logOutputListeners) {
+            l.removedLogOutput(ev);
+          }
+        }
       }
+    });
+  }
+
+  /* The log output history is only changed by the simulation thread */
+  private void invokeSimulationThread(Runnable r) {
+    if (simulation.isRunning()) {
+      simulation.invokeSimulationThread(r);
+    } else {
+      r.run();
     }
   }
   public int getLogOutputObservationsCount() {
@@ -362,7 +394,7 @@ public class SimEventCentral {
     for (Element element : configXML) {
       String name = element.getName();
       if (name.equals("logoutput")) {
-        logOutputBufferSize = Integer.parseInt(element.getText());
+        setLogOutputBufferSize(Integer.parseInt(element.getText()));
       }
     }
     return true;
@@ -106,7 +106,7 @@ public class Simulation extends Observable implements Runnable {
   }
 
   /* Event queue */
-  private EventQueue eventQueue = new EventQueue();
+  private EventQueue eventQueue = new LinkedEventQueue();
 
   /* Poll requests */
   private boolean hasPollRequests = false;
@@ -195,6 +195,35 @@ public class Simulation extends Observable implements Runnable {
     eventQueue.addEvent(e, time);
   }
 
+  /**
+   * Lets the executing event continue at the given time instead of
+   * rescheduling itself, if the simulation loop would run nothing else
+   * before it: no event scheduled at or before that time, no poll request
+   * and no stop request. Simulation time is then advanced to the given time.
+   *
+   * This saves an event queue round trip for events that reschedule
+   * themselves often, such as emulated motes executing in 1 us steps,
+   * without changing the order in which anything executes.
+   *
+   * This method may only be called from the simulation thread, while
+   * executing an event.
+   *
+   * @param time Time the executing event would be rescheduled at
+   * @return True iff simulation time was advanced and the event may continue
+   */
+  public boolean advanceSimulationTime(long time) {
+    if (!isRunning || stopSimulation || hasPollRequests
+        || time < currentSimulationTime || simulationThread != Thread.currentThread()) {
+      return false;
+    }
+    TimeEvent next = eventQueue.peekFirst();
+    if (next != null && next.time <= time) {
+      return false;
+    }
+    currentSimulationTime = time;
+    return true;
+  }
+
   private TimeEvent delayEvent = new TimeEvent(0) {
     public void execute(long t) {
       if (speedLimitNone) {
@@ -243,6 +272,41 @@ public class Simulation extends Observable implements Runnable {
     }
   };
 
+  /**
+   * @return Event queue type
+   * @see EventQueue#create(String)
+   */
+  public String getEventQueueType() {
+    return eventQueue.getType();
+  }
+
+  /**
+   * Replaces the event queue implementation. Scheduled events are moved to
+   * the new queue.
+   *
+   * If the simulation is running, this method may only be called from the simulation thread.
+   *
+   * @param type Event queue type
+   * @return True if the event queue type is known
+   * @see EventQueue#create(String)
+   */
+  public boolean setEventQueueType(String type) {
+    if (type.equals(eventQueue.getType())) {
+      return true;
+    }
+    EventQueue newQueue = EventQueue.create(type);
+    if (newQueue == null) {
+      logger.warn("Unknown event queue type: " + type);
+      return false;
+    }
+    if (isRunning) {
+      assert isSimulationThread() : "Changing event queue from non-simulation thread";
+    }
+    newQueue.moveEvents(eventQueue);
+    eventQueue = newQueue;
+    return true;
+  }
+
   public void clearEvents() {
     eventQueue.removeAll();
     pollRequests.clear();
@@ -291,7 +355,11 @@ public class Simulation extends Observable implements Runnable {
     	} else {
 
     		logger.fatal("Simulation stopped due to error: " + e.getMessage(), e);
-    		if (!Cooja.isVisualized()) {
+    		BatchRunner.Run batchRun = BatchRunner.getRun(this);
+    		if (batchRun != null) {
+    		  /* Only fail this run of the batch */
+    		  batchRun.setError(e.getMessage());
+    		} else if (!Cooja.isVisualized()) {
     			/* Quit simulator if in test mode */
     			System.exit(1);
     		} else {
@@ -482,6 +550,13 @@ public class Simulation extends Observable implements Runnable {
       config.add(element);
     }
 
+    /* Event queue implementation */
+    if (!EventQueue.LINKED.equals(getEventQueueType())) {
+      element = new Element("eventqueue");
+      element.setText(getEventQueueType());
+      config.add(element);
+    }
+
     // Random seed
     element = new Element("randomseed");
     if (randomSeedGenerated) {
@@ -586,6 +661,11 @@ public class Simulation extends Observable implements Runnable {
         }
       }
 
+      /* Event queue implementation */
+      if (element.getName().equals("eventqueue")) {
+        setEventQueueType(element.getText().trim());
+      }
+
       // Random seed
       if (element.getName().equals("randomseed")) {
         long newSeed;
@@ -785,14 +865,12 @@ public class Simulation extends Observable implements Runnable {
 
         /* Loop through all scheduled events.
          * Delete all events associated with deleted mote. */
-        TimeEvent ev = eventQueue.peekFirst();
-        while (ev != null) {
+        for (TimeEvent ev: eventQueue.getEvents()) {
           if (ev instanceof MoteTimeEvent) {
             if (((MoteTimeEvent)ev).getMote() == mote) {
               ev.remove();
             }
           }
-          ev = ev.nextEvent;
         }
       }
     };
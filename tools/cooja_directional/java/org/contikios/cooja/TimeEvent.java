@@ -38,6 +38,8 @@ public abstract class TimeEvent {
   TimeEvent prevEvent;
 
   EventQueue queue = null;
+  int heapIndex = -1; /* Used by HeapEventQueue */
+  long sequence; /* Used by HeapEventQueue */
   String name;
 
   protected long time;
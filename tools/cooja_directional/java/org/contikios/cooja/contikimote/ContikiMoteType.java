@@ -41,6 +41,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -69,6 +70,7 @@ import org.contikios.cooja.dialogs.ContikiMoteCompileDialog;
 import org.contikios.cooja.dialogs.MessageList;
 import org.contikios.cooja.dialogs.MessageContainer;
 import org.contikios.cooja.mote.memory.ArrayMemory;
+import org.contikios.cooja.mote.memory.BufferMemory;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
 import org.contikios.cooja.mote.memory.MemoryLayout;
@@ -204,6 +206,8 @@ public class ContikiMoteType implements MoteType {
 
   private NetworkStack netStack = NetworkStack.DEFAULT;
 
+  private boolean directMemory = false;
+
   // Type specific class configuration
   private ProjectConfig myConfig = null;
 
@@ -212,6 +216,10 @@ public class ContikiMoteType implements MoteType {
   // Initial memory for all motes of this type
   private SectionMoteMemory initialMemory = null;
 
+  // Memory currently loaded in the Contiki core, if known
+  private SectionMoteMemory coreMemory = null;
+  private byte[] dirtyBuffer = new byte[ArrayMemory.DIRTY_PAGE_SIZE];
+
   /** Offset between native (cooja) and contiki address space */
   long offset;
 
@@ -506,11 +514,11 @@ public class ContikiMoteType implements MoteType {
     /* Create initial memory: data+bss+optional common */
     initialMemory = new SectionMoteMemory(variables);
 
-    initialMemory.addMemorySection("data", dataSecParser.parse(offset));
+    initialMemory.addMemorySection("data", dataSecParser.parse(offset, directMemory));
 
-    initialMemory.addMemorySection("bss", bssSecParser.parse(offset));
+    initialMemory.addMemorySection("bss", bssSecParser.parse(offset, directMemory));
 
-    initialMemory.addMemorySection("common", commonSecParser.parse(offset));
+    initialMemory.addMemorySection("common", commonSecParser.parse(offset, directMemory));
 
     if (readonlySecParser != null) {
       initialMemory.addMemorySection("readonly", readonlySecParser.parse(offset));
@@ -566,6 +574,15 @@ public class ContikiMoteType implements MoteType {
     }
 
     public MemoryInterface parse(long offset) {
+      return parse(offset, false);
+    }
+
+    /**
+     * @param offset Offset between native and Contiki address space
+     * @param direct Back section by a direct (off-heap) buffer
+     * @return Section memory, or null if section is not available
+     */
+    public MemoryInterface parse(long offset, boolean direct) {
 
       /* Parse start address and size of section */
       parseStartAddr();
@@ -591,6 +608,13 @@ public class ContikiMoteType implements MoteType {
         }
       }
 
+      if (direct) {
+        return new BufferMemory(
+                getStartAddr() + offset,
+                getSize(),
+                MemoryLayout.getNative(),
+                variables);
+      }
       return new ArrayMemory(
               getStartAddr() + offset,
               getSize(),
@@ -819,11 +843,24 @@ public class ContikiMoteType implements MoteType {
    */
   public void getCoreMemory(SectionMoteMemory mem) {
     for (MemoryInterface section : mem.getSections().values()) {
+      if (section instanceof BufferMemory) {
+        BufferMemory buffer = (BufferMemory) section;
+        myCoreComm.getMemoryBuffer(
+                (int) (section.getStartAddr() - offset),
+                section.getTotalSize(),
+                buffer.getBuffer(), 0);
+        buffer.clearDirtyPages();
+        continue;
+      }
       getCoreMemory(
               (int) (section.getStartAddr() - offset),
               section.getTotalSize(),
               section.getMemory());
+      if (section instanceof ArrayMemory) {
+        ((ArrayMemory) section).clearDirtyPages();
+      }
     }
+    coreMemory = mem;
   }
 
   private void getCoreMemory(int relAddr, int length, byte[] data) {
@@ -838,12 +875,75 @@ public class ContikiMoteType implements MoteType {
    * New memory
    */
   public void setCoreMemory(SectionMoteMemory mem) {
+    /* If the core already holds this memory, only copy pages written from Java */
+    boolean inCore = mem == coreMemory;
     for (MemoryInterface section : mem.getSections().values()) {
+      if (inCore && section instanceof ArrayMemory) {
+        setDirtyCoreMemory((ArrayMemory) section);
+        continue;
+      }
+      if (section instanceof BufferMemory) {
+        BufferMemory buffer = (BufferMemory) section;
+        if (inCore) {
+          setDirtyCoreMemory(buffer);
+        } else {
+          myCoreComm.setMemoryBuffer(
+                  (int) (section.getStartAddr() - offset),
+                  section.getTotalSize(),
+                  buffer.getBuffer(), 0);
+          buffer.clearDirtyPages();
+        }
+        continue;
+      }
       setCoreMemory(
               (int) (section.getStartAddr() - offset),
               section.getTotalSize(),
               section.getMemory());
+      if (section instanceof ArrayMemory) {
+        ((ArrayMemory) section).clearDirtyPages();
+      }
     }
+    coreMemory = mem;
+  }
+
+  private void setDirtyCoreMemory(ArrayMemory section) {
+    BitSet dirty = section.getDirtyPages();
+    if (dirty.isEmpty()) {
+      return;
+    }
+    byte[] data = section.getMemory();
+    int relAddr = (int) (section.getStartAddr() - offset);
+    int page = dirty.nextSetBit(0);
+    while (page >= 0) {
+      int endPage = dirty.nextClearBit(page);
+      int start = page * ArrayMemory.DIRTY_PAGE_SIZE;
+      int length = Math.min(endPage * ArrayMemory.DIRTY_PAGE_SIZE, data.length) - start;
+      if (dirtyBuffer.length < length) {
+        dirtyBuffer = new byte[length];
+      }
+      System.arraycopy(data, start, dirtyBuffer, 0, length);
+      setCoreMemory(relAddr + start, length, dirtyBuffer);
+      page = dirty.nextSetBit(endPage);
+    }
+    section.clearDirtyPages();
+  }
+
+  private void setDirtyCoreMemory(BufferMemory section) {
+    BitSet dirty = section.getDirtyPages();
+    if (dirty.isEmpty()) {
+      return;
+    }
+    int size = section.getTotalSize();
+    int relAddr = (int) (section.getStartAddr() - offset);
+    int page = dirty.nextSetBit(0);
+    while (page >= 0) {
+      int endPage = dirty.nextClearBit(page);
+      int start = page * ArrayMemory.DIRTY_PAGE_SIZE;
+      int length = Math.min(endPage * ArrayMemory.DIRTY_PAGE_SIZE, size) - start;
+      myCoreComm.setMemoryBuffer(relAddr + start, length, section.getBuffer(), start);
+      page = dirty.nextSetBit(endPage);
+    }
+    section.clearDirtyPages();
   }
 
   private void setCoreMemory(int relAddr, int length, byte[] mem) {
@@ -918,6 +1018,22 @@ public class ContikiMoteType implements MoteType {
     return netStack;
   }
 
+  /**
+   * Must be set before the mote type is loaded.
+   *
+   * @param direct Keep mote memory in direct (off-heap) buffers
+   */
+  public void setDirectMemory(boolean direct) {
+    directMemory = direct;
+  }
+
+  /**
+   * @return Whether mote memory is kept in direct (off-heap) buffers
+   */
+  public boolean hasDirectMemory() {
+    return directMemory;
+  }
+
   private static String getFirstMatchGroup(String[] lines, String regexp, int groupNr) {
     if (regexp == null) {
       return null;
@@ -1228,6 +1344,12 @@ public class ContikiMoteType implements MoteType {
       config.add(element);
     }
 
+    if (hasDirectMemory()) {
+      element = new Element("directmemory");
+      element.setText(Boolean.toString(true));
+      config.add(element);
+    }
+
     return config;
   }
 
@@ -1276,6 +1398,9 @@ public class ContikiMoteType implements MoteType {
         case "netstack":
           netStack = NetworkStack.parseConfig(element.getText());
           break;
+        case "directmemory":
+          directMemory = Boolean.parseBoolean(element.getText());
+          break;
         case "moteinterface":
           String intfClass = element.getText().trim();
           /* Backwards compatibility: se.sics -> org.contikios */
@@ -36,6 +36,7 @@ import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.ContikiMote;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.Button;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -59,7 +60,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * @author Fredrik Osterlind
  */
 public class ContikiButton extends Button implements ContikiMoteInterface {
-  private final VarMemory moteMem;
+  private final ByteVar simButtonIsDown;
+  private final ByteVar simButtonIsActive;
+  private final ByteVar simButtonChanged;
   private final ContikiMote mote;
 
   private static final Logger logger = Logger.getLogger(ContikiButton.class);
@@ -74,7 +77,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
   public ContikiButton(Mote mote) {
     super(mote);
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simButtonIsDown = moteMem.byteHandle("simButtonIsDown");
+    simButtonIsActive = moteMem.byteHandle("simButtonIsActive");
+    simButtonChanged = moteMem.byteHandle("simButtonChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -83,10 +89,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doReleaseButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 0);
+    simButtonIsDown.set((byte) 0);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.get() == 1) {
+      simButtonChanged.set((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -98,10 +104,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doPressButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 1);
+    simButtonIsDown.set((byte) 1);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.get() == 1) {
+      simButtonChanged.set((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -113,7 +119,7 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   public boolean isPressed() {
-    return moteMem.getByteValueOf("simButtonIsDown") == 1;
+    return simButtonIsDown.get() == 1;
   }
 
 }
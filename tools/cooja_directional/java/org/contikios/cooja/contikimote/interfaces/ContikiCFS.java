@@ -43,6 +43,9 @@ import org.jdom.Element;
 import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
+import org.contikios.cooja.mote.memory.MemoryVar.ArrayVar;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
+import org.contikios.cooja.mote.memory.MemoryVar.IntVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -72,7 +75,11 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
 
   public int FILESYSTEM_SIZE = 4000; /* Configure CFS size here and in cfs-cooja.c */
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private final ByteVar simCFSChanged;
+  private final IntVar simCFSRead;
+  private final IntVar simCFSWritten;
+  private final ArrayVar simCFSData;
+  private final IntVar simCFSSize;
 
   private int lastRead = 0;
   private int lastWritten = 0;
@@ -86,7 +93,12 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
    */
   public ContikiCFS(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simCFSChanged = moteMem.byteHandle("simCFSChanged");
+    simCFSRead = moteMem.intHandle("simCFSRead");
+    simCFSWritten = moteMem.intHandle("simCFSWritten");
+    simCFSData = moteMem.arrayHandle("simCFSData");
+    simCFSSize = moteMem.intHandle("simCFSSize");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -94,13 +106,13 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simCFSChanged") == 1) {
-      lastRead = moteMem.getIntValueOf("simCFSRead");
-      lastWritten = moteMem.getIntValueOf("simCFSWritten");
+    if (simCFSChanged.get() == 1) {
+      lastRead = simCFSRead.get();
+      lastWritten = simCFSWritten.get();
 
-      moteMem.setIntValueOf("simCFSRead", 0);
-      moteMem.setIntValueOf("simCFSWritten", 0);
-      moteMem.setByteValueOf("simCFSChanged", (byte) 0);
+      simCFSRead.set(0);
+      simCFSWritten.set(0);
+      simCFSChanged.set((byte) 0);
 
       this.setChanged();
       this.notifyObservers(mote);
@@ -119,8 +131,8 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
       return false;
     }
 
-    moteMem.setByteArray("simCFSData", data);
-    moteMem.setIntValueOf("simCFSSize", data.length);
+    simCFSData.set(data);
+    simCFSSize.set(data.length);
     return true;
   }
 
@@ -130,8 +142,8 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
    * @return Filesystem data
    */
   public byte[] getFilesystemData() {
-    int size = moteMem.getIntValueOf("simCFSSize");
-    return moteMem.getByteArray("simCFSData", size);
+    int size = simCFSSize.get();
+    return simCFSData.get(size);
   }
 
   /**
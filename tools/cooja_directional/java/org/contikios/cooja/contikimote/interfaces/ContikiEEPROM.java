@@ -45,6 +45,9 @@ import org.jdom.Element;
 import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
+import org.contikios.cooja.mote.memory.MemoryVar.ArrayVar;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
+import org.contikios.cooja.mote.memory.MemoryVar.IntVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -74,7 +77,10 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
 
   public int EEPROM_SIZE = 1024; /* Configure EEPROM size here and in eeprom.c. Should really be multiple of 16 */
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private final ByteVar simEEPROMChanged;
+  private final IntVar simEEPROMRead;
+  private final IntVar simEEPROMWritten;
+  private final ArrayVar simEEPROMData;
 
   private int lastRead = 0;
   private int lastWritten = 0;
@@ -88,7 +94,11 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
    */
   public ContikiEEPROM(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simEEPROMChanged = moteMem.byteHandle("simEEPROMChanged");
+    simEEPROMRead = moteMem.intHandle("simEEPROMRead");
+    simEEPROMWritten = moteMem.intHandle("simEEPROMWritten");
+    simEEPROMData = moteMem.arrayHandle("simEEPROMData");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -96,13 +106,13 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simEEPROMChanged") == 1) {
-      lastRead = moteMem.getIntValueOf("simEEPROMRead");
-      lastWritten = moteMem.getIntValueOf("simEEPROMWritten");
+    if (simEEPROMChanged.get() == 1) {
+      lastRead = simEEPROMRead.get();
+      lastWritten = simEEPROMWritten.get();
 
-      moteMem.setIntValueOf("simEEPROMRead", 0);
-      moteMem.setIntValueOf("simEEPROMWritten", 0);
-      moteMem.setByteValueOf("simEEPROMChanged", (byte) 0);
+      simEEPROMRead.set(0);
+      simEEPROMWritten.set(0);
+      simEEPROMChanged.set((byte) 0);
 
       this.setChanged();
       this.notifyObservers(mote);
@@ -121,7 +131,7 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
       return false;
     }
 
-    moteMem.setByteArray("simEEPROMData", data);
+    simEEPROMData.set(data);
     return true;
   }
 
@@ -131,7 +141,7 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
    * @return Filesystem data
    */
   public byte[] getEEPROMData() {
-    return moteMem.getByteArray("simEEPROMData", EEPROM_SIZE);
+    return simEEPROMData.get(EEPROM_SIZE);
   }
 
   /**
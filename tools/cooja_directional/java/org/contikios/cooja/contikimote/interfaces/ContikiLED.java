@@ -40,6 +40,7 @@ import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.LED;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -65,7 +66,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   private static Logger logger = Logger.getLogger(ContikiLED.class);
 
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private ByteVar simLedsValue = null;
   private byte currentLedValue = 0;
 
   private static final byte LEDS_GREEN = 1;
@@ -92,7 +93,8 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
    */
   public ContikiLED(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simLedsValue = moteMem.byteHandle("simLedsValue");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -118,7 +120,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   public void doActionsAfterTick() {
     boolean ledChanged;
 
-    byte newLedsValue = moteMem.getByteValueOf("simLedsValue");
+    byte newLedsValue = simLedsValue.get();
     if (newLedsValue != currentLedValue) {
       ledChanged = true;
     } else {
@@ -38,6 +38,8 @@ import org.jdom.Element;
 import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.MoteID;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
+import org.contikios.cooja.mote.memory.MemoryVar.IntVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -61,7 +63,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * @author Fredrik Osterlind
  */
 public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
-  private VarMemory moteMem = null;
+  private final IntVar simMoteID;
+  private final ByteVar simMoteIDChanged;
+  private final IntVar simRandomSeed;
   private static Logger logger = Logger.getLogger(ContikiMoteID.class);
 
   private int moteID = 0;
@@ -78,7 +82,10 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
    */
   public ContikiMoteID(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simMoteID = moteMem.intHandle("simMoteID");
+    simMoteIDChanged = moteMem.byteHandle("simMoteIDChanged");
+    simRandomSeed = moteMem.intHandle("simRandomSeed");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -91,9 +98,9 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
 
   public void setMoteID(int newID) {
     moteID = newID;
-    moteMem.setIntValueOf("simMoteID", moteID);
-    moteMem.setByteValueOf("simMoteIDChanged", (byte) 1);
-    moteMem.setIntValueOf("simRandomSeed", (int) (mote.getSimulation().getRandomSeed() + newID));
+    simMoteID.set(moteID);
+    simMoteIDChanged.set((byte) 1);
+    simRandomSeed.set((int) (mote.getSimulation().getRandomSeed() + newID));
     setChanged();
     notifyObservers();
   }
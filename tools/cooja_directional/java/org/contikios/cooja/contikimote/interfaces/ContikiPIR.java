@@ -41,6 +41,7 @@ import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.contikimote.ContikiMote;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.interfaces.PIR;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -66,7 +67,8 @@ import org.contikios.cooja.mote.memory.VarMemory;
 public class ContikiPIR extends PIR implements ContikiMoteInterface {
 
   private ContikiMote mote;
-  private VarMemory moteMem;
+  private final ByteVar simPirIsActive;
+  private final ByteVar simPirChanged;
 
   /**
    * Creates an interface to the PIR at mote.
@@ -78,7 +80,9 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
    */
   public ContikiPIR(Mote mote) {
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simPirIsActive = moteMem.byteHandle("simPirIsActive");
+    simPirChanged = moteMem.byteHandle("simPirChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -97,8 +101,8 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
   }
 
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simPirIsActive") == 1) {
-      moteMem.setByteValueOf("simPirChanged", (byte) 1);
+    if (simPirIsActive.get() == 1) {
+      simPirChanged.set((byte) 1);
 
       mote.requestImmediateWakeup();
     }
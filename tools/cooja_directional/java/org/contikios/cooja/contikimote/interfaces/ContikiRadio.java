@@ -47,6 +47,10 @@ import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
 import org.contikios.cooja.interfaces.Position;
 import org.contikios.cooja.interfaces.Direction;
 import org.contikios.cooja.interfaces.Radio;
+import org.contikios.cooja.mote.memory.MemoryVar.ArrayVar;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
+import org.contikios.cooja.mote.memory.MemoryVar.Int64Var;
+import org.contikios.cooja.mote.memory.MemoryVar.IntVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 import org.contikios.cooja.radiomediums.UDGM;
 import org.contikios.cooja.util.CCITT_CRC;
@@ -92,7 +96,17 @@ import org.contikios.cooja.util.CCITT_CRC;
 public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledAfterActiveTicks {
   private ContikiMote mote;
 
-  private VarMemory myMoteMemory;
+  private final ByteVar simRadioHWOn;
+  private final ByteVar simReceiving;
+  private final IntVar simRadioChannel;
+  private final Int64Var simLastPacketTimestamp;
+  private final IntVar simInSize;
+  private final ArrayVar simInDataBuffer;
+  private final ByteVar simPower;
+  private final IntVar simSignalStrength;
+  private final IntVar simLQI;
+  private final IntVar simOutSize;
+  private final ArrayVar simOutDataBuffer;
 
   private static Logger logger = Logger.getLogger(ContikiRadio.class);
 
@@ -135,9 +149,20 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
         ContikiRadio.class, "RADIO_TRANSMISSION_RATE_kbps");
 
     this.mote = (ContikiMote) mote;
-    this.myMoteMemory = new VarMemory(mote.getMemory());
-
-    radioOn = myMoteMemory.getByteValueOf("simRadioHWOn") == 1;
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simRadioHWOn = moteMem.byteHandle("simRadioHWOn");
+    simReceiving = moteMem.byteHandle("simReceiving");
+    simRadioChannel = moteMem.intHandle("simRadioChannel");
+    simLastPacketTimestamp = moteMem.int64Handle("simLastPacketTimestamp");
+    simInSize = moteMem.intHandle("simInSize");
+    simInDataBuffer = moteMem.arrayHandle("simInDataBuffer");
+    simPower = moteMem.byteHandle("simPower");
+    simSignalStrength = moteMem.intHandle("simSignalStrength");
+    simLQI = moteMem.intHandle("simLQI");
+    simOutSize = moteMem.intHandle("simOutSize");
+    simOutDataBuffer = moteMem.arrayHandle("simOutDataBuffer");
+
+    radioOn = simRadioHWOn.get() == 1;
   }
 
   /* Contiki mote interface support */
@@ -168,7 +193,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public boolean isReceiving() {
-    return myMoteMemory.getByteValueOf("simReceiving") == 1;
+    return simReceiving.get() == 1;
   }
 
   public boolean isInterfered() {
@@ -176,7 +201,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getChannel() {
-    return myMoteMemory.getIntValueOf("simRadioChannel");
+    return simRadioChannel.get();
   }
 
   public void signalReceptionStart() {
@@ -186,13 +211,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
       return;
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 1);
+    simReceiving.set((byte) 1);
     mote.requestImmediateWakeup();
 
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_STARTED;
 
-    myMoteMemory.setInt64ValueOf("simLastPacketTimestamp", lastEventTime);
+    simLastPacketTimestamp.set(lastEventTime);
 
     this.setChanged();
     this.notifyObservers();
@@ -202,13 +227,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     if (isInterfered || packetToMote == null) {
       isInterfered = false;
       packetToMote = null;
-      myMoteMemory.setIntValueOf("simInSize", 0);
+      simInSize.set(0);
     } else {
-      myMoteMemory.setIntValueOf("simInSize", packetToMote.getPacketData().length - 2);
-      myMoteMemory.setByteArray("simInDataBuffer", packetToMote.getPacketData());
+      simInSize.set(packetToMote.getPacketData().length - 2);
+      simInDataBuffer.set(packetToMote.getPacketData());
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
+    simReceiving.set((byte) 0);
     mote.requestImmediateWakeup();
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_FINISHED;
@@ -244,15 +269,15 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getCurrentOutputPowerIndicator() {
-    return myMoteMemory.getByteValueOf("simPower");
+    return simPower.get();
   }
 
   public double getCurrentSignalStrength() {
-    return myMoteMemory.getIntValueOf("simSignalStrength");
+    return simSignalStrength.get();
   }
 
   public void setCurrentSignalStrength(double signalStrength) {
-    myMoteMemory.setIntValueOf("simSignalStrength", (int) signalStrength);
+    simSignalStrength.set((int) signalStrength);
   }
 
   /** Set LQI to a value between 0 and 255.
@@ -266,11 +291,11 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     else if(lqi>0xff) {
       lqi=0xff;
     }
-    myMoteMemory.setIntValueOf("simLQI", lqi);
+    simLQI.set(lqi);
   }
 
   public int getLQI(){
-    return myMoteMemory.getIntValueOf("simLQI");
+    return simLQI.get();
   }
 
   public Position getPosition() {
@@ -285,13 +310,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     long now = mote.getSimulation().getSimulationTime();
 
     /* Check if radio hardware status changed */
-    if (radioOn != (myMoteMemory.getByteValueOf("simRadioHWOn") == 1)) {
+    if (radioOn != (simRadioHWOn.get() == 1)) {
       radioOn = !radioOn;
 
       if (!radioOn) {
-        myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
-        myMoteMemory.setIntValueOf("simInSize", 0);
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+        simReceiving.set((byte) 0);
+        simInSize.set(0);
+        simOutSize.set(0);
         isTransmitting = false;
         lastEvent = RadioEvent.HW_OFF;
       } else {
@@ -307,8 +332,8 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* Check if radio output power changed */
-    if (myMoteMemory.getByteValueOf("simPower") != oldOutputPowerIndicator) {
-      oldOutputPowerIndicator = myMoteMemory.getByteValueOf("simPower");
+    if (simPower.get() != oldOutputPowerIndicator) {
+      oldOutputPowerIndicator = simPower.get();
       lastEvent = RadioEvent.UNKNOWN;
       this.setChanged();
       this.notifyObservers();
@@ -324,7 +349,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
     /* Ongoing transmission */
     if (isTransmitting && now >= transmissionEndTime) {
-      myMoteMemory.setIntValueOf("simOutSize", 0);
+      simOutSize.set(0);
       isTransmitting = false;
       mote.requestImmediateWakeup();
 
@@ -336,13 +361,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* New transmission */
-    int size = myMoteMemory.getIntValueOf("simOutSize");
+    int size = simOutSize.get();
     if (!isTransmitting && size > 0) {
-      packetFromMote = new COOJARadioPacket(myMoteMemory.getByteArray("simOutDataBuffer", size + 2));
+      packetFromMote = new COOJARadioPacket(simOutDataBuffer.get(size + 2));
 
       if (packetFromMote.getPacketData() == null || packetFromMote.getPacketData().length == 0) {
         logger.warn("Skipping zero sized Contiki packet (no buffer)");
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+        simOutSize.set(0);
         mote.requestImmediateWakeup();
         return;
       }
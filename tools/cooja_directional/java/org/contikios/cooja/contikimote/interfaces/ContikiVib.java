@@ -42,6 +42,7 @@ import org.contikios.cooja.MoteInterface;
 import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.contikimote.ContikiMote;
 import org.contikios.cooja.contikimote.ContikiMoteInterface;
+import org.contikios.cooja.mote.memory.MemoryVar.ByteVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 /**
@@ -68,7 +69,8 @@ import org.contikios.cooja.mote.memory.VarMemory;
 public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
 
   private ContikiMote mote;
-  private VarMemory moteMem;
+  private final ByteVar simVibIsActive;
+  private final ByteVar simVibChanged;
 
   /**
    * Creates an interface to the vibration sensor at mote.
@@ -80,7 +82,9 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
    */
   public ContikiVib(Mote mote) {
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simVibIsActive = moteMem.byteHandle("simVibIsActive");
+    simVibChanged = moteMem.byteHandle("simVibChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -99,8 +103,8 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
   }
   
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simVibIsActive") == 1) {
-      moteMem.setByteValueOf("simVibChanged", (byte) 1);
+    if (simVibIsActive.get() == 1) {
+      simVibChanged.set((byte) 1);
 
       mote.requestImmediateWakeup();
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.interfaces;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Antenna radiation pattern.
+ *
+ * A pattern is a gain lookup table with one entry per degree in the
+ * interval [-180, 180], where 0 degrees is the antenna orientation.
+ * Patterns are read once from the rad_pattern_NAME.txt files and shared,
+ * read-only, by all motes using them.
+ *
+ * @see Direction
+ * @author agent
+ */
+public final class AntennaPattern {
+  private static Logger logger = Logger.getLogger(AntennaPattern.class);
+
+  public static final String DEFAULT_PATTERN = "RPA";
+
+  /* Known patterns, as shipped next to this class */
+  public static final String[] PATTERNS = new String[] {
+    "EPA", "RPA", "TPA", "dipole", "rege", "RPA_flattop"
+  };
+
+  /* Directory searched if a pattern is not available on the classpath */
+  private static final String PATTERN_DIR = "../java/org/contikios/cooja/interfaces/";
+
+  private static final int MIN_DEGREE = -180;
+  private static final int MAX_DEGREE = 180;
+
+  private static final HashMap<String, AntennaPattern> patterns =
+    new HashMap<String, AntennaPattern>();
+
+  private final String name;
+  private final double[] gains; /* gains[deg - MIN_DEGREE] */
+
+  private AntennaPattern(String name, double[] gains) {
+    this.name = name;
+    this.gains = gains;
+  }
+
+  /**
+   * Returns the shared pattern with the given name, loading it on first use.
+   *
+   * @param name Pattern name, e.g. "RPA"
+   * @return Pattern, or null if it could not be loaded
+   */
+  public static AntennaPattern getPattern(String name) {
+    synchronized (patterns) {
+      AntennaPattern pattern = patterns.get(name);
+      if (pattern == null) {
+        try {
+          pattern = new AntennaPattern(name, loadGains(name));
+          patterns.put(name, pattern);
+        } catch (IOException e) {
+          logger.fatal("Could not load antenna pattern " + name + ": " + e.getMessage());
+          return null;
+        }
+      }
+      return pattern;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param degrees Angle relative to antenna orientation
+   * @return Tabulated gain
+   */
+  public double getGain(int degrees) {
+    return gains[normalize(degrees) - MIN_DEGREE];
+  }
+
+  /**
+   * @param degrees Angle relative to antenna orientation
+   * @return Gain, linearly interpolated between the surrounding degrees
+   */
+  public double getInterpolatedGain(double degrees) {
+    degrees = degrees - 360.0 * Math.floor((degrees - MIN_DEGREE) / 360.0);
+    int low = (int) Math.floor(degrees);
+    if (low >= MAX_DEGREE) {
+      return gains[gains.length - 1];
+    }
+    double frac = degrees - low;
+    double g = gains[low - MIN_DEGREE];
+    if (frac == 0.0) {
+      return g;
+    }
+    return g + frac * (gains[low + 1 - MIN_DEGREE] - g);
+  }
+
+  private static int normalize(int degrees) {
+    if (degrees >= MIN_DEGREE && degrees <= MAX_DEGREE) {
+      return degrees;
+    }
+    degrees = (degrees - MIN_DEGREE) % 360;
+    if (degrees < 0) {
+      degrees += 360;
+    }
+    return degrees + MIN_DEGREE;
+  }
+
+  private static double[] loadGains(String name) throws IOException {
+    String filename = "rad_pattern_" + name + ".txt";
+    InputStream in = AntennaPattern.class.getResourceAsStream(filename);
+    if (in == null) {
+      File file = new File(PATTERN_DIR + filename);
+      if (!file.exists()) {
+        throw new IOException("pattern file not found: " + filename);
+      }
+      in = new FileInputStream(file);
+    }
+
+    double[] gains = new double[MAX_DEGREE - MIN_DEGREE + 1];
+    Arrays.fill(gains, Double.NaN);
+    BufferedReader br = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+    try {
+      String line;
+      while ((line = br.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] parts = line.split(",");
+        if (parts.length < 2) {
+          throw new IOException("bad line in " + filename + ": " + line);
+        }
+        int deg = (int) Math.round(Double.parseDouble(parts[0]));
+        if (deg < MIN_DEGREE || deg > MAX_DEGREE) {
+          throw new IOException("degree out of range in " + filename + ": " + line);
+        }
+        gains[deg - MIN_DEGREE] = Double.parseDouble(parts[1]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException("bad number in " + filename + ": " + e.getMessage());
+    } finally {
+      br.close();
+    }
+
+    /* -180 and 180 are the same direction */
+    if (Double.isNaN(gains[gains.length - 1])) {
+      gains[gains.length - 1] = gains[0];
+    }
+    return gains;
+  }
+
+  public String toString() {
+    return "Antenna pattern: " + name;
+  }
+
+}
@@ -36,6 +36,7 @@ import org.contikios.cooja.interfaces.Position;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
 import org.contikios.cooja.interfaces.MoteID;
 import org.contikios.cooja.interfaces.Clock;
+import org.contikios.cooja.mote.memory.MemoryVar.IntVar;
 import org.contikios.cooja.mote.memory.VarMemory;
 
 //import java.lang.math;
@@ -56,6 +57,8 @@ import java.lang.Double;
  *
  * <p>
  * This observable notifies when the direction is changed.
+ * Listeners added via {@link #addDirectionListener(DirectionListener)}
+ * are told what changed, with old and new values.
  *
  * @author Vishwesh Rege
  */
@@ -65,12 +68,57 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
   private Mote mote = null;
   private VarMemory moteMem = null;
 
+  /* Resolved at first tick */
+  private IntVar simBwDegValue = null;
+  private IntVar simOriDegValue = null;
+  private IntVar antennaType = null;
+  private IntVar xcor = null;
+  private IntVar ycor = null;
+
   private double orientationDegrees;
   private double beamwidthDegrees;
   private double xcoordinate;
   private double ycoordinate;
   private boolean omni; 
-  
+  private AntennaPattern pattern;
+  private boolean interpolate;
+
+  private ArrayList<DirectionListener> listeners = new ArrayList<DirectionListener>();
+  private boolean changed = false;
+
+  public enum ChangeType {
+    ORIENTATION, BEAMWIDTH, ANTENNA_TYPE, PATTERN
+  }
+
+  /**
+   * Direction change. Values are of type Double for orientation and
+   * beamwidth, Boolean (omnidirectional) for antenna type, and
+   * AntennaPattern for pattern changes.
+   */
+  public static class DirectionEvent {
+    public final Direction direction;
+    public final Mote mote;
+    public final ChangeType type;
+    public final Object oldValue;
+    public final Object newValue;
+
+    public DirectionEvent(Direction direction, Mote mote, ChangeType type,
+        Object oldValue, Object newValue) {
+      this.direction = direction;
+      this.mote = mote;
+      this.type = type;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    public String toString() {
+      return type + " " + oldValue + " -> " + newValue;
+    }
+  }
+
+  public interface DirectionListener {
+    public void directionChanged(DirectionEvent event);
+  }
 
   public Direction(Mote mote) {
     this.mote = mote;
@@ -80,6 +128,8 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
     xcoordinate = 0.0;
     ycoordinate = 0.0;
     omni = false; 
+    pattern = AntennaPattern.getPattern(AntennaPattern.DEFAULT_PATTERN);
+    interpolate = false;
     System.out.println("Direction initialized with ori: "+orientationDegrees);
   }
 
@@ -89,16 +139,15 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
 
   public void setAntennaType (int type) {
     if(type == 0) {
-	    omni = true;
-	    orientationDegrees = -1.0;
+	    updateOmni(true);
+	    updateOrientation(-1.0);
     }
     else {
-	    omni = false;
+	    updateOmni(false);
     }
 
     System.out.println("Changed Antenna type to: "+omni);
-    this.setChanged();
-    this.notifyObservers(mote);
+    notifyChanges();
   }
 
   public boolean getAntennaType () {
@@ -107,9 +156,8 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
 
   public void setOrientation (double orientationDegrees) {
     System.out.println("Changed Ori to: "+orientationDegrees);
-    orientationDegrees = orientationDegrees;
-    this.setChanged();
-    this.notifyObservers(mote);
+    updateOrientation(orientationDegrees);
+    notifyChanges();
   }
 
 
@@ -127,68 +175,54 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
 
 
  
- public double getGain (Position destPos) {
-	Position sourcePos = this.mote.getInterfaces().getPosition();
-	/*double beamwidthRadians = beamwidthDegrees*Math.PI/180;
-	double cosin = Math.cos(beamwidthRadians/4);
-	double logan = Math.log10(cosin);
-	double exp = -3/(20*logan);
-	double gain = Math.pow(Math.cos(getAngle(destPos)), exp);
-	//double gain = Math.pow(Math.cos(getAngle(destPos)),2);	//Dipole
-	*/
-	//Reading from file to Hashmap
-	HashMap<Double,Double> map = new HashMap<Double,Double>();
-	String line = "";
-	try
-	{
-	File fileRelative = new File("../java/org/contikios/cooja/interfaces/rad_pattern_RPA.txt");
-	FileReader fr = new FileReader(fileRelative);
-	BufferedReader br = new BufferedReader(fr);
-		while((line=br.readLine()) != null)
-		{
-			String parts[ ] = line.split(",");
-			map.put(Double.valueOf(parts[0]),Double.valueOf(parts[1]));
-			//System.out.println("parts[0]:"+parts[0]);
-			//System.out.println("parts[1]:"+parts[1]);
-		}
-			fr.close();
-	}
-	catch(IOException e)
-	{
-		e.printStackTrace();
-	}
-	double r = getAngle(destPos);
-	//System.out.println("angle - ori:"+r);
-	int deg = (int)(Math.round(r*180)/Math.PI);
-	//System.out.println("ang -ori in deg:"+deg);
-	
-	double val = 0;
-	if(deg>=0)
-	{
-		val = deg;
-	}
-	else
-	{
-	if(deg< 0 && deg >-180)
-	{
-		val = deg;
-	}
-	else if(deg<=-180)
-	{
-		val = 360+deg;
-	}
-	
-	}
-	//System.out.println("val:"+val);
-	double gain=map.get(val);
-    System.out.println("The Value mapped to deg:"+val+"is:"+ gain+" omni "+omni);
-	
-	if (omni) {
-		return 1.0;
-	}
-	else {
-		return gain;
-	}
+  /**
+   * @param name Radiation pattern name, see {@link AntennaPattern#PATTERNS}
+   */
+  public void setAntennaPattern(String name) {
+    AntennaPattern newPattern = AntennaPattern.getPattern(name);
+    if (newPattern == null) {
+      logger.warn("Unknown antenna pattern " + name + ", keeping " + pattern.getName());
+      return;
+    }
+    if (newPattern != pattern) {
+      AntennaPattern oldPattern = pattern;
+      pattern = newPattern;
+      fireChange(ChangeType.PATTERN, oldPattern, newPattern);
+    }
+    notifyChanges();
+  }
+
+  public AntennaPattern getAntennaPattern() {
+    return pattern;
+  }
+
+  /**
+   * @param interpolate Interpolate pattern gain between degrees
+   */
+  public void setPatternInterpolation(boolean interpolate) {
+    if (this.interpolate != interpolate) {
+      this.interpolate = interpolate;
+      /* Gains change as if the pattern changed */
+      fireChange(ChangeType.PATTERN, pattern, pattern);
+    }
+    notifyChanges();
+  }
+
+  public boolean getPatternInterpolation() {
+    return interpolate;
+  }
+
+  public double getGain (Position destPos) {
+    if (omni) {
+      return 1.0;
+    }
+
+    double r = getAngle(destPos);
+    if (interpolate) {
+      return pattern.getInterpolatedGain(Math.toDegrees(r));
+    }
+    int deg = (int)(Math.round(r*180)/Math.PI);
+    return pattern.getGain(deg);
   }
 
   public double getAngle (Position destPos) {	// get angle of dest w.r.t mySelf
@@ -199,8 +233,6 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
         ycoordinate = srcycord ;
 	double x = destPos.getXCoordinate() - sourcePos.getXCoordinate();
 	double y = destPos.getYCoordinate() - sourcePos.getYCoordinate();
-	int nodeid = this.mote.getInterfaces().getMoteID().getMoteID();
-	long clock = this.mote.getInterfaces().getClock().getTime();
 	//System.out.println("Source nodeid:"+nodeid+"Xcoordinate:"+xcoordinate+"Ycoordinate:"+ycoordinate);
 	//System.out.println("Current time:"+clock);
 	//System.out.println("Source X co-ord:"+sourcePos.getXCoordinate()+"Source Y co-ord:"+sourcePos.getYCoordinate());
@@ -212,45 +244,96 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
   }
   
 
+  public void addDirectionListener(DirectionListener l) {
+    listeners.add(l);
+  }
+
+  public void removeDirectionListener(DirectionListener l) {
+    listeners.remove(l);
+  }
+
+  private void fireChange(ChangeType type, Object oldValue, Object newValue) {
+    changed = true;
+    if (listeners.isEmpty()) {
+      return;
+    }
+    DirectionEvent event = new DirectionEvent(this, mote, type, oldValue, newValue);
+    for (DirectionListener l: listeners.toArray(new DirectionListener[listeners.size()])) {
+      l.directionChanged(event);
+    }
+  }
+
+  private void updateOrientation(double degrees) {
+    if (degrees != orientationDegrees) {
+      double old = orientationDegrees;
+      orientationDegrees = degrees;
+      fireChange(ChangeType.ORIENTATION, old, degrees);
+    }
+  }
+
+  private void updateBeamWidth(double degrees) {
+    if (degrees != beamwidthDegrees) {
+      double old = beamwidthDegrees;
+      beamwidthDegrees = degrees;
+      fireChange(ChangeType.BEAMWIDTH, old, degrees);
+    }
+  }
+
+  private void updateOmni(boolean omni) {
+    if (omni != this.omni) {
+      this.omni = omni;
+      fireChange(ChangeType.ANTENNA_TYPE, !omni, omni);
+    }
+  }
+
+  /**
+   * Notifies observers once if anything changed since the last notification.
+   */
+  private void notifyChanges() {
+    if (!changed) {
+      return;
+    }
+    changed = false;
+    this.setChanged();
+    this.notifyObservers(mote);
+  }
+
   public void doActionsAfterTick() {
   
-    boolean changed;
-
     int nodeid = this.mote.getInterfaces().getMoteID().getMoteID();
    
     Position sourcePos = this.mote.getInterfaces().getPosition();
     double srcxcord = sourcePos.getXCoordinate();
     double srcycord = sourcePos.getYCoordinate();
+
+    if (simBwDegValue == null) {
+      simBwDegValue = moteMem.intHandle("simBwDegValue");
+      simOriDegValue = moteMem.intHandle("simOriDegValue");
+      antennaType = moteMem.intHandle("antennaType");
+      xcor = moteMem.intHandle("xcor");
+      ycor = moteMem.intHandle("ycor");
+    }
 	
-    int newBwDegValue = moteMem.getIntValueOf("simBwDegValue"); 
-    int newOriDegValue = moteMem.getIntValueOf("simOriDegValue");
-    this.omni = (moteMem.getIntValueOf("antennaType") == 0);
+    int newBwDegValue = simBwDegValue.get();
+    int newOriDegValue = simOriDegValue.get();
+    updateOmni(antennaType.get() == 0);
     
-    moteMem.setIntValueOf("xcor",(int) srcxcord);
-    int newxcoordinate = moteMem.getIntValueOf("xcor");
+    xcor.set((int) srcxcord);
+    int newxcoordinate = xcor.get();
     //System.out.println("xcoordinate:"+newxcoordinate);
-    moteMem.setIntValueOf("ycor",(int) srcycord);
-    int newycoordinate = moteMem.getIntValueOf("ycor");
+    ycor.set((int) srcycord);
+    int newycoordinate = ycor.get();
     //System.out.println("ycoordinate:"+newycoordinate);
     
     //System.out.println("Source nodeid:"+nodeid+"	Xcoordinate:"+newxcoordinate+"	Ycoordinate:"+newycoordinate);
-	
-    if (newBwDegValue != (int)this.beamwidthDegrees && newOriDegValue != (int)this.orientationDegrees) {
-      changed = true;
-    } else {
-      changed = false;
-    }
-	//if (changed) { (should be enabled to use ori-set func especially used for beam/sector switching)
-    //if (changed) {
-    this.beamwidthDegrees = (double) newBwDegValue;
-    this.orientationDegrees = (double) newOriDegValue;
+
+    /* Only actual changes are notified; sector sweeps notify once per switch */
+    updateBeamWidth((double) newBwDegValue);
+    updateOrientation((double) newOriDegValue);
     this.xcoordinate = (double) newxcoordinate;
     //System.out.println("xcoordinate:"+xcoordinate);
     this.ycoordinate = (double) newycoordinate;
-    this.setChanged();
-    this.notifyObservers(mote);
-    //}
-	//} (should be enabled to use ori-set func especially used for beam/sector switching)
+    notifyChanges();
   }
 
   public JPanel getInterfaceVisualizer() {
@@ -295,6 +378,17 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
     element.setText(Double.toString(getOrientation()));
     config.add(element);
 
+    /* Radiation pattern */
+    element = new Element("antennaPattern");
+    element.setText(pattern.getName());
+    config.add(element);
+
+    if (interpolate) {
+      element = new Element("patternInterpolation");
+      element.setText(Boolean.toString(interpolate));
+      config.add(element);
+    }
+
     return config;
   }
 
@@ -304,6 +398,10 @@ public class Direction extends MoteInterface implements PolledAfterActiveTicks {
     for (Element element : configXML) {
       if (element.getName().equals("orientationDegrees")) {
         orientationDegrees = Double.parseDouble(element.getText());
+      } else if (element.getName().equals("antennaPattern")) {
+        setAntennaPattern(element.getText());
+      } else if (element.getName().equals("patternInterpolation")) {
+        interpolate = Boolean.parseBoolean(element.getText());
       }
     }
 
@@ -29,21 +29,33 @@
 
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 
 /**
  * A memory that is backed by an array.
  *
+ * Pages written via {@link #setMemorySegment(long, byte[])} are tracked as
+ * dirty, allowing users to copy only modified parts of the memory.
+ * Writes directly to the array returned by {@link #getMemory()} are not
+ * tracked.
+ *
  * @author Enrico Joerns
  */
 public class ArrayMemory implements MemoryInterface {
 
+  /** Granularity of dirty tracking, in bytes */
+  public static final int DIRTY_PAGE_SIZE = 64;
+
   private final byte memory[];
   private final long startAddress;
   private final MemoryLayout layout;
   private final boolean readonly;
   private final Map<String, Symbol> symbols;// XXX Allow to set symbols
+  private final BitSet dirtyPages = new BitSet();
+  private final ByteBuffer view; /* Read-only, duplicated by views */
 
   public ArrayMemory(long address, int size, MemoryLayout layout, Map<String, Symbol> symbols) {
     this(address, layout, new byte[size], symbols);
@@ -59,6 +71,7 @@ public class ArrayMemory implements MemoryInterface {
     this.memory = memory;
     this.readonly = readonly;
     this.symbols = symbols;
+    this.view = ByteBuffer.wrap(memory).asReadOnlyBuffer();
   }
 
   @Override
@@ -75,22 +88,81 @@ public class ArrayMemory implements MemoryInterface {
    */
   @Override
   public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException {
+    if (!accessInRange(addr, size)) {
+      throw new MoteMemoryException(
+              "Getting memory segment [0x%x,0x%x] failed: Out of range",
+              addr, addr + size - 1);
+    }
     byte[] ret = new byte[size];
     System.arraycopy(memory, (int) (addr - startAddress), ret, 0, size);
     return ret;
   }
 
+  @Override
+  public MemoryBuffer getMemoryView(long addr, int size) throws MoteMemoryException {
+    if (!accessInRange(addr, size)) {
+      throw new MoteMemoryException(
+              "Getting memory view [0x%x,0x%x] failed: Out of range",
+              addr, addr + size - 1);
+    }
+    ByteBuffer buf = view.duplicate();
+    int offset = (int) (addr - startAddress);
+    buf.limit(offset + size);
+    buf.position(offset);
+    return MemoryBuffer.view(layout, buf);
+  }
+
   @Override
   public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
     if (readonly) {
       throw new MoteMemoryException("Invalid write access for readonly memory");
     }
-    System.arraycopy(data, 0, memory, (int) (addr - startAddress), data.length);
+    int offset = (int) (addr - startAddress);
+    System.arraycopy(data, 0, memory, offset, data.length);
+    markDirty(offset, data.length);
+  }
+
+  private boolean accessInRange(long addr, int size) {
+    long offset = addr - startAddress;
+    return size >= 0 && offset >= 0 && offset + size <= memory.length;
+  }
+
+  /**
+   * Marks bytes written directly to the memory array as dirty.
+   *
+   * @param offset Offset in memory array
+   * @param length Number of bytes written
+   */
+  void markDirty(int offset, int length) {
+    if (length > 0) {
+      dirtyPages.set(offset / DIRTY_PAGE_SIZE, (offset + length - 1) / DIRTY_PAGE_SIZE + 1);
+    }
+  }
+
+  /**
+   * Returns pages written since the last {@link #clearDirtyPages()}.
+   * Page i covers bytes [i*DIRTY_PAGE_SIZE, (i+1)*DIRTY_PAGE_SIZE).
+   *
+   * @return Dirty pages. Must not be modified.
+   */
+  public BitSet getDirtyPages() {
+    return dirtyPages;
+  }
+
+  public boolean isDirty() {
+    return !dirtyPages.isEmpty();
+  }
+
+  public void clearDirtyPages() {
+    dirtyPages.clear();
   }
 
   @Override
   public void clearMemory() {
     Arrays.fill(memory, (byte) 0x00);
+    if (memory.length > 0) {
+      dirtyPages.set(0, (memory.length - 1) / DIRTY_PAGE_SIZE + 1);
+    }
   }
 
   @Override
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * A memory that is backed by a direct (off-heap) byte buffer.
+ *
+ * Allows the Contiki core to exchange memory with the buffer using memcpy,
+ * without JNI array copying or pinning.
+ * As with {@link ArrayMemory}, pages written via
+ * {@link #setMemorySegment(long, byte[])} are tracked as dirty.
+ *
+ * @see org.contikios.cooja.CoreComm#getMemoryBuffer(int, int, ByteBuffer, int)
+ * @author agent
+ */
+public class BufferMemory implements MemoryInterface {
+
+  private final ByteBuffer memory;
+  private final long startAddress;
+  private final MemoryLayout layout;
+  private final Map<String, Symbol> symbols;
+  private final BitSet dirtyPages = new BitSet();
+
+  public BufferMemory(long address, int size, MemoryLayout layout, Map<String, Symbol> symbols) {
+    this(address, layout, ByteBuffer.allocateDirect(size), symbols);
+  }
+
+  private BufferMemory(long address, MemoryLayout layout, ByteBuffer memory, Map<String, Symbol> symbols) {
+    this.startAddress = address;
+    this.layout = layout;
+    this.memory = memory;
+    this.symbols = symbols;
+  }
+
+  /**
+   * Returns the direct buffer backing this memory.
+   * Writes to the buffer are not tracked as dirty.
+   *
+   * @return Backing buffer
+   */
+  public ByteBuffer getBuffer() {
+    return memory;
+  }
+
+  /**
+   * Returns a copy of the entire memory.
+   * Unlike {@link ArrayMemory#getMemory()}, writes to the returned array
+   * do not modify this memory.
+   *
+   * @return Memory copy
+   */
+  @Override
+  public byte[] getMemory() {
+    return getMemorySegment(startAddress, memory.capacity());
+  }
+
+  @Override
+  public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException {
+    if (!accessInRange(addr, size)) {
+      throw new MoteMemoryException(
+              "Getting memory segment [0x%x,0x%x] failed: Out of range",
+              addr, addr + size - 1);
+    }
+    byte[] ret = new byte[size];
+    ByteBuffer buf = memory.duplicate();
+    buf.position((int) (addr - startAddress));
+    buf.get(ret);
+    return ret;
+  }
+
+  @Override
+  public MemoryBuffer getMemoryView(long addr, int size) throws MoteMemoryException {
+    if (!accessInRange(addr, size)) {
+      throw new MoteMemoryException(
+              "Getting memory view [0x%x,0x%x] failed: Out of range",
+              addr, addr + size - 1);
+    }
+    ByteBuffer buf = memory.asReadOnlyBuffer();
+    int offset = (int) (addr - startAddress);
+    buf.limit(offset + size);
+    buf.position(offset);
+    return MemoryBuffer.view(layout, buf);
+  }
+
+  @Override
+  public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
+    if (!accessInRange(addr, data.length)) {
+      throw new MoteMemoryException(
+              "Setting memory segment [0x%x,0x%x] failed: Out of range",
+              addr, addr + data.length - 1);
+    }
+    int offset = (int) (addr - startAddress);
+    ByteBuffer buf = memory.duplicate();
+    buf.position(offset);
+    buf.put(data);
+    markDirty(offset, data.length);
+  }
+
+  private boolean accessInRange(long addr, int size) {
+    long offset = addr - startAddress;
+    return size >= 0 && offset >= 0 && offset + size <= memory.capacity();
+  }
+
+  /**
+   * Marks bytes written directly to the buffer as dirty.
+   *
+   * @param offset Offset in buffer
+   * @param length Number of bytes written
+   */
+  void markDirty(int offset, int length) {
+    if (length > 0) {
+      dirtyPages.set(offset / ArrayMemory.DIRTY_PAGE_SIZE, (offset + length - 1) / ArrayMemory.DIRTY_PAGE_SIZE + 1);
+    }
+  }
+
+  /**
+   * Returns pages written since the last {@link #clearDirtyPages()}.
+   *
+   * @see ArrayMemory#getDirtyPages()
+   * @return Dirty pages. Must not be modified.
+   */
+  public BitSet getDirtyPages() {
+    return dirtyPages;
+  }
+
+  public boolean isDirty() {
+    return !dirtyPages.isEmpty();
+  }
+
+  public void clearDirtyPages() {
+    dirtyPages.clear();
+  }
+
+  /**
+   * @return New direct memory with the same contents
+   */
+  public BufferMemory copy() {
+    ByteBuffer buf = ByteBuffer.allocateDirect(memory.capacity());
+    ByteBuffer src = memory.duplicate();
+    src.clear();
+    buf.put(src);
+    buf.clear();
+    return new BufferMemory(startAddress, layout, buf, symbols);
+  }
+
+  @Override
+  public void clearMemory() {
+    int size = memory.capacity();
+    for (int i = 0; i < size; i++) {
+      memory.put(i, (byte) 0x00);
+    }
+    if (size > 0) {
+      dirtyPages.set(0, (size - 1) / ArrayMemory.DIRTY_PAGE_SIZE + 1);
+    }
+  }
+
+  @Override
+  public long getStartAddr() {
+    return startAddress;
+  }
+
+  @Override
+  public int getTotalSize() {
+    return memory.capacity();
+  }
+
+  @Override
+  public Map<String, Symbol> getSymbolMap() {
+    return symbols;
+  }
+
+  @Override
+  public MemoryLayout getLayout() {
+    return layout;
+  }
+
+  @Override
+  public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public boolean removeSegmentMonitor(long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+}
@@ -59,7 +59,7 @@ public abstract class Memory {
    * @return 8 bit value read from address
    */
   public byte getInt8ValueOf(long addr) {
-    return memIntf.getMemorySegment(addr, DataType.INT8.getSize())[0];
+    return memIntf.getMemoryView(addr, DataType.INT8.getSize()).getInt8();
   }
 
   /**
@@ -69,9 +69,7 @@ public abstract class Memory {
    * @return 16 bit value read from address
    */
   public short getInt16ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT16.getSize())).getInt16();
+    return memIntf.getMemoryView(addr, DataType.INT16.getSize()).getInt16();
   }
 
   /**
@@ -81,9 +79,7 @@ public abstract class Memory {
    * @return 32 bit value read from address
    */
   public int getInt32ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT32.getSize())).getInt32();
+    return memIntf.getMemoryView(addr, DataType.INT32.getSize()).getInt32();
   }
 
   /**
@@ -93,9 +89,7 @@ public abstract class Memory {
    * @return 64 bit value read from address
    */
   public long getInt64ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT64.getSize())).getInt64();
+    return memIntf.getMemoryView(addr, DataType.INT64.getSize()).getInt64();
   }
 
   // -- Get compiler-dependent types
@@ -106,7 +100,7 @@ public abstract class Memory {
    * @return byte read from address
    */
   public byte getByteValueOf(long addr) {
-    return memIntf.getMemorySegment(addr, DataType.BYTE.getSize())[0];
+    return memIntf.getMemoryView(addr, DataType.BYTE.getSize()).getByte();
   }
 
   /**
@@ -116,7 +110,7 @@ public abstract class Memory {
    * @return short read from address
    */
   public short getShortValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, 2)).getShort();
+    return memIntf.getMemoryView(addr, 2).getShort();
   }
 
   /**
@@ -128,7 +122,7 @@ public abstract class Memory {
    * @return integer read from address
    */
   public int getIntValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, memIntf.getLayout().intSize)).getInt();
+    return memIntf.getMemoryView(addr, memIntf.getLayout().intSize).getInt();
   }
 
   /**
@@ -138,7 +132,7 @@ public abstract class Memory {
    * @return long read from address
    */
   public long getLongValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, 4)).getLong();
+    return memIntf.getMemoryView(addr, 4).getLong();
   }
 
   /**
@@ -150,7 +144,7 @@ public abstract class Memory {
    * @return pointer read from address
    */
   public long getAddrValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, memIntf.getLayout().addrSize)).getAddr();
+    return memIntf.getMemoryView(addr, memIntf.getLayout().addrSize).getAddr();
   }
 
   /**
@@ -89,13 +89,68 @@ public class MemoryBuffer {
     return new MemoryBuffer(layout, b, structure);
   }
 
+  /**
+   * Wraps the remaining bytes of a byte buffer into an unstructured
+   * MemoryBuffer with given MemoryLayout.
+   *<p>
+   * Note that modifications to the buffer are applied to the backed buffer and vice versa.
+   *
+   * @param layout MemoryLayout for memory to access buffer from
+   * @param buffer Byte buffer that will back this buffer
+   * @return the new MemroyBuffer
+   */
+  public static MemoryBuffer wrap(MemoryLayout layout, ByteBuffer buffer) {
+    return wrap(layout, buffer, null);
+  }
+
+  /**
+   * Wraps the remaining bytes of a byte buffer into a structured
+   * MemoryBuffer with given MemoryLayout.
+   *
+   * @see #wrap(MemoryLayout, byte[], DataType[])
+   * @param layout MemoryLayout for memory to access buffer from
+   * @param buffer Byte buffer that will back this buffer
+   * @param structure Array of data types representing the structure to read
+   * @return the new MemroyBuffer
+   */
+  public static MemoryBuffer wrap(MemoryLayout layout, ByteBuffer buffer, DataType[] structure) {
+    ByteBuffer b = buffer.slice();
+    b.order(layout.order); // preset endianess
+    return new MemoryBuffer(layout, b, structure);
+  }
+
+  /**
+   * Wraps a memory view: buffer positioned and limited to the viewed
+   * segment, owned by the new MemoryBuffer.
+   */
+  static MemoryBuffer view(MemoryLayout layout, ByteBuffer buffer) {
+    buffer.order(layout.order);
+    return new MemoryBuffer(layout, buffer, null);
+  }
+
+  /**
+   * Returns a structured MemoryBuffer sharing the remaining content of this
+   * buffer, such as a memory view.
+   *
+   * @see #wrap(MemoryLayout, byte[], DataType[])
+   * @param structure Array of data types representing the structure to read
+   * @return the new MemroyBuffer
+   */
+  public MemoryBuffer asStructure(DataType[] structure) {
+    ByteBuffer b = bbuf.duplicate();
+    b.order(bbuf.order());
+    return new MemoryBuffer(memLayout, b, structure);
+  }
+
   /**
    * Returns the byte array that backs this buffer
+   * <p>
+   * Note that memory views are not backed by an accessible array.
    *
-   * @return  byte array that backs this buffer
+   * @return  byte array that backs this buffer, or null
    */
   public byte[] getBytes() {
-    if (bbuf.hasArray()) {
+    if (bbuf.hasArray() && bbuf.arrayOffset() == 0 && bbuf.capacity() == bbuf.array().length) {
       return bbuf.array();
     }
     else {
@@ -105,6 +105,20 @@ public interface MemoryInterface {
    */
   public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException;
 
+  /**
+   * Returns a read-only view of a memory segment, with the byte order of
+   * the memory layout.
+   * <p>
+   * Array and buffer backed memories return views of the live memory
+   * without copying, reflecting later memory changes. Other memories may
+   * return a copy of the segment.
+   *
+   * @param addr Start address of segment
+   * @param size Size of segment [bytes]
+   * @return Memory buffer positioned at segment start
+   */
+  public MemoryBuffer getMemoryView(long addr, int size) throws MoteMemoryException;
+
   /**
    * Sets a segment of memory.
    *
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+package org.contikios.cooja.mote.memory;
+
+import java.nio.ByteBuffer;
+
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
+
+/**
+ * Handle to a variable, resolved once by {@link VarMemory}.
+ * <p>
+ * If the variable lies within an {@link ArrayMemory} or {@link BufferMemory}
+ * section, handles access the section storage directly, without symbol
+ * lookups or temporary arrays. Writes are tracked as dirty, just as writes
+ * via {@link MemoryInterface#setMemorySegment(long, byte[])}.
+ * Other memories are accessed via {@link Memory}.
+ * <p>
+ * Handles stay bound to the memory the {@link VarMemory} was associated
+ * with when they were created.
+ *
+ * @author agent
+ */
+public abstract class MemoryVar {
+
+  public final Symbol symbol;
+
+  /* Direct access: section storage with absolute indexing, or null */
+  protected final ByteBuffer buffer;
+  protected final int offset;
+  protected final int intSize;
+  private final ArrayMemory arraySection;
+  private final BufferMemory bufferSection;
+
+  /* Access via memory, if no direct access */
+  protected final Memory memory;
+
+  MemoryVar(MemoryInterface intf, Memory memory, Symbol symbol, int size) {
+    this.symbol = symbol;
+    this.memory = memory;
+
+    MemoryInterface section = findSection(intf, symbol.addr, size);
+    if (section instanceof ArrayMemory) {
+      arraySection = (ArrayMemory) section;
+      bufferSection = null;
+      buffer = ByteBuffer.wrap(section.getMemory()).order(section.getLayout().order);
+    } else if (section instanceof BufferMemory) {
+      arraySection = null;
+      bufferSection = (BufferMemory) section;
+      buffer = bufferSection.getBuffer().duplicate().order(section.getLayout().order);
+    } else {
+      arraySection = null;
+      bufferSection = null;
+      buffer = null;
+    }
+    if (buffer != null) {
+      offset = (int) (symbol.addr - section.getStartAddr());
+      intSize = section.getLayout().intSize;
+    } else {
+      offset = 0;
+      intSize = 0;
+    }
+  }
+
+  private static MemoryInterface findSection(MemoryInterface intf, long addr, int size) {
+    if (!(intf instanceof SectionMoteMemory)) {
+      return SectionMoteMemory.inSection(intf, addr, size) ? intf : null;
+    }
+    for (MemoryInterface section : ((SectionMoteMemory) intf).getSections().values()) {
+      if (SectionMoteMemory.inSection(section, addr, size)) {
+        return section;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return True if variable is accessed directly
+   */
+  public boolean isDirect() {
+    return buffer != null;
+  }
+
+  protected void written(int length) {
+    if (arraySection != null) {
+      arraySection.markDirty(offset, length);
+    } else if (bufferSection != null) {
+      bufferSection.markDirty(offset, length);
+    }
+  }
+
+  /**
+   * Byte variable.
+   */
+  public static class ByteVar extends MemoryVar {
+    ByteVar(MemoryInterface intf, Memory memory, Symbol symbol) {
+      super(intf, memory, symbol, 1);
+    }
+
+    public byte get() {
+      if (buffer == null) {
+        return memory.getByteValueOf(symbol.addr);
+      }
+      return buffer.get(offset);
+    }
+
+    public void set(byte value) {
+      if (buffer == null) {
+        memory.setByteValueOf(symbol.addr, value);
+        return;
+      }
+      buffer.put(offset, value);
+      written(1);
+    }
+  }
+
+  /**
+   * Integer variable, size depends on platform type.
+   */
+  public static class IntVar extends MemoryVar {
+    IntVar(MemoryInterface intf, Memory memory, Symbol symbol, int size) {
+      super(intf, memory, symbol, size);
+    }
+
+    public int get() {
+      if (buffer == null) {
+        return memory.getIntValueOf(symbol.addr);
+      }
+      return intSize == 2 ? buffer.getShort(offset) : buffer.getInt(offset);
+    }
+
+    public void set(int value) {
+      if (buffer == null) {
+        memory.setIntValueOf(symbol.addr, value);
+        return;
+      }
+      if (intSize == 2) {
+        buffer.putShort(offset, (short) value);
+      } else {
+        buffer.putInt(offset, value);
+      }
+      written(intSize);
+    }
+  }
+
+  /**
+   * 32 bit integer variable.
+   */
+  public static class Int32Var extends MemoryVar {
+    Int32Var(MemoryInterface intf, Memory memory, Symbol symbol) {
+      super(intf, memory, symbol, 4);
+    }
+
+    public int get() {
+      if (buffer == null) {
+        return memory.getInt32ValueOf(symbol.addr);
+      }
+      return buffer.getInt(offset);
+    }
+
+    public void set(int value) {
+      if (buffer == null) {
+        memory.setInt32ValueOf(symbol.addr, value);
+        return;
+      }
+      buffer.putInt(offset, value);
+      written(4);
+    }
+  }
+
+  /**
+   * 64 bit integer variable.
+   */
+  public static class Int64Var extends MemoryVar {
+    Int64Var(MemoryInterface intf, Memory memory, Symbol symbol) {
+      super(intf, memory, symbol, 8);
+    }
+
+    public long get() {
+      if (buffer == null) {
+        return memory.getInt64ValueOf(symbol.addr);
+      }
+      return buffer.getLong(offset);
+    }
+
+    public void set(long value) {
+      if (buffer == null) {
+        memory.setInt64ValueOf(symbol.addr, value);
+        return;
+      }
+      buffer.putLong(offset, value);
+      written(8);
+    }
+  }
+
+  /**
+   * Byte array variable.
+   * <p>
+   * Reads and writes start at the variable address. As with
+   * {@link VarMemory#getByteArray(String, int)}, lengths are not checked
+   * against the variable size.
+   */
+  public static class ArrayVar extends MemoryVar {
+    ArrayVar(MemoryInterface intf, Memory memory, Symbol symbol) {
+      super(intf, memory, symbol, Math.max(symbol.size, 1));
+    }
+
+    public byte[] get(int length) {
+      if (buffer == null) {
+        return memory.getByteArray(symbol.addr, length);
+      }
+      byte[] data = new byte[length];
+      get(data, length);
+      return data;
+    }
+
+    /**
+     * Copies variable data to given array.
+     *
+     * @param data Destination
+     * @param length Number of bytes to copy
+     */
+    public void get(byte[] data, int length) {
+      if (buffer == null) {
+        System.arraycopy(memory.getByteArray(symbol.addr, length), 0, data, 0, length);
+      } else if (buffer.hasArray()) {
+        System.arraycopy(buffer.array(), offset, data, 0, length);
+      } else {
+        ByteBuffer b = buffer.duplicate();
+        b.position(offset);
+        b.get(data, 0, length);
+      }
+    }
+
+    public void set(byte[] data) {
+      if (buffer == null) {
+        memory.setByteArray(symbol.addr, data);
+        return;
+      }
+      if (buffer.hasArray()) {
+        System.arraycopy(data, 0, buffer.array(), offset, data.length);
+      } else {
+        ByteBuffer b = buffer.duplicate();
+        b.position(offset);
+        b.put(data);
+      }
+      written(data.length);
+    }
+  }
+
+}
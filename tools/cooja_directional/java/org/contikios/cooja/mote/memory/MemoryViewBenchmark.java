@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
+import org.contikios.cooja.mote.memory.MemoryLayout.DataType;
+
+/**
+ * MemoryViewBenchmark - compares typed reads via copied memory segments
+ * with reads via memory views, on a mote memory with data and bss
+ * sections. Reads single integers, the fields of a small struct, and
+ * all integers of a buffer, as polled by plugins.
+ *
+ * Usage: MemoryViewBenchmark [reads]
+ *
+ * @author agent
+ */
+public class MemoryViewBenchmark {
+
+  private static final int SECTION_SIZE = 8192;
+
+  /* struct { uint8_t; uint16_t; uint32_t; void *; int } */
+  private static final DataType[] STRUCT = new DataType[] {
+    DataType.INT8, DataType.INT16, DataType.INT32, DataType.POINTER, DataType.INT, null
+  };
+  private static final int STRUCT_SIZE = 32;
+  private static final int BUFFER_SIZE = 256;
+
+  private static SectionMoteMemory createMemory(MemoryLayout layout) {
+    SectionMoteMemory memory = new SectionMoteMemory(new HashMap<String, Symbol>());
+    memory.addMemorySection("data", new ArrayMemory(0x1000, SECTION_SIZE, layout, null));
+    memory.addMemorySection("bss", new ArrayMemory(0x1000 + SECTION_SIZE, SECTION_SIZE, layout, null));
+    byte[] init = new byte[SECTION_SIZE];
+    new Random(4711).nextBytes(init);
+    memory.setMemorySegment(0x1000, init);
+    memory.setMemorySegment(0x1000 + SECTION_SIZE, init);
+    return memory;
+  }
+
+  private static long readStruct(MemoryBuffer buffer) {
+    return buffer.getInt8() + buffer.getInt16() + buffer.getInt32() + buffer.getAddr() + buffer.getInt();
+  }
+
+  private static long readInt32Segments(MemoryInterface memory, int[] addresses) {
+    MemoryLayout layout = memory.getLayout();
+    long checksum = 0;
+    for (int addr: addresses) {
+      checksum = checksum * 31 + MemoryBuffer.wrap(layout, memory.getMemorySegment(addr, 4)).getInt32();
+    }
+    return checksum;
+  }
+
+  private static long readInt32Views(MemoryInterface memory, int[] addresses) {
+    long checksum = 0;
+    for (int addr: addresses) {
+      checksum = checksum * 31 + memory.getMemoryView(addr, 4).getInt32();
+    }
+    return checksum;
+  }
+
+  private static long readStructSegments(MemoryInterface memory, int[] addresses) {
+    MemoryLayout layout = memory.getLayout();
+    long checksum = 0;
+    for (int addr: addresses) {
+      checksum = checksum * 31 + readStruct(MemoryBuffer.wrap(layout, memory.getMemorySegment(addr, STRUCT_SIZE), STRUCT));
+    }
+    return checksum;
+  }
+
+  private static long readStructViews(MemoryInterface memory, int[] addresses) {
+    long checksum = 0;
+    for (int addr: addresses) {
+      checksum = checksum * 31 + readStruct(memory.getMemoryView(addr, STRUCT_SIZE).asStructure(STRUCT));
+    }
+    return checksum;
+  }
+
+  private static long readBufferSegments(MemoryInterface memory, int[] addresses) {
+    MemoryLayout layout = memory.getLayout();
+    long checksum = 0;
+    for (int addr: addresses) {
+      MemoryBuffer buffer = MemoryBuffer.wrap(layout, memory.getMemorySegment(addr, BUFFER_SIZE));
+      for (int i = 0; i < BUFFER_SIZE; i += 4) {
+        checksum = checksum * 31 + buffer.getInt32();
+      }
+    }
+    return checksum;
+  }
+
+  private static long readBufferViews(MemoryInterface memory, int[] addresses) {
+    long checksum = 0;
+    for (int addr: addresses) {
+      MemoryBuffer buffer = memory.getMemoryView(addr, BUFFER_SIZE);
+      for (int i = 0; i < BUFFER_SIZE; i += 4) {
+        checksum = checksum * 31 + buffer.getInt32();
+      }
+    }
+    return checksum;
+  }
+
+  public static void main(String[] args) {
+    int reads = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+    MemoryLayout layout = new MemoryLayout(ByteOrder.LITTLE_ENDIAN, MemoryLayout.ARCH_32BIT, 4);
+    SectionMoteMemory memory = createMemory(layout);
+    Random random = new Random(4712);
+    int[] addresses = new int[reads];
+    for (int i = 0; i < reads; i++) {
+      addresses[i] = 0x1000 + random.nextInt(2 * SECTION_SIZE / BUFFER_SIZE) * BUFFER_SIZE;
+    }
+
+    /* Best of several passes, first pass warms up */
+    long[] best = new long[6];
+    long[] checksums = new long[6];
+    Arrays.fill(best, Long.MAX_VALUE);
+    for (int pass = 0; pass < 6; pass++) {
+      for (int test = 0; test < 6; test++) {
+        long start = System.nanoTime();
+        switch (test) {
+        case 0: checksums[test] = readInt32Segments(memory, addresses); break;
+        case 1: checksums[test] = readInt32Views(memory, addresses); break;
+        case 2: checksums[test] = readStructSegments(memory, addresses); break;
+        case 3: checksums[test] = readStructViews(memory, addresses); break;
+        case 4: checksums[test] = readBufferSegments(memory, addresses); break;
+        default: checksums[test] = readBufferViews(memory, addresses); break;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (pass > 0) {
+          best[test] = Math.min(best[test], elapsed);
+        }
+      }
+    }
+    for (int test = 0; test < 6; test++) {
+      System.out.println((test < 2 ? "Int32" : test < 4 ? "Struct" : "Buffer") + " reads via "
+          + (test % 2 == 1 ? "view:    " : "segment: ") + reads + " reads: " + (best[test] / 1000000) + " ms ("
+          + (best[test] / reads) + " ns/read), checksum " + checksums[test]);
+    }
+  }
+}
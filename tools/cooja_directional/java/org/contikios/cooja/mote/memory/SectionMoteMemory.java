@@ -52,6 +52,9 @@ public class SectionMoteMemory implements MemoryInterface {
   private static final boolean DEBUG = logger.isDebugEnabled();
 
   private Map<String, MemoryInterface> sections = new HashMap<>();
+  /* Sections for address lookups, and last found section */
+  private MemoryInterface[] sectionArray = new MemoryInterface[0];
+  private MemoryInterface lastSection = null;
 
   private final Map<String, Symbol> symbols;
   private MemoryLayout memLayout;
@@ -98,6 +101,7 @@ public class SectionMoteMemory implements MemoryInterface {
     }
 
     sections.put(name, section);
+    sectionArray = sections.values().toArray(new MemoryInterface[sections.size()]);
     if (section.getSymbolMap() != null) {
       for (String s : section.getSymbolMap().keySet()) {
         // XXX how to handle double names here?
@@ -179,6 +183,29 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public void clearMemory() {
     sections.clear();
+    sectionArray = new MemoryInterface[0];
+    lastSection = null;
+  }
+
+  /**
+   * Returns section containing the whole segment given by address and size.
+   *
+   * @param address Start address of segment
+   * @param size Size of segment
+   * @return Section, or null if no single section contains the segment
+   */
+  private MemoryInterface findSection(long address, int size) {
+    MemoryInterface section = lastSection;
+    if (section != null && inSection(section, address, size)) {
+      return section;
+    }
+    for (MemoryInterface s : sectionArray) {
+      if (inSection(s, address, size)) {
+        lastSection = s;
+        return s;
+      }
+    }
+    return null;
   }
 
   @Override
@@ -206,10 +233,9 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public byte[] getMemorySegment(long address, int size) throws MoteMemoryException {
 
-    for (MemoryInterface section : sections.values()) {
-      if (includesAddr(section, address) && includesAddr(section, address + size - 1)) {
-        return section.getMemorySegment(address, size);
-      }
+    MemoryInterface section = findSection(address, size);
+    if (section != null) {
+      return section.getMemorySegment(address, size);
     }
 
     throw new MoteMemoryException(
@@ -217,6 +243,26 @@ public class SectionMoteMemory implements MemoryInterface {
             address, address + size - 1);
   }
 
+  /**
+   * Returns view of memory segment from section matching segment given by address and size
+   * @param address start address of segment to view
+   * @param size size of segment to view
+   * @return Memory buffer viewing the segment
+   * @throws MoteMemoryException if no single section containing the given address range was found
+   */
+  @Override
+  public MemoryBuffer getMemoryView(long address, int size) throws MoteMemoryException {
+
+    MemoryInterface section = findSection(address, size);
+    if (section != null) {
+      return section.getMemoryView(address, size);
+    }
+
+    throw new MoteMemoryException(
+            "Getting memory view [0x%x,0x%x] failed: No section available",
+            address, address + size - 1);
+  }
+
   /**
    * Sets memory segment of section matching segment given by address and size.
    * @param address start address of segment to set
@@ -227,16 +273,15 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public void setMemorySegment(long address, byte[] data) throws MoteMemoryException {
 
-    for (MemoryInterface section : sections.values()) {
-      if (inSection(section, address, data.length)) {
-        section.setMemorySegment(address, data);
-        if (DEBUG) {
-          logger.debug(String.format(
-                  "Wrote memory segment [0x%x,0x%x]",
-                  address, address + data.length - 1));
-        }
-        return;
+    MemoryInterface section = findSection(address, data.length);
+    if (section != null) {
+      section.setMemorySegment(address, data);
+      if (DEBUG) {
+        logger.debug(String.format(
+                "Wrote memory segment [0x%x,0x%x]",
+                address, address + data.length - 1));
       }
+      return;
     }
     throw new MoteMemoryException(
             "Writing memory segment [0x%x,0x%x] failed: No section available",
@@ -277,7 +322,7 @@ public class SectionMoteMemory implements MemoryInterface {
     return false;
   }
 
-  /** Copies seciton memory to new (array backed) one
+  /** Copies seciton memory to new (array or direct buffer backed) one
    * @return Cloned memory
    */
   @Override
@@ -286,9 +331,14 @@ public class SectionMoteMemory implements MemoryInterface {
     SectionMoteMemory clone = new SectionMoteMemory(symbols);
 
     for (String secname : sections.keySet()) {
-      // Copy section memory to new ArrayMemory
+      // Copy section memory to new BufferMemory or ArrayMemory
       MemoryInterface section = sections.get(secname);
-      MemoryInterface cpmem = new ArrayMemory(section.getStartAddr(), section.getLayout(), section.getMemory().clone(), section.getSymbolMap());
+      MemoryInterface cpmem;
+      if (section instanceof BufferMemory) {
+        cpmem = ((BufferMemory) section).copy();
+      } else {
+        cpmem = new ArrayMemory(section.getStartAddr(), section.getLayout(), section.getMemory().clone(), section.getSymbolMap());
+      }
       clone.addMemorySection(secname, cpmem);
     }
 
@@ -359,6 +359,70 @@ public class VarMemory extends Memory {
     setByteArray(getVariable(varName).addr, data);
   }
 
+  // -- Variable handles
+  /**
+   * Returns handle to byte variable with given name.
+   * The name is resolved once, see {@link MemoryVar}.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   * @throws UnknownVariableException If variable not found
+   */
+  public MemoryVar.ByteVar byteHandle(String varName)
+          throws UnknownVariableException {
+    return new MemoryVar.ByteVar(memIntf, this, getVariable(varName));
+  }
+
+  /**
+   * Returns handle to integer variable with given name.
+   * Note: Size of integer depends on platform type.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   * @throws UnknownVariableException If variable not found
+   */
+  public MemoryVar.IntVar intHandle(String varName)
+          throws UnknownVariableException {
+    Symbol sym = getVariable(varName);
+    return new MemoryVar.IntVar(memIntf, this, sym, Math.max(sym.size, 1));
+  }
+
+  /**
+   * Returns handle to 32 bit integer variable with given name.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   * @throws UnknownVariableException If variable not found
+   */
+  public MemoryVar.Int32Var int32Handle(String varName)
+          throws UnknownVariableException {
+    return new MemoryVar.Int32Var(memIntf, this, getVariable(varName));
+  }
+
+  /**
+   * Returns handle to 64 bit integer variable with given name.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   * @throws UnknownVariableException If variable not found
+   */
+  public MemoryVar.Int64Var int64Handle(String varName)
+          throws UnknownVariableException {
+    return new MemoryVar.Int64Var(memIntf, this, getVariable(varName));
+  }
+
+  /**
+   * Returns handle to byte array variable with given name.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   * @throws UnknownVariableException If variable not found
+   */
+  public MemoryVar.ArrayVar arrayHandle(String varName)
+          throws UnknownVariableException {
+    return new MemoryVar.ArrayVar(memIntf, this, getVariable(varName));
+  }
+
   /**
    * Adds a monitor for the specified address region.
    *
@@ -74,6 +74,7 @@ import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.RowFilter;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableModel;
@@ -93,7 +94,6 @@ import org.contikios.cooja.SimEventCentral.LogOutputListener;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.VisPlugin;
 import org.contikios.cooja.dialogs.TableColumnAdjuster;
-import org.contikios.cooja.dialogs.UpdateAggregator;
 import org.contikios.cooja.util.ArrayQueue;
 
 /**
@@ -165,42 +165,56 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   private JCheckBoxMenuItem appendCheckBox;
 
   private static final int UPDATE_INTERVAL = 250;
-  private UpdateAggregator<LogData> logUpdateAggregator = new UpdateAggregator<LogData>(UPDATE_INTERVAL) {
-    private Runnable scroll = new Runnable() {
-      public void run() {
-        logTable.scrollRectToVisible(
-            new Rectangle(0, logTable.getHeight() - 2, 1, logTable.getHeight()));
+  private long logOutputPosition = 0; /* Next event central log output */
+  private Timer logUpdateTimer = new Timer(UPDATE_INTERVAL, new ActionListener() {
+    public void actionPerformed(ActionEvent e) {
+      /* Fetch new log output, at most one buffer since last update */
+      ArrayList<LogOutputEvent> events = new ArrayList<LogOutputEvent>();
+      logOutputPosition = simulation.getEventCentral().getLogOutput(logOutputPosition, events);
+      if (events.isEmpty()) {
+        return;
       }
-    };
-    protected void handle(List<LogData> ls) {
-      boolean isVisible = true;
-      if (logTable.getRowCount() > 0) {
-        Rectangle visible = logTable.getVisibleRect();
-        if (visible.y + visible.height < logTable.getHeight()) {
-          isVisible = false;
-        }
+      ArrayList<LogData> ls = new ArrayList<LogData>(events.size());
+      for (LogOutputEvent ev: events) {
+        ls.add(createLogData(ev));
       }
+      addLogData(ls);
+    }
+  });
+  private Runnable scroll = new Runnable() {
+    public void run() {
+      logTable.scrollRectToVisible(
+          new Rectangle(0, logTable.getHeight() - 2, 1, logTable.getHeight()));
+    }
+  };
+  private void addLogData(List<LogData> ls) {
+    boolean isVisible = true;
+    if (logTable.getRowCount() > 0) {
+      Rectangle visible = logTable.getVisibleRect();
+      if (visible.y + visible.height < logTable.getHeight()) {
+        isVisible = false;
+      }
+    }
 
-      /* Add */
-      int index = logs.size();
-      logs.addAll(ls);
-      model.fireTableRowsInserted(index, logs.size()-1);
+    /* Add */
+    int index = logs.size();
+    logs.addAll(ls);
+    model.fireTableRowsInserted(index, logs.size()-1);
 
-      /* Remove old */
-      int removed = 0;
-      while (logs.size() > simulation.getEventCentral().getLogOutputBufferSize()) {
-        logs.remove(0);
-        removed++;
-      }
-      if (removed > 0) {
-        model.fireTableRowsDeleted(0, removed-1);
-      }
+    /* Remove old */
+    int removed = 0;
+    while (logs.size() > simulation.getEventCentral().getLogOutputBufferSize()) {
+      logs.remove(0);
+      removed++;
+    }
+    if (removed > 0) {
+      model.fireTableRowsDeleted(0, removed-1);
+    }
 
-      if (isVisible) {
-        SwingUtilities.invokeLater(scroll);
-      }
+    if (isVisible) {
+      SwingUtilities.invokeLater(scroll);
     }
-  };
+  }
 
   /**
    * @param simulation Simulation
@@ -458,15 +472,11 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
     logTable.setComponentPopupMenu(popupMenu);
 */
     /* Fetch log output history */
-    LogOutputEvent[] history = simulation.getEventCentral().getLogOutputHistory();
-    if (history.length > 0) {
+    ArrayList<LogOutputEvent> history = new ArrayList<LogOutputEvent>();
+    logOutputPosition = simulation.getEventCentral().getLogOutput(0, history);
+    if (history.size() > 0) {
       for (LogOutputEvent historyEv: history) {
-      	if (!hasHours && historyEv.getTime() > TIME_HOUR) {
-      		hasHours = true;
-      		repaintTimeColumn();
-      	}
-        LogData data = new LogData(historyEv);
-        logs.add(data);
+        logs.add(createLogData(historyEv));
       }
       java.awt.EventQueue.invokeLater(new Runnable() {
         public void run() {
@@ -486,7 +496,8 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
     });
 
     /* Start observing motes for new log output */
-    logUpdateAggregator.start();
+    logUpdateTimer.setCoalesce(true);
+    logUpdateTimer.start();
     simulation.getEventCentral().addLogOutputListener(logOutputListener = new LogOutputListener() {
       public void moteWasAdded(Mote mote) {
         /* Update title */
@@ -497,7 +508,10 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         updateTitle();
       }
       public void newLogOutput(LogOutputEvent ev) {
-        registerNewLogOutput(ev);
+        /* Displayed from history by update timer */
+        if (appendToFile) {
+          appendToFile(ev);
+        }
       }
       public void removedLogOutput(LogOutputEvent ev) {
       }
@@ -549,25 +563,34 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   }
 
   public void registerNewLogOutput(Mote mote, long time, String msg) {
-    LogOutputEvent ev = new LogOutputEvent(mote, time, msg);
-    registerNewLogOutput(ev);
+    final LogOutputEvent ev = new LogOutputEvent(mote, time, msg);
+    if (appendToFile) {
+      appendToFile(ev);
+    }
+    java.awt.EventQueue.invokeLater(new Runnable() {
+      public void run() {
+        ArrayList<LogData> ls = new ArrayList<LogData>();
+        ls.add(createLogData(ev));
+        addLogData(ls);
+      }
+    });
   }
 
-  private void registerNewLogOutput(LogOutputEvent ev) {
-    /* Display new log output */
+  private LogData createLogData(LogOutputEvent ev) {
     if (!hasHours && ev.getTime() > TIME_HOUR) {
             hasHours = true;
             repaintTimeColumn();
     }
+    return new LogData(ev);
+  }
+
+  private void appendToFile(LogOutputEvent ev) {
     LogData data = new LogData(ev);
-    logUpdateAggregator.add(data);
-    if (appendToFile) {
-      appendToFile(appendStreamFile,
-          data.getTime() + "\t" +
-          data.getID() + "\t" +
-          data.ev.getMessage() + "\n"
-      );
-    }
+    appendToFile(appendStreamFile,
+        data.getTime() + "\t" +
+        data.getID() + "\t" +
+        data.ev.getMessage() + "\n"
+    );
   }
 
   private void repaintTimeColumn() {
@@ -584,7 +607,7 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   public void closePlugin() {
     /* Stop observing motes */
     appendToFile(null, null);
-    logUpdateAggregator.stop();
+    logUpdateTimer.stop();
     simulation.getEventCentral().removeLogOutputListener(logOutputListener);
   }
 
@@ -37,6 +37,7 @@ import java.util.Hashtable;
 import java.util.Observer;
 import java.util.concurrent.Semaphore;
 
+import javax.script.Compilable;
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -44,6 +45,7 @@ import javax.script.ScriptException;
 
 import org.apache.log4j.Logger;
 
+import org.contikios.cooja.BatchRunner;
 import org.contikios.cooja.Cooja;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.SimEventCentral.LogOutputEvent;
@@ -55,7 +57,13 @@ import org.contikios.cooja.TimeEvent;
  * Loads and executes a Contiki test script.
  * A Contiki test script is a Javascript that depends on a single simulation,
  * and reacts to mote log output (such as printf()s).
+ * <p>
+ * By default, the script runs in a thread of its own, and each log output
+ * switches threads. In-thread mode instead compiles the script into a state
+ * machine, stepped directly by the simulation thread.
+ * Scripts that cannot be converted still run in a thread of their own.
  *
+ * @see ScriptStateMachine
  * @see ScriptRunner
  * @author Fredrik Osterlind
  */
@@ -87,6 +95,8 @@ public class LogScriptEngine {
   private Semaphore semaphoreScript = null; /* Semaphores blocking script/simulation */
   private Semaphore semaphoreSim = null;
   private Thread scriptThread = null; /* Script thread */
+  private Runnable scriptStep = null; /* In-thread script */
+  private boolean inThread = false;
   private Observer scriptLogObserver = null;
   private ScriptMote scriptMote;
 
@@ -107,8 +117,39 @@ public class LogScriptEngine {
     this.simulation = simulation;
   }
 
+  /**
+   * Selects whether scripts, if possible, are run by the simulation thread.
+   * Takes effect when the script is activated.
+   *
+   * @param inThread True to run script in simulation thread
+   */
+  public void setInThread(boolean inThread) {
+    this.inThread = inThread;
+  }
+
+  /**
+   * @return True if the active script is run by the simulation thread
+   */
+  public boolean isRunningInThread() {
+    return scriptStep != null;
+  }
+
+  private boolean isScriptRunning() {
+    return scriptStep != null || (scriptThread != null && scriptThread.isAlive());
+  }
+
   /* Only called from the simulation loop */
   private void stepScript() {
+    if (scriptStep != null) {
+      try {
+        scriptStep.run();
+      } catch (RuntimeException e) {
+        handleScriptError(e);
+      }
+      checkScriptRequests();
+      return;
+    }
+
     /* Release script - halt simulation */
     Semaphore semScript = semaphoreScript;
     Semaphore semSim = semaphoreSim;
@@ -127,6 +168,10 @@ public class LogScriptEngine {
 
     /* ... script is now again waiting for script semaphore ... */
 
+    checkScriptRequests();
+  }
+
+  private void checkScriptRequests() {
     /* Check if test script requested us to stop */
     if (stopSimulation) {
       stopSimulationRunnable.run();
@@ -141,8 +186,7 @@ public class LogScriptEngine {
   /* Only called from the simulation loop */
   private void handleNewMoteOutput(Mote mote, int id, long time, String msg) {
     try {
-      if (scriptThread == null ||
-          !scriptThread.isAlive()) {
+      if (!isScriptRunning()) {
         logger.warn("No script thread, deactivate script.");
         /*scriptThread.isInterrupted()*/
         return;
@@ -233,6 +277,7 @@ public class LogScriptEngine {
       }
     }
     scriptThread = null;
+    scriptStep = null;
   }
 
   public void activateScript(String scriptCode) throws ScriptException {
@@ -265,6 +310,68 @@ public class LogScriptEngine {
       logger.info("Script timeout in " + (timeout/Simulation.MILLISECOND) + " ms");
     }
 
+    String stepCode = null;
+    if (inThread) {
+      try {
+        stepCode = parser.getStepJSCode();
+      } catch (ScriptStateMachine.UnsupportedScriptException e) {
+        logger.warn("Test script needs a thread of its own: " + e.getMessage());
+      }
+    }
+    if (stepCode != null) {
+      activateInThread(stepCode);
+    } else {
+      activateScriptThread(jsCode);
+    }
+
+    /* Setup simulation observers */
+    simulation.getEventCentral().addLogOutputListener(logOutputListener);
+
+    /* Create script output logger */
+    engine.put("log", scriptLog);
+
+    Hashtable<Object, Object> hash = new Hashtable<Object, Object>();
+    engine.put("global", hash);
+    engine.put("sim", simulation);
+    engine.put("gui", simulation.getCooja());
+    engine.put("msg", new String(""));
+
+    scriptMote = new ScriptMote();
+    engine.put("node", scriptMote);
+
+    Runnable activate = new Runnable() {
+      public void run() {
+        startRealTime = System.currentTimeMillis();
+        startTime = simulation.getSimulationTime();
+        long endTime = startTime + timeout;
+        nextProgress = startTime + (endTime - startTime)/20;
+
+        timeoutProgressEvent.remove();
+        simulation.scheduleEvent(timeoutProgressEvent, nextProgress);
+        timeoutEvent.remove();
+        simulation.scheduleEvent(timeoutEvent, endTime);
+      }
+    };
+    if (simulation.isRunning()) {
+      simulation.invokeSimulationThread(activate);
+    } else {
+      activate.run();
+    }
+  }
+
+  private void activateInThread(String stepCode) throws ScriptException {
+    if (engine instanceof Compilable) {
+      ((Compilable)engine).compile(stepCode).eval();
+    } else {
+      engine.eval(stepCode);
+    }
+    engine.put("TIMEOUT", false);
+    engine.put("SHUTDOWN", false);
+    scriptStep = ((Invocable)engine).getInterface(Runnable.class);
+    logger.info("Test script runs in simulation thread");
+  }
+
+  private void activateScriptThread(String jsCode) throws ScriptException {
     engine.eval(jsCode);
 
     /* Setup script control */
@@ -299,29 +406,7 @@ public class LogScriptEngine {
         try {
           ((Invocable)engine).getInterface(Runnable.class).run();
         } catch (RuntimeException e) {
-          Throwable throwable = e;
-          while (throwable.getCause() != null) {
-            throwable = throwable.getCause();
-          }
-
-          if (throwable.getMessage() != null &&
-              throwable.getMessage().contains("test script killed") ) {
-            logger.info("Test script finished");
-          } else {
-            if (!Cooja.isVisualized()) {
-              logger.fatal("Test script error, terminating Cooja.");
-              logger.fatal("Script error:", e);
-              System.exit(1);
-            }
-
-            logger.fatal("Script error:", e);
-            deactivateScript();
-            simulation.stopSimulation();
-            if (Cooja.isVisualized()) {
-              Cooja.showErrorDialog(Cooja.getTopParentContainer(),
-                  "Script error", e, false);
-            }
-          }
+          handleScriptError(e);
         }
         /*logger.info("test script thread exits");*/
       }
@@ -330,39 +415,35 @@ public class LogScriptEngine {
     while (!semaphoreScript.hasQueuedThreads()) {
       Thread.yield();
     }
+  }
 
-    /* Setup simulation observers */
-    simulation.getEventCentral().addLogOutputListener(logOutputListener);
-
-    /* Create script output logger */
-    engine.put("log", scriptLog);
-
-    Hashtable<Object, Object> hash = new Hashtable<Object, Object>();
-    engine.put("global", hash);
-    engine.put("sim", simulation);
-    engine.put("gui", simulation.getCooja());
-    engine.put("msg", new String(""));
-
-    scriptMote = new ScriptMote();
-    engine.put("node", scriptMote);
+  /* Called from script thread, or from simulation thread if in-thread */
+  private void handleScriptError(RuntimeException e) {
+    Throwable throwable = e;
+    while (throwable.getCause() != null) {
+      throwable = throwable.getCause();
+    }
 
-    Runnable activate = new Runnable() {
-      public void run() {
-        startRealTime = System.currentTimeMillis();
-        startTime = simulation.getSimulationTime();
-        long endTime = startTime + timeout;
-        nextProgress = startTime + (endTime - startTime)/20;
+    if (throwable.getMessage() != null &&
+        throwable.getMessage().contains("test script killed") ) {
+      logger.info("Test script finished");
+    } else {
+      BatchRunner.Run batchRun = BatchRunner.getRun(simulation);
+      if (batchRun != null) {
+        batchRun.setError("script error: " + throwable.getMessage());
+      } else if (!Cooja.isVisualized()) {
+        logger.fatal("Test script error, terminating Cooja.");
+        logger.fatal("Script error:", e);
+        System.exit(1);
+      }
 
-        timeoutProgressEvent.remove();
-        simulation.scheduleEvent(timeoutProgressEvent, nextProgress);
-        timeoutEvent.remove();
-        simulation.scheduleEvent(timeoutEvent, endTime);
+      logger.fatal("Script error:", e);
+      deactivateScript();
+      simulation.stopSimulation();
+      if (Cooja.isVisualized()) {
+        Cooja.showErrorDialog(Cooja.getTopParentContainer(),
+            "Script error", e, false);
       }
-    };
-    if (simulation.isRunning()) {
-      simulation.invokeSimulationThread(activate);
-    } else {
-      activate.run();
     }
   }
 
@@ -451,7 +532,25 @@ public class LogScriptEngine {
       log("TEST FAILED\n");
       deactive();
     }
+    public void result(String name, String value) {
+      BatchRunner.Run batchRun = BatchRunner.getRun(simulation);
+      if (batchRun != null) {
+        batchRun.setResult(name, value);
+      }
+      log("Result " + name + ": " + value + "\n");
+    }
     private void deactive() {
+      BatchRunner.Run batchRun = BatchRunner.getRun(simulation);
+      if (batchRun != null) {
+        /* Stop this run only. Request the stop before the script releases
+         * the simulation, which may otherwise run out of events first. */
+        batchRun.setExitCode(exitCode);
+        stopSimulation = true;
+        simulation.invokeSimulationThread(stopSimulationRunnable);
+        deactivateScript();
+        throw new RuntimeException("test script killed");
+      }
+
       deactivateScript();
 
       if (Cooja.isVisualized()) {
@@ -470,8 +569,7 @@ public class LogScriptEngine {
       final Mote currentMote = (Mote) engine.get("mote");
       final TimeEvent generateEvent = new TimeEvent(0) {
         public void execute(long t) {
-          if (scriptThread == null ||
-              !scriptThread.isAlive()) {
+          if (!isScriptRunning()) {
             logger.info("script thread not alive. try deactivating script.");
             /*scriptThread.isInterrupted()*/
             return;
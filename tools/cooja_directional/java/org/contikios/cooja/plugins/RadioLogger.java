@@ -43,14 +43,18 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.regex.PatternSyntaxException;
 
 import javax.swing.AbstractAction;
@@ -82,8 +86,8 @@ import org.apache.log4j.Logger;
 import org.jdom.Element;
 
 import org.contikios.cooja.ClassDescription;
-import org.contikios.cooja.ConvertedRadioPacket;
 import org.contikios.cooja.Cooja;
+import org.contikios.cooja.Mote;
 import org.contikios.cooja.Plugin;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.RadioConnection;
@@ -92,13 +96,13 @@ import org.contikios.cooja.RadioPacket;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.VisPlugin;
 import org.contikios.cooja.dialogs.TableColumnAdjuster;
-import org.contikios.cooja.interfaces.Radio;
 import org.contikios.cooja.plugins.analyzers.FragHeadPacketAnalyzer;
 import org.contikios.cooja.plugins.analyzers.ICMPv6Analyzer;
 import org.contikios.cooja.plugins.analyzers.IEEE802154Analyzer;
 import org.contikios.cooja.plugins.analyzers.IPHCPacketAnalyzer;
 import org.contikios.cooja.plugins.analyzers.IPv6PacketAnalyzer;
 import org.contikios.cooja.plugins.analyzers.PacketAnalyzer;
+import org.contikios.cooja.plugins.analyzers.PcapngExporter;
 import org.contikios.cooja.plugins.analyzers.RadioLoggerAnalyzerSuite;
 import org.contikios.cooja.util.StringUtils;
 
@@ -137,7 +141,27 @@ public class RadioLogger extends VisPlugin {
   private final Simulation simulation;
   private final JTable dataTable;
   private TableRowSorter<TableModel> logFilter;
-  private ArrayList<RadioConnectionLog> connections = new ArrayList<RadioConnectionLog>();
+  private final RadioPacketStore connections = new RadioPacketStore();
+  private int retention = 0; /* Max packets, 0 for no limit */
+
+  /* Packets from the simulation thread, not yet added to the store */
+  private ArrayList<byte[]> pendingConnections = new ArrayList<byte[]>();
+
+  /* Analyzed packets, by sequence number */
+  private static final int CACHE_SIZE = 2000;
+  private final LinkedHashMap<Long, RadioConnectionLog> cache =
+      new LinkedHashMap<Long, RadioConnectionLog>(16, 0.75f, true) {
+    private static final long serialVersionUID = 2314573937713427870L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, RadioConnectionLog> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /* Hidden duplicates, by sequence number */
+  private final TreeMap<Long, Integer> hides = new TreeMap<Long, Integer>();
+  private final TreeMap<Long, Long> hiddenBy = new TreeMap<Long, Long>();
   private RadioMedium radioMedium;
   private Observer radioMediumObserver;
   private AbstractTableModel model;
@@ -147,6 +171,7 @@ public class RadioLogger extends VisPlugin {
   private ArrayList<PacketAnalyzer> analyzers = null;
   private IEEE802154Analyzer analyzerWithPcap;
   private File pcapFile;
+  private PcapngExporter pcapngExporter = null;
 
   private JTextField searchField = new JTextField(30);
 
@@ -213,34 +238,38 @@ public class RadioLogger extends VisPlugin {
         if (row < 0 || row >= connections.size()) {
           return "";
         }
-        RadioConnectionLog conn = connections.get(row);
+        long number = connections.getFirstSequence() + row + 1;
         if (col == COLUMN_NO) {
-          if (!showDuplicates && conn.hides > 0) {
-            return (String) "" + (row + 1) + "+" + conn.hides;
+          Integer hidden = hides.get(number - 1);
+          if (!showDuplicates && hidden != null) {
+            return (String) "" + number + "+" + hidden;
           }
-          return (String) "" + (row + 1);
+          return (String) "" + number;
         } else if (col == COLUMN_TIME) {
+          long startTime = connections.getStartTime(row);
           if (formatTimeString) {
-            return LogListener.getFormattedTime(conn.startTime);
+            return LogListener.getFormattedTime(startTime);
           }
-          return Long.toString(conn.startTime / Simulation.MILLISECOND);
+          return Long.toString(startTime / Simulation.MILLISECOND);
         } else if (col == COLUMN_FROM) {
-          return "" + conn.connection.getSource().getMote().getID();
-        } else if (col == COLUMN_TO) {
-          Radio[] dests = conn.connection.getDestinations();
+          return "" + connections.getSource(row);
+        }
+        RadioConnectionLog conn = getConnection(row);
+        if (col == COLUMN_TO) {
+          int[] dests = conn.record.getDestinations();
           if (dests.length == 0) {
             return "-";
           }
           if (dests.length == 1) {
-            return "" + dests[0].getMote().getID();
+            return "" + dests[0];
           }
           if (dests.length == 2) {
-            return "" + dests[0].getMote().getID() + ',' + dests[1].getMote().getID();
+            return "" + dests[0] + ',' + dests[1];
           }
           return "[" + dests.length + " d]";
         } else if (col == COLUMN_DATA) {
           if (conn.data == null) {
-            prepareDataString(connections.get(row));
+            prepareDataString(conn);
           }
           if (aliases != null) {
             /* Check if alias exists */
@@ -258,15 +287,21 @@ public class RadioLogger extends VisPlugin {
       public boolean isCellEditable(int row, int col) {
         if (col == COLUMN_FROM) {
           /* Highlight source */
-          gui.signalMoteHighlight(connections.get(row).connection.getSource().getMote());
+          Mote source = simulation.getMoteWithID(connections.getSource(row));
+          if (source != null) {
+            gui.signalMoteHighlight(source);
+          }
           return false;
         }
 
         if (col == COLUMN_TO) {
           /* Highlight all destinations */
-          Radio dests[] = connections.get(row).connection.getDestinations();
-          for (Radio dest: dests) {
-            gui.signalMoteHighlight(dest.getMote());
+          int dests[] = getConnection(row).record.getDestinations();
+          for (int dest: dests) {
+            Mote mote = simulation.getMoteWithID(dest);
+            if (mote != null) {
+              gui.signalMoteHighlight(mote);
+            }
           }
           return false;
         }
@@ -298,19 +333,19 @@ public class RadioLogger extends VisPlugin {
         }
 
         /* TODO This entry may represent several hidden connections */
-        RadioConnectionLog conn = connections.get(modelRowIndex);
+        RadioConnectionLog conn = getConnection(modelRowIndex);
         if (modelColumnIndex == COLUMN_TIME) {
           return "<html>"
-                  + "Start time (us): " + conn.startTime
+                  + "Start time (us): " + conn.record.startTime
                   + "<br>"
-                  + "End time (us): " + conn.endTime
+                  + "End time (us): " + conn.record.endTime
                   + "<br><br>"
-                  + "Duration (us): " + (conn.endTime - conn.startTime)
+                  + "Duration (us): " + (conn.record.endTime - conn.record.startTime)
                   + "</html>";
         } else if (modelColumnIndex == COLUMN_FROM) {
-          return conn.connection.getSource().getMote().toString();
+          return getMoteString(conn.record.source);
         } else if (modelColumnIndex == COLUMN_TO) {
-          Radio[] dests = conn.connection.getDestinations();
+          int[] dests = conn.record.getDestinations();
           if (dests.length == 0) {
             return "No destinations";
           }
@@ -321,8 +356,8 @@ public class RadioLogger extends VisPlugin {
           } else {
             tip.append(dests.length).append(" destinations:<br>");
           }
-          for (Radio radio: dests) {
-            tip.append(radio.getMote()).append("<br>");
+          for (int dest: dests) {
+            tip.append(getMoteString(dest)).append("<br>");
           }
           tip.append("</html>");
           return tip.toString();
@@ -386,7 +421,7 @@ public class RadioLogger extends VisPlugin {
         }
         int modelRowIndex = dataTable.convertRowIndexToModel(row);
         if (modelRowIndex >= 0) {
-          RadioConnectionLog conn = connections.get(modelRowIndex);
+          RadioConnectionLog conn = getConnection(modelRowIndex);
           if (conn.tooltip == null) {
             prepareTooltipString(conn);
           }
@@ -420,6 +455,20 @@ public class RadioLogger extends VisPlugin {
     });
 
     fileMenu.add(new JMenuItem(saveAction));
+    fileMenu.add(new JCheckBoxMenuItem(pcapngAction) {
+      @Override
+      public boolean isSelected() {
+        return pcapngExporter != null;
+      }
+    });
+    fileMenu.add(new JSeparator());
+    fileMenu.add(new JMenuItem(retentionAction));
+    fileMenu.add(new JCheckBoxMenuItem(spillAction) {
+      @Override
+      public boolean isSelected() {
+        return connections.isSpill();
+      }
+    });
 
     JPopupMenu popupMenu = new JPopupMenu();
 
@@ -516,33 +565,22 @@ public class RadioLogger extends VisPlugin {
         if (conn == null) {
           return;
         }
-        final RadioConnectionLog loggedConn = new RadioConnectionLog();
-        loggedConn.packet = conn.getSource().getLastPacketTransmitted();
-        if (loggedConn.packet == null)
+        RadioPacket packet = conn.getSource().getLastPacketTransmitted();
+        if (packet == null)
           return;
-        loggedConn.startTime = conn.getStartTime();
-        loggedConn.endTime = simulation.getSimulationTime();
-        loggedConn.connection = conn;
+        /* Analyzed later, when displayed */
+        byte[] record = RadioPacketStore.encode(conn, packet, simulation.getSimulationTime());
+        synchronized (pendingConnections) {
+          pendingConnections.add(record);
+          if (pendingConnections.size() > 1) {
+            /* Already scheduled */
+            return;
+          }
+        }
         java.awt.EventQueue.invokeLater(new Runnable() {
           @Override
           public void run() {
-            int lastSize = connections.size();
-            // Check if the last row is visible
-            boolean isVisible = false;
-            int rowCount = dataTable.getRowCount();
-            if (rowCount > 0) {
-              Rectangle lastRow = dataTable.getCellRect(rowCount - 1, 0, true);
-              Rectangle visible = dataTable.getVisibleRect();
-              isVisible = visible.y <= lastRow.y && visible.y + visible.height >= lastRow.y + lastRow.height;
-            }
-            connections.add(loggedConn);
-            if (connections.size() > lastSize) {
-              model.fireTableRowsInserted(lastSize, connections.size() - 1);
-            }
-            if (isVisible) {
-              dataTable.scrollRectToVisible(dataTable.getCellRect(dataTable.getRowCount() - 1, 0, true));
-            }
-            setTitle("Radio messages: showing " + dataTable.getRowCount() + "/" + connections.size() + " packets");
+            addPendingConnections();
           }
         });
       }
@@ -556,6 +594,83 @@ public class RadioLogger extends VisPlugin {
     }
   }
 
+  private void addPendingConnections() {
+    ArrayList<byte[]> records;
+    synchronized (pendingConnections) {
+      records = pendingConnections;
+      pendingConnections = new ArrayList<byte[]>();
+    }
+    if (records.isEmpty()) {
+      return;
+    }
+
+    // Check if the last row is visible
+    boolean isVisible = false;
+    int rowCount = dataTable.getRowCount();
+    if (rowCount > 0) {
+      Rectangle lastRow = dataTable.getCellRect(rowCount - 1, 0, true);
+      Rectangle visible = dataTable.getVisibleRect();
+      isVisible = visible.y <= lastRow.y && visible.y + visible.height >= lastRow.y + lastRow.height;
+    }
+    int lastSize = connections.size();
+    for (byte[] record: records) {
+      connections.add(record);
+    }
+    model.fireTableRowsInserted(lastSize, connections.size() - 1);
+    applyRetention();
+    if (isVisible) {
+      dataTable.scrollRectToVisible(dataTable.getCellRect(dataTable.getRowCount() - 1, 0, true));
+    }
+    setTitle("Radio messages: showing " + dataTable.getRowCount() + "/" + connections.size() + " packets");
+  }
+
+  private void applyRetention() {
+    if (retention <= 0) {
+      return;
+    }
+    int removed = connections.trim(retention);
+    if (removed > 0) {
+      long first = connections.getFirstSequence();
+      hides.headMap(first).clear();
+      hiddenBy.headMap(first).clear();
+
+      /* Duplicates of a removed head are regrouped under the oldest kept one */
+      Long head = hiddenBy.remove(first);
+      if (head != null) {
+        int hidden = 0;
+        for (Map.Entry<Long, Long> entry: hiddenBy.tailMap(first, false).entrySet()) {
+          if (!entry.getValue().equals(head)) {
+            break;
+          }
+          entry.setValue(first);
+          hidden++;
+        }
+        if (hidden > 0) {
+          hides.put(first, hidden);
+        }
+      }
+      model.fireTableRowsDeleted(0, removed - 1);
+    }
+  }
+
+  private RadioConnectionLog getConnection(int row) {
+    long sequence = connections.getFirstSequence() + row;
+    RadioConnectionLog conn = cache.get(sequence);
+    if (conn == null) {
+      conn = new RadioConnectionLog(connections.get(row));
+      cache.put(sequence, conn);
+    }
+    return conn;
+  }
+
+  private String getMoteString(int id) {
+    Mote mote = simulation.getMoteWithID(id);
+    if (mote == null) {
+      return "Mote " + id + " (removed)";
+    }
+    return mote.toString();
+  }
+
   @Override
   public void startPlugin() {
     super.startPlugin();
@@ -609,9 +724,10 @@ public class RadioLogger extends VisPlugin {
         if (dataTable.getRowCount() == 0) {
           return;
         }
-        for (int ai = 0; ai < model.getRowCount(); ai++) {
-          int index = dataTable.convertRowIndexToModel(ai);
-          if (connections.get(index).endTime < time) {
+        for (int index = connections.findRow(time); index < model.getRowCount(); index++) {
+          int ai = dataTable.convertRowIndexToView(index);
+          if (ai < 0) {
+            /* Hidden */
             continue;
           }
 
@@ -626,12 +742,9 @@ public class RadioLogger extends VisPlugin {
   }
 
   private void applyFilter() {
-    for (RadioConnectionLog conn: connections) {
-      conn.data = null;
-      conn.tooltip = null;
-      conn.hides = 0;
-      conn.hiddenBy = null;
-    }
+    cache.clear();
+    hides.clear();
+    hiddenBy.clear();
 
     try {
       logFilter.setRowFilter(null);
@@ -639,29 +752,26 @@ public class RadioLogger extends VisPlugin {
         @Override
         public boolean include(RowFilter.Entry<? extends Object, ? extends Object> entry) {
           int row = (Integer) entry.getIdentifier();
-          RadioConnectionLog current = connections.get(row);
-          byte[] currentData = current.packet.getPacketData();
-
-          if (!showDuplicates && row > 0) {
-            RadioConnectionLog previous = connections.get(row - 1);
-            byte[] previousData = previous.packet.getPacketData();
-            if (!showDuplicates
-                    && Arrays.equals(previousData, currentData)
-                    && previous.connection.getSource() == current.connection.getSource()
-                    && Arrays.equals(previous.connection.getAllDestinations(), current.connection.getAllDestinations())) {
-              if (connections.get(row - 1).hiddenBy == null) {
-                connections.get(row - 1).hides++;
-                connections.get(row).hiddenBy = connections.get(row - 1);
-              } else {
-                connections.get(row - 1).hiddenBy.hides++;
-                connections.get(row).hiddenBy = connections.get(row - 1).hiddenBy;
+
+          if (!showDuplicates && row > 0
+                  && connections.getSource(row) == connections.getSource(row - 1)) {
+            RadioPacketStore.Record current = getConnection(row).record;
+            RadioPacketStore.Record previous = getConnection(row - 1).record;
+            if (Arrays.equals(previous.data, current.data) && previous.hasSameRadios(current)) {
+              long sequence = connections.getFirstSequence() + row;
+              Long first = hiddenBy.get(sequence - 1);
+              if (first == null) {
+                first = sequence - 1;
               }
+              Integer hidden = hides.get(first);
+              hides.put(first, hidden == null ? 1 : hidden + 1);
+              hiddenBy.put(sequence, first);
               return false;
             }
           }
 
           if (hideNoDestinationPackets) {
-            if (current.connection.getDestinations().length == 0) {
+            if (getConnection(row).record.getDestinations().length == 0) {
               return false;
             }
           }
@@ -678,12 +788,10 @@ public class RadioLogger extends VisPlugin {
 
   private void prepareDataString(RadioConnectionLog conn) {
     byte[] data;
-    if (conn.packet == null) {
-      data = null;
-    } else if (conn.packet instanceof ConvertedRadioPacket) {
-      data = ((ConvertedRadioPacket) conn.packet).getOriginalPacketData();
+    if (conn.record.isConverted()) {
+      data = conn.record.originalData;
     } else {
-      data = conn.packet.getPacketData();
+      data = conn.record.data;
     }
     if (data == null) {
       conn.data = "[unknown data]";
@@ -695,7 +803,7 @@ public class RadioLogger extends VisPlugin {
 
     /* default analyzer */
     PacketAnalyzer.Packet packet = new PacketAnalyzer.Packet(data, PacketAnalyzer.MAC_LEVEL,
-                                                             simulation.convertSimTimeToActualTime(conn.startTime));
+                                                             simulation.convertSimTimeToActualTime(conn.record.startTime));
     if (analyzePacket(packet, brief, verbose)) {
       if (packet.hasMoreData()) {
         byte[] payload = packet.getPayload();
@@ -750,15 +858,15 @@ public class RadioLogger extends VisPlugin {
   }
 
   private void prepareTooltipString(RadioConnectionLog conn) {
-    RadioPacket packet = conn.packet;
-    if (packet == null) {
+    RadioPacketStore.Record packet = conn.record;
+    if (packet.data == null) {
       conn.tooltip = "";
       return;
     }
 
-    if (packet instanceof ConvertedRadioPacket && packet.getPacketData().length > 0) {
-      byte[] original = ((ConvertedRadioPacket) packet).getOriginalPacketData();
-      byte[] converted = ((ConvertedRadioPacket) packet).getPacketData();
+    if (packet.isConverted() && packet.data.length > 0) {
+      byte[] original = packet.originalData;
+      byte[] converted = packet.data;
       conn.tooltip = "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + original.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(original) + "</pre>"
@@ -766,8 +874,8 @@ public class RadioLogger extends VisPlugin {
               + "<b>Cross-level packet data (" + converted.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(converted) + "</pre>"
               + "</font></html>";
-    } else if (packet instanceof ConvertedRadioPacket) {
-      byte[] original = ((ConvertedRadioPacket) packet).getOriginalPacketData();
+    } else if (packet.isConverted()) {
+      byte[] original = packet.originalData;
       conn.tooltip = "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + original.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(original) + "</pre>"
@@ -775,7 +883,7 @@ public class RadioLogger extends VisPlugin {
               + "<b>No cross-level conversion available</b><br>"
               + "</font></html>";
     } else {
-      byte[] data = packet.getPacketData();
+      byte[] data = packet.data;
       conn.tooltip = "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + data.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(data) + "</pre>"
@@ -788,6 +896,8 @@ public class RadioLogger extends VisPlugin {
     if (radioMediumObserver != null) {
       radioMedium.deleteRadioTransmissionObserver(radioMediumObserver);
     }
+    stopPcapng();
+    connections.close();
   }
 
   @Override
@@ -826,6 +936,17 @@ public class RadioLogger extends VisPlugin {
       }
     }
 
+    if (retention > 0) {
+      element = new Element("retention");
+      element.addContent(Integer.toString(retention));
+      config.add(element);
+    }
+
+    if (connections.isSpill()) {
+      element = new Element("spill");
+      config.add(element);
+    }
+
     if (pcapFile != null) {
       element = new Element("pcap_file");
       File file = simulation.getCooja().createPortablePath(pcapFile);
@@ -834,6 +955,14 @@ public class RadioLogger extends VisPlugin {
       config.add(element);
     }
 
+    if (pcapngExporter != null) {
+      element = new Element("pcapng_file");
+      File file = simulation.getCooja().createPortablePath(pcapngExporter.getFile());
+      element.setText(file.getPath().replaceAll("\\\\", "/"));
+      element.setAttribute("EXPORT", "discard");
+      config.add(element);
+    }
+
     return config;
   }
 
@@ -856,6 +985,10 @@ public class RadioLogger extends VisPlugin {
         showDuplicates = Boolean.parseBoolean(element.getText());
       } else if ("hidenodests".equals(name)) {
         hideNoDestinationPackets = Boolean.parseBoolean(element.getText());
+      } else if ("retention".equals(name)) {
+        retention = Integer.parseInt(element.getText());
+      } else if ("spill".equals(name)) {
+        connections.setSpill(true);
       } else if ("analyzers".equals(name)) {
         String analyzerName = element.getAttributeValue("name");
         final Action action;
@@ -871,6 +1004,8 @@ public class RadioLogger extends VisPlugin {
       } else if (name.equals("pcap_file")) {
         pcapFile = simulation.getCooja().restorePortablePath(new File(element.getText()));
         analyzerWithPcap.setPcapFile(pcapFile);
+      } else if (name.equals("pcapng_file")) {
+        startPcapng(simulation.getCooja().restorePortablePath(new File(element.getText())));
       }
     }
     return true;
@@ -878,40 +1013,38 @@ public class RadioLogger extends VisPlugin {
 
   private class RadioConnectionLog {
 
-    long startTime;
-    long endTime;
-    RadioConnection connection;
-    RadioPacket packet;
-
-    RadioConnectionLog hiddenBy = null;
-    int hides = 0;
+    final RadioPacketStore.Record record;
 
     String data = null;
     String tooltip = null;
 
+    RadioConnectionLog(RadioPacketStore.Record record) {
+      this.record = record;
+    }
+
     @Override
     public String toString() {
       if (data == null) {
         RadioLogger.this.prepareDataString(this);
       }
-      return Long.toString(startTime / Simulation.MILLISECOND) + "\t"
-              + connection.getSource().getMote().getID() + "\t"
+      return Long.toString(record.startTime / Simulation.MILLISECOND) + "\t"
+              + record.source + "\t"
               + getDestString(this) + "\t"
               + data;
     }
   }
 
   private static String getDestString(RadioConnectionLog c) {
-    Radio[] dests = c.connection.getDestinations();
+    int[] dests = c.record.getDestinations();
     if (dests.length == 0) {
       return "-";
     }
     if (dests.length == 1) {
-      return "" + dests[0].getMote().getID();
+      return "" + dests[0];
     }
     StringBuilder sb = new StringBuilder();
-    for (Radio dest: dests) {
-      sb.append(dest.getMote().getID()).append(',');
+    for (int dest: dests) {
+      sb.append(dest).append(',');
     }
     sb.setLength(sb.length() - 1);
     return sb.toString();
@@ -956,6 +1089,9 @@ public class RadioLogger extends VisPlugin {
       int size = connections.size();
       if (size > 0) {
         connections.clear();
+        cache.clear();
+        hides.clear();
+        hiddenBy.clear();
         model.fireTableRowsDeleted(0, size - 1);
         setTitle("Radio messages: showing " + dataTable.getRowCount() + "/" + connections.size() + " packets");
       }
@@ -974,7 +1110,7 @@ public class RadioLogger extends VisPlugin {
       StringBuilder sb = new StringBuilder();
       for (int i: selectedRows) {
         int iModel = dataTable.convertRowIndexToModel(i);
-        sb.append(connections.get(iModel).toString() + "\n");
+        sb.append(getConnection(iModel).toString() + "\n");
       }
 
       StringSelection stringSelection = new StringSelection(sb.toString());
@@ -991,7 +1127,7 @@ public class RadioLogger extends VisPlugin {
 
       StringBuilder sb = new StringBuilder();
       for (int i = 0; i < connections.size(); i++) {
-        sb.append(connections.get(i).toString() + "\n");
+        sb.append(new RadioConnectionLog(connections.get(i)).toString() + "\n");
       }
 
       StringSelection stringSelection = new StringSelection(sb.toString());
@@ -1033,7 +1169,7 @@ public class RadioLogger extends VisPlugin {
       try {
         PrintWriter outStream = new PrintWriter(new FileWriter(saveFile));
         for (int i = 0; i < connections.size(); i++) {
-          outStream.print(connections.get(i).toString() + "\n");
+          outStream.print(new RadioConnectionLog(connections.get(i)).toString() + "\n");
         }
         outStream.close();
       } catch (Exception ex) {
@@ -1044,6 +1180,104 @@ public class RadioLogger extends VisPlugin {
     }
   };
 
+  private void invokeSimulationThread(Runnable r) {
+    if (simulation.isRunning()) {
+      simulation.invokeSimulationThread(r);
+    } else {
+      r.run();
+    }
+  }
+
+  private void startPcapng(File file) {
+    stopPcapng();
+    try {
+      final PcapngExporter exporter = new PcapngExporter(radioMedium, file);
+      pcapngExporter = exporter;
+      invokeSimulationThread(new Runnable() {
+        @Override
+        public void run() {
+          radioMedium.addRadioTransmissionObserver(exporter);
+        }
+      });
+    } catch (IOException e) {
+      logger.error("Could not open pcapng file " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void stopPcapng() {
+    final PcapngExporter exporter = pcapngExporter;
+    if (exporter == null) {
+      return;
+    }
+    pcapngExporter = null;
+    /* Close in simulation thread, after the last exported transmission */
+    invokeSimulationThread(new Runnable() {
+      @Override
+      public void run() {
+        radioMedium.deleteRadioTransmissionObserver(exporter);
+        exporter.close();
+      }
+    });
+  }
+
+  private Action pcapngAction = new AbstractAction("Capture to pcapng file...") {
+    private static final long serialVersionUID = 5240731425126340721L;
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      if (pcapngExporter != null) {
+        stopPcapng();
+        return;
+      }
+
+      JFileChooser fc = new JFileChooser();
+      fc.setSelectedFile(new File("radiolog-" + System.currentTimeMillis() + ".pcapng"));
+      int returnVal = fc.showSaveDialog(Cooja.getTopParentContainer());
+      if (returnVal != JFileChooser.APPROVE_OPTION) {
+        return;
+      }
+      startPcapng(fc.getSelectedFile());
+    }
+  };
+
+  private Action retentionAction = new AbstractAction("Packet limit...") {
+    private static final long serialVersionUID = -2960473391806185432L;
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      String value = (String) JOptionPane.showInputDialog(
+              Cooja.getTopParentContainer(),
+              "Maximum number of packets to keep, oldest packets are removed first.\n"
+              + "0 keeps all packets.\n",
+              "Packet limit",
+              JOptionPane.QUESTION_MESSAGE,
+              null,
+              null,
+              Integer.toString(retention));
+      if (value == null) {
+        /* Cancelled */
+        return;
+      }
+      try {
+        retention = Math.max(0, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException ex) {
+        logger.warn("Bad packet limit: " + value);
+        return;
+      }
+      applyRetention();
+      setTitle("Radio messages: showing " + dataTable.getRowCount() + "/" + connections.size() + " packets");
+    }
+  };
+
+  private Action spillAction = new AbstractAction("Keep packets on disk") {
+    private static final long serialVersionUID = 7712894140659351602L;
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      connections.setSpill(!connections.isSpill());
+    }
+  };
+
   private Action timeLineAction = new AbstractAction("Timeline") {
     private static final long serialVersionUID = -4035633464748224192L;
 
@@ -1054,7 +1288,7 @@ public class RadioLogger extends VisPlugin {
       selectedRow = dataTable.convertRowIndexToModel(selectedRow);
       if (selectedRow < 0) return;
 
-      long time = connections.get(selectedRow).startTime;
+      long time = connections.getStartTime(selectedRow);
 
       Plugin[] plugins = simulation.getCooja().getStartedPlugins();
       for (Plugin p: plugins) {
@@ -1079,7 +1313,7 @@ public class RadioLogger extends VisPlugin {
       selectedRow = dataTable.convertRowIndexToModel(selectedRow);
       if (selectedRow < 0) return;
 
-      long time = connections.get(selectedRow).startTime;
+      long time = connections.getStartTime(selectedRow);
 
       Plugin[] plugins = simulation.getCooja().getStartedPlugins();
       for (Plugin p: plugins) {
@@ -1119,16 +1353,21 @@ public class RadioLogger extends VisPlugin {
       selectedRow = dataTable.convertRowIndexToModel(selectedRow);
       if (selectedRow < 0) return;
 
+      RadioConnectionLog conn = getConnection(selectedRow);
+      if (conn.data == null) {
+        prepareDataString(conn);
+      }
+
       String current = "";
-      if (aliases != null && aliases.get(connections.get(selectedRow).data) != null) {
-        current = (String) aliases.get(connections.get(selectedRow).data);
+      if (aliases != null && aliases.get(conn.data) != null) {
+        current = (String) aliases.get(conn.data);
       }
 
       String alias = (String) JOptionPane.showInputDialog(
               Cooja.getTopParentContainer(),
               "Enter alias for all packets with identical payload.\n"
               + "An empty string removes the current alias.\n\n"
-              + connections.get(selectedRow).data + "\n",
+              + conn.data + "\n",
               "Create packet payload alias",
               JOptionPane.QUESTION_MESSAGE,
               null,
@@ -1146,7 +1385,7 @@ public class RadioLogger extends VisPlugin {
 
       /* Remove current alias */
       if (alias.equals("")) {
-        aliases.remove(connections.get(selectedRow).data);
+        aliases.remove(conn.data);
 
         /* Should be null if empty */
         if (aliases.isEmpty()) {
@@ -1157,7 +1396,7 @@ public class RadioLogger extends VisPlugin {
       }
 
       /* (Re)define alias */
-      aliases.put(connections.get(selectedRow).data, alias);
+      aliases.put(conn.data, alias);
       repaint();
     }
   };
@@ -1182,9 +1421,10 @@ public class RadioLogger extends VisPlugin {
 
   public String getConnectionsString() {
     StringBuilder sb = new StringBuilder();
-    RadioConnectionLog[] cs = connections.toArray(new RadioConnectionLog[0]);
-    for (RadioConnectionLog c : cs) {
-      sb.append(c.toString() + "\n");
+    synchronized (connections) {
+      for (int i = 0; i < connections.size(); i++) {
+        sb.append(new RadioConnectionLog(connections.get(i)).toString() + "\n");
+      }
     }
     return sb.toString();
   }
@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.ConvertedRadioPacket;
+import org.contikios.cooja.RadioConnection;
+import org.contikios.cooja.RadioPacket;
+import org.contikios.cooja.interfaces.Radio;
+
+/**
+ * Append-only store of logged radio transmissions.
+ *
+ * Transmissions are kept as compact records in off-heap segments, with
+ * an on-heap index of start time, end time and source mote per packet.
+ * Records refer to motes by ID, so no radio connections or packets are
+ * retained. Full segments may optionally be spilled to a temporary file.
+ *
+ * Rows are numbered from the oldest packet in the store; each packet
+ * also has a sequence number that does not change when older packets
+ * are removed.
+ *
+ * @author agent
+ */
+public class RadioPacketStore {
+  private static Logger logger = Logger.getLogger(RadioPacketStore.class);
+
+  private static final int SEGMENT_SIZE = 1024 * 1024;
+  private static final int MAX_FREE_SEGMENTS = 4;
+
+  /* Record header: start time, end time, source, destinations, data length, original length */
+  private static final int HEADER_SIZE = 8 + 8 + 4 + 4 + 4 + 4;
+  private static final int NO_DATA = -1;
+
+  /**
+   * Decoded packet record.
+   */
+  public static class Record {
+    public final long startTime;
+    public final long endTime;
+    public final int source;
+    /* Mote IDs, bitwise inverted for interfered destinations */
+    private final int[] allDestinations;
+    public final byte[] data;
+    public final byte[] originalData;
+
+    private Record(long startTime, long endTime, int source, int[] allDestinations,
+                   byte[] data, byte[] originalData) {
+      this.startTime = startTime;
+      this.endTime = endTime;
+      this.source = source;
+      this.allDestinations = allDestinations;
+      this.data = data;
+      this.originalData = originalData;
+    }
+
+    /**
+     * @return Mote IDs of all non-interfered destinations
+     */
+    public int[] getDestinations() {
+      int n = 0;
+      for (int d: allDestinations) {
+        if (d >= 0) {
+          n++;
+        }
+      }
+      int[] dests = new int[n];
+      n = 0;
+      for (int d: allDestinations) {
+        if (d >= 0) {
+          dests[n++] = d;
+        }
+      }
+      return dests;
+    }
+
+    /**
+     * @return True if packet has same source and destinations as given packet
+     */
+    public boolean hasSameRadios(Record other) {
+      return source == other.source && Arrays.equals(allDestinations, other.allDestinations);
+    }
+
+    /**
+     * @return True if packet was converted between radio types
+     */
+    public boolean isConverted() {
+      return originalData != null;
+    }
+  }
+
+  private static class Segment {
+    final long start;
+    int length = 0;
+    ByteBuffer buffer;
+    long fileOffset = -1; /* Set when spilled */
+
+    Segment(long start, ByteBuffer buffer) {
+      this.start = start;
+      this.buffer = buffer;
+    }
+  }
+
+  private final ArrayList<Segment> segments = new ArrayList<Segment>();
+  private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+  private long nextPosition = 0;
+
+  /* Index, one entry per packet */
+  private long[] positions = new long[1024];
+  private int[] lengths = new int[1024];
+  private long[] startTimes = new long[1024];
+  private long[] endTimes = new long[1024];
+  private int[] sources = new int[1024];
+  private int first = 0; /* Index of oldest packet */
+  private int count = 0;
+  private long firstSequence = 0;
+
+  private boolean spill = false;
+  private File spillFile = null;
+  private FileChannel spillChannel = null;
+  private long spillEnd = 0;
+  private final ArrayDeque<Long> freeSpillSlots = new ArrayDeque<Long>();
+
+  /**
+   * Encodes a finished radio transmission. May be called from any thread.
+   *
+   * @param conn Radio connection
+   * @param packet Transmitted packet
+   * @param endTime Transmission end time
+   * @return Packet record, to be added to a store
+   */
+  public static byte[] encode(RadioConnection conn, RadioPacket packet, long endTime) {
+    Radio[] dests = conn.getAllDestinations();
+    byte[] data = packet.getPacketData();
+    byte[] original = null;
+    if (packet instanceof ConvertedRadioPacket) {
+      original = ((ConvertedRadioPacket) packet).getOriginalPacketData();
+    }
+
+    ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE + 4 * dests.length
+        + (data == null ? 0 : data.length) + (original == null ? 0 : original.length));
+    b.putLong(conn.getStartTime());
+    b.putLong(endTime);
+    b.putInt(conn.getSource().getMote().getID());
+    b.putInt(dests.length);
+    b.putInt(data == null ? NO_DATA : data.length);
+    b.putInt(original == null ? NO_DATA : original.length);
+    for (Radio dest: dests) {
+      int id = dest.getMote().getID();
+      b.putInt(conn.isInterfered(dest) ? ~id : id);
+    }
+    if (data != null) {
+      b.put(data);
+    }
+    if (original != null) {
+      b.put(original);
+    }
+    return b.array();
+  }
+
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * @return Sequence number of row 0
+   */
+  public synchronized long getFirstSequence() {
+    return firstSequence;
+  }
+
+  public synchronized long getStartTime(int row) {
+    return startTimes[index(row)];
+  }
+
+  public synchronized long getEndTime(int row) {
+    return endTimes[index(row)];
+  }
+
+  public synchronized int getSource(int row) {
+    return sources[index(row)];
+  }
+
+  /**
+   * @param time Simulation time
+   * @return First row that ended at or after given time, or size() if none
+   */
+  public synchronized int findRow(long time) {
+    /* Packets are added when they end */
+    int low = 0, high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (endTimes[index(mid)] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int index(int row) {
+    if (row < 0 || row >= count) {
+      throw new IndexOutOfBoundsException("row " + row + ", size " + count);
+    }
+    return first + row;
+  }
+
+  /**
+   * Appends packet record.
+   *
+   * @param record Record created by {@link #encode(RadioConnection, RadioPacket, long)}
+   * @return Sequence number of added packet
+   */
+  public synchronized long add(byte[] record) {
+    Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (segment == null || segment.buffer == null
+        || segment.buffer.capacity() - segment.length < record.length) {
+      if (segment != null && segment.buffer != null) {
+        sealSegment(segment);
+      }
+      segment = new Segment(nextPosition, allocate(record.length));
+      segments.add(segment);
+    }
+    ByteBuffer b = segment.buffer.duplicate();
+    b.position(segment.length);
+    b.put(record);
+    segment.length += record.length;
+
+    if (first + count == positions.length) {
+      growIndex();
+    }
+    int i = first + count;
+    ByteBuffer header = ByteBuffer.wrap(record);
+    positions[i] = nextPosition;
+    lengths[i] = record.length;
+    startTimes[i] = header.getLong(0);
+    endTimes[i] = header.getLong(8);
+    sources[i] = header.getInt(16);
+    count++;
+    nextPosition += record.length;
+    return firstSequence + count - 1;
+  }
+
+  private void growIndex() {
+    if (first > 0 && count <= positions.length / 2) {
+      /* Reuse space of removed packets */
+      System.arraycopy(positions, first, positions, 0, count);
+      System.arraycopy(lengths, first, lengths, 0, count);
+      System.arraycopy(startTimes, first, startTimes, 0, count);
+      System.arraycopy(endTimes, first, endTimes, 0, count);
+      System.arraycopy(sources, first, sources, 0, count);
+      first = 0;
+      return;
+    }
+    int capacity = positions.length * 2;
+    positions = Arrays.copyOfRange(positions, first, first + capacity);
+    lengths = Arrays.copyOfRange(lengths, first, first + capacity);
+    startTimes = Arrays.copyOfRange(startTimes, first, first + capacity);
+    endTimes = Arrays.copyOfRange(endTimes, first, first + capacity);
+    sources = Arrays.copyOfRange(sources, first, first + capacity);
+    first = 0;
+  }
+
+  private ByteBuffer allocate(int minSize) {
+    if (minSize <= SEGMENT_SIZE) {
+      ByteBuffer b = freeBuffers.poll();
+      if (b != null) {
+        return b;
+      }
+      return ByteBuffer.allocateDirect(SEGMENT_SIZE);
+    }
+    return ByteBuffer.allocateDirect(minSize);
+  }
+
+  private void release(ByteBuffer b) {
+    if (b.capacity() == SEGMENT_SIZE && freeBuffers.size() < MAX_FREE_SEGMENTS) {
+      freeBuffers.add(b);
+    }
+  }
+
+  /* Segment is full */
+  private void sealSegment(Segment segment) {
+    if (!spill) {
+      return;
+    }
+    try {
+      if (spillChannel == null) {
+        spillFile = File.createTempFile("radiolog", ".bin");
+        spillFile.deleteOnExit();
+        spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+        spillEnd = 0;
+        freeSpillSlots.clear();
+      }
+      long offset;
+      if (segment.buffer.capacity() == SEGMENT_SIZE && !freeSpillSlots.isEmpty()) {
+        offset = freeSpillSlots.poll();
+      } else {
+        offset = spillEnd;
+        spillEnd += segment.buffer.capacity();
+      }
+      ByteBuffer b = segment.buffer.duplicate();
+      b.position(0).limit(segment.length);
+      while (b.hasRemaining()) {
+        spillChannel.write(b, offset + b.position());
+      }
+      segment.fileOffset = offset;
+      release(segment.buffer);
+      segment.buffer = null;
+    } catch (IOException e) {
+      logger.error("Could not spill radio packets to " + spillFile + ": " + e.getMessage());
+      spill = false;
+    }
+  }
+
+  private Segment getSegment(long position) {
+    int low = 0, high = segments.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (segments.get(mid).start <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return segments.get(low);
+  }
+
+  /**
+   * Reads and decodes packet.
+   *
+   * @param row Row
+   * @return Packet record
+   */
+  public synchronized Record get(int row) {
+    int i = index(row);
+    Segment segment = getSegment(positions[i]);
+    int offset = (int) (positions[i] - segment.start);
+    ByteBuffer b;
+    if (segment.buffer != null) {
+      b = segment.buffer.duplicate();
+      b.position(offset).limit(offset + lengths[i]);
+      b = b.slice();
+    } else {
+      b = ByteBuffer.allocate(lengths[i]);
+      try {
+        while (b.hasRemaining()) {
+          if (spillChannel.read(b, segment.fileOffset + offset + b.position()) < 0) {
+            throw new IOException("unexpected end of file");
+          }
+        }
+      } catch (IOException e) {
+        logger.error("Could not read radio packets from " + spillFile + ": " + e.getMessage());
+        return new Record(startTimes[i], endTimes[i], sources[i], new int[0], null, null);
+      }
+      b.flip();
+    }
+
+    long startTime = b.getLong();
+    long endTime = b.getLong();
+    int source = b.getInt();
+    int[] dests = new int[b.getInt()];
+    int dataLength = b.getInt();
+    int originalLength = b.getInt();
+    for (int d = 0; d < dests.length; d++) {
+      dests[d] = b.getInt();
+    }
+    byte[] data = null;
+    if (dataLength != NO_DATA) {
+      data = new byte[dataLength];
+      b.get(data);
+    }
+    byte[] original = null;
+    if (originalLength != NO_DATA) {
+      original = new byte[originalLength];
+      b.get(original);
+    }
+    return new Record(startTime, endTime, source, dests, data, original);
+  }
+
+  /**
+   * Removes oldest packets.
+   *
+   * @param maxSize Number of packets to keep
+   * @return Number of removed packets
+   */
+  public synchronized int trim(int maxSize) {
+    if (count <= maxSize) {
+      return 0;
+    }
+    int removed = count - maxSize;
+    first += removed;
+    count = maxSize;
+    firstSequence += removed;
+
+    /* Release segments before oldest remaining packet */
+    long position = count > 0 ? positions[first] : nextPosition;
+    int drop = 0;
+    while (drop < segments.size() - 1 && segments.get(drop + 1).start <= position) {
+      drop++;
+    }
+    if (count == 0 && !segments.isEmpty()) {
+      drop = segments.size();
+    }
+    for (int s = 0; s < drop; s++) {
+      Segment segment = segments.get(s);
+      if (segment.buffer != null) {
+        release(segment.buffer);
+      } else if (segment.fileOffset >= 0 && segment.length <= SEGMENT_SIZE) {
+        freeSpillSlots.add(segment.fileOffset);
+      }
+    }
+    segments.subList(0, drop).clear();
+    return removed;
+  }
+
+  /**
+   * Removes all packets. Sequence numbers are not reset.
+   */
+  public synchronized void clear() {
+    trim(0);
+    closeSpillFile();
+  }
+
+  /**
+   * @param spill If true, full segments are written to a temporary file
+   */
+  public synchronized void setSpill(boolean spill) {
+    this.spill = spill;
+    if (spill) {
+      for (int s = 0; s < segments.size() - 1; s++) {
+        if (segments.get(s).buffer != null) {
+          sealSegment(segments.get(s));
+        }
+      }
+    }
+  }
+
+  public synchronized boolean isSpill() {
+    return spill;
+  }
+
+  private void closeSpillFile() {
+    for (Segment segment: segments) {
+      if (segment.buffer == null) {
+        /* Still in use */
+        return;
+      }
+    }
+    if (spillChannel != null) {
+      try {
+        spillChannel.close();
+      } catch (IOException e) {
+      }
+      spillChannel = null;
+      spillFile.delete();
+      spillFile = null;
+    }
+  }
+
+  /**
+   * Removes all packets and the spill file.
+   */
+  public synchronized void close() {
+    clear();
+    freeBuffers.clear();
+  }
+}
@@ -40,4 +40,5 @@ public interface ScriptLog {
     public void generateMessage(long delay, String msg);
     public void append(String filename, String msg);
     public void writeFile(String filename, String msg);
+    public void result(String name, String value);
 }
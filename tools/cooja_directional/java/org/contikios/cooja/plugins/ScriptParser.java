@@ -47,6 +47,7 @@ public class ScriptParser {
   private String timeoutCode = null;
 
   private String code = null;
+  private String stepCode = null; /* Before YIELD and WAIT_UNTIL replacement */
 
   public ScriptParser(String code) throws ScriptSyntaxErrorException {
 
@@ -62,6 +63,8 @@ public class ScriptParser {
 
     code = replaceYieldThenWaitUntils(code);
 
+    stepCode = code;
+
     code = replaceYields(code);
 
     code = replaceWaitUntils(code);
@@ -271,6 +274,54 @@ public class ScriptParser {
     "};\n";
   }
 
+  /**
+   * Returns code that runs the script in steps, from the calling thread.
+   * Function run() executes the script until its next YIELD() or
+   * unfulfilled WAIT_UNTIL().
+   *
+   * @see ScriptStateMachine
+   * @return JavaScript code
+   * @throws ScriptStateMachine.UnsupportedScriptException If the script
+   *         needs a thread of its own
+   */
+  public String getStepJSCode() throws ScriptStateMachine.UnsupportedScriptException {
+    return getStepJSCode(ScriptStateMachine.convert(stepCode), timeoutCode);
+  }
+
+  public static String getStepJSCode(String stateMachineCode, String timeoutCode) {
+    return
+    "timeout_function = null; " +
+    stateMachineCode +
+    "\n" +
+    "function run() { " +
+    "if (SHUTDOWN) { SCRIPT_KILL(); } " +
+    "if (TIMEOUT) { SCRIPT_TIMEOUT(); } " +
+    "msg = new java.lang.String(msg); " +
+    "node.setMoteMsg(mote, msg); " +
+    "SCRIPT_STEP(); " +
+    "};\n" +
+    "\n" +
+    "function GENERATE_MSG(time, msg) { " +
+    " log.generateMessage(time, msg); " +
+    "};\n" +
+    "\n" +
+    "function SCRIPT_KILL() { " +
+    " throw('test script killed'); " +
+    "};\n" +
+    "\n" +
+    "function SCRIPT_TIMEOUT() { " +
+    timeoutCode + "; " +
+    " if (timeout_function != null) { timeout_function(); } " +
+    " log.log('TEST TIMEOUT\\n'); " +
+    " log.testFailed(); " +
+    " SCRIPT_KILL(); " +
+    "};\n" +
+    "\n" +
+    "function write(mote,msg) { " +
+    " mote.getInterfaces().getLog().writeString(msg); " +
+    "};\n";
+  }
+
   public long getTimeoutTime() {
     return timeoutTime;
   }
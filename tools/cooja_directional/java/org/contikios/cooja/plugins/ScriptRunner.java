@@ -80,6 +80,7 @@ import org.apache.log4j.Logger;
 import org.jdom.Element;
 
 import org.contikios.cooja.ClassDescription;
+import org.contikios.cooja.BatchRunner;
 import org.contikios.cooja.Cooja;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.Simulation;
@@ -112,6 +113,7 @@ public class ScriptRunner extends VisPlugin {
 
   private Simulation simulation;
   private LogScriptEngine engine;
+  private boolean inThread = false; /* Run script in simulation thread */
 
   private static BufferedWriter logWriter = null; /* For non-GUI tests */
 
@@ -194,6 +196,14 @@ public class ScriptRunner extends VisPlugin {
     });
     runMenu.add(activateMenuItem);
 
+    final JCheckBoxMenuItem inThreadMenuItem = new JCheckBoxMenuItem("Run in simulation thread");
+    inThreadMenuItem.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent ev) {
+        inThread = inThreadMenuItem.isSelected();
+      }
+    });
+    runMenu.add(inThreadMenuItem);
+
     final JMenuItem runTestMenuItem = new JMenuItem("Save simulation and run with script");
     runMenu.add(runTestMenuItem);
     runTestMenuItem.addActionListener(new ActionListener() {
@@ -212,6 +222,8 @@ public class ScriptRunner extends VisPlugin {
     MenuListener toggleMenuItems = new MenuListener() {
       public void menuSelected(MenuEvent e) {
         activateMenuItem.setSelected(isActive());
+        inThreadMenuItem.setSelected(inThread);
+        inThreadMenuItem.setEnabled(!isActive());
         runTestMenuItem.setEnabled(!isActive());
         examplesMenu.setEnabled(!isActive());
       }
@@ -330,6 +342,7 @@ public class ScriptRunner extends VisPlugin {
 
       /* Create new engine */
       engine = new LogScriptEngine(simulation);
+      engine.setInThread(inThread);
       if (Cooja.isVisualized()) {
         /* Attach visualized log observer */
         engine.setScriptLogObserver(new Observer() {
@@ -338,6 +351,9 @@ public class ScriptRunner extends VisPlugin {
             logTextArea.setCaretPosition(logTextArea.getText().length());
           }
         });
+      } else if (BatchRunner.getRun(simulation) != null) {
+        /* Batch runs write test output to one file per run */
+        engine.setScriptLogObserver(BatchRunner.getRun(simulation).getScriptLogObserver());
       } else {
         try {
           /* Continously write test output to file */
@@ -634,6 +650,12 @@ public class ScriptRunner extends VisPlugin {
       config.add(element);
     }
 
+    if (inThread) {
+      element = new Element("inthread");
+      element.setText("" + inThread);
+      config.add(element);
+    }
+
     element = new Element("active");
     element.setText("" + isActive());
     config.add(element);
@@ -662,6 +684,8 @@ public class ScriptRunner extends VisPlugin {
       } else if ("scriptfile".equals(name)) {
         File file = simulation.getCooja().restorePortablePath(new File(element.getText().trim()));
         setLinkFile(file);
+      } else if ("inthread".equals(name)) {
+        inThread = Boolean.parseBoolean(element.getText());
       } else if ("active".equals(name)) {
         boolean active = Boolean.parseBoolean(element.getText());
         if (Cooja.isVisualized()) {
@@ -0,0 +1,599 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Converts a test script into a state machine that can be stepped by the
+ * simulation thread, instead of running the script in a thread of its own.
+ * <p>
+ * Each YIELD() and WAIT_UNTIL() ends a state. They may be used as
+ * statements of the script, or of braced while, if/else and for
+ * blocks, at any nesting. Scripts using them elsewhere, such as in
+ * functions or unbraced blocks, are not converted. Break and continue
+ * statements of converted loops become state transitions.
+ * <p>
+ * Script variables are kept between states as globals, and function
+ * declarations of the script are moved to the global scope.
+ *
+ * @see ScriptParser
+ * @author agent
+ */
+class ScriptStateMachine {
+
+  /**
+   * Thrown if a script cannot be converted.
+   */
+  static class UnsupportedScriptException extends Exception {
+    UnsupportedScriptException(String msg) {
+      super(msg);
+    }
+  }
+
+  private static final int IDENTIFIER = 0, NUMBER = 1, STRING = 2, REGEX = 3, PUNCTUATOR = 4;
+
+  private static class Token {
+    final int type, start, end;
+    final String text;
+    final boolean newlineBefore;
+    Token(int type, int start, int end, String text, boolean newlineBefore) {
+      this.type = type;
+      this.start = start;
+      this.end = end;
+      this.text = text;
+      this.newlineBefore = newlineBefore;
+    }
+    boolean is(String s) {
+      return text.equals(s);
+    }
+  }
+
+  /* Script structure */
+  private static class Node {
+    static final int RAW = 0, YIELD = 1, WAIT = 2, WHILE = 3, IF = 4, FOR = 5;
+    final int type;
+    int from, to; /* RAW token range */
+    boolean inLoop; /* RAW inside converted loop */
+    String condition, init, update;
+    ArrayList<Node> body, elseBody;
+    Node(int type) {
+      this.type = type;
+    }
+  }
+
+  private final String code;
+  private final ArrayList<Token> tokens = new ArrayList<Token>();
+  private final Set<Integer> headerEnds = new HashSet<Integer>();
+
+  private final Set<String> variables = new LinkedHashSet<String>();
+  private final StringBuilder functions = new StringBuilder();
+  private final StringBuilder states = new StringBuilder();
+  private int nrStates = 0;
+  private int breakState = -1, continueState = -1; /* Innermost converted loop */
+
+  private ScriptStateMachine(String code) throws UnsupportedScriptException {
+    this.code = code;
+    tokenize();
+  }
+
+  /**
+   * Converts script to state machine code.
+   * The generated code declares function SCRIPT_STEP(), which executes
+   * the script until its next YIELD() or unfulfilled WAIT_UNTIL().
+   *
+   * @param code Script code, without comments and YIELD_THEN_WAIT_UNTIL()
+   * @return State machine code
+   * @throws UnsupportedScriptException If script cannot be converted
+   */
+  static String convert(String code) throws UnsupportedScriptException {
+    ScriptStateMachine machine = new ScriptStateMachine(code);
+    ArrayList<Node> nodes = machine.parseBlock(0, machine.tokens.size(), false);
+
+    machine.states.append("case ").append(machine.nrStates++).append(":\n");
+    machine.emit(nodes);
+    int end = machine.nrStates++;
+    machine.states.append("SCRIPT_STATE = ").append(end).append(";\n");
+    machine.states.append("case ").append(end).append(":\nreturn;\n");
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("SCRIPT_STATE = 0;\n");
+    for (String variable: machine.variables) {
+      sb.append("var ").append(variable).append(";\n");
+    }
+    sb.append(machine.functions);
+    sb.append("function SCRIPT_STEP() {\n");
+    sb.append("while (true) {\n");
+    sb.append("switch (SCRIPT_STATE) {\n");
+    sb.append(machine.states);
+    sb.append("}\n}\n};\n");
+    return sb.toString();
+  }
+
+  private void tokenize() throws UnsupportedScriptException {
+    int i = 0;
+    boolean newline = false;
+    while (i < code.length()) {
+      char c = code.charAt(i);
+      if (Character.isWhitespace(c)) {
+        if (c == '\n') {
+          newline = true;
+        }
+        i++;
+        continue;
+      }
+      int start = i;
+      int type;
+      if (Character.isJavaIdentifierStart(c)) {
+        while (i < code.length() && Character.isJavaIdentifierPart(code.charAt(i))) {
+          i++;
+        }
+        type = IDENTIFIER;
+      } else if (Character.isDigit(c)) {
+        while (i < code.length() &&
+            (Character.isLetterOrDigit(code.charAt(i)) || code.charAt(i) == '.')) {
+          i++;
+        }
+        type = NUMBER;
+      } else if (c == '"' || c == '\'') {
+        i = skipQuoted(i, c);
+        type = STRING;
+      } else if (c == '/' && regexAllowed()) {
+        i = skipQuoted(i, '/');
+        while (i < code.length() && Character.isLetter(code.charAt(i))) {
+          i++; /* Flags */
+        }
+        type = REGEX;
+      } else {
+        i++;
+        type = PUNCTUATOR;
+      }
+      tokens.add(new Token(type, start, i, code.substring(start, i), newline));
+      newline = false;
+    }
+  }
+
+  private int skipQuoted(int i, char quote) throws UnsupportedScriptException {
+    boolean inClass = false; /* Regex character class */
+    for (i++; i < code.length(); i++) {
+      char c = code.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '\n') {
+        break;
+      } else if (quote == '/' && c == '[') {
+        inClass = true;
+      } else if (quote == '/' && c == ']') {
+        inClass = false;
+      } else if (c == quote && !inClass) {
+        return i + 1;
+      }
+    }
+    throw new UnsupportedScriptException("unterminated literal at: " + excerpt(i));
+  }
+
+  private boolean regexAllowed() {
+    if (tokens.isEmpty()) {
+      return true;
+    }
+    Token prev = tokens.get(tokens.size() - 1);
+    if (prev.type == IDENTIFIER) {
+      return prev.is("return") || prev.is("typeof") || prev.is("in") || prev.is("case");
+    }
+    return prev.type == PUNCTUATOR && !prev.is(")") && !prev.is("]") && !prev.is("}");
+  }
+
+  private String excerpt(int pos) {
+    int start = Math.max(0, pos - 20);
+    int end = Math.min(code.length(), pos + 20);
+    return code.substring(start, end).replace('\n', ' ').trim();
+  }
+
+  private boolean isScriptSwitch(Token t) {
+    return t.type == IDENTIFIER &&
+        (t.is("YIELD") || t.is("WAIT_UNTIL") || t.is("SCRIPT_SWITCH"));
+  }
+
+  private boolean containsScriptSwitch(int from, int to) {
+    for (int i=from; i < to; i++) {
+      if (isScriptSwitch(tokens.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* Index of bracket matching bracket at index */
+  private int matching(int index) throws UnsupportedScriptException {
+    String open = tokens.get(index).text;
+    String close = open.equals("(") ? ")" : open.equals("{") ? "}" : "]";
+    int depth = 0;
+    for (int i=index; i < tokens.size(); i++) {
+      Token t = tokens.get(i);
+      if (t.is(open)) {
+        depth++;
+      } else if (t.is(close)) {
+        if (--depth == 0) {
+          return i;
+        }
+      }
+    }
+    throw new UnsupportedScriptException("unbalanced '" + open + "' at: " + excerpt(tokens.get(index).start));
+  }
+
+  private boolean tokenIs(int index, String s) {
+    return index < tokens.size() && tokens.get(index).is(s);
+  }
+
+  private String text(int from, int to) {
+    if (from >= to) {
+      return "";
+    }
+    return code.substring(tokens.get(from).start, tokens.get(to - 1).end);
+  }
+
+  /* True if statement may start at token: YIELD() etc. must be statements */
+  private boolean atStatementStart(int index, int blockStart) {
+    if (index == blockStart) {
+      return true;
+    }
+    Token prev = tokens.get(index - 1);
+    if (prev.is(";") || prev.is("{") || prev.is("}")) {
+      return true;
+    }
+    if (!tokens.get(index).newlineBefore || headerEnds.contains(index - 1)) {
+      return false;
+    }
+    if (prev.type == IDENTIFIER) {
+      return !prev.is("else") && !prev.is("do") && !prev.is("return");
+    }
+    return prev.type != PUNCTUATOR || prev.is(")") || prev.is("]");
+  }
+
+  private ArrayList<Node> parseBlock(int from, int to, boolean inLoop) throws UnsupportedScriptException {
+    ArrayList<Node> nodes = new ArrayList<Node>();
+    int rawStart = from;
+    int i = from;
+    while (i < to) {
+      Token t = tokens.get(i);
+
+      if (isScriptSwitch(t)) {
+        if (!atStatementStart(i, from) || t.is("SCRIPT_SWITCH") || !tokenIs(i+1, "(")) {
+          throw new UnsupportedScriptException(t.text + " not used as statement: " + excerpt(t.start));
+        }
+        int close = matching(i+1);
+        addRaw(nodes, rawStart, i, inLoop);
+        Node node;
+        if (t.is("YIELD")) {
+          node = new Node(Node.YIELD);
+        } else {
+          node = new Node(Node.WAIT);
+          node.condition = text(i+2, close);
+        }
+        nodes.add(node);
+        i = close + 1;
+        if (tokenIs(i, ";")) {
+          i++;
+        }
+        rawStart = i;
+        continue;
+      }
+
+      if (t.type == IDENTIFIER &&
+          (t.is("while") || t.is("if") || t.is("for")) &&
+          tokenIs(i+1, "(") &&
+          atStatementStart(i, from)) {
+        int headerEnd = matching(i+1);
+        headerEnds.add(headerEnd);
+        if (!tokenIs(headerEnd+1, "{")) {
+          i = headerEnd + 1; /* Unbraced, scanned as raw code */
+          continue;
+        }
+        int end = endOfStatement(i);
+        if (!containsScriptSwitch(i, end)) {
+          i = end;
+          continue;
+        }
+        addRaw(nodes, rawStart, i, inLoop);
+        nodes.add(parseStatement(i, end, inLoop));
+        i = end;
+        rawStart = i;
+        continue;
+      }
+
+      if (t.is("{") || t.is("(") || t.is("[")) {
+        int close = matching(i);
+        if (containsScriptSwitch(i, close)) {
+          throw new UnsupportedScriptException("YIELD or WAIT_UNTIL in unsupported block: " + excerpt(t.start));
+        }
+        i = close + 1;
+        continue;
+      }
+      i++;
+    }
+    addRaw(nodes, rawStart, to, inLoop);
+    return nodes;
+  }
+
+  /* End of braced while, for or if/else statement at index */
+  private int endOfStatement(int index) throws UnsupportedScriptException {
+    int end = matching(matching(index+1) + 1) + 1;
+    if (tokens.get(index).is("if") && tokenIs(end, "else")) {
+      if (tokenIs(end+1, "if") && tokenIs(end+2, "(")) {
+        int headerEnd = matching(end+2);
+        headerEnds.add(headerEnd);
+        if (tokenIs(headerEnd+1, "{")) {
+          return endOfStatement(end+1);
+        }
+      } else if (tokenIs(end+1, "{")) {
+        return matching(end+1) + 1;
+      }
+      if (containsScriptSwitch(index, end)) {
+        throw new UnsupportedScriptException("unbraced else: " + excerpt(tokens.get(end).start));
+      }
+    }
+    return end;
+  }
+
+  private Node parseStatement(int index, int end, boolean inLoop) throws UnsupportedScriptException {
+    Token t = tokens.get(index);
+    int headerEnd = matching(index+1);
+    int blockEnd = matching(headerEnd+1);
+    Node node;
+    if (t.is("while")) {
+      node = new Node(Node.WHILE);
+      node.condition = text(index+2, headerEnd);
+      node.body = parseBlock(headerEnd+2, blockEnd, true);
+    } else if (t.is("for")) {
+      node = new Node(Node.FOR);
+      int first = -1, second = -1;
+      for (int i=index+2; i < headerEnd; i++) {
+        Token h = tokens.get(i);
+        if (h.is("(") || h.is("[") || h.is("{")) {
+          i = matching(i);
+        } else if (h.is(";")) {
+          if (first < 0) {
+            first = i;
+          } else if (second < 0) {
+            second = i;
+          } else {
+            second = -1;
+            break;
+          }
+        }
+      }
+      if (first < 0 || second < 0) {
+        throw new UnsupportedScriptException("for-in loop with YIELD or WAIT_UNTIL: " + excerpt(t.start));
+      }
+      node.init = rawCode(index+2, first, false);
+      node.condition = text(first+1, second);
+      node.update = text(second+1, headerEnd);
+      node.body = parseBlock(headerEnd+2, blockEnd, true);
+    } else {
+      node = new Node(Node.IF);
+      node.condition = text(index+2, headerEnd);
+      node.body = parseBlock(headerEnd+2, blockEnd, inLoop);
+      int elseIndex = blockEnd + 1;
+      if (elseIndex < end) {
+        if (tokens.get(elseIndex+1).is("if")) {
+          node.elseBody = new ArrayList<Node>();
+          node.elseBody.add(parseStatement(elseIndex+1, end, inLoop));
+        } else {
+          node.elseBody = parseBlock(elseIndex+2, end-1, inLoop);
+        }
+      }
+    }
+    return node;
+  }
+
+  private void addRaw(ArrayList<Node> nodes, int from, int to, boolean inLoop) {
+    if (from >= to) {
+      return;
+    }
+    Node node = new Node(Node.RAW);
+    node.from = from;
+    node.to = to;
+    node.inLoop = inLoop;
+    nodes.add(node);
+  }
+
+  /**
+   * Raw script code, with variable declarations removed, function
+   * declarations moved to the global scope, and break and continue of
+   * converted loops replaced by state transitions.
+   */
+  private String rawCode(int from, int to, boolean inLoop) throws UnsupportedScriptException {
+    StringBuilder sb = new StringBuilder();
+    int copied = code.length() > 0 && from < to ? tokens.get(from).start : 0;
+    int depth = 0;
+    /* Braced loops and switches of raw code, break and continue targets */
+    Set<Integer> loopBlocks = new HashSet<Integer>();
+    Set<Integer> switchBlocks = new HashSet<Integer>();
+    ArrayList<Integer> blocks = new ArrayList<Integer>(); /* Open blocks: 0, loop 1, switch 2 */
+    boolean unbracedLoop = false;
+    for (int i=from; i < to; i++) {
+      Token t = tokens.get(i);
+      if (t.is("{")) {
+        depth++;
+        blocks.add(loopBlocks.contains(i) ? 1 : switchBlocks.contains(i) ? 2 : 0);
+      } else if (t.is("}")) {
+        depth--;
+        if (!blocks.isEmpty()) {
+          blocks.remove(blocks.size() - 1);
+        }
+      } else if (t.type == IDENTIFIER &&
+          (t.is("for") || t.is("while") || t.is("switch")) && tokenIs(i+1, "(")) {
+        int block = matching(i+1) + 1;
+        if (tokenIs(block, "{")) {
+          (t.is("switch") ? switchBlocks : loopBlocks).add(block);
+        } else if (!t.is("switch")) {
+          unbracedLoop = true;
+        }
+      } else if (t.type == IDENTIFIER && t.is("do")) {
+        if (tokenIs(i+1, "{")) {
+          loopBlocks.add(i+1);
+        } else {
+          unbracedLoop = true;
+        }
+      } else if (t.is("function") && t.type == IDENTIFIER) {
+        /* Skip function body */
+        int paren = i+1;
+        while (paren < to && !tokens.get(paren).is("(")) {
+          paren++;
+        }
+        if (paren >= to || !tokenIs(matching(paren)+1, "{")) {
+          throw new UnsupportedScriptException("unexpected function: " + excerpt(t.start));
+        }
+        int bodyEnd = matching(matching(paren)+1);
+        if (depth == 0 && paren == i+2 && atStatementStart(i, from)) {
+          /* Declaration */
+          sb.append(code, copied, t.start);
+          functions.append(code, t.start, tokens.get(bodyEnd).end).append(";\n");
+          copied = tokens.get(bodyEnd).end;
+        }
+        i = bodyEnd;
+      } else if (t.type == IDENTIFIER && t.is("return")) {
+        throw new UnsupportedScriptException("return outside function: " + excerpt(t.start));
+      } else if (t.type == IDENTIFIER && (t.is("break") || t.is("continue")) &&
+          (inLoop || depth == 0) &&
+          !blocks.contains(1) && !(t.is("break") && blocks.contains(2))) {
+        /* Targets converted loop */
+        boolean labeled = i+1 < to && tokens.get(i+1).type == IDENTIFIER && !tokens.get(i+1).newlineBefore;
+        if (!inLoop || unbracedLoop || labeled) {
+          throw new UnsupportedScriptException(t.text + " in converted block: " + excerpt(t.start));
+        }
+        sb.append(code, copied, t.start);
+        sb.append("{ SCRIPT_STATE = ").append(t.is("break") ? breakState : continueState)
+            .append("; continue; }");
+        copied = t.end;
+        if (tokenIs(i+1, ";")) {
+          copied = tokens.get(++i).end;
+        }
+      } else if (t.type == IDENTIFIER && t.is("var")) {
+        sb.append(code, copied, t.start);
+        copied = t.end;
+        collectVariables(i+1, to);
+      }
+    }
+    if (from < to) {
+      sb.append(code, copied, tokens.get(to-1).end);
+    }
+    return sb.toString();
+  }
+
+  /* Names declared by variable statement starting at index */
+  private void collectVariables(int index, int to) throws UnsupportedScriptException {
+    boolean expectName = true;
+    for (int i=index; i < to; i++) {
+      Token t = tokens.get(i);
+      if (expectName) {
+        if (t.type != IDENTIFIER) {
+          return;
+        }
+        variables.add(t.text);
+        expectName = false;
+      } else if (t.is("(") || t.is("[") || t.is("{")) {
+        i = matching(i);
+      } else if (t.is(",")) {
+        expectName = true;
+      } else if (t.is(";") || t.is(")") || t.is("}") || t.is("in") ||
+          (t.newlineBefore && t.type == IDENTIFIER && !tokens.get(i-1).is("=") && tokens.get(i-1).type != PUNCTUATOR)) {
+        return;
+      }
+    }
+  }
+
+  private void emit(ArrayList<Node> nodes) throws UnsupportedScriptException {
+    for (Node node: nodes) {
+      switch (node.type) {
+      case Node.RAW:
+        states.append(rawCode(node.from, node.to, node.inLoop)).append("\n");
+        break;
+      case Node.YIELD: {
+        int next = nrStates++;
+        states.append("SCRIPT_STATE = ").append(next).append("; return;\n");
+        states.append("case ").append(next).append(":\n");
+        break;
+      }
+      case Node.WAIT: {
+        int wait = nrStates++;
+        states.append("case ").append(wait).append(":\n");
+        states.append("if (!(").append(node.condition).append(")) { SCRIPT_STATE = ")
+            .append(wait).append("; return; }\n");
+        break;
+      }
+      case Node.WHILE:
+      case Node.FOR: {
+        if (node.init != null) {
+          states.append(node.init).append(";\n");
+        }
+        int head = nrStates++;
+        int next = nrStates++;
+        int end = nrStates++;
+        String condition = node.condition.trim().isEmpty() ? "true" : node.condition;
+        states.append("case ").append(head).append(":\n");
+        states.append("if (!(").append(condition).append(")) { SCRIPT_STATE = ")
+            .append(end).append("; continue; }\n");
+        int outerBreak = breakState, outerContinue = continueState;
+        breakState = end;
+        continueState = next;
+        emit(node.body);
+        breakState = outerBreak;
+        continueState = outerContinue;
+        states.append("case ").append(next).append(":\n");
+        if (node.update != null) {
+          states.append(node.update).append(";\n");
+        }
+        states.append("SCRIPT_STATE = ").append(head).append("; continue;\n");
+        states.append("case ").append(end).append(":\n");
+        break;
+      }
+      case Node.IF: {
+        int otherwise = nrStates++;
+        int end = nrStates++;
+        states.append("if (!(").append(node.condition).append(")) { SCRIPT_STATE = ")
+            .append(otherwise).append("; continue; }\n");
+        emit(node.body);
+        states.append("SCRIPT_STATE = ").append(end).append("; continue;\n");
+        states.append("case ").append(otherwise).append(":\n");
+        if (node.elseBody != null) {
+          emit(node.elseBody);
+        }
+        states.append("case ").append(end).append(":\n");
+        break;
+      }
+      }
+    }
+  }
+}
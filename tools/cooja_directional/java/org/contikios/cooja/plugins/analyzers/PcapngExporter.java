@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins.analyzers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.RadioConnection;
+import org.contikios.cooja.RadioMedium;
+import org.contikios.cooja.RadioPacket;
+import org.contikios.cooja.interfaces.Radio;
+import org.contikios.cooja.radiomediums.AbstractRadioMedium;
+
+/**
+ * Exports radio transmissions to a pcapng file.
+ *
+ * Each radio gets its own interface, named after its mote, so a frame
+ * is recorded once as sent by the source and once as received by each
+ * destination. Timestamps have nanosecond resolution, and received
+ * frames carry the RSSI, LQI and channel in a packet comment.
+ *
+ * Blocks are encoded in the simulation thread into large buffers, which
+ * are written to file by a background thread. If the writer falls behind,
+ * the simulation waits for a free buffer.
+ *
+ * @author agent
+ */
+public class PcapngExporter implements Observer {
+  private static final Logger logger = Logger.getLogger(PcapngExporter.class);
+
+  private static final int LINKTYPE_IEEE802_15_4 = 195;
+  private static final int SNAPLEN = 4096;
+
+  private static final int BLOCK_SHB = 0x0A0D0D0A;
+  private static final int BLOCK_IDB = 0x00000001;
+  private static final int BLOCK_EPB = 0x00000006;
+  private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+
+  private static final int OPT_ENDOFOPT = 0;
+  private static final int OPT_COMMENT = 1;
+  private static final int SHB_USERAPPL = 4;
+  private static final int IF_NAME = 2;
+  private static final int IF_TSRESOL = 9;
+  private static final int EPB_FLAGS = 2;
+  private static final int EPB_INBOUND = 1;
+  private static final int EPB_OUTBOUND = 2;
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int BUFFERS = 8;
+  private static final long MAX_BUFFER_AGE = 1000000000L; /* ns, wall clock */
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+  private final RadioMedium radioMedium;
+  private final File file;
+  private final FileChannel channel;
+  private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+  private final Thread writer;
+  private volatile IOException writeError = null;
+
+  private ByteBuffer buffer;
+  private long bufferStarted;
+  private HashMap<Radio, Integer> interfaces = new HashMap<Radio, Integer>();
+
+  /* Destination RSSI and LQI when transmission started */
+  private IdentityHashMap<RadioConnection, double[]> receptions =
+      new IdentityHashMap<RadioConnection, double[]>();
+
+  /**
+   * Creates pcapng file and starts writer thread. Call
+   * {@link #close()} when done.
+   *
+   * @param radioMedium Radio medium, used to observe transmission starts
+   * @param file pcapng file
+   * @throws IOException If file could not be created
+   */
+  public PcapngExporter(RadioMedium radioMedium, File file) throws IOException {
+    this.radioMedium = radioMedium;
+    this.file = file;
+    channel = new FileOutputStream(file).getChannel();
+    for (int i = 1; i < BUFFERS; i++) {
+      free.add(allocate(BUFFER_SIZE));
+    }
+    buffer = allocate(BUFFER_SIZE);
+    bufferStarted = System.nanoTime();
+
+    writeSectionHeader();
+
+    writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeBuffers();
+      }
+    }, "pcapng writer");
+    writer.setDaemon(true);
+    writer.start();
+    logger.info("Opened pcapng file " + file);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  private static ByteBuffer allocate(int size) {
+    return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private void writeBuffers() {
+    while (true) {
+      ByteBuffer b;
+      try {
+        b = pending.take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (b == CLOSE) {
+        break;
+      }
+      try {
+        if (writeError == null) {
+          while (b.hasRemaining()) {
+            channel.write(b);
+          }
+        }
+      } catch (IOException e) {
+        /* Keep consuming buffers, or the simulation would block */
+        logger.error("Could not write pcapng file " + file + ": " + e.getMessage());
+        writeError = e;
+      }
+      b.clear();
+      if (b.capacity() == BUFFER_SIZE) {
+        free.offer(b);
+      }
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.error("Could not close pcapng file " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void submit() {
+    buffer.flip();
+    putUninterruptibly(pending, buffer);
+    ByteBuffer next = free.poll();
+    boolean interrupted = false;
+    while (next == null) {
+      /* Writer is behind, wait for it */
+      try {
+        next = free.take();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    buffer = next;
+    bufferStarted = System.nanoTime();
+  }
+
+  private static void putUninterruptibly(BlockingQueue<ByteBuffer> queue, ByteBuffer b) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        queue.put(b);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /* Make room for a block, returns buffer to write block to */
+  private ByteBuffer reserve(int blockLength) {
+    if (buffer.remaining() < blockLength) {
+      if (buffer.position() > 0) {
+        submit();
+      }
+      if (blockLength > BUFFER_SIZE) {
+        /* Oversized block, write it in a buffer of its own */
+        return allocate(blockLength);
+      }
+    }
+    return buffer;
+  }
+
+  private static int padded(int length) {
+    return (length + 3) & ~3;
+  }
+
+  private static int optionLength(byte[] value) {
+    return value == null ? 0 : 4 + padded(value.length);
+  }
+
+  private static void putOption(ByteBuffer b, int code, byte[] value) {
+    if (value == null) {
+      return;
+    }
+    b.putShort((short) code);
+    b.putShort((short) value.length);
+    b.put(value);
+    for (int i = value.length; i < padded(value.length); i++) {
+      b.put((byte) 0);
+    }
+  }
+
+  private static void putEndOfOptions(ByteBuffer b) {
+    b.putShort((short) OPT_ENDOFOPT);
+    b.putShort((short) 0);
+  }
+
+  private void writeSectionHeader() {
+    byte[] userappl = "Cooja".getBytes(UTF8);
+    int length = 28 + optionLength(userappl) + 4;
+    ByteBuffer b = reserve(length);
+    b.putInt(BLOCK_SHB);
+    b.putInt(length);
+    b.putInt(BYTE_ORDER_MAGIC);
+    b.putShort((short) 1); /* major version */
+    b.putShort((short) 0); /* minor version */
+    b.putLong(-1); /* section length not specified */
+    putOption(b, SHB_USERAPPL, userappl);
+    putEndOfOptions(b);
+    b.putInt(length);
+  }
+
+  private int getInterface(Radio radio) {
+    Integer id = interfaces.get(radio);
+    if (id != null) {
+      return id;
+    }
+    id = interfaces.size();
+    interfaces.put(radio, id);
+
+    byte[] name = ("mote " + radio.getMote().getID()).getBytes(UTF8);
+    byte[] tsresol = new byte[] { 9 }; /* nanoseconds */
+    int length = 20 + optionLength(name) + optionLength(tsresol) + 4;
+    ByteBuffer b = reserve(length);
+    b.putInt(BLOCK_IDB);
+    b.putInt(length);
+    b.putShort((short) LINKTYPE_IEEE802_15_4);
+    b.putShort((short) 0);
+    b.putInt(SNAPLEN);
+    putOption(b, IF_NAME, name);
+    putOption(b, IF_TSRESOL, tsresol);
+    putEndOfOptions(b);
+    b.putInt(length);
+    if (b != buffer) {
+      b.flip();
+      putUninterruptibly(pending, b);
+    }
+    return id;
+  }
+
+  private void writePacket(Radio radio, long time, byte[] data, int flags, String comment) {
+    int id = getInterface(radio);
+    byte[] commentBytes = comment == null ? null : comment.getBytes(UTF8);
+    byte[] flagBytes = new byte[] { (byte) flags, 0, 0, 0 };
+    int captured = Math.min(data.length, SNAPLEN);
+    int length = 32 + padded(captured) + optionLength(commentBytes) + optionLength(flagBytes) + 4;
+    long ns = time * 1000;
+
+    ByteBuffer b = reserve(length);
+    b.putInt(BLOCK_EPB);
+    b.putInt(length);
+    b.putInt(id);
+    b.putInt((int) (ns >>> 32));
+    b.putInt((int) ns);
+    b.putInt(captured);
+    b.putInt(data.length);
+    b.put(data, 0, captured);
+    for (int i = captured; i < padded(captured); i++) {
+      b.put((byte) 0);
+    }
+    putOption(b, OPT_COMMENT, commentBytes);
+    putOption(b, EPB_FLAGS, flagBytes);
+    putEndOfOptions(b);
+    b.putInt(length);
+    if (b != buffer) {
+      b.flip();
+      putUninterruptibly(pending, b);
+    }
+  }
+
+  private static double getLQI(Radio radio) {
+    try {
+      return radio.getLQI();
+    } catch (UnsupportedOperationException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Radio medium transmission observer. Records destination signal
+   * strengths when transmissions start, and exports transmissions when
+   * they finish.
+   */
+  @Override
+  public void update(Observable obs, Object obj) {
+    RadioConnection conn = radioMedium.getLastConnection();
+    if (conn == null) {
+      /* Transmission started: signal strengths are reset when it finishes */
+      if (radioMedium instanceof AbstractRadioMedium) {
+        RadioConnection[] active = ((AbstractRadioMedium) radioMedium).getActiveConnections();
+        if (active.length > 0) {
+          RadioConnection started = active[active.length - 1];
+          Radio[] destinations = started.getAllDestinations();
+          double[] values = new double[2 * destinations.length];
+          for (int i = 0; i < destinations.length; i++) {
+            values[2 * i] = destinations[i].getCurrentSignalStrength();
+            values[2 * i + 1] = getLQI(destinations[i]);
+          }
+          receptions.put(started, values);
+        }
+      }
+      return;
+    }
+    double[] values = receptions.remove(conn);
+    RadioPacket packet = conn.getSource().getLastPacketTransmitted();
+    if (packet != null) {
+      exportConnection(conn, packet, values);
+    }
+  }
+
+  private void exportConnection(RadioConnection conn, RadioPacket packet, double[] values) {
+    if (writeError != null) {
+      return;
+    }
+    byte[] data = packet.getPacketData();
+    long time = conn.getStartTime();
+    Radio source = conn.getSource();
+    writePacket(source, time, data, EPB_OUTBOUND, "channel=" + source.getChannel());
+
+    Radio[] all = conn.getAllDestinations();
+    for (Radio dst : conn.getDestinations()) {
+      double rssi = dst.getCurrentSignalStrength();
+      double lqi = getLQI(dst);
+      if (values != null) {
+        for (int i = 0; i < all.length && 2 * i < values.length; i++) {
+          if (all[i] == dst) {
+            rssi = values[2 * i];
+            lqi = values[2 * i + 1];
+            break;
+          }
+        }
+      }
+      StringBuilder comment = new StringBuilder();
+      comment.append("rssi=").append(rssi);
+      if (!Double.isNaN(lqi)) {
+        comment.append(" lqi=").append((int) lqi);
+      }
+      comment.append(" channel=").append(dst.getChannel());
+      writePacket(dst, time, data, EPB_INBOUND, comment.toString());
+    }
+
+    if (System.nanoTime() - bufferStarted > MAX_BUFFER_AGE && buffer.position() > 0) {
+      /* Don't keep a slow capture in memory */
+      submit();
+    }
+  }
+
+  /**
+   * Writes remaining packets, and waits for the writer thread to close
+   * the file.
+   */
+  public void close() {
+    if (buffer.position() > 0) {
+      submit();
+    }
+    putUninterruptibly(pending, CLOSE);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    receptions.clear();
+    logger.info("Closed pcapng file " + file);
+  }
+}
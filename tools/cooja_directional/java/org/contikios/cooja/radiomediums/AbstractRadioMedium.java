@@ -87,6 +87,28 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	
 	private Simulation simulation = null;
 	
+	/* Incremental signal strengths, see setIncrementalSignalStrengths() */
+	private boolean incrementalSignalStrengths = false;
+	private HashMap<Radio, ReceivedPower> receivedPower = new HashMap<Radio, ReceivedPower>();
+	private HashMap<RadioConnection, ConnectionPower> connectionPower = new HashMap<RadioConnection, ConnectionPower>();
+	
+	/* Power received by a radio from all active connections */
+	private static class ReceivedPower {
+		double mW = 0; /* Sum of received powers */
+		int signals = 0; /* Number of connections heard */
+		int transmissions = 0; /* Number of connections sent */
+	}
+	
+	/* Power contributed by a connection, subtracted when it ends */
+	private static class ConnectionPower {
+		final Radio[] radios;
+		final double[] mW;
+		ConnectionPower(Radio[] radios, double[] mW) {
+			this.radios = radios;
+			this.mW = mW;
+		}
+	}
+	
 	/* Book-keeping */
 	public int COUNTER_TX = 0;
 	public int COUNTER_RX = 0;
@@ -183,6 +205,178 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	}
 	
 	
+	/**
+	 * Selects how signal strengths are updated on radio events.
+	 *
+	 * By default, all radios' signal strengths are recomputed from all active
+	 * connections on every event, see {@link #updateSignalStrengths()}.
+	 *
+	 * In incremental mode, each radio instead accumulates the power (in mW)
+	 * received from the active connections it hears. Only the source,
+	 * destinations and interfered radios of a starting or finishing
+	 * connection are updated, so event cost scales with neighbourhood size
+	 * rather than network size. Concurrent signals add up rather than the
+	 * strongest signal being reported.
+	 * Received powers are given by {@link #getSignalStrength(RadioConnection, Radio)},
+	 * evaluated when the connection starts.
+	 *
+	 * Mediums that do not support incremental mode, see
+	 * {@link #supportsIncrementalSignalStrengths()}, keep the default mode.
+	 *
+	 * @param incremental Use incremental signal strengths
+	 */
+	public void setIncrementalSignalStrengths(boolean incremental) {
+		if (incremental && !supportsIncrementalSignalStrengths()) {
+			logger.warn(getClass().getSimpleName()
+					+ " does not support incremental signal strengths, ignoring");
+			return;
+		}
+		incrementalSignalStrengths = incremental;
+		receivedPower.clear();
+		connectionPower.clear();
+		if (!incremental) {
+			updateSignalStrengths();
+			return;
+		}
+		for (RadioConnection conn : activeConnections) {
+			addConnectionPower(conn);
+		}
+		for (Radio radio : registeredRadios) {
+			refreshSignalStrength(radio);
+		}
+	}
+	
+	public boolean isIncrementalSignalStrengths() {
+		return incrementalSignalStrengths;
+	}
+	
+	/**
+	 * Radio mediums supporting incremental mode override this method and
+	 * {@link #getSignalStrength(RadioConnection, Radio)}.
+	 *
+	 * @return True if incremental signal strengths are supported, default false
+	 */
+	protected boolean supportsIncrementalSignalStrengths() {
+		return false;
+	}
+	
+	/**
+	 * Returns the signal strength of a connection at the given destination or
+	 * interfered radio. Used only in incremental mode.
+	 *
+	 * @see #setIncrementalSignalStrengths(boolean)
+	 * @param conn Radio connection
+	 * @param radio Destination or interfered radio
+	 * @return Signal strength [dBm], default SS_STRONG
+	 */
+	protected double getSignalStrength(RadioConnection conn, Radio radio) {
+		return SS_STRONG;
+	}
+	
+	private ReceivedPower getReceivedPower(Radio radio) {
+		ReceivedPower power = receivedPower.get(radio);
+		if (power == null) {
+			power = new ReceivedPower();
+			receivedPower.put(radio, power);
+		}
+		return power;
+	}
+	
+	private void addConnectionPower(RadioConnection conn) {
+		Radio source = conn.getSource();
+		getReceivedPower(source).transmissions++;
+		refreshSignalStrength(source);
+		
+		ArrayList<Radio> radios = new ArrayList<Radio>();
+		for (Radio r : conn.getAllDestinations()) {
+			radios.add(r);
+		}
+		for (Radio r : conn.getInterferedNonDestinations()) {
+			radios.add(r);
+		}
+		
+		ArrayList<Radio> heard = new ArrayList<Radio>();
+		ArrayList<Double> heardPower = new ArrayList<Double>();
+		for (Radio r : radios) {
+			if (source.getChannel() >= 0 &&
+					r.getChannel() >= 0 &&
+					source.getChannel() != r.getChannel()) {
+				continue;
+			}
+			double mW = Math.pow(10, getSignalStrength(conn, r) / 10);
+			ReceivedPower power = getReceivedPower(r);
+			power.mW += mW;
+			power.signals++;
+			heard.add(r);
+			heardPower.add(mW);
+			refreshSignalStrength(r);
+			
+			if (conn.isInterfered(r) && !r.isInterfered()) {
+				r.interfereAnyReception();
+			}
+		}
+		
+		double[] mW = new double[heardPower.size()];
+		for (int i = 0; i < mW.length; i++) {
+			mW[i] = heardPower.get(i);
+		}
+		connectionPower.put(conn, new ConnectionPower(heard.toArray(new Radio[0]), mW));
+	}
+	
+	private void removeConnectionPower(RadioConnection conn) {
+		ReceivedPower sourcePower = receivedPower.get(conn.getSource());
+		if (sourcePower != null) {
+			sourcePower.transmissions--;
+			refreshSignalStrength(conn.getSource());
+		}
+		
+		ConnectionPower connPower = connectionPower.remove(conn);
+		if (connPower == null) {
+			return;
+		}
+		for (int i = 0; i < connPower.radios.length; i++) {
+			ReceivedPower power = receivedPower.get(connPower.radios[i]);
+			if (power == null) {
+				/* Unregistered */
+				continue;
+			}
+			power.signals--;
+			if (power.signals <= 0) {
+				/* Avoid accumulating rounding errors */
+				power.signals = 0;
+				power.mW = 0;
+			} else {
+				power.mW -= connPower.mW[i];
+			}
+			refreshSignalStrength(connPower.radios[i]);
+		}
+	}
+	
+	private void refreshSignalStrength(Radio radio) {
+		double signal = getBaseRssi(radio);
+		ReceivedPower power = receivedPower.get(radio);
+		if (power != null) {
+			if (power.signals > 0) {
+				signal = 10 * Math.log10(Math.pow(10, signal / 10) + power.mW);
+			}
+			if (power.transmissions > 0 && signal < getSendRssi(radio)) {
+				signal = getSendRssi(radio);
+			}
+		}
+		radio.setCurrentSignalStrength(signal);
+	}
+	
+	/**
+	 * Updates signal strengths after the state of the given radio changed.
+	 */
+	private void radioSignalStrengthChanged(Radio radio) {
+		if (incrementalSignalStrengths) {
+			refreshSignalStrength(radio);
+		} else {
+			updateSignalStrengths();
+		}
+	}
+	
 	/**
 	 * Remove given radio from any active connections.
 	 * This method can be called if a radio node falls asleep or is removed.
@@ -239,14 +433,14 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 				case UNKNOWN:
 				case HW_ON: {
 					/* Update signal strengths */
-					updateSignalStrengths();
+					radioSignalStrengthChanged(radio);
 				}
 				break;
 				case HW_OFF: {
 					/* Remove any radio connections from this radio */
 					removeFromActiveConnections(radio);
 					/* Update signal strengths */
-					updateSignalStrengths();
+					radioSignalStrengthChanged(radio);
 				}
 				break;
 				case TRANSMISSION_STARTED: {
@@ -282,7 +476,11 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 							
 						}
 					} /* Update signal strengths */
-					updateSignalStrengths();
+					if (incrementalSignalStrengths) {
+						addConnectionPower(newConnection);
+					} else {
+						updateSignalStrengths();
+					}
 					
 					/* Notify observers */
 					lastConnection = null;
@@ -328,7 +526,11 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 					}
 					
 					/* Update signal strengths */
-					updateSignalStrengths();
+					if (incrementalSignalStrengths) {
+						removeConnectionPower(connection);
+					} else {
+						updateSignalStrengths();
+					}
 					
 					/* Notify observers */
 					radioTransmissionObservable.setChangedAndNotify();
@@ -447,7 +649,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 		radioMediumObservable.setChangedAndNotify();
 		
 		/* Update signal strengths */
-		updateSignalStrengths();
+		radioSignalStrengthChanged(radio);
 	}
 	
 	public void unregisterRadioInterface(Radio radio, Simulation sim) {
@@ -460,11 +662,14 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 		registeredRadios.remove(radio);
 		
 		removeFromActiveConnections(radio);
+		receivedPower.remove(radio);
 		
 		radioMediumObservable.setChangedAndNotify();
 		
 		/* Update signal strengths */
-		updateSignalStrengths();
+		if (!incrementalSignalStrengths) {
+			updateSignalStrengths();
+		}
 	}
 	
 	/**
@@ -490,12 +695,12 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	* @param rssi
 	*          The RSSI value to set during silence
 	*/
-	public void setBaseRssi(Radio radio, double rssi) {
+	public void setBaseRssi(final Radio radio, double rssi) {
 		baseRssi.put(radio, rssi);
 		simulation.invokeSimulationThread(new Runnable() {				
 			@Override
 			public void run() {
-				updateSignalStrengths();
+				radioSignalStrengthChanged(radio);
 			}
 		});
 	}
@@ -590,6 +795,12 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 			config.add(element);
 		}
 
+		if (incrementalSignalStrengths) {
+			Element element = new Element("incremental_signal_strengths");
+			element.setText("" + incrementalSignalStrengths);
+			config.add(element);
+		}
+
 		return config;
 	}
 	
@@ -597,6 +808,11 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	
 	public boolean setConfigXML(final Collection<Element> configXML, boolean visAvailable) {
 		delayedConfiguration = configXML;
+		for (Element element : configXML) {
+			if (element.getName().equals("incremental_signal_strengths")) {
+				setIncrementalSignalStrengths(Boolean.parseBoolean(element.getText()));
+			}
+		}
 		return true;
 	}
 	
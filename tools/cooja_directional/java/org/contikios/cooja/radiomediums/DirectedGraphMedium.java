@@ -221,8 +221,39 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
     }
 
     this.edgesTable = arrTable;
+    edgeAnalysisFinished();
+  }
+
+  /**
+   * Removes all potential destinations from the lookup table.
+   * Used by subclasses that keep the lookup table updated incrementally
+   * instead of analyzing all edges.
+   */
+  protected void clearPotentialDestinations() {
+    edgesTable = new Hashtable<Radio,DGRMDestinationRadio[]>();
+  }
+
+  /**
+   * Replaces the potential destinations of a single source radio in the
+   * lookup table.
+   *
+   * @param source Source radio
+   * @param destinations Potential destinations, or null
+   */
+  protected void setPotentialDestinations(Radio source, DGRMDestinationRadio[] destinations) {
+    if (destinations == null || destinations.length == 0) {
+      edgesTable.remove(source);
+    } else {
+      edgesTable.put(source, destinations);
+    }
+  }
+
+  /**
+   * Marks the lookup table as up to date.
+   */
+  protected void edgeAnalysisFinished() {
     edgesDirty = false;
-    
+
     /* Radio Medium changed here so notify Observers */
     radioMediumObservable.setChangedAndNotify();
   }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.radiomediums;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import org.contikios.cooja.interfaces.Position;
+import org.contikios.cooja.interfaces.Radio;
+
+/**
+ * Uniform grid of radio positions, used to find radios within range
+ * without comparing all radio pairs.
+ *
+ * The cell size is the maximum radio range, so all radios within range of
+ * a position are found in the 3x3 cells surrounding it. The grid only
+ * considers X and Y coordinates; the Z coordinate can only increase
+ * distances.
+ *
+ * @see UDGM
+ * @author agent
+ */
+public class RadioGrid {
+  private final double cellSize;
+
+  private HashMap<Long, ArrayList<Radio>> cells = new HashMap<Long, ArrayList<Radio>>();
+  private HashMap<Radio, Long> radioCells = new HashMap<Radio, Long>();
+
+  /**
+   * @param cellSize Cell size, should be the maximum radio range
+   */
+  public RadioGrid(double cellSize) {
+    /* Avoid degenerate grids with zero ranges */
+    this.cellSize = cellSize > 0 ? cellSize : 1.0;
+  }
+
+  public double getCellSize() {
+    return cellSize;
+  }
+
+  public boolean contains(Radio radio) {
+    return radioCells.containsKey(radio);
+  }
+
+  public void clear() {
+    cells.clear();
+    radioCells.clear();
+  }
+
+  /**
+   * Adds radio to grid, or moves it to the cell of its current position.
+   *
+   * @param radio Radio
+   */
+  public void update(Radio radio) {
+    long cell = getCell(radio.getPosition());
+    Long oldCell = radioCells.get(radio);
+    if (oldCell != null) {
+      if (oldCell.longValue() == cell) {
+        return;
+      }
+      removeFromCell(radio, oldCell);
+    }
+    radioCells.put(radio, cell);
+    ArrayList<Radio> list = cells.get(cell);
+    if (list == null) {
+      list = new ArrayList<Radio>();
+      cells.put(cell, list);
+    }
+    list.add(radio);
+  }
+
+  public void remove(Radio radio) {
+    Long oldCell = radioCells.remove(radio);
+    if (oldCell != null) {
+      removeFromCell(radio, oldCell);
+    }
+  }
+
+  /**
+   * Collects all radios in cells neighbouring the cell where the given radio
+   * was last added. Radios within one cell size of the radio are guaranteed
+   * to be included.
+   *
+   * @param radio Radio in grid
+   * @param result Collection to which neighbours (including radio) are added
+   */
+  public void getNeighbours(Radio radio, Collection<Radio> result) {
+    Long cell = radioCells.get(radio);
+    if (cell == null) {
+      return;
+    }
+    getCellNeighbours(cell, result);
+  }
+
+  /**
+   * Collects all radios in cells neighbouring the given position.
+   *
+   * @param pos Position
+   * @param result Collection to which neighbours are added
+   */
+  public void getNeighbours(Position pos, Collection<Radio> result) {
+    getCellNeighbours(getCell(pos), result);
+  }
+
+  private void getCellNeighbours(long cell, Collection<Radio> result) {
+    int cx = (int) (cell >> 32);
+    int cy = (int) cell;
+    for (int x = cx - 1; x <= cx + 1; x++) {
+      for (int y = cy - 1; y <= cy + 1; y++) {
+        ArrayList<Radio> list = cells.get(toCell(x, y));
+        if (list != null) {
+          result.addAll(list);
+        }
+      }
+    }
+  }
+
+  private void removeFromCell(Radio radio, long cell) {
+    ArrayList<Radio> list = cells.get(cell);
+    if (list == null) {
+      return;
+    }
+    list.remove(radio);
+    if (list.isEmpty()) {
+      cells.remove(cell);
+    }
+  }
+
+  private long getCell(Position pos) {
+    int x = (int) Math.floor(pos.getXCoordinate() / cellSize);
+    int y = (int) Math.floor(pos.getYCoordinate() / cellSize);
+    return toCell(x, y);
+  }
+
+  private static long toCell(int x, int y) {
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+
+}
@@ -32,6 +32,7 @@
 
     import java.util.ArrayList;
     import java.util.Collection;
+    import java.util.HashSet;
     import java.util.Observable;
     import java.util.Observer;
     import java.util.Random;
@@ -48,6 +49,8 @@
     import org.contikios.cooja.interfaces.MoteID;
     import org.contikios.cooja.interfaces.Position;
     import org.contikios.cooja.interfaces.Direction;
+    import org.contikios.cooja.interfaces.Direction.DirectionEvent;
+    import org.contikios.cooja.interfaces.Direction.DirectionListener;
     import org.contikios.cooja.interfaces.Radio;
     import org.contikios.cooja.plugins.Visualizer;
     import org.contikios.cooja.plugins.skins.UDGMVisualizerSkin;
@@ -77,6 +80,9 @@
      * The received radio packet signal strength grows inversely with the distance to the
      * transmitter.
      *
+     * Optionally, radios outside the main lobe of a directional sender antenna
+     * (widened by a configurable margin) are never considered as receivers.
+     *
      * @see #SS_STRONG
      * @see #SS_WEAK
      * @see #SS_NOTHING
@@ -98,7 +104,63 @@
       private double freq = 2.4;
       private double c_speed = 299792458;
 
+      /* Beam margin (degrees) beyond the main lobe within which potential receivers are kept.
+       * Radios outside the margin are never considered as receivers. Disabled if negative. */
+      public double DIRECTIONAL_PRUNING_MARGIN = -1;
+
       private DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
+      private RadioGrid radioGrid = null;
+      /* Radios are moved and turned from any thread, e.g. by the Visualizer on the
+       * Swing thread, so edgesNeedRebuild, movedRadios, linkBudgets and
+       * radioVersions are only accessed while holding this lock */
+      private final Object motionLock = new Object();
+      private boolean edgesNeedRebuild = true;
+      private HashSet<Radio> movedRadios = new HashSet<Radio>();
+      private ArrayList<Radio> neighbours = new ArrayList<Radio>();
+
+      /* Power independent path loss terms */
+      private final double logFreq = 20 * Math.log10(freq);
+      private final double logWaveFactor = 20 * Math.log10(4 * Math.PI / c_speed);
+
+      /* Cached link budgets: source -> destination -> link */
+      private HashMap<Radio, HashMap<Radio, LinkBudget>> linkBudgets =
+        new HashMap<Radio, HashMap<Radio, LinkBudget>>();
+      /* Incremented when a radio moves or turns, invalidating its cached links */
+      private HashMap<Radio, int[]> radioVersions = new HashMap<Radio, int[]>();
+
+      /**
+       * Position and orientation dependent part of a link budget.
+       * Output power dependent terms are not cached, but are cheap to compute.
+       */
+      private class LinkBudget {
+        final int sourceVersion;
+        final int destVersion;
+        final double distance;
+        final double logDistance; /* 20 * log10(distance) */
+        final double Gtx; /* Sender antenna gain [dB] */
+        final double Grx; /* Receiver antenna gain [dB] */
+        final double connectionPathLoss; /* Path loss used when creating connections */
+
+        LinkBudget(Radio source, int sourceVersion, Radio dest, int destVersion) {
+          this.sourceVersion = sourceVersion;
+          this.destVersion = destVersion;
+          Position sourcePos = source.getPosition();
+          Position destPos = dest.getPosition();
+          distance = sourcePos.getDistanceTo(destPos);
+          logDistance = 20 * Math.log10(distance);
+          double gtx = 0.0;
+          double grx = 0.0;
+          try {
+            gtx = 20 * Math.log10(source.getDirection().getGain(destPos));
+            grx = 20 * Math.log10(dest.getDirection().getGain(sourcePos));
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+          Gtx = gtx;
+          Grx = grx;
+          connectionPathLoss = logDistance + logFreq + 180 + logWaveFactor;
+        }
+      }
 
       private Random random = null;
       int nodeid = 0;
@@ -112,36 +174,88 @@
         dgrm = new DirectedGraphMedium() {
           protected void analyzeEdges() {
             /* Create edges according to distances.
-             * XXX May be slow for mobile networks */
-            clearEdges();
-            for (Radio source: UDGM.this.getRegisteredRadios()) {
-              Position sourcePos = source.getPosition();
-              Direction sourceDir = source.getDirection();
-              for (Radio dest: UDGM.this.getRegisteredRadios()) {
-                Position destPos = dest.getPosition();
-                Direction destDir = dest.getDirection();
-                /* Ignore ourselves */
-                if (source == dest) {
+             * Radio positions are kept in a grid with the maximum range as cell size,
+             * and only radios that moved since the last analysis are re-analyzed. */
+            double range = Math.max(TRANSMITTING_RANGE, INTERFERENCE_RANGE);
+            boolean rebuild = radioGrid == null || radioGrid.getCellSize() != range;
+            Radio[] moved;
+            synchronized (motionLock) {
+              rebuild |= edgesNeedRebuild;
+              edgesNeedRebuild = false;
+              moved = movedRadios.toArray(new Radio[movedRadios.size()]);
+              movedRadios.clear();
+            }
+
+            if (rebuild) {
+              radioGrid = new RadioGrid(range);
+              clearPotentialDestinations();
+              Radio[] radios = UDGM.this.getRegisteredRadios();
+              for (Radio radio: radios) {
+                radioGrid.update(radio);
+              }
+              for (Radio radio: radios) {
+                analyzeSource(radio);
+              }
+            } else {
+              /* Sources near old and new positions may gain or lose edges */
+              HashSet<Radio> affected = new HashSet<Radio>();
+              for (Radio radio: moved) {
+                if (!radioGrid.contains(radio)) {
                   continue;
                 }
-                double distance = sourcePos.getDistanceTo(destPos); // Add direction as parameter along with distance
-                if (distance < Math.max(TRANSMITTING_RANGE, INTERFERENCE_RANGE)) { //Add Antenna effects here
-                  /* Add potential destination */
-                  addEdge(
-                    new DirectedGraphMedium.Edge(source,
-                      new DGRMDestinationRadio(dest)));
-                }
+                radioGrid.getNeighbours(radio, affected);
+                radioGrid.update(radio);
+                radioGrid.getNeighbours(radio, affected);
               }
+              for (Radio radio: affected) {
+                analyzeSource(radio);
+              }
+            }
+
+            edgeAnalysisFinished();
+          }
+
+          private void analyzeSource(Radio source) {
+            double range = radioGrid.getCellSize();
+            Position sourcePos = source.getPosition();
+            neighbours.clear();
+            radioGrid.getNeighbours(source, neighbours);
+
+            ArrayList<DGRMDestinationRadio> dests = new ArrayList<DGRMDestinationRadio>();
+            for (Radio dest: neighbours) {
+              /* Ignore ourselves */
+              if (source == dest) {
+                continue;
+              }
+              double distance = sourcePos.getDistanceTo(dest.getPosition());
+              if (distance >= range) {
+                continue;
+              }
+              if (!isWithinMainLobe(source, dest)) {
+                continue;
+              }
+              /* Add potential destination */
+              dests.add(new DGRMDestinationRadio(dest));
             }
-            super.analyzeEdges();
+            setPotentialDestinations(source, dests.toArray(new DGRMDestinationRadio[0]));
           }
         };
 
         /* Register as position observer.
-         * If any positions change, re-analyze potential receivers. */
+         * If any positions change, re-analyze potential receivers of the moved radio. */
         final Observer positionObserver = new Observer() {
           public void update(Observable o, Object arg) {
-            dgrm.requestEdgeAnalysis();
+            radioMoved(arg);
+          }
+        };
+        /* Register as direction listener.
+         * Antenna gains change, and potential receivers may change if pruned by antenna direction. */
+        final DirectionListener directionListener = new DirectionListener() {
+          public void directionChanged(DirectionEvent event) {
+            invalidateLinkBudgets(event.mote);
+            if (DIRECTIONAL_PRUNING_MARGIN >= 0 && event.type != Direction.ChangeType.PATTERN) {
+              radioMoved(event.mote);
+            }
           }
         };
         /* Re-analyze potential receivers if radios are added/removed. */
@@ -149,17 +263,30 @@
           public void moteWasAdded(Mote mote) {
             UDGM.this.mote = mote;
             UDGM.this.mote.getInterfaces().getPosition().addObserver(positionObserver);
+            if (mote.getInterfaces().getDirection() != null) {
+              mote.getInterfaces().getDirection().addDirectionListener(directionListener);
+            }
             nodeid = UDGM.this.mote.getInterfaces().getMoteID().getMoteID();
             clock = UDGM.this.mote.getInterfaces().getClock().getTime();
-            dgrm.requestEdgeAnalysis();
+            invalidateLinkBudgets(mote);
+            requestEdgeRebuild();
           }
           public void moteWasRemoved(Mote mote) {
+            if (mote.getInterfaces().getRadio() != null) {
+              removeLinkBudgets(mote.getInterfaces().getRadio());
+            }
             mote.getInterfaces().getPosition().deleteObserver(positionObserver);
-            dgrm.requestEdgeAnalysis();
+            if (mote.getInterfaces().getDirection() != null) {
+              mote.getInterfaces().getDirection().removeDirectionListener(directionListener);
+            }
+            requestEdgeRebuild();
           }
         });
         for (Mote mote: simulation.getMotes()) {
           mote.getInterfaces().getPosition().addObserver(positionObserver);
+          if (mote.getInterfaces().getDirection() != null) {
+            mote.getInterfaces().getDirection().addDirectionListener(directionListener);
+          }
         }
         dgrm.requestEdgeAnalysis();
 
@@ -167,6 +294,137 @@
         Visualizer.registerVisualizerSkin(UDGMVisualizerSkin.class);
       }
 
+      private void radioMoved(Object arg) {
+        invalidateLinkBudgets(arg);
+        synchronized (motionLock) {
+          if (!(arg instanceof Mote)) {
+            edgesNeedRebuild = true;
+          } else {
+            Radio radio = ((Mote) arg).getInterfaces().getRadio();
+            if (radio != null) {
+              movedRadios.add(radio);
+            }
+          }
+        }
+        dgrm.requestEdgeAnalysis();
+      }
+
+      private void requestEdgeRebuild() {
+        synchronized (motionLock) {
+          edgesNeedRebuild = true;
+        }
+        dgrm.requestEdgeAnalysis();
+      }
+
+      /**
+       * Invalidates cached link budgets to and from the radio of the given mote.
+       * Drops all link budgets if the argument is not a mote.
+       *
+       * @param arg Moved or turned mote
+       */
+      private void invalidateLinkBudgets(Object arg) {
+        synchronized (motionLock) {
+          if (!(arg instanceof Mote)) {
+            linkBudgets.clear();
+            return;
+          }
+          Radio radio = ((Mote) arg).getInterfaces().getRadio();
+          if (radio == null) {
+            return;
+          }
+          getRadioVersion(radio)[0]++;
+        }
+      }
+
+      private void removeLinkBudgets(Radio radio) {
+        synchronized (motionLock) {
+          movedRadios.remove(radio);
+          radioVersions.remove(radio);
+          linkBudgets.remove(radio);
+          for (HashMap<Radio, LinkBudget> dests: linkBudgets.values()) {
+            dests.remove(radio);
+          }
+        }
+      }
+
+      /* Callers hold motionLock */
+      private int[] getRadioVersion(Radio radio) {
+        int[] version = radioVersions.get(radio);
+        if (version == null) {
+          version = new int[1];
+          radioVersions.put(radio, version);
+        }
+        return version;
+      }
+
+      private LinkBudget getLinkBudget(Radio source, Radio dest) {
+        synchronized (motionLock) {
+          HashMap<Radio, LinkBudget> dests = linkBudgets.get(source);
+          if (dests == null) {
+            dests = new HashMap<Radio, LinkBudget>();
+            linkBudgets.put(source, dests);
+          }
+          int sourceVersion = getRadioVersion(source)[0];
+          int destVersion = getRadioVersion(dest)[0];
+          LinkBudget link = dests.get(dest);
+          if (link == null || link.sourceVersion != sourceVersion || link.destVersion != destVersion) {
+            link = new LinkBudget(source, sourceVersion, dest, destVersion);
+            dests.put(dest, link);
+          }
+          return link;
+        }
+      }
+
+      protected boolean supportsIncrementalSignalStrengths() {
+        return true;
+      }
+
+      protected double getSignalStrength(RadioConnection conn, Radio radio) {
+        return getSignalStrength(conn.getSource(), radio);
+      }
+
+      /**
+       * Signal strength of an active connection from source at dest.
+       */
+      private double getSignalStrength(Radio source, Radio dest) {
+        LinkBudget link = getLinkBudget(source, dest);
+        double dist = link.distance;
+
+        double maxTxDist = TRANSMITTING_RANGE *
+          ((double) source.getCurrentOutputPowerIndicator() / (double) source.getOutputPowerIndicatorMax());
+        double distFactor = dist / maxTxDist; // dst Radio dist : maxTxDist
+
+        double PL;
+        double Ptx = source.getCurrentOutputPower();
+        if (dist >= TRANSMITTING_RANGE) {
+          PL = link.logDistance * distFactor + logFreq + 155 + logWaveFactor + 0.37 * dist;
+        } else {
+          PL = link.logDistance * distFactor + logFreq + 155 + logWaveFactor + 0.22 * dist; //2.4GHz: 20*log(2.4) + 20*log(10^9)
+        }
+        //205 highest PL factor for -95dBm & 155 lowest PL factor for -10dBm
+        return Ptx + link.Gtx + link.Grx - PL;
+      }
+
+      /**
+       * Checks whether destination is within the source antenna main lobe,
+       * widened by the directional pruning margin.
+       * Always true for omnidirectional antennas, and if pruning is disabled.
+       *
+       * @see #DIRECTIONAL_PRUNING_MARGIN
+       */
+      private boolean isWithinMainLobe(Radio source, Radio dest) {
+        if (DIRECTIONAL_PRUNING_MARGIN < 0) {
+          return true;
+        }
+        Direction dir = source.getDirection();
+        if (dir == null || dir.getAntennaType()) {
+          return true;
+        }
+        double angle = Math.toDegrees(dir.getAngle(dest.getPosition()));
+        angle = angle - 360.0 * Math.floor((angle + 180.0) / 360.0);
+        return Math.abs(angle) <= dir.getBeamWidth() / 2 + DIRECTIONAL_PRUNING_MARGIN;
+      }
+
       public void removed() {
         super.removed();
 
@@ -183,6 +441,11 @@
         dgrm.requestEdgeAnalysis();
       }
 
+      public void setDirectionalPruningMargin(double margin) {
+        DIRECTIONAL_PRUNING_MARGIN = margin;
+        requestEdgeRebuild();
+      }
+
       public RadioConnection createConnections(Radio sender) {
         RadioConnection newConnection = new RadioConnection(sender);
 
@@ -204,7 +467,6 @@
         }
 
         /* Loop through all potential destinations */
-        Position senderPos = sender.getPosition();
         for (DestinationRadio dest: potentialDestinations) {
           Radio recv = dest.radio;
 
@@ -221,7 +483,6 @@
 
             continue;
           }
-          Position recvPos = recv.getPosition();
 
           /* Fail if radio is turned off 
           //      if (!recv.isReceiverOn()) {
@@ -237,22 +498,9 @@
           //        }
           //      }*/
 
-          double PL = 0.0;
-          double distance = senderPos.getDistanceTo(recvPos);
+          LinkBudget link = getLinkBudget(sender, recv);
           double Ptx = sender.getCurrentOutputPower();
-          double Gtx = 0.0;
-          double Grx = 0.0;
-          try{
-            Gtx = 20 * Math.log10(sender.getDirection().getGain(recv.getPosition())); //PROBLEM HERE
-            Grx = 20 * Math.log10(recv.getDirection().getGain(sender.getPosition()));
-          }
-          catch(Exception    e)
-	      {
-		    e.printStackTrace();
-	      }
-          PL = 20 * Math.log10(distance) + 20 * Math.log10(freq) + 180 + 20 * Math.log10(4 * Math.PI / c_speed);
-
-          double signalStrength = Ptx + Gtx + Grx - PL;
+          double signalStrength = Ptx + link.Gtx + link.Grx - link.connectionPathLoss;
           if (signalStrength >= RX_SENS) { //(distance <= moteTransmissionRange) //Add antenna effects here
             /* Within transmission range */
 
@@ -334,31 +582,7 @@
               continue;
             }
 
-            double PL = 0.0;
-            double dist = conn.getSource().getPosition().getDistanceTo(dstRadio.getPosition());
-            double xk = conn.getSource().getPosition().getXCoordinate(); //src X co-ordinate
-            double yk = conn.getSource().getPosition().getYCoordinate(); //src Y co-ordinate
-            double xd = dstRadio.getPosition().getXCoordinate(); //Actual dest X co-ordinate
-            double yd = dstRadio.getPosition().getYCoordinate(); //Actual dest Y co-ordinate 
-            double sender_orientation = conn.getSource().getDirection().getOrientation(); //src node orientation 
-            double recv_orientation = dstRadio.getDirection().getOrientation(); //dst node orientation
-
-            double maxTxDist = TRANSMITTING_RANGE *
-              ((double) conn.getSource().getCurrentOutputPowerIndicator() / (double) conn.getSource().getOutputPowerIndicatorMax());
-            double distFactor = dist / maxTxDist; // dst Radio dist : maxTxDist
-
-            double Ptx = conn.getSource().getCurrentOutputPower();
-            double Gtx = 20 * Math.log10(conn.getSource().getDirection().getGain(dstRadio.getPosition()));
-            double Grx = 20 * Math.log10(dstRadio.getDirection().getGain(conn.getSource().getPosition()));
-            if (dist >= TRANSMITTING_RANGE) {
-              PL = 20 * Math.log10(dist) * distFactor + 20 * Math.log10(freq) + 155 + 20 * Math.log10(4 * Math.PI / c_speed) + 0.37 * dist;
-            } else {
-              PL = 20 * Math.log10(dist) * distFactor + 20 * Math.log10(freq) + 155 + 20 * Math.log10(4 * Math.PI / c_speed) + 0.22 * dist; //2.4GHz: 20*log(2.4) + 20*log(10^9)
-            }
-            //205 highest PL factor for -95dBm & 155 lowest PL factor for -10dBm
-            double signalStrength = Ptx + Gtx + Grx - PL;
-
-            double ori_radians = Math.toRadians(recv_orientation); //convert degree to radians to be passed as argument for cos & sin functions
+            double signalStrength = getSignalStrength(conn.getSource(), dstRadio);
 
             if (dstRadio.getCurrentSignalStrength() < signalStrength) {
               dstRadio.setCurrentSignalStrength(signalStrength);
@@ -374,24 +598,7 @@
               conn.getSource().getChannel() != intfRadio.getChannel()) {
               continue;
             }
-            double PL = 0.0;
-            double dist = conn.getSource().getPosition().getDistanceTo(intfRadio.getPosition());
-
-            double maxTxDist = TRANSMITTING_RANGE *
-              ((double) conn.getSource().getCurrentOutputPowerIndicator() / (double) conn.getSource().getOutputPowerIndicatorMax());
-            double distFactor = dist / maxTxDist; //intf radio dist : maxTxDist
-
-            double Ptx = conn.getSource().getCurrentOutputPower();
-            double Gtx = 20 * Math.log10(conn.getSource().getDirection().getGain(intfRadio.getPosition())); //intfRadio instead of dstRadio
-            double Grx = 20 * Math.log10(intfRadio.getDirection().getGain(conn.getSource().getPosition())); //intfRadio instead of dstRadio
-            if (dist >= TRANSMITTING_RANGE) {
-              PL = 20 * Math.log10(dist) * distFactor + 20 * Math.log10(freq) + 155 + 20 * Math.log10(4 * Math.PI / c_speed) + 0.37 * dist;
-            } else {
-              PL = 20 * Math.log10(dist) * distFactor + 20 * Math.log10(freq) + 155 + 20 * Math.log10(4 * Math.PI / c_speed) + 0.22 * dist; //2.4GHz: 20*log(2.4) + 20*log(10^9)
-            }
-
-            // PL = 20*Math.log10(dist)*distFactor + 20*Math.log10(freq) + 155 + 20*Math.log10(4*Math.PI/c_speed)+0.22*dist; //2.4GHz: 20*log(2.4) + 20*log(10^9)
-            double signalStrength = Ptx + Gtx + Grx - PL; //SS_STRONG + distFactor*(SS_WEAK - SS_STRONG);	//Add antenna effects here
+            double signalStrength = getSignalStrength(conn.getSource(), intfRadio); //SS_STRONG + distFactor*(SS_WEAK - SS_STRONG);	//Add antenna effects here
 
             //if (distFactor < 1) {	// intf radio within Tx range
             //signalStrength defined here initially
@@ -438,6 +645,13 @@
         element.setText("" + SUCCESS_RATIO_RX);
         config.add(element);
 
+        /* Directional pruning margin */
+        if (DIRECTIONAL_PRUNING_MARGIN >= 0) {
+          element = new Element("directional_pruning_margin");
+          element.setText("" + DIRECTIONAL_PRUNING_MARGIN);
+          config.add(element);
+        }
+
         return config;
       }
 
@@ -465,7 +679,12 @@
           if (element.getName().equals("success_ratio_rx")) {
             SUCCESS_RATIO_RX = Double.parseDouble(element.getText());
           }
+
+          if (element.getName().equals("directional_pruning_margin")) {
+            DIRECTIONAL_PRUNING_MARGIN = Double.parseDouble(element.getText());
+          }
         }
+        requestEdgeRebuild();
         return true;
       }
 
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.util;
+
+import java.util.Collection;
+
+/**
+ * The RingBuffer class implements a fixed capacity buffer with a single
+ * producer and any number of concurrent readers. Each added element gets a
+ * sequence number, and readers read from a sequence number cursor without
+ * locking. When the buffer is full, adding an element overwrites the oldest
+ * element.
+ *
+ * <p><strong>
+ * Note that only one thread at a time may add elements, clear the buffer,
+ * or change its capacity. Reading is safe from any thread.
+ * </strong>
+ *
+ * @param <E> Element type
+ * @author agent
+ */
+public class RingBuffer<E> {
+
+  private volatile Object[] elements;
+  private volatile long next = 0; /* Sequence number of next element */
+  private volatile long first = 0; /* Oldest sequence number not cleared */
+
+  public RingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("illegal capacity: " + capacity);
+    }
+    elements = new Object[capacity];
+  }
+
+  public int getCapacity() {
+    return elements.length;
+  }
+
+  /**
+   * @return Sequence number of next added element
+   */
+  public long getSequence() {
+    return next;
+  }
+
+  /**
+   * @return Sequence number of oldest element in buffer
+   */
+  public long getFirst() {
+    return Math.max(first, next - elements.length);
+  }
+
+  public int size() {
+    long end = next;
+    return (int) (end - Math.max(first, end - elements.length));
+  }
+
+  /**
+   * Adds element, overwriting the oldest element if the buffer is full.
+   *
+   * @param element Element
+   * @return Overwritten element, or null
+   */
+  @SuppressWarnings("unchecked")
+  public E add(E element) {
+    Object[] elements = this.elements;
+    long seq = next;
+    int index = (int) (seq % elements.length);
+    /* Slots not in use are always null */
+    E removed = (E) elements[index];
+    elements[index] = element;
+    next = seq + 1;
+    return removed;
+  }
+
+  /**
+   * Reads elements from given sequence number. Elements no longer in the
+   * buffer are skipped.
+   *
+   * @param from Sequence number of first element to read, 0 for all elements
+   * @param dst Collection to which read elements are added
+   * @return Sequence number of next element to read
+   */
+  @SuppressWarnings("unchecked")
+  public long read(long from, Collection<? super E> dst) {
+    while (true) {
+      Object[] elements = this.elements;
+      long end = next;
+      long start = Math.max(from, Math.max(first, end - elements.length));
+      if (start >= end) {
+        return start;
+      }
+
+      Object[] copy = new Object[(int) (end - start)];
+      for (long seq = start; seq < end; seq++) {
+        copy[(int) (seq - start)] = elements[(int) (seq % elements.length)];
+      }
+      if (elements != this.elements) {
+        /* Cleared or resized while reading, retry */
+        continue;
+      }
+
+      /* Skip elements that may have been overwritten while reading */
+      long valid = next + 1 - elements.length;
+      for (int i = (int) Math.max(0, valid - start); i < copy.length; i++) {
+        dst.add((E) copy[i]);
+      }
+      return end;
+    }
+  }
+
+  /**
+   * Removes all elements. Sequence numbers are not reset.
+   */
+  public void clear() {
+    first = next;
+    elements = new Object[elements.length];
+  }
+
+  /**
+   * Changes the buffer capacity, keeping the newest elements.
+   *
+   * @param capacity New capacity
+   * @param removed Collection to which removed elements are added, or null
+   */
+  @SuppressWarnings("unchecked")
+  public void setCapacity(int capacity, Collection<? super E> removed) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("illegal capacity: " + capacity);
+    }
+    Object[] old = elements;
+    long end = next;
+    long start = Math.max(first, end - old.length);
+    long keep = Math.max(start, end - capacity);
+
+    Object[] resized = new Object[capacity];
+    for (long seq = start; seq < end; seq++) {
+      Object element = old[(int) (seq % old.length)];
+      if (seq >= keep) {
+        resized[(int) (seq % capacity)] = element;
+      } else if (removed != null) {
+        removed.add((E) element);
+      }
+    }
+    first = keep;
+    elements = resized;
+  }
+}
@@ -375,9 +375,9 @@ public class DebugCommands implements CommandBundle {
           public int executeCommand(CommandContext context) {
             int adr = context.getArgumentAsAddress(0);
             if (adr >= 0) {
-              int value = cpu.memory[adr];
+              int value = cpu.getMemoryByte(adr);
               if (adr >= 0x100 && adr + 1 < cpu.MAX_MEM) {
-                  value |= cpu.memory[adr + 1] << 8;
+                  value |= cpu.getMemoryByte(adr + 1) << 8;
               }
               context.out.println(context.getArgument(0) + " = $" + Utils.hex16(value));
               return 0;
@@ -472,7 +472,7 @@ public class DebugCommands implements CommandBundle {
             DisAsm disAsm = cpu.getDisAsm();
             for (int i = 0; i < count; i++) {
                 if (mode == Utils.DIS_ASM) {
-                    DbgInstruction dbg = disAsm.disassemble(start, cpu.memory, cpu.reg, new DbgInstruction(),
+                    DbgInstruction dbg = disAsm.disassemble(start, cpu, cpu.reg, new DbgInstruction(),
                             0);
                     String fkn;
                     if ((fkn = dbg.getFunction()) != null) {
@@ -482,9 +482,9 @@ public class DebugCommands implements CommandBundle {
                     start += dbg.getSize();
                 } else {
                     int data = 0;
-                    data = cpu.memory[start++];
+                    data = cpu.getMemoryByte(start++);
                     if (Utils.size(type) == 2) {
-                        data = data  + (cpu.memory[start++] << 8);
+                        data = data  + (cpu.getMemoryByte(start++) << 8);
                     }
                     context.out.print((mode != Utils.ASCII ? " " : "") + 
                             Utils.toString(data, type, mode));
@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * BlockCompiler
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+
+package se.sics.mspsim.core;
+
+import se.sics.mspsim.core.Memory.AccessMode;
+import se.sics.mspsim.util.Utils;
+
+/**
+ * Translates hot blocks of decoded instructions into JVM bytecode, so that
+ * the JVM can compile them like any other code.
+ *
+ * MSP430.stepMicros counts the executions of every instruction in its
+ * execCounter. Once an instruction has been executed HOT_EXECUTIONS times,
+ * a block is compiled from it, running to the first jump, write to PC or
+ * instruction that is not decoded, but never past the end of its flash
+ * page. The block is kept with the decoded instruction it starts at, and
+ * dropped with it when the flash changes.
+ *
+ * For every instruction, the generated code does what executeDecoded does,
+ * but with the operands as constants and only the steps the instruction
+ * needs. Registers, memory and the operation itself are all accessed
+ * through the same MSP430Core methods, so register monitors, watched
+ * memory and I/O behave as in the interpreter. Between instructions, the
+ * block checks that emulateOP would go on with the next one: no pending
+ * interrupt, CPU still on, no stop requested, nothing watching PC or all
+ * memory, no flash operation going on, and no decoded instructions dropped,
+ * e.g. by a write to flash or a new watchpoint. Otherwise the block returns
+ * and the interpreter takes over.
+ */
+final class BlockCompiler {
+
+    static final int HOT_EXECUTIONS = 1000;
+    private static final int MAX_INSTRUCTIONS = 32;
+
+    private static final String BLOCK = "se/sics/mspsim/core/CompiledBlock";
+    private static final String CPU = "se/sics/mspsim/core/MSP430Core";
+    private static final String ACCESS_MODE = "se/sics/mspsim/core/Memory$AccessMode";
+    private static final String CPU_ARG = "L" + CPU + ";";
+    private static final String MODE_ARG = "L" + ACCESS_MODE + ";";
+
+    /* Locals of execute, maxCycles and startCycles take two each */
+    private static final int CPU_LOCAL = 1;
+    private static final int EXEC_COUNTER = 2;
+    private static final int MAX_CYCLES = 3;
+    private static final int INVALIDATIONS = 5;
+    private static final int START_CYCLES = 6;
+    private static final int SRC = 8;
+    private static final int DST = 9;
+    private static final int SRC_ADDRESS = 10;
+    private static final int DST_ADDRESS = 11;
+    private static final int MAX_LOCALS = 12;
+    private static final int MAX_STACK = 10;
+
+    private static int blockCount;
+    private static boolean failed;
+
+    private final ClassFileWriter classFile;
+    private final ClassFileWriter.Code code;
+
+    private BlockCompiler(String name) {
+        classFile = new ClassFileWriter(name, BLOCK);
+        code = classFile.newCode(MAX_STACK, MAX_LOCALS);
+    }
+
+    /* Returns null if blocks can not be compiled at all */
+    static synchronized CompiledBlock compile(MSP430Core cpu, int address) {
+        if (failed) {
+            return null;
+        }
+        DecodedInstruction[] instructions = new DecodedInstruction[MAX_INSTRUCTIONS];
+        int[] addresses = new int[MAX_INSTRUCTIONS];
+        int count = 0;
+        int pc = address;
+        while (count < MAX_INSTRUCTIONS
+                && pc >> FlashMemory.PAGE_BITS == address >> FlashMemory.PAGE_BITS) {
+            DecodedInstruction decoded = cpu.getDecodedInstruction(pc);
+            if (decoded == null || decoded.kind == DecodedInstruction.GENERIC) {
+                break;
+            }
+            instructions[count] = decoded;
+            addresses[count++] = pc;
+            if (decoded.kind == DecodedInstruction.JUMP || writesPC(decoded)) {
+                break;
+            }
+            pc += getSize(decoded);
+        }
+
+        String name = "se/sics/mspsim/core/compiled/Block" + Utils.hex(address, 4)
+            + "_" + blockCount++;
+        try {
+            BlockCompiler compiler = new BlockCompiler(name);
+            byte[] bytes = compiler.translate(instructions, addresses, count);
+            Class<?> blockClass = new BlockLoader().define(name.replace('/', '.'), bytes);
+            return (CompiledBlock) blockClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            cpu.log("Could not compile block at $" + Utils.hex(address, 4)
+                + ", interpreting all instructions: " + e);
+            failed = true;
+            return null;
+        }
+    }
+
+    private static boolean writesPC(DecodedInstruction decoded) {
+        return decoded.kind == DecodedInstruction.DOUBLE_OPERAND && decoded.dstRegMode
+            && decoded.dstRegister == MSP430Constants.PC && MSP430Core.writesResult(decoded.op);
+    }
+
+    private static int getSize(DecodedInstruction decoded) {
+        int size = 2;
+        if (decoded.srcKind == DecodedInstruction.SRC_INDEXED
+                || decoded.srcKind == DecodedInstruction.SRC_IMMEDIATE) {
+            size += 2;
+        }
+        if (!decoded.dstRegMode) {
+            size += 2;
+        }
+        return size;
+    }
+
+    private byte[] translate(DecodedInstruction[] instructions, int[] addresses, int count) {
+        ClassFileWriter.Code init = classFile.newCode(1, 1);
+        init.op(ClassFileWriter.ALOAD, 0);
+        init.opIndex(ClassFileWriter.INVOKESPECIAL, classFile.methodConstant(BLOCK, "<init>", "()V"));
+        init.op(ClassFileWriter.RETURN);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", init);
+
+        loadCPU();
+        invokeBlock("getInvalidations", "(" + CPU_ARG + ")I");
+        code.op(ClassFileWriter.ISTORE, INVALIDATIONS);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                // Leave the rest to the interpreter unless it would go on here
+                loadCPU();
+                code.op(ClassFileWriter.LLOAD, MAX_CYCLES);
+                code.loadInt(addresses[i]);
+                code.op(ClassFileWriter.ILOAD, INVALIDATIONS);
+                invokeBlock("canContinue", "(" + CPU_ARG + "JII)Z");
+                int branch = code.branch(ClassFileWriter.IFNE);
+                code.loadInt(addresses[i - 1]);
+                code.op(ClassFileWriter.IRETURN);
+                code.bind(branch);
+            }
+            translate(instructions[i], addresses[i]);
+            if (i < count - 1) {
+                // The caller counts the last one
+                code.op(ClassFileWriter.ALOAD, EXEC_COUNTER);
+                code.loadInt(addresses[i]);
+                code.op(ClassFileWriter.DUP2);
+                code.op(ClassFileWriter.IALOAD);
+                code.loadInt(1);
+                code.op(ClassFileWriter.IADD);
+                code.op(ClassFileWriter.IASTORE);
+            }
+        }
+        code.loadInt(addresses[count - 1]);
+        code.op(ClassFileWriter.IRETURN);
+        classFile.addMethod(ClassFileWriter.ACC_PROTECTED, "execute",
+            "(" + CPU_ARG + "[IJ)I", code);
+        return classFile.toByteArray();
+    }
+
+    /* Emits what executeDecoded does for the instruction */
+    private void translate(DecodedInstruction decoded, int address) {
+        loadCPU();
+        code.opIndex(ClassFileWriter.GETFIELD, classFile.fieldConstant(CPU, "cycles", "J"));
+        code.op(ClassFileWriter.LSTORE, START_CYCLES);
+        loadCPU();
+        code.loadInt(decoded.instruction);
+        code.loadInt(decoded.op);
+        invokeBlock("begin", "(" + CPU_ARG + "II)V");
+
+        int pc = address + 2;
+        writeRegister(MSP430Constants.PC, pc);
+
+        if (decoded.kind == DecodedInstruction.JUMP) {
+            // All jump takes two cycles
+            addCycles(2);
+            loadCPU();
+            code.loadInt(decoded.instruction);
+            invokeBlock("isJumpTaken", "(" + CPU_ARG + "I)Z");
+            int branch = code.branch(ClassFileWriter.IFEQ);
+            writeRegister(MSP430Constants.PC, pc + decoded.jumpOffset);
+            code.bind(branch);
+        } else {
+            translateDoubleOperand(decoded, pc);
+        }
+
+        loadCPU();
+        code.op(ClassFileWriter.LLOAD, START_CYCLES);
+        invokeBlock("endInstruction", "(" + CPU_ARG + "J)V");
+    }
+
+    private void translateDoubleOperand(DecodedInstruction decoded, int pc) {
+        AccessMode mode = decoded.mode;
+        boolean dstRegMode = decoded.dstRegMode;
+        int dstRegister = decoded.dstRegister;
+        int srcRegister = decoded.srcRegister;
+        boolean srcInMemory = true;
+
+        switch (decoded.srcKind) {
+        case DecodedInstruction.SRC_CONSTANT:
+            code.loadInt(decoded.srcValue);
+            code.op(ClassFileWriter.ISTORE, SRC);
+            addCycles(dstRegMode ? 1 : 4);
+            srcInMemory = false;
+            break;
+        case DecodedInstruction.SRC_REGISTER:
+            readRegister(srcRegister);
+            code.loadInt(mode.mask);
+            code.op(ClassFileWriter.IAND);
+            code.op(ClassFileWriter.ISTORE, SRC);
+            addCycles((dstRegMode ? 1 : 4) + (dstRegister == MSP430Constants.PC ? 1 : 0));
+            srcInMemory = false;
+            break;
+        case DecodedInstruction.SRC_INDEXED:
+            code.loadInt(decoded.srcValue);
+            loadCPU();
+            code.loadInt(srcRegister);
+            code.loadInt(MSP430Constants.AM_INDEX);
+            invokeCPU("readRegisterCG", "(II)I");
+            invokeBlock("index", "(II)I");
+            code.op(ClassFileWriter.ISTORE, SRC_ADDRESS);
+            pc += 2;
+            writeRegister(MSP430Constants.PC, pc);
+            addCycles(dstRegMode ? 3 : 6);
+            break;
+        case DecodedInstruction.SRC_INDIRECT:
+            readRegister(srcRegister);
+            code.op(ClassFileWriter.ISTORE, SRC_ADDRESS);
+            addCycles(dstRegMode ? 2 : 5);
+            break;
+        case DecodedInstruction.SRC_IMMEDIATE:
+            code.loadInt(decoded.srcValue);
+            code.op(ClassFileWriter.ISTORE, SRC);
+            pc += 2;
+            writeRegister(MSP430Constants.PC, pc);
+            addCycles((dstRegMode ? 2 : 5) + (dstRegister == MSP430Constants.PC ? 1 : 0));
+            srcInMemory = false;
+            break;
+        case DecodedInstruction.SRC_AUTOINC:
+            readRegister(srcRegister);
+            code.op(ClassFileWriter.ISTORE, SRC_ADDRESS);
+            loadCPU();
+            code.loadInt(srcRegister);
+            code.loadInt(mode.bytes);
+            invokeCPU("incRegister", "(II)I");
+            code.op(ClassFileWriter.POP);
+            addCycles((dstRegMode ? 2 : 5) + (dstRegister == MSP430Constants.PC ? 1 : 0));
+            break;
+        default:
+            throw new IllegalArgumentException("source kind " + decoded.srcKind);
+        }
+
+        // MOV does not read its destination
+        boolean readsDst = decoded.op != MSP430Constants.MOV;
+        if (dstRegMode) {
+            if (readsDst) {
+                readRegister(dstRegister);
+                code.loadInt(mode.mask);
+                code.op(ClassFileWriter.IAND);
+                code.op(ClassFileWriter.ISTORE, DST);
+            }
+        } else {
+            readRegister(MSP430Constants.PC);
+            code.op(ClassFileWriter.POP);
+            code.loadInt(decoded.dstValue);
+            if (dstRegister != MSP430Constants.SR) {
+                readRegister(dstRegister);
+                invokeBlock("index", "(II)I");
+            }
+            code.op(ClassFileWriter.ISTORE, DST_ADDRESS);
+            if (readsDst) {
+                loadCPU();
+                code.op(ClassFileWriter.ILOAD, DST_ADDRESS);
+                loadMode(mode);
+                invokeBlock("read", "(" + CPU_ARG + "I" + MODE_ARG + ")I");
+                code.op(ClassFileWriter.ISTORE, DST);
+            }
+            loadCPU();
+            code.loadInt(MSP430Constants.PC);
+            code.loadInt(2);
+            invokeCPU("incRegister", "(II)I");
+            code.op(ClassFileWriter.POP);
+        }
+
+        if (srcInMemory) {
+            loadCPU();
+            code.op(ClassFileWriter.ILOAD, SRC_ADDRESS);
+            loadMode(mode);
+            invokeBlock("read", "(" + CPU_ARG + "I" + MODE_ARG + ")I");
+            code.op(ClassFileWriter.ISTORE, SRC);
+        }
+
+        loadCPU();
+        code.loadInt(decoded.op);
+        code.op(ClassFileWriter.ILOAD, SRC);
+        if (readsDst) {
+            code.op(ClassFileWriter.ILOAD, DST);
+        } else {
+            code.loadInt(-1);
+        }
+        readRegister(MSP430Constants.SR);
+        loadMode(mode);
+        invokeBlock("doubleOperand", "(" + CPU_ARG + "IIII" + MODE_ARG + ")I");
+        code.op(ClassFileWriter.ISTORE, DST);
+
+        loadCPU();
+        code.loadInt(MSP430Core.writesResult(decoded.op) ? 1 : 0);
+        code.loadInt(MSP430Core.updatesStatus(decoded.op) ? 1 : 0);
+        code.loadInt(dstRegMode ? 1 : 0);
+        code.loadInt(dstRegister);
+        if (dstRegMode) {
+            code.loadInt(-1);
+        } else {
+            code.op(ClassFileWriter.ILOAD, DST_ADDRESS);
+        }
+        code.op(ClassFileWriter.ILOAD, DST);
+        loadMode(mode);
+        invokeBlock("writeResult", "(" + CPU_ARG + "ZZZIII" + MODE_ARG + ")V");
+    }
+
+    private void loadCPU() {
+        code.op(ClassFileWriter.ALOAD, CPU_LOCAL);
+    }
+
+    private void loadMode(AccessMode mode) {
+        code.opIndex(ClassFileWriter.GETSTATIC,
+            classFile.fieldConstant(ACCESS_MODE, mode.name(), MODE_ARG));
+    }
+
+    private void readRegister(int register) {
+        loadCPU();
+        code.loadInt(register);
+        invokeCPU("readRegister", "(I)I");
+    }
+
+    private void writeRegister(int register, int value) {
+        loadCPU();
+        code.loadInt(register);
+        code.loadInt(value);
+        invokeCPU("writeRegister", "(II)V");
+    }
+
+    private void addCycles(int cycles) {
+        int field = classFile.fieldConstant(CPU, "cycles", "J");
+        loadCPU();
+        code.op(ClassFileWriter.DUP);
+        code.opIndex(ClassFileWriter.GETFIELD, field);
+        code.loadLong(cycles);
+        code.op(ClassFileWriter.LADD);
+        code.opIndex(ClassFileWriter.PUTFIELD, field);
+    }
+
+    private void invokeCPU(String name, String descriptor) {
+        code.opIndex(ClassFileWriter.INVOKEVIRTUAL, classFile.methodConstant(CPU, name, descriptor));
+    }
+
+    private void invokeBlock(String name, String descriptor) {
+        code.opIndex(ClassFileWriter.INVOKESTATIC, classFile.methodConstant(BLOCK, name, descriptor));
+    }
+
+    /* Each block gets a loader of its own, so that it can be unloaded */
+    private static class BlockLoader extends ClassLoader {
+
+        BlockLoader() {
+            super(CompiledBlock.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,326 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * ClassFileWriter
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+
+package se.sics.mspsim.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes Java class files with just what BlockCompiler needs: a constant
+ * pool, methods with code, and forward branches within a method. The class
+ * files have version 49, which is verified without stack map frames.
+ */
+final class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 0x03;
+    static final int LCONST_0 = 0x09;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int LLOAD = 0x16;
+    static final int ALOAD = 0x19;
+    static final int IALOAD = 0x2e;
+    static final int ISTORE = 0x36;
+    static final int LSTORE = 0x37;
+    static final int IASTORE = 0x4f;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int DUP2 = 0x5c;
+    static final int IADD = 0x60;
+    static final int LADD = 0x61;
+    static final int IAND = 0x7e;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(constantBytes);
+    private final HashMap<String,Integer> constantIndex = new HashMap<String,Integer>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount;
+
+    private final int thisClass;
+    private final int superClass;
+
+    /* Class names are internal names, such as java/lang/Object */
+    ClassFileWriter(String name, String superName) {
+        thisClass = classConstant(name);
+        superClass = classConstant(superName);
+    }
+
+    Code newCode(int maxStack, int maxLocals) {
+        return new Code(maxStack, maxLocals);
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        try {
+            methods.writeShort(access);
+            methods.writeShort(utf8Constant(name));
+            methods.writeShort(utf8Constant(descriptor));
+            // The Code attribute
+            methods.writeShort(1);
+            methods.writeShort(utf8Constant("Code"));
+            methods.writeInt(12 + code.length);
+            methods.writeShort(code.maxStack);
+            methods.writeShort(code.maxLocals);
+            methods.writeInt(code.length);
+            methods.write(code.code, 0, code.length);
+            // No exception table and no attributes
+            methods.writeShort(0);
+            methods.writeShort(0);
+            methodCount++;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(constantCount);
+            constantBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            // No interfaces, no fields
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            // No attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int utf8Constant(String value) {
+        Integer index = constantIndex.get("U" + value);
+        if (index == null) {
+            index = addConstant("U" + value, 1);
+            try {
+                constants.writeByte(CONSTANT_UTF8);
+                constants.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return index;
+    }
+
+    private int classConstant(String name) {
+        return refConstant(CONSTANT_CLASS, utf8Constant(name), -1);
+    }
+
+    private int nameAndTypeConstant(String name, String descriptor) {
+        return refConstant(CONSTANT_NAME_AND_TYPE, utf8Constant(name), utf8Constant(descriptor));
+    }
+
+    int fieldConstant(String owner, String name, String descriptor) {
+        return refConstant(CONSTANT_FIELDREF, classConstant(owner),
+                nameAndTypeConstant(name, descriptor));
+    }
+
+    int methodConstant(String owner, String name, String descriptor) {
+        return refConstant(CONSTANT_METHODREF, classConstant(owner),
+                nameAndTypeConstant(name, descriptor));
+    }
+
+    int intConstant(int value) {
+        Integer index = constantIndex.get("I" + value);
+        if (index == null) {
+            index = addConstant("I" + value, 1);
+            try {
+                constants.writeByte(CONSTANT_INTEGER);
+                constants.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return index;
+    }
+
+    int longConstant(long value) {
+        Integer index = constantIndex.get("J" + value);
+        if (index == null) {
+            // Longs take two entries in the constant pool
+            index = addConstant("J" + value, 2);
+            try {
+                constants.writeByte(CONSTANT_LONG);
+                constants.writeLong(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return index;
+    }
+
+    /* Class, field, method and name and type constants refer to others */
+    private int refConstant(int tag, int first, int second) {
+        String key = tag + ":" + first + ":" + second;
+        Integer index = constantIndex.get(key);
+        if (index == null) {
+            index = addConstant(key, 1);
+            try {
+                constants.writeByte(tag);
+                constants.writeShort(first);
+                if (second >= 0) {
+                    constants.writeShort(second);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return index;
+    }
+
+    private int addConstant(String key, int entries) {
+        int index = constantCount;
+        if (index + entries > 0xffff) {
+            throw new IllegalStateException("too many constants");
+        }
+        constantCount += entries;
+        constantIndex.put(key, index);
+        return index;
+    }
+
+    /**
+     * The bytecode of a method. Maximum stack depth and locals are given
+     * by the caller.
+     */
+    final class Code {
+
+        private byte[] code = new byte[256];
+        private int length;
+        private final int maxStack;
+        private final int maxLocals;
+
+        private Code(int maxStack, int maxLocals) {
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        void op(int opcode) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) opcode;
+        }
+
+        void op(int opcode, int operand) {
+            op(opcode);
+            op(operand);
+        }
+
+        /* For instructions with a constant pool index */
+        void opIndex(int opcode, int index) {
+            op(opcode);
+            op(index >> 8);
+            op(index);
+        }
+
+        void loadInt(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(BIPUSH, value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                opIndex(SIPUSH, value);
+            } else {
+                opIndex(LDC_W, intConstant(value));
+            }
+        }
+
+        void loadLong(long value) {
+            if (value == 0 || value == 1) {
+                op(LCONST_0 + (int) value);
+            } else {
+                opIndex(LDC2_W, longConstant(value));
+            }
+        }
+
+        /* Returns the branch, to be bound to its target with bind */
+        int branch(int opcode) {
+            int branch = length;
+            opIndex(opcode, 0);
+            return branch;
+        }
+
+        /* Makes a branch jump to the next instruction added */
+        void bind(int branch) {
+            int offset = length - branch;
+            code[branch + 1] = (byte) (offset >> 8);
+            code[branch + 2] = (byte) offset;
+        }
+    }
+}
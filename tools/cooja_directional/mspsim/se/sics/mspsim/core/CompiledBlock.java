@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * CompiledBlock
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+
+package se.sics.mspsim.core;
+
+import se.sics.mspsim.core.Memory.AccessMode;
+import se.sics.mspsim.core.Memory.AccessType;
+
+/**
+ * A block of decoded instructions translated into JVM bytecode by
+ * BlockCompiler, see there. Blocks only depend on the instructions they
+ * were compiled from, so CPUs sharing decoded instructions share the
+ * blocks compiled from them as well.
+ *
+ * The subclasses are generated and defined by class loaders of their own,
+ * which puts them outside of this package at run time. They reach the
+ * parts of MSP430Core that are not public through the helpers here.
+ */
+public abstract class CompiledBlock {
+
+    protected CompiledBlock() {
+    }
+
+    /**
+     * Executes the instructions of the block, from the first one and for
+     * as long as emulateOP would have executed the same instructions.
+     * The caller checks that emulateOP would execute the first one.
+     *
+     * @return the address of the last instruction executed
+     */
+    protected abstract int execute(MSP430Core cpu, int[] execCounter, long maxCycles)
+        throws EmulationException;
+
+    protected static boolean canContinue(MSP430Core cpu, long maxCycles, int address,
+            int invalidations) {
+        return cpu.canContinueBlock(maxCycles, address, invalidations);
+    }
+
+    protected static int getInvalidations(MSP430Core cpu) {
+        return cpu.flashMemory.invalidations;
+    }
+
+    protected static void begin(MSP430Core cpu, int instruction, int op) {
+        cpu.beginInstruction(instruction, op);
+    }
+
+    protected static int read(MSP430Core cpu, int address, AccessMode mode) {
+        return cpu.currentSegment.read(address, mode, AccessType.READ);
+    }
+
+    /* Indexed addresses stay within 64K for 16 bit register values */
+    protected static int index(int index, int registerValue) {
+        return (index + registerValue) & (registerValue <= 0xffff ? 0xffff : 0xfffff);
+    }
+
+    protected static int doubleOperand(MSP430Core cpu, int op, int src, int dst, int sr,
+            AccessMode mode) throws EmulationException {
+        return cpu.executeDoubleOperand(op, src, dst, sr, mode, mode);
+    }
+
+    protected static void writeResult(MSP430Core cpu, boolean write, boolean updateStatus,
+            boolean dstRegMode, int dstRegister, int dstAddress, int dst, AccessMode mode) {
+        cpu.writeResult(write, updateStatus, dstRegMode, dstRegister, dstAddress, dst, mode);
+    }
+
+    protected static boolean isJumpTaken(MSP430Core cpu, int instruction) {
+        return cpu.isJumpTaken(instruction, cpu.readRegister(MSP430Constants.SR));
+    }
+
+    protected static void endInstruction(MSP430Core cpu, long startCycles) {
+        cpu.endInstruction(startCycles);
+    }
+
+}
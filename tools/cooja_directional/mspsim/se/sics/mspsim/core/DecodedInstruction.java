@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * DecodedInstruction
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+package se.sics.mspsim.core;
+
+import se.sics.mspsim.core.Memory.AccessMode;
+
+/**
+ * An instruction decoded once from flash, together with the operand words
+ * that follow it, so that MSP430Core can execute it again without fetching
+ * and decoding. Only plain MSP430 jumps and double operand instructions
+ * are decoded; everything else is marked GENERIC and left to emulateOP.
+ *
+ * Entries are kept per flash page by FlashMemory and dropped whenever the
+ * page or the page before it is changed. Apart from the block compiled
+ * from the instructions starting at an entry, they are immutable, so that
+ * CPUs running the same MemoryImage can share them.
+ */
+final class DecodedInstruction {
+
+    static final int GENERIC = 0;
+    static final int JUMP = 1;
+    static final int DOUBLE_OPERAND = 2;
+
+    /* Source operand kinds, the first four are the addressing modes */
+    static final int SRC_REGISTER = MSP430Constants.AM_REG;
+    static final int SRC_INDEXED = MSP430Constants.AM_INDEX;
+    static final int SRC_INDIRECT = MSP430Constants.AM_IND_REG;
+    static final int SRC_AUTOINC = MSP430Constants.AM_IND_AUTOINC;
+    static final int SRC_IMMEDIATE = 4;
+    static final int SRC_CONSTANT = 5;
+
+    static final DecodedInstruction NOT_DECODED = new DecodedInstruction(GENERIC, 0, 0, 0, 0);
+
+    final int kind;
+    final int instruction;
+    final int op;
+    final AccessMode mode;
+
+    /* Jump offset in bytes, for JUMP */
+    final int jumpOffset;
+
+    final int srcRegister;
+    final int dstRegister;
+    final boolean dstRegMode;
+    final int srcKind;
+    /* Constant, immediate or signed index, depending on srcKind */
+    final int srcValue;
+    /* Absolute address or signed index when !dstRegMode */
+    final int dstValue;
+
+    /* Set once the entry is hot, see BlockCompiler */
+    CompiledBlock block;
+
+    DecodedInstruction(int kind, int instruction, int srcKind, int srcValue, int dstValue) {
+        this.kind = kind;
+        this.instruction = instruction;
+        this.op = instruction >> 12;
+        this.mode = (instruction & 0x40) == 0 ? AccessMode.WORD : AccessMode.BYTE;
+        int offset = instruction & 0x3ff;
+        this.jumpOffset = (offset & 0x200) == 0 ? 2 * offset : -(2 * (0x200 - (offset & 0x1ff)));
+        this.srcRegister = (instruction >> 8) & 0xf;
+        this.dstRegister = instruction & 0xf;
+        this.dstRegMode = ((instruction >> 7) & 1) == 0;
+        this.srcKind = srcKind;
+        this.srcValue = srcValue;
+        this.dstValue = dstValue;
+    }
+
+}
@@ -66,13 +66,13 @@ public class DisAsm implements MSP430Constants {
     return map;
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg) {
-    return disassemble(pc, memory, reg, 0);
+  public DbgInstruction disassemble(int pc, MSP430Core cpu, int[] reg) {
+    return disassemble(pc, cpu, reg, 0);
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg,
+  public DbgInstruction disassemble(int pc, MSP430Core cpu, int[] reg,
 				 int interrupt) {
-    DbgInstruction dbg = disassemble(pc, memory, reg, new DbgInstruction(),
+    DbgInstruction dbg = disassemble(pc, cpu, reg, new DbgInstruction(),
 				     interrupt);
     String fkn;
     if ((fkn = dbg.getFunction()) != null) {
@@ -83,7 +83,7 @@ public class DisAsm implements MSP430Constants {
     /* Hack for printing the instruction after the ext word... */
     if (dbg.isExtensionWord()) {
         pc = pc + 2;
-        dbg = disassemble(pc, memory, reg, new DbgInstruction(),
+        dbg = disassemble(pc, cpu, reg, new DbgInstruction(),
                 interrupt);
         System.out.println(dbg.getASMLine());
     }
@@ -92,15 +92,15 @@ public class DisAsm implements MSP430Constants {
   }
 
   public DbgInstruction getDbgInstruction(int pc, MSP430 cpu) {
-    return disassemble(pc, cpu.memory, cpu.reg, new DbgInstruction(),
+    return disassemble(pc, cpu, cpu.reg, new DbgInstruction(),
 		       cpu.servicedInterrupt);
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg,
+  public DbgInstruction disassemble(int pc, MSP430Core cpu, int[] reg,
 					   DbgInstruction dbg, int interrupt) {
     int startPC = pc;
     int size = 0;
-    int instruction = memory[pc] + (memory[pc + 1] << 8);
+    int instruction = getWord(cpu, pc);
     int op = instruction >> 12;
     boolean word = (instruction & 0x40) == 0;
 
@@ -136,7 +136,7 @@ public class DisAsm implements MSP430Constants {
         op = instruction & 0xf0f0;
         int srcdata = (instruction & 0x0f00) >> 8;
         int dst = instruction & 0x000f;
-        int nextData = memory[pc] + (memory[pc + 1] << 8);
+        int nextData = getWord(cpu, pc);
         boolean rrword = true;
 
         switch(op) {
@@ -212,7 +212,7 @@ public class DisAsm implements MSP430Constants {
             break;
         }
         
-        output += dumpMem(startPC, size, memory);
+        output += dumpMem(startPC, size, cpu);
         output += opstr + " ";
         regs = "R" + srcdata + "=" + Utils.hex16(reg[srcdata]);
         regs += " SP=" + Utils.hex16(reg[SP]);
@@ -222,7 +222,7 @@ public class DisAsm implements MSP430Constants {
     {
         /* check CALLA first */
         int dst = instruction & 0x000f;
-        int nextData = memory[pc] + (memory[pc + 1] << 8);
+        int nextData = getWord(cpu, pc);
         String opstr = null;
         switch(instruction & 0xfff0) {
         case CALLA_REG:
@@ -263,7 +263,7 @@ public class DisAsm implements MSP430Constants {
             }
         }
         if (opstr != null) {        
-            output += dumpMem(startPC, size, memory);
+            output += dumpMem(startPC, size, cpu);
             output += opstr + " ";
             regs = "R" + dst + "=" + Utils.hex16(reg[dst]);
             regs += " SP=" + Utils.hex16(reg[SP]);
@@ -281,7 +281,7 @@ public class DisAsm implements MSP430Constants {
                 adr = "R" + register;
                 break;
             case AM_INDEX:
-                dstAddress = memory[pc] + (memory[pc + 1] << 8);
+                dstAddress = getWord(cpu, pc);
                 adr = "R" + register + "(" + dstAddress + ")";
                 dstAddress = (register == CG1 ? 0 : reg[register]) + dstAddress;
                 pc += 2;
@@ -295,7 +295,7 @@ public class DisAsm implements MSP430Constants {
             case AM_IND_AUTOINC:
                 if (register == 0) {
                     // Can this be PC and be incremented only one byte?
-                    int tmp = memory[pc] + (memory[pc + 1] << 8);
+                    int tmp = getWord(cpu, pc);
                     MapEntry me;
                     if (map != null && (me = map.getEntry(tmp)) != null) {
                         adr = me.getName(); // + " = $" + Utils.hex16(tmp);
@@ -348,7 +348,7 @@ public class DisAsm implements MSP430Constants {
                     opstr = "<Unkown>";
                 }
             }
-            output += dumpMem(startPC, size, memory);
+            output += dumpMem(startPC, size, cpu);
             output += opstr + " " + adr;
             regs = "R" + register + "=" + Utils.hex16(reg[register]);
             regs += " SP=" + Utils.hex16(reg[SP]);
@@ -393,7 +393,7 @@ public class DisAsm implements MSP430Constants {
 	System.out.println("Not implemented instruction: " +
 			   Utils.binary16(instruction));
       }
-      output += dumpMem(startPC, size, memory);
+      output += dumpMem(startPC, size, cpu);
       output += opstr + " $" + Utils.hex16(jmpOffset);
       regs = "\tSR=" + dumpSR(reg[SR]);
       break;
@@ -429,7 +429,7 @@ public class DisAsm implements MSP430Constants {
       case AM_INDEX:
 	// Indexed if reg != PC & CG1/CG2 - will PC be incremented?
 	if (srcRegister == CG1) {
-	  srcAddress = memory[pc] + (memory[pc + 1] << 8);
+	  srcAddress = getWord(cpu, pc);
 
 	  MapEntry me;
 	  if (map != null && (me = map.getEntry(srcAddress)) != null) {
@@ -441,8 +441,8 @@ public class DisAsm implements MSP430Constants {
 	} else if (srcRegister == CG2) {
 	  srcadr = "#1";
 	} else {
-	  srcAddress = reg[srcRegister] + memory[pc] + (memory[pc + 1] << 8);
-	  srcadr = "$" + Utils.hex16(memory[pc] + (memory[pc + 1] << 8)) + "(R" + srcRegister + ")";
+	  srcAddress = reg[srcRegister] + getWord(cpu, pc);
+	  srcadr = "$" + Utils.hex16(getWord(cpu, pc)) + "(R" + srcRegister + ")";
 	  size += 2;
 	}
 	pc += 2;
@@ -463,7 +463,7 @@ public class DisAsm implements MSP430Constants {
 	} else if (srcRegister == CG1) {
 	  srcadr = "#8";
 	} else if (srcRegister == PC) {
-	  srcadr = "#$" + Utils.hex16(memory[pc] + (memory[pc + 1] << 8));
+	  srcadr = "#$" + Utils.hex16(getWord(cpu, pc));
 	  pc += 2;
 	  size += 2;
 	} else if (srcRegister == CG2) {
@@ -478,7 +478,7 @@ public class DisAsm implements MSP430Constants {
       if (dstRegMode) {
 	dstadr = getRegName(dstRegister);
       } else {
-	dstAddress = memory[pc] + (memory[pc + 1] << 8);
+	dstAddress = getWord(cpu, pc);
         MapEntry me = map != null ? map.getEntry(dstAddress) : null;
 	if (dstRegister == 2) {
 	  if (me != null) {
@@ -553,7 +553,7 @@ public class DisAsm implements MSP430Constants {
       }
 
 
-      output += dumpMem(startPC, size, memory);
+      output += dumpMem(startPC, size, cpu);
       output += opstr + " " + srcadr + ", " + dstadr;
 
       regs = "R" + dstRegister + "=" + Utils.hex16(reg[dstRegister]) +
@@ -564,8 +564,8 @@ public class DisAsm implements MSP430Constants {
       srcAddress &= 0xffff;
       if (srcAddress != -1) {
 	srcAddress &= 0xffff;
-	regs += " sMem:" + Utils.hex16(memory[srcAddress] +
-				       (memory[(srcAddress + 1) % 0xffff]
+	regs += " sMem:" + Utils.hex16(cpu.getMemoryByte(srcAddress) +
+				       (cpu.getMemoryByte((srcAddress + 1) % 0xffff)
 					<< 8));
       }
     }
@@ -629,11 +629,15 @@ public class DisAsm implements MSP430Constants {
       (((sr & CARRY) != 0) ? 'C' : '-');
   }
 
-  private static String dumpMem(int pc, int size, int[] memory) {
+  private static int getWord(MSP430Core cpu, int address) {
+    return cpu.getMemoryByte(address) | (cpu.getMemoryByte(address + 1) << 8);
+  }
+
+  private static String dumpMem(int pc, int size, MSP430Core cpu) {
     String output = "";
     for (int i = 0, n = size; i < n; i++) {
       if (size > i) {
-	output += Utils.hex8(memory[pc + i]) + " ";
+	output += Utils.hex8(cpu.getMemoryByte(pc + i)) + " ";
       } else {
 	output += "   ";
       }
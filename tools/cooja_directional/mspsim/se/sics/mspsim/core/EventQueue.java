@@ -43,129 +43,70 @@ package se.sics.mspsim.core;
 
 import java.io.PrintStream;
 
-public class EventQueue {
+/**
+ * Queue of time events, ordered by time. Events scheduled for the same time
+ * are executed in reverse order of scheduling.
+ *
+ * nextTime and eventCount are kept as fields for fast access from the CPU
+ * core.
+ */
+public abstract class EventQueue {
+
+  public static final String LINKED = "linked";
+  public static final String HEAP = "heap";
 
-  private TimeEvent first;
   public long nextTime;
   public int eventCount = 0;
 
-  public EventQueue() {
+  /**
+   * Creates an event queue of given type.
+   *
+   * @param type Queue type: LINKED or HEAP
+   * @return Event queue, or null if type is unknown
+   */
+  public static EventQueue create(String type) {
+    if (LINKED.equals(type)) {
+      return new LinkedEventQueue();
+    }
+    if (HEAP.equals(type)) {
+      return new HeapEventQueue();
+    }
+    return null;
   }
 
+  public abstract String getType();
+
   public void addEvent(TimeEvent event, long time) {
     event.time = time;
     addEvent(event);
   }
 
-  public void addEvent(TimeEvent event) {
-    if (event.scheduledIn != null) {
-      event.remove();
-    }
-    if (first == null) {
-      first = event;
-    } else {
-      TimeEvent pos = first;
-      TimeEvent lastPos = first;
-      while (pos != null && pos.time < event.time) {
-        lastPos = pos;
-        pos = pos.nextEvent;
-      }
-      // Here pos will be the first TE after event
-      // and lastPos the first before
-      if (pos == first) {
-        // Before all other
-        event.nextEvent = pos;
-        first = event;
-      } else {
-        event.nextEvent = pos;
-        lastPos.nextEvent = event;
-      }
-    }
-    if (first != null) {
-      nextTime = first.time;
-    } else {
-      nextTime = 0;
-    }
-    event.scheduledIn = this;
-    eventCount++;
-  }
+  public abstract void addEvent(TimeEvent event);
 
-  // Not yet impl.
-  public boolean removeEvent(TimeEvent event) {
-    TimeEvent pos = first;
-    TimeEvent lastPos = first;
-//  System.out.println("Removing: " + event.getShort() + "  Before remove: ");
-//  print();
-    while (pos != null && pos != event) {
-      lastPos = pos;
-      pos = pos.nextEvent;
-    }
-    if (pos == null) return false;
-    // pos == event!
-    if (pos == first) {
-      // remove it from first pos.
-      first = pos.nextEvent;
-    } else {
-      // else link prev to next...
-      lastPos.nextEvent = pos.nextEvent;
-    }
-    // unlink
-    pos.nextEvent = null;
+  public abstract boolean removeEvent(TimeEvent event);
 
-    if (first != null) {
-      nextTime = first.time;
-    } else {
-      nextTime = 0;
-    }
-//  System.out.println("Removed =>");
-//  print();
-    event.scheduledIn = null;
-    eventCount--;
-    return true;
-  }
+  public abstract TimeEvent popFirst();
 
-  public TimeEvent popFirst() {
-    TimeEvent tmp = first;
-    if (tmp != null) {
-      first = tmp.nextEvent;
-      // Unlink.
-      tmp.nextEvent = null;
+  public abstract void removeAll();
 
-      // No longer scheduled!
-      tmp.scheduledIn = null;
+  public abstract void print(PrintStream out);
 
-      eventCount--;
+  /**
+   * Moves all events from given queue to this queue, keeping their order.
+   *
+   * @param queue Queue to empty
+   */
+  public void moveEvents(EventQueue queue) {
+    TimeEvent[] events = new TimeEvent[queue.eventCount];
+    int n = 0;
+    TimeEvent event;
+    while ((event = queue.popFirst()) != null) {
+      events[n++] = event;
     }
-
-    if (first != null) {
-      nextTime = first.time;
-    } else {
-      nextTime = 0;
+    // Add in reverse order since equal times are executed last scheduled first
+    for (int i = n - 1; i >= 0; i--) {
+      addEvent(events[i]);
     }
-    return tmp;
   }
 
-  public void removeAll() {
-    TimeEvent t = first;
-    while(t != null) {
-      TimeEvent clr = t;
-      t = t.nextEvent;
-      clr.nextEvent = null;
-      clr.time = 0;
-      clr.scheduledIn = null;
-    }
-    first = null;
-    eventCount = 0;
-  }
-  
-  public void print(PrintStream out) {
-    TimeEvent t = first;
-    out.print("nxt: " + nextTime + " [");
-    while(t != null) {
-      out.print(t.getShort());
-      t = t.nextEvent;
-      if (t != null) out.print(", ");
-    }
-    out.println("]");
-  }
-} // LLEventQueue
+} // EventQueue
@@ -36,8 +36,6 @@
  */
 package se.sics.mspsim.core;
 
-import java.util.Arrays;
-
 import se.sics.mspsim.core.EmulationLogger.WarningType;
 import se.sics.mspsim.core.Memory.AccessMode;
 import se.sics.mspsim.util.Utils;
@@ -107,6 +105,7 @@ public class Flash extends IOUnit {
   private static final int LOCKINFO = 0x80;
 
   private FlashRange main_range;
+  private final FlashMemory flashMemory;
   private FlashRange info_range;
   
   private int mode;      /* FCTL1 */
@@ -178,16 +177,14 @@ public class Flash extends IOUnit {
     }
   };
   
-  public Flash(MSP430Core cpu, int[] memory, FlashRange main_range,
+  public Flash(MSP430Core cpu, int[] memory, FlashMemory flashMemory, FlashRange main_range,
       FlashRange info_range, int offset) {
     super("Flash", "Internal Flash", cpu, memory, offset);
+    this.flashMemory = flashMemory;
     this.main_range = main_range;
     this.info_range = info_range;
     locked = true;
 
-    Arrays.fill(memory, main_range.start, main_range.end, 0xff);
-    Arrays.fill(memory, info_range.start, info_range.end, 0xff);
-
     reset(MSP430.RESET_POR);
   }
 
@@ -292,9 +289,7 @@ public class Flash extends IOUnit {
 	    ": erasing area " + Utils.hex(area_start, 4) + "-" +
 	    Utils.hex(area_end, 4));
       }
-      for (int i = area_start; i < area_end; i++) {
-	memory[i] = 0xff;
-      }
+      flashMemory.erase(area_start, area_end);
       waitFlashProcess(SEGMENT_ERASE_TIME);
       break;
       
@@ -302,19 +297,13 @@ public class Flash extends IOUnit {
       if (! main_range.isInRange(address)) {
 	return;
       }
-      for (int i = main_range.start; i < main_range.end; i++) {
-	memory[i] = 0xff;
-      }
+      flashMemory.erase(main_range.start, main_range.end);
       waitFlashProcess(MASS_ERASE_TIME);
       break;
       
     case ERASE_ALL:
-      for (int i = main_range.start; i < main_range.end; i++) {
-	memory[i] = 0xff;
-      }
-      for (int i = info_range.start; i < main_range.end; i++) {
-	memory[i] = 0xff;
-      }
+      flashMemory.erase(main_range.start, main_range.end);
+      flashMemory.erase(info_range.start, info_range.end);
       waitFlashProcess(MASS_ERASE_TIME);
       break;
     case WRITE_SINGLE:
@@ -338,13 +327,13 @@ public class Flash extends IOUnit {
         wait_time = WRITE_TIME;
       }
       /* Flash memory allows clearing bits only */
-      memory[address] &= data & 0xff;
+      flashMemory.program(address, data);
       if (dataMode != AccessMode.BYTE) {
-          memory[address + 1] &= (data >> 8) & 0xff;
+          flashMemory.program(address + 1, data >> 8);
           if (dataMode == AccessMode.WORD20) {
               /* TODO should the write really write the full word? CHECK THIS */
-              memory[address + 2] &= (data >> 16) & 0xff;
-              memory[address + 3] &= (data >> 24) & 0xff;
+              flashMemory.program(address + 2, data >> 16);
+              flashMemory.program(address + 3, data >> 24);
           }
       }
       if (DEBUG) {
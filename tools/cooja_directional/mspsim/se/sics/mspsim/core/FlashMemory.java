@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * FlashMemory
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+package se.sics.mspsim.core;
+
+import java.util.Arrays;
+
+/**
+ * Flash and info memory contents, kept as pages of PAGE_SIZE bytes.
+ *
+ * Pages loaded from a MemoryImage are shared with every other CPU that
+ * loaded the same image, and erased pages share one constant page. A page
+ * is copied into private storage the first time it is written, so nodes
+ * running the same firmware only pay for the flash they actually modify.
+ *
+ * The instructions decoded from flash are kept here as well, so that they
+ * can be dropped as soon as the flash they came from changes. Pages that
+ * are still shared with the image also share the decoded instructions of
+ * the image, as long as the next page, which operands may extend into, is
+ * shared too. Other pages get decoded instructions of their own. Blocks
+ * compiled from the decoded instructions go with them.
+ */
+public class FlashMemory {
+
+    public static final int PAGE_BITS = 8;
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final byte[] ERASED_PAGE = new byte[PAGE_SIZE];
+    static {
+        Arrays.fill(ERASED_PAGE, (byte) 0xff);
+    }
+
+    /* null for pages that are not flash */
+    private final byte[][] pages;
+    private final boolean[] privatePage;
+    private int privatePages;
+    /* Decoded instructions per page, indexed by word offset */
+    private final DecodedInstruction[][] decoded;
+    /* The image last loaded, if any */
+    private MemoryImage image;
+    private boolean shareDecoded = true;
+    /* Counts the times decoded instructions were dropped, so that compiled
+     * blocks can tell whether the instructions they came from changed */
+    int invalidations;
+
+    FlashMemory(MSP430Config config, int size) {
+        pages = new byte[size >> PAGE_BITS][];
+        privatePage = new boolean[pages.length];
+        decoded = new DecodedInstruction[pages.length][];
+        for (int i = 0; i < pages.length; i++) {
+            int address = i << PAGE_BITS;
+            if (config.isFlash(address) || config.isInfoMem(address)) {
+                pages[i] = ERASED_PAGE;
+            }
+        }
+    }
+
+    public boolean isFlash(int address) {
+        int page = address >> PAGE_BITS;
+        return page >= 0 && page < pages.length && pages[page] != null;
+    }
+
+    public boolean isFlash(int address, int size) {
+        int last = (address + size - 1) >> PAGE_BITS;
+        for (int page = address >> PAGE_BITS; page <= last; page++) {
+            if (isFlash(page << PAGE_BITS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int read(int address) {
+        return pages[address >> PAGE_BITS][address & PAGE_MASK] & 0xff;
+    }
+
+    /* Sets a byte as is, for loaders and debuggers */
+    public void write(int address, int data) {
+        invalidate(address >> PAGE_BITS);
+        getPrivatePage(address)[address & PAGE_MASK] = (byte) data;
+    }
+
+    /* Programs a byte the way the flash controller does, clearing bits only */
+    public void program(int address, int data) {
+        invalidate(address >> PAGE_BITS);
+        getPrivatePage(address)[address & PAGE_MASK] &= data;
+    }
+
+    /* Erases all flash between start (inclusive) and end (exclusive) */
+    public void erase(int start, int end) {
+        for (int address = start; address < end; ) {
+            int page = address >> PAGE_BITS;
+            int pageEnd = Math.min((page + 1) << PAGE_BITS, end);
+            if (pages[page] != null) {
+                if ((address & PAGE_MASK) == 0 && pageEnd - address == PAGE_SIZE) {
+                    setPage(page, ERASED_PAGE);
+                } else if (pages[page] != ERASED_PAGE) {
+                    invalidate(page);
+                    Arrays.fill(getPrivatePage(address), address & PAGE_MASK,
+                            pageEnd - (page << PAGE_BITS), (byte) 0xff);
+                }
+            }
+            address = pageEnd;
+        }
+    }
+
+    /* Number of pages this CPU has written to and no longer shares */
+    public int getPrivatePageCount() {
+        return privatePages;
+    }
+
+    DecodedInstruction getDecoded(int address) {
+        int index = address >> PAGE_BITS;
+        if (index >= decoded.length) {
+            return null;
+        }
+        DecodedInstruction[] page = decoded[index];
+        if (page == null) {
+            /* Other CPUs may already have decoded the shared page */
+            page = decoded[index] = getSharedDecoded(index);
+            if (page == null) {
+                return null;
+            }
+        }
+        return page[(address & PAGE_MASK) >> 1];
+    }
+
+    void setDecoded(int address, DecodedInstruction instruction) {
+        int page = address >> PAGE_BITS;
+        if (decoded[page] == null) {
+            decoded[page] = new DecodedInstruction[PAGE_SIZE / 2];
+        }
+        decoded[page][(address & PAGE_MASK) >> 1] = instruction;
+    }
+
+    /* Drops all decoded instructions and no longer shares any, e.g. when
+     * a watchpoint that instructions must be fetched through is added */
+    void unshareDecoded() {
+        shareDecoded = false;
+        Arrays.fill(decoded, null);
+        invalidations++;
+    }
+
+    private DecodedInstruction[] getSharedDecoded(int page) {
+        if (!shareDecoded || image == null || !isShared(page)
+                || (page + 1 < pages.length && pages[page + 1] != null && !isShared(page + 1))) {
+            return null;
+        }
+        return image.getDecoded(page);
+    }
+
+    /* True if the page has the contents it was loaded with */
+    private boolean isShared(int page) {
+        byte[] loaded = page < image.pages.length ? image.pages[page] : null;
+        return pages[page] == (loaded != null ? loaded : ERASED_PAGE);
+    }
+
+    void load(MemoryImage image) {
+        this.image = image;
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null) {
+                byte[] page = i < image.pages.length ? image.pages[i] : null;
+                setPage(i, page != null ? page : ERASED_PAGE);
+            }
+        }
+    }
+
+    private void setPage(int page, byte[] contents) {
+        invalidate(page);
+        if (privatePage[page]) {
+            privatePage[page] = false;
+            privatePages--;
+        }
+        pages[page] = contents;
+    }
+
+    /* An instruction may continue into the next page */
+    private void invalidate(int page) {
+        decoded[page] = null;
+        if (page > 0) {
+            decoded[page - 1] = null;
+        }
+        invalidations++;
+    }
+
+    private byte[] getPrivatePage(int address) {
+        int page = address >> PAGE_BITS;
+        if (!privatePage[page]) {
+            pages[page] = pages[page].clone();
+            privatePage[page] = true;
+            privatePages++;
+        }
+        return pages[page];
+    }
+
+}
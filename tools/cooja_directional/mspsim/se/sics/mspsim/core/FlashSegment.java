@@ -5,12 +5,12 @@ import se.sics.mspsim.core.EmulationLogger.WarningType;
 public class FlashSegment implements Memory {
 
     private final MSP430Core core;
-    private final int memory[];
+    private final FlashMemory memory;
     private final Flash flash;
 
     public FlashSegment(MSP430Core core, Flash flash) {
         this.core = core;
-        this.memory = core.memory;
+        this.memory = core.flashMemory;
         this.flash = flash;
     }
 
@@ -20,15 +20,15 @@ public class FlashSegment implements Memory {
             flash.notifyRead(address);
         }
 
-        int val = memory[address] & 0xff;
+        int val = memory.read(address);
         if (mode != AccessMode.BYTE) {
-            val |= (memory[address + 1] & 0xff) << 8;
+            val |= memory.read(address + 1) << 8;
             if ((address & 1) != 0) {
                 core.printWarning(WarningType.MISALIGNED_READ, address);
             }
             if (mode == AccessMode.WORD20) {
                 /* will the read really get data from the full word? CHECK THIS */
-                val |= (memory[address + 2] & 0xf) << 16;
+                val |= (memory.read(address + 2) & 0xf) << 16;
             }
         }
         return val;
@@ -41,15 +41,15 @@ public class FlashSegment implements Memory {
 
     @Override
     public int get(int address, AccessMode mode) {
-        int val = memory[address] & 0xff;
+        int val = memory.read(address);
         if (mode != AccessMode.BYTE) {
-            val |= (memory[address + 1] << 8);
+            val |= memory.read(address + 1) << 8;
             if ((address & 1) != 0) {
                 core.printWarning(WarningType.MISALIGNED_READ, address);
             }
             if (mode == AccessMode.WORD20) {
                 /* will the read really get data from the full word? CHECK THIS */
-                val |= (memory[address + 2] << 16) | (memory[address + 3] << 24);
+                val |= (memory.read(address + 2) << 16) | (memory.read(address + 3) << 24);
                 val &= 0xfffff;
             } else {
                 val &= 0xffff;
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * $Id$
+ *
+ * -----------------------------------------------------------------
+ *
+ * HeapEventQueue
+ *
+ * Author  : agent
+ * Created : 2026
+ * Updated : $Date$
+ *           $Revision$
+ */
+
+package se.sics.mspsim.core;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Event queue implemented as an indexed binary heap. Adding and removing
+ * events is logarithmic in the number of queued events.
+ *
+ * Events scheduled for the same time are ordered by a sequence number,
+ * giving the same execution order as LinkedEventQueue.
+ */
+public class HeapEventQueue extends EventQueue {
+
+  private TimeEvent[] heap = new TimeEvent[16];
+  private long nextSequence = 0;
+
+  public HeapEventQueue() {
+  }
+
+  public String getType() {
+    return HEAP;
+  }
+
+  public void addEvent(TimeEvent event, long time) {
+    if (event.scheduledIn != null) {
+      event.remove();
+    }
+    event.time = time;
+    addEvent(event);
+  }
+
+  public void addEvent(TimeEvent event) {
+    if (event.scheduledIn != null) {
+      event.remove();
+    }
+    event.sequence = nextSequence++;
+    if (eventCount == heap.length) {
+      heap = Arrays.copyOf(heap, eventCount * 2);
+    }
+    heap[eventCount] = event;
+    eventCount++;
+    siftUp(eventCount - 1, event);
+    nextTime = heap[0].time;
+    event.scheduledIn = this;
+  }
+
+  public boolean removeEvent(TimeEvent event) {
+    if (event.scheduledIn != this) {
+      return false;
+    }
+    removeAt(event.heapIndex);
+    nextTime = eventCount > 0 ? heap[0].time : 0;
+    event.scheduledIn = null;
+    return true;
+  }
+
+  public TimeEvent popFirst() {
+    if (eventCount == 0) {
+      nextTime = 0;
+      return null;
+    }
+    TimeEvent tmp = heap[0];
+    removeAt(0);
+    // No longer scheduled!
+    tmp.scheduledIn = null;
+    nextTime = eventCount > 0 ? heap[0].time : 0;
+    return tmp;
+  }
+
+  public void removeAll() {
+    for (int i = 0; i < eventCount; i++) {
+      TimeEvent clr = heap[i];
+      heap[i] = null;
+      clr.heapIndex = -1;
+      clr.time = 0;
+      clr.scheduledIn = null;
+    }
+    eventCount = 0;
+  }
+
+  private void removeAt(int index) {
+    TimeEvent removed = heap[index];
+    eventCount--;
+    TimeEvent last = heap[eventCount];
+    heap[eventCount] = null;
+    removed.heapIndex = -1;
+    if (index != eventCount) {
+      siftDown(index, last);
+      if (heap[index] == last) {
+        siftUp(index, last);
+      }
+    }
+  }
+
+  private void siftUp(int index, TimeEvent event) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      TimeEvent p = heap[parent];
+      if (!before(event, p)) {
+        break;
+      }
+      heap[index] = p;
+      p.heapIndex = index;
+      index = parent;
+    }
+    heap[index] = event;
+    event.heapIndex = index;
+  }
+
+  private void siftDown(int index, TimeEvent event) {
+    int half = eventCount >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < eventCount && before(heap[right], heap[child])) {
+        child = right;
+      }
+      TimeEvent c = heap[child];
+      if (!before(c, event)) {
+        break;
+      }
+      heap[index] = c;
+      c.heapIndex = index;
+      index = child;
+    }
+    heap[index] = event;
+    event.heapIndex = index;
+  }
+
+  // Same time: the last scheduled event is executed first
+  private static boolean before(TimeEvent a, TimeEvent b) {
+    if (a.time != b.time) {
+      return a.time < b.time;
+    }
+    return a.sequence > b.sequence;
+  }
+
+  public void print(PrintStream out) {
+    TimeEvent[] events = Arrays.copyOf(heap, eventCount);
+    Arrays.sort(events, new java.util.Comparator<TimeEvent>() {
+      public int compare(TimeEvent a, TimeEvent b) {
+        return before(a, b) ? -1 : (before(b, a) ? 1 : 0);
+      }
+    });
+    out.print("nxt: " + nextTime + " [");
+    for (int i = 0; i < events.length; i++) {
+      out.print(events[i].getShort());
+      if (i < events.length - 1) out.print(", ");
+    }
+    out.println("]");
+  }
+} // HeapEventQueue
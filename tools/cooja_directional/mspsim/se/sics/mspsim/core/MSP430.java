@@ -48,6 +48,8 @@ public class MSP430 extends MSP430Core {
   private int[] execCounter;
   private int[] trace;
   private int tracePos;
+  // Compile hot blocks of instructions in stepMicros, needs execCounter
+  private boolean compileBlocks = true;
   
   private boolean debug = false;
   private boolean running = false;
@@ -121,9 +123,9 @@ public class MSP430 extends MSP430Core {
 	// -------------------------------------------------------------------
 	if (debug) {
 	    if (servicedInterrupt >= 0) {
-	        disAsm.disassemble(pc, memory, reg, servicedInterrupt);
+	        disAsm.disassemble(pc, this, reg, servicedInterrupt);
 	    } else {
-	        disAsm.disassemble(pc, memory, reg);
+	        disAsm.disassemble(pc, this, reg);
 	    }
 	}
       }
@@ -176,9 +178,9 @@ public class MSP430 extends MSP430Core {
         // -------------------------------------------------------------------
         if (debug) {
             if (servicedInterrupt >= 0) {
-                disAsm.disassemble(pc, memory, reg, servicedInterrupt);
+                disAsm.disassemble(pc, this, reg, servicedInterrupt);
             } else {
-                disAsm.disassemble(pc, memory, reg);
+                disAsm.disassemble(pc, this, reg);
             }
         }
       }
@@ -253,7 +255,8 @@ public class MSP430 extends MSP430Core {
 
 
     while (cycles < maxCycles || (cpuOff && (nextEventCycles < cycles))) {
-        int pc = emulateOP(maxCycles);
+        int pc = compileBlocks && execCounter != null && trace == null && !debug ?
+            emulateBlock(maxCycles, execCounter) : emulateOP(maxCycles);
         if (pc >= 0) {
             if (execCounter != null) {
                 execCounter[pc]++;
@@ -269,9 +272,9 @@ public class MSP430 extends MSP430Core {
             // -------------------------------------------------------------------
             if (debug) {
               if (servicedInterrupt >= 0) {
-                disAsm.disassemble(pc, memory, reg, servicedInterrupt);
+                disAsm.disassemble(pc, this, reg, servicedInterrupt);
               } else {
-                disAsm.disassemble(pc, memory, reg);
+                disAsm.disassemble(pc, this, reg);
               }
             }
         }
@@ -336,6 +339,15 @@ public class MSP430 extends MSP430Core {
     }
   }
 
+  /* Hot blocks are only compiled while execution is monitored */
+  public void setCompileBlocks(boolean compile) {
+    compileBlocks = compile;
+  }
+
+  public boolean isCompilingBlocks() {
+    return compileBlocks;
+  }
+
   public void setTrace(int size) {
       if (size == 0) {
 	  trace = null;
@@ -382,7 +394,7 @@ public class MSP430 extends MSP430Core {
     lastCycles = cycles;
     lastCpuCycles = cpuCycles;
     if (DEBUGGING_LEVEL > 0) {
-      disAsm.disassemble(pc, memory, reg);
+      disAsm.disassemble(pc, this, reg);
     }
   }
 
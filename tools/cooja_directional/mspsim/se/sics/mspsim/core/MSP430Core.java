@@ -38,12 +38,14 @@
 package se.sics.mspsim.core;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import se.sics.mspsim.core.EmulationLogger.WarningType;
 import se.sics.mspsim.core.Memory.AccessMode;
 import se.sics.mspsim.core.Memory.AccessType;
 import se.sics.mspsim.util.ComponentRegistry;
 import se.sics.mspsim.util.DefaultEmulationLogger;
+import se.sics.mspsim.util.ELF;
 import se.sics.mspsim.util.MapEntry;
 import se.sics.mspsim.util.MapTable;
 import se.sics.mspsim.util.Utils;
@@ -72,13 +74,21 @@ public class MSP430Core extends Chip implements MSP430Constants {
   // true => breakpoints can occur!
   boolean breakpointActive = true;
 
+  // IO register values, for addresses below MAX_MEM_IO
   public final int memory[];
+  // RAM contents, one byte per address up to the end of RAM
+  public final byte[] memoryBytes;
+  // Flash and info memory contents, shared between CPUs until written
+  public final FlashMemory flashMemory;
   private final Flash flash;
   boolean isFlashBusy;
   boolean isStopping = false;
 
   private final Memory memorySegments[];
   Memory currentSegment;
+  // Dispatches to memorySegments, the currentSegment unless globally watched
+  private final Memory segmentDispatcher;
+  private final Memory flashSegment;
 
   public long cycles = 0;
   public long cpuCycles = 0;
@@ -122,10 +132,10 @@ public class MSP430Core extends Chip implements MSP430Constants {
 //  private int clkACaptureMode = CLKCAPTURE_NONE;
   // Other clocks too...
   long nextEventCycles;
-  private EventQueue vTimeEventQueue = new EventQueue();
+  private EventQueue vTimeEventQueue = new LinkedEventQueue();
   private long nextVTimeEventCycles;
 
-  private EventQueue cycleEventQueue = new EventQueue();
+  private EventQueue cycleEventQueue = new LinkedEventQueue();
   private long nextCycleEventCycles;
   
   private ArrayList<Chip> chips = new ArrayList<Chip>();
@@ -147,15 +157,21 @@ public class MSP430Core extends Chip implements MSP430Constants {
     MAX_MEM = config.maxMem;
     MSP430XArch = config.MSP430XArch;
 
-    memory = new int[MAX_MEM];
+    memory = new int[MAX_MEM_IO];
+    /* Flash is kept in flashMemory, the byte array only needs to cover IO
+     * and RAM (with room for a 20-bit read of the last RAM word) */
+    int ramEnd = Math.max(MAX_MEM_IO, config.ramStart + config.ramSize);
+    ramEnd = Math.max(ramEnd, config.ramMirrorStart + config.ramMirrorSize);
+    memoryBytes = new byte[Math.min(ramEnd + 2, MAX_MEM)];
+    flashMemory = new FlashMemory(config, MAX_MEM);
     memorySegments = new Memory[MAX_MEM >> 8];
 
-    flash = new Flash(this, memory,
+    flash = new Flash(this, memory, flashMemory,
             new FlashRange(config.mainFlashStart, config.mainFlashStart + config.mainFlashSize, 512, 64),
             new FlashRange(config.infoMemStart, config.infoMemStart + config.infoMemSize, 128, 64),
             config.flashControllerOffset);
 
-    currentSegment = new Memory() {
+    segmentDispatcher = new Memory() {
         @Override
         public int read(int address, AccessMode mode, AccessType type) throws EmulationException {
             if (address >= MAX_MEM) {
@@ -185,6 +201,7 @@ public class MSP430Core extends Chip implements MSP430Constants {
             memorySegments[address >> 8].set(address, data, mode);
         }
     };
+    currentSegment = segmentDispatcher;
 
 //    System.out.println("Set up MSP430 Core with " + MAX_MEM + " bytes memory");
 
@@ -205,7 +222,7 @@ public class MSP430Core extends Chip implements MSP430Constants {
     int maxSeg = MAX_MEM >> 8;
     Memory ramSegment = new RAMSegment(this);
     RAMOffsetSegment ramMirrorSegment = null;
-    Memory flashSegment = new FlashSegment(this, flash);
+    flashSegment = new FlashSegment(this, flash);
     IOSegment ioSegment = new IOSegment(this, MAX_MEM_IO, voidIO);
     Memory noMemorySegment = new NoMemSegment(this);
     for (int i = 0; i < maxSeg; i++) {
@@ -409,6 +426,10 @@ public class MSP430Core extends Chip implements MSP430Constants {
       } else {
           wm = new WatchedMemory(address & 0xfff00, memorySegments[seg]);
           memorySegments[seg] = wm;
+          if (flashMemory.isFlash(address)) {
+              // Instructions in this segment must now be fetched through the watch
+              flashMemory.unshareDecoded();
+          }
       }
       wm.addWatchPoint(address, mon);
   }
@@ -478,46 +499,51 @@ public class MSP430Core extends Chip implements MSP430Constants {
         reg[r] = value;
     }
     if (r == SR) {
-      boolean oldCpuOff = cpuOff;
-      if (debugInterrupts) {
-          if (((value & GIE) == GIE) != interruptsEnabled) {
-              System.out.println("InterruptEnabled changed: " + !interruptsEnabled);
-          }
-      }
-      boolean oldIE = interruptsEnabled;
-      interruptsEnabled = ((value & GIE) == GIE);
+      statusRegisterWritten(value);
+    }
+  }
+
+  /* Kept out of writeRegister, which is small enough to be inlined then */
+  private void statusRegisterWritten(int value) {
+    boolean oldCpuOff = cpuOff;
+    if (debugInterrupts) {
+        if (((value & GIE) == GIE) != interruptsEnabled) {
+            System.out.println("InterruptEnabled changed: " + !interruptsEnabled);
+        }
+    }
+    boolean oldIE = interruptsEnabled;
+    interruptsEnabled = ((value & GIE) == GIE);
 
 //      if (debugInterrupts) System.out.println("Wrote to InterruptEnabled: " + interruptsEnabled + " was: " + oldIE);
-      
-      if (oldIE == false && interruptsEnabled && servicedInterrupt >= 0) {
+    
+    if (oldIE == false && interruptsEnabled && servicedInterrupt >= 0) {
 //          System.out.println("*** Interrupts enabled while in interrupt : " +
 //                  servicedInterrupt + " PC: $" + getAddressAsString(reg[PC]));
-          /* must handle pending immediately */
-          handlePendingInterrupts();
-      }
-      
-      cpuOff = ((value & CPUOFF) == CPUOFF);
-      if (cpuOff != oldCpuOff) {
+        /* must handle pending immediately */
+        handlePendingInterrupts();
+    }
+    
+    cpuOff = ((value & CPUOFF) == CPUOFF);
+    if (cpuOff != oldCpuOff) {
 // 	System.out.println("LPM CPUOff: " + cpuOff + " cycles: " + cycles);
-      }
-      if (cpuOff) {
-        boolean scg0 = (value & SCG0) == SCG0;
-        boolean scg1 = (value & SCG1) == SCG1;
-        boolean oscoff = (value & OSCOFF) == OSCOFF;
-        if (oscoff && scg1 && scg0) {
-          setMode(MODE_LPM4);
-        } else if (scg1 && scg0){
-          setMode(MODE_LPM3);
-        } else if (scg1) {
-          setMode(MODE_LPM2);
-        } else if (scg0) {
-          setMode(MODE_LPM1);
-        } else {
-          setMode(MODE_LPM0); 
-        }
+    }
+    if (cpuOff) {
+      boolean scg0 = (value & SCG0) == SCG0;
+      boolean scg1 = (value & SCG1) == SCG1;
+      boolean oscoff = (value & OSCOFF) == OSCOFF;
+      if (oscoff && scg1 && scg0) {
+        setMode(MODE_LPM4);
+      } else if (scg1 && scg0){
+        setMode(MODE_LPM3);
+      } else if (scg1) {
+        setMode(MODE_LPM2);
+      } else if (scg0) {
+        setMode(MODE_LPM1);
       } else {
-        setMode(MODE_ACTIVE);
+        setMode(MODE_LPM0); 
       }
+    } else {
+      setMode(MODE_ACTIVE);
     }
   }
 
@@ -713,6 +739,33 @@ public class MSP430Core extends Chip implements MSP430Constants {
     return time;
   }
 
+  public String getEventQueueType() {
+    return cycleEventQueue.getType();
+  }
+
+  /**
+   * Selects the event queue implementation used for both cycle and
+   * virtual time events. Scheduled events are kept.
+   *
+   * @param type EventQueue.LINKED or EventQueue.HEAP
+   * @return true if the type is known
+   */
+  public boolean setEventQueueType(String type) {
+    if (type.equals(cycleEventQueue.getType())) {
+      return true;
+    }
+    EventQueue newCycleQueue = EventQueue.create(type);
+    EventQueue newVTimeQueue = EventQueue.create(type);
+    if (newCycleQueue == null) {
+      return false;
+    }
+    newCycleQueue.moveEvents(cycleEventQueue);
+    newVTimeQueue.moveEvents(vTimeEventQueue);
+    cycleEventQueue = newCycleQueue;
+    vTimeEventQueue = newVTimeQueue;
+    return true;
+  }
+
   public void printEventQueues(PrintStream out) {
       out.println("Current cycles: " + cycles + "  virtual time:" + getTime());
       out.println("Cycle event queue: (next time: " + nextCycleEventCycles + ")");
@@ -789,6 +842,93 @@ public class MSP430Core extends Chip implements MSP430Constants {
     flagInterrupt(MAX_INTERRUPT, null, true);
   }
 
+  /**
+   * Returns memory contents as they are after reset, with flash erased,
+   * for loaders that write a firmware into a flat array.
+   */
+  public byte[] createMemoryContents() {
+    byte[] contents = new byte[MAX_MEM];
+    for (int i = 0; i < MAX_MEM; i += FlashMemory.PAGE_SIZE) {
+      if (flashMemory.isFlash(i)) {
+        Arrays.fill(contents, i, i + FlashMemory.PAGE_SIZE, (byte) 0xff);
+      }
+    }
+    return contents;
+  }
+
+  public MemoryImage createMemoryImage(ELF elf) {
+    byte[] contents = createMemoryContents();
+    elf.loadPrograms(contents);
+    return createMemoryImage(contents);
+  }
+
+  /**
+   * Creates an image of the given memory contents that can be loaded into
+   * any CPU with the same configuration as this one.
+   */
+  public MemoryImage createMemoryImage(byte[] contents) {
+    byte[][] pages = new byte[MAX_MEM >> FlashMemory.PAGE_BITS][];
+    for (int i = 0; i < pages.length; i++) {
+      int start = i << FlashMemory.PAGE_BITS;
+      int blank = flashMemory.isFlash(start) ? 0xff : 0;
+      for (int j = start, n = start + FlashMemory.PAGE_SIZE; j < n; j++) {
+        if ((contents[j] & 0xff) != blank) {
+          pages[i] = Arrays.copyOfRange(contents, start, n);
+          break;
+        }
+      }
+    }
+    return new MemoryImage(pages);
+  }
+
+  /**
+   * Loads a memory image. Flash pages refer to the image until written,
+   * RAM contents are copied.
+   */
+  public void loadMemoryImage(MemoryImage image) {
+    flashMemory.load(image);
+    for (int i = 0; i < image.pages.length; i++) {
+      int start = i << FlashMemory.PAGE_BITS;
+      if (image.pages[i] != null && !flashMemory.isFlash(start) && start < memoryBytes.length) {
+        System.arraycopy(image.pages[i], 0, memoryBytes, start,
+            Math.min(FlashMemory.PAGE_SIZE, memoryBytes.length - start));
+      }
+    }
+  }
+
+  /* Reads a byte without side effects, IO registers as last written */
+  public int getMemoryByte(int address) {
+    if (flashMemory.isFlash(address)) {
+      return flashMemory.read(address);
+    } else if (address < MAX_MEM_IO) {
+      return memory[address] & 0xff;
+    } else if (address < memoryBytes.length) {
+      return memoryBytes[address] & 0xff;
+    }
+    return 0;
+  }
+
+  /* Copies memory contents, bypassing memory monitors. IO registers as last written */
+  public void getMemory(int address, byte[] data, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      data[offset + i] = (byte) getMemoryByte(address + i);
+    }
+  }
+
+  /* Sets memory contents, bypassing memory monitors, IO units and the flash controller */
+  public void setMemory(int address, byte[] data, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      int a = address + i;
+      if (flashMemory.isFlash(a)) {
+        flashMemory.write(a, data[offset + i]);
+      } else if (a < MAX_MEM_IO) {
+        memory[a] = data[offset + i] & 0xff;
+      } else if (a < memoryBytes.length) {
+        memoryBytes[a] = data[offset + i];
+      }
+    }
+  }
+
   // Indicate that we have an interrupt now!
   // We should only get same IOUnit for same interrupt level
   public void flagInterrupt(int interrupt, InterruptHandler source,
@@ -999,6 +1139,17 @@ public class MSP430Core extends Chip implements MSP430Constants {
       return -1;
     }
 
+    // Jumps and double operand instructions in flash are only decoded once
+    if (currentSegment == segmentDispatcher && !isFlashBusy) {
+      DecodedInstruction decoded = flashMemory.getDecoded(pc);
+      if (decoded == null) {
+        decoded = decodeInstruction(pc);
+      }
+      if (decoded != null && decoded.kind != DecodedInstruction.GENERIC) {
+        return executeDecoded(decoded, pc, startCycles);
+      }
+    }
+
     int pcBefore = pc;
     instruction = currentSegment.read(pc, AccessMode.WORD, AccessType.EXECUTE);
     if (isStopping) {
@@ -1755,41 +1906,11 @@ public class MSP430Core extends Chip implements MSP430Constants {
       int jmpOffset = instruction & 0x3ff;
       jmpOffset = (jmpOffset & 0x200) == 0 ?
 	2 * jmpOffset : -(2 * (0x200 - (jmpOffset & 0x1ff)));
-      boolean jump = false;
 
       // All jump takes two cycles
       cycles += 2;
-      sr = readRegister(SR);
-      switch(instruction & 0xfc00) {
-      case JNE:
-	jump = (sr & ZERO) == 0;
-	break;
-      case JEQ:
-	jump = (sr & ZERO) > 0;
-	break;
-      case JNC:
-	jump = (sr & CARRY) == 0;
-	break;
-      case JC:
-	jump = (sr & CARRY) > 0;
-	break;
-      case JN:
-	jump = (sr & NEGATIVE) > 0;
-	break;
-      case JGE:
-	jump = (sr & NEGATIVE) > 0 == (sr & OVERFLOW) > 0;
-	break;
-      case JL:
-	jump = (sr & NEGATIVE) > 0 != (sr & OVERFLOW) > 0;
-	break;
-      case JMP:
-	jump = true;
-	break;
-      default:
-        logw(WarningType.EMULATION_ERROR, "Not implemented instruction: #" + Utils.binary16(instruction));
-      }
       // Perform the Jump
-      if (jump) {
+      if (isJumpTaken(instruction, readRegister(SR))) {
         writeRegister(PC, pc + jmpOffset);
       }
       updateStatus = false;
@@ -1998,6 +2119,10 @@ public class MSP430Core extends Chip implements MSP430Constants {
       }
 
       /* TODO: test add the loop here! */
+      write = writesResult(op);
+      updateStatus = updatesStatus(op);
+      /* NOTE: the reserved wordx20 & word mode adds and carries as a word */
+      AccessMode addMode = word ? AccessMode.WORD : mode;
       while(repeats-- > 0) {
           sr = readRegister(SR);
           if (repeats >= 0) {
@@ -2008,134 +2133,7 @@ public class MSP430Core extends Chip implements MSP430Constants {
               //System.out.println("*** Repeat: " + repeats);
           }
 
-          int tmp = 0;
-          int tmpAdd = 0;
-          switch (op) {
-          case MOV: // MOV
-              dst = src;
-              write = true;
-              updateStatus = false;
-
-              if (instruction == RETURN && profiler != null) {
-                  profiler.profileReturn(cpuCycles);
-              }
-
-              break;
-              // FIX THIS!!! - make SUB a separate operation so that
-              // it is clear that overflow flag is correct...
-          case SUB:
-              // Carry always 1 with SUB
-              tmpAdd = 1;
-          case SUBC:
-              // Both sub and subc does one complement (not) + 1 (or carry)
-              src = (src ^ 0xffff) & 0xffff;
-          case ADDC: // ADDC
-              if (op == ADDC || op == SUBC)
-                  tmpAdd = ((sr & CARRY) > 0) ? 1 : 0;
-          case ADD: // ADD
-              // Tmp gives zero if same sign! if sign is different after -> overf.
-              sr &= ~(OVERFLOW | CARRY);
-	      int b = word ? 0x8000 : (wordx20 ? 0x80000 : 0x80);
-              tmp = (src ^ dst) & b;
-              // Includes carry if carry should be added...
-
-              dst = dst + src + tmpAdd;
-	      int b2 = word ? 0xffff : (wordx20 ? 0xfffff : 0xff);
-              if (dst > b2) {
-                  sr |= CARRY;
-              }
-              // If tmp == 0 and currenly not the same sign for src & dst
-              if (tmp == 0 && ((src ^ dst) & b) != 0) {
-                  sr |= OVERFLOW;
-                  // 	    System.out.println("OVERFLOW - ADD/SUB " + Utils.hex16(src)
-                  // 			       + " + " + Utils.hex16(tmpDst));
-              }
-
-              // 	  System.out.println(Utils.hex16(dst) + " [SR=" +
-              // 			     Utils.hex16(reg[SR]) + "]");
-              writeRegister(SR, sr);
-              write = true;
-              break;
-          case CMP: // CMP
-              // Set CARRY if A >= B, and it's clear if A < B
-	      b = mode.msb;
-              sr = (sr & ~(CARRY | OVERFLOW)) | (dst >= src ? CARRY : 0);
-
-              tmp = (dst - src);
-
-              if (((src ^ tmp) & b) == 0 && (((src ^ dst) & b) != 0)) {
-                  sr |= OVERFLOW;
-              }
-              writeRegister(SR, sr);
-              // Must set dst to the result to set the rest of the status register
-              dst = tmp;
-              break;
-          case DADD: // DADD
-              if (DEBUG)
-                  log("DADD: Decimal add executed - result error!!!");
-              // Decimal add... this is wrong... each nibble is 0-9...
-              // So this has to be reimplemented...
-              dst = dst + src + ((sr & CARRY) > 0 ? 1 : 0);
-              write = true;
-              break;
-          case BIT: // BIT
-              dst = src & dst;
-              // Clear overflow and carry!
-              sr = sr & ~(CARRY | OVERFLOW);
-              // Set carry if result is non-zero!
-              if (dst != 0) {
-                  sr |= CARRY;
-              }
-              writeRegister(SR, sr);
-              break;
-          case BIC: // BIC
-              // No status reg change
-              // 	  System.out.println("BIC: =>" + Utils.hex16(dstAddress) + " => "
-              // 			     + Utils.hex16(dst) + " AS: " + as +
-              // 			     " sReg: " + srcRegister + " => " + src +
-              // 			     " dReg: " + dstRegister + " => " + dst);
-              dst = (~src) & dst;
-
-              write = true;
-              updateStatus = false;
-              break;
-          case BIS: // BIS
-              dst = src | dst;
-              write = true;
-              updateStatus = false;
-              break;
-          case XOR: // XOR
-              sr = sr & ~(CARRY | OVERFLOW);
-	      b = mode.msb; //word ? 0x8000 : (wordx20 ? 0x80000 : 0x80);
-              if ((src & b) != 0 && (dst & b) != 0) {
-                  sr |= OVERFLOW;
-              }
-              dst = src ^ dst;
-              if (dst != 0) {
-                  sr |= CARRY;
-              }
-              write = true;
-              writeRegister(SR, sr);
-              break;
-          case AND: // AND
-              sr = sr & ~(CARRY | OVERFLOW);
-              dst = src & dst;
-              if (dst != 0) {
-                  sr |= CARRY;
-              }
-              write = true;
-              writeRegister(SR, sr);
-              break;
-          default:
-              String address = getAddressAsString(pc);
-              logw(WarningType.EMULATION_ERROR, 
-                      "DoubleOperand not implemented: op = " + Integer.toHexString(op) + " at " + address);
-              if (EXCEPTION_ON_BAD_OPERATION) {
-                  EmulationException ex = new EmulationException("Bad operation: $" + Integer.toHexString(op) + " at $" + address);
-                  ex.initCause(new Throwable("" + pc));
-                  throw ex;
-              }
-          } /* after switch(op) */
+          dst = executeDoubleOperand(op, src, dst, sr, mode, addMode);
           /* If we have the same register as dst and src then copy here to get input
            * in next loop
            */
@@ -2148,10 +2146,377 @@ public class MSP430Core extends Chip implements MSP430Constants {
     }
     
     /* Processing after each instruction */
+    writeResult(write, updateStatus, dstRegMode, dstRegister, dstAddress, dst, mode);
+
+    //System.out.println("CYCLES AFTER: " + cycles);
+
+    endInstruction(startCycles);
+
+    /* return the address that was executed */
+    return pcBefore;
+  }
+  
+  /* Executes the block compiled for the next instruction, compiling it
+   * first once the instruction is hot, or else a single instruction with
+   * emulateOP. Returns the address of the last instruction executed. */
+  int emulateBlock(long maxCycles, int[] execCounter) throws EmulationException {
+    int pc = reg[PC];
+    if (canContinueBlock(maxCycles, pc, flashMemory.invalidations)) {
+      DecodedInstruction decoded = flashMemory.getDecoded(pc);
+      if (decoded != null && decoded.kind != DecodedInstruction.GENERIC) {
+        CompiledBlock block = decoded.block;
+        if (block == null && execCounter[pc] >= BlockCompiler.HOT_EXECUTIONS) {
+          block = decoded.block = BlockCompiler.compile(this, pc);
+        }
+        if (block != null) {
+          return block.execute(this, execCounter, maxCycles);
+        }
+      }
+    }
+    return emulateOP(maxCycles);
+  }
+
+  /* True if emulateOP would go on with the decoded instruction at address,
+   * with nothing else in between, as long as decoded instructions have not
+   * been dropped since the flash had the given invalidation count. */
+  boolean canContinueBlock(long maxCycles, int address, int invalidations) {
+    return cycles < maxCycles && reg[PC] == address && !cpuOff && !isStopping
+        && !(interruptsEnabled && servicedInterrupt == -1 && interruptMax >= 0)
+        && currentSegment == segmentDispatcher && !isFlashBusy && !flash.blocksCPU()
+        && regReadMonitors[PC] == null && flashMemory.invalidations == invalidations;
+  }
+
+  /* Returns the decoded instruction at address, for BlockCompiler */
+  DecodedInstruction getDecodedInstruction(int address) {
+    DecodedInstruction decoded = flashMemory.getDecoded(address);
+    return decoded != null ? decoded : decodeInstruction(address);
+  }
+
+  void beginInstruction(int instruction, int op) {
+    this.instruction = instruction;
+    this.op = op;
+    extWord = 0;
+  }
+
+  /* Only instructions fetched straight from flash, without watchpoints, are decoded */
+  private boolean isDecodable(int address) {
+    return flashMemory.isFlash(address) && memorySegments[address >> 8] == flashSegment;
+  }
+
+  private int readFlashWord(int address) {
+    return flashMemory.read(address) | (flashMemory.read(address + 1) << 8);
+  }
+
+  /* Returns null if the instruction at pc can never be decoded */
+  private DecodedInstruction decodeInstruction(int pc) {
+    if ((pc & 1) != 0 || !isDecodable(pc)) {
+      return null;
+    }
+    int instruction = readFlashWord(pc);
+    DecodedInstruction decoded;
+    switch (instruction >> 12) {
+    case 0:
+    case 1:
+      // MSP430X, single operand and extension words
+      decoded = DecodedInstruction.NOT_DECODED;
+      break;
+    case 2:
+    case 3:
+      decoded = new DecodedInstruction(DecodedInstruction.JUMP, instruction, 0, 0, 0);
+      break;
+    default: {
+      int srcRegister = (instruction >> 8) & 0xf;
+      int as = (instruction >> 4) & 3;
+      boolean byteMode = (instruction & 0x40) != 0;
+      int srcKind = as;
+      int srcValue = 0;
+      int dstValue = 0;
+
+      int next = pc + 2;
+      if ((srcRegister == CG1 && as > AM_INDEX) || srcRegister == CG2) {
+        srcKind = DecodedInstruction.SRC_CONSTANT;
+        srcValue = CREG_VALUES[srcRegister - 2][as] & (byteMode ? 0xff : 0xffff);
+      } else if (as == AM_IND_AUTOINC && srcRegister == PC) {
+        if (!isDecodable(next)) {
+          decoded = DecodedInstruction.NOT_DECODED;
+          break;
+        }
+        srcKind = DecodedInstruction.SRC_IMMEDIATE;
+        srcValue = byteMode ? flashMemory.read(next) : readFlashWord(next);
+        next += 2;
+      } else if (as == AM_INDEX) {
+        if (!isDecodable(next)) {
+          decoded = DecodedInstruction.NOT_DECODED;
+          break;
+        }
+        srcKind = DecodedInstruction.SRC_INDEXED;
+        srcValue = convertTwoComplement16(readFlashWord(next));
+        next += 2;
+      }
+
+      if (((instruction >> 7) & 1) != 0) {
+        if (!isDecodable(next)) {
+          decoded = DecodedInstruction.NOT_DECODED;
+          break;
+        }
+        int index = readFlashWord(next);
+        /* absolute mode uses the word as is */
+        dstValue = (instruction & 0xf) == 2 ? index : convertTwoComplement16(index);
+      }
+      decoded = new DecodedInstruction(DecodedInstruction.DOUBLE_OPERAND, instruction,
+          srcKind, srcValue, dstValue);
+      break;
+    }
+    }
+    flashMemory.setDecoded(pc, decoded);
+    return decoded;
+  }
+
+  /* Executes a decoded instruction with the same effects as emulateOP */
+  private int executeDecoded(DecodedInstruction decoded, int pc, long startCycles)
+      throws EmulationException {
+    int pcBefore = pc;
+    instruction = decoded.instruction;
+    if (isStopping) {
+      // Signaled to stop the execution before performing the instruction
+      return -2;
+    }
+    extWord = 0;
+    op = decoded.op;
+    AccessMode mode = decoded.mode;
+
+    pc += 2;
+    writeRegister(PC, pc);
+
+    if (decoded.kind == DecodedInstruction.JUMP) {
+      // All jump takes two cycles
+      cycles += 2;
+      if (isJumpTaken(instruction, readRegister(SR))) {
+        writeRegister(PC, pc + decoded.jumpOffset);
+      }
+    } else {
+      int dstRegister = decoded.dstRegister;
+      int srcRegister = decoded.srcRegister;
+      boolean dstRegMode = decoded.dstRegMode;
+      int dstAddress = -1;
+      int srcAddress = -1;
+      int src = 0;
+      int dst = -1;
+
+      switch (decoded.srcKind) {
+      case DecodedInstruction.SRC_CONSTANT:
+        src = decoded.srcValue;
+        cycles += dstRegMode ? 1 : 4;
+        break;
+      case DecodedInstruction.SRC_REGISTER:
+        src = readRegister(srcRegister) & mode.mask;
+        cycles += dstRegMode ? 1 : 4;
+        if (dstRegister == PC) cycles++;
+        break;
+      case DecodedInstruction.SRC_INDEXED: {
+        int sval = readRegisterCG(srcRegister, AM_INDEX);
+        srcAddress = decoded.srcValue + sval;
+        srcAddress &= sval <= 0xffff ? 0xffff : 0xfffff;
+        pc += 2;
+        writeRegister(PC, pc);
+        cycles += dstRegMode ? 3 : 6;
+        break;
+      }
+      case DecodedInstruction.SRC_INDIRECT:
+        srcAddress = readRegister(srcRegister);
+        cycles += dstRegMode ? 2 : 5;
+        break;
+      case DecodedInstruction.SRC_IMMEDIATE:
+        src = decoded.srcValue;
+        pc += 2;
+        writeRegister(PC, pc);
+        cycles += dstRegMode ? 2 : 5;
+        if (dstRegister == PC) cycles++;
+        break;
+      case DecodedInstruction.SRC_AUTOINC:
+        srcAddress = readRegister(srcRegister);
+        incRegister(srcRegister, mode.bytes);
+        cycles += dstRegMode ? 2 : 5;
+        if (dstRegister == PC) cycles++;
+        break;
+      }
+
+      // Perform the read of destination!
+      if (dstRegMode) {
+        if (op != MOV) {
+          dst = readRegister(dstRegister) & mode.mask;
+        }
+      } else {
+        // PC Could have changed above!
+        pc = readRegister(PC);
+        if (dstRegister == 2) {
+          dstAddress = decoded.dstValue;
+        } else {
+          int rval = readRegister(dstRegister);
+          dstAddress = decoded.dstValue + rval;
+          dstAddress &= rval <= 0xffff ? 0xffff : 0xfffff;
+        }
+        if (op != MOV) {
+          dst = currentSegment.read(dstAddress, mode, AccessType.READ);
+        }
+        pc += 2;
+        incRegister(PC, 2);
+      }
+
+      if (srcAddress != -1) {
+        src = currentSegment.read(srcAddress, mode, AccessType.READ);
+      }
+
+      dst = executeDoubleOperand(op, src, dst, readRegister(SR), mode, mode);
+      writeResult(writesResult(op), updatesStatus(op), dstRegMode, dstRegister, dstAddress, dst, mode);
+    }
+
+    endInstruction(startCycles);
+    return pcBefore;
+  }
+
+  /* Performs a double operand operation and updates carry and overflow.
+   * Returns the result, which is not yet masked to the operand size. The
+   * add modes only differ for the reserved 20 bit data length mode. */
+  int executeDoubleOperand(int op, int src, int dst, int sr,
+      AccessMode mode, AccessMode addMode) throws EmulationException {
+    switch (op) {
+    case MOV:
+        if (instruction == RETURN && profiler != null) {
+            profiler.profileReturn(cpuCycles);
+        }
+        return src;
+    case SUB:
+        // Both sub and subc does one complement (not) + 1 (or carry)
+        return add((src ^ 0xffff) & 0xffff, dst, 1, sr, addMode);
+    case SUBC:
+        return add((src ^ 0xffff) & 0xffff, dst, (sr & CARRY) > 0 ? 1 : 0, sr, addMode);
+    case ADDC:
+        return add(src, dst, (sr & CARRY) > 0 ? 1 : 0, sr, addMode);
+    case ADD:
+        return add(src, dst, 0, sr, addMode);
+    case CMP:
+        return compare(src, dst, sr, mode);
+    case DADD:
+        if (DEBUG)
+            log("DADD: Decimal add executed - result error!!!");
+        // Decimal add... this is wrong... each nibble is 0-9...
+        // So this has to be reimplemented...
+        return dst + src + ((sr & CARRY) > 0 ? 1 : 0);
+    case BIT:
+        return bitTest(src, dst, sr);
+    case BIC:
+        // No status reg change
+        return (~src) & dst;
+    case BIS:
+        return src | dst;
+    case XOR:
+        return xor(src, dst, sr, mode);
+    case AND:
+        return and(src, dst, sr);
+    default:
+        String address = getAddressAsString(reg[PC]);
+        logw(WarningType.EMULATION_ERROR,
+                "DoubleOperand not implemented: op = " + Integer.toHexString(op) + " at " + address);
+        if (EXCEPTION_ON_BAD_OPERATION) {
+            EmulationException ex = new EmulationException("Bad operation: $" + Integer.toHexString(op) + " at $" + address);
+            ex.initCause(new Throwable("" + reg[PC]));
+            throw ex;
+        }
+        return dst;
+    }
+  }
+
+  /* Adds with carry in, which ADD, ADDC, SUB and SUBC all come down to */
+  private int add(int src, int dst, int carry, int sr, AccessMode mode) {
+    // Tmp gives zero if same sign! if sign is different after -> overf.
+    sr &= ~(OVERFLOW | CARRY);
+    int b = mode.msb;
+    int tmp = (src ^ dst) & b;
+    // Includes carry if carry should be added...
+    dst = dst + src + carry;
+    if (dst > mode.mask) {
+      sr |= CARRY;
+    }
+    // If tmp == 0 and currenly not the same sign for src & dst
+    if (tmp == 0 && ((src ^ dst) & b) != 0) {
+      sr |= OVERFLOW;
+    }
+    writeRegister(SR, sr);
+    return dst;
+  }
+
+  private int compare(int src, int dst, int sr, AccessMode mode) {
+    // Set CARRY if A >= B, and it's clear if A < B
+    int b = mode.msb;
+    sr = (sr & ~(CARRY | OVERFLOW)) | (dst >= src ? CARRY : 0);
+    int tmp = dst - src;
+    if (((src ^ tmp) & b) == 0 && (((src ^ dst) & b) != 0)) {
+      sr |= OVERFLOW;
+    }
+    writeRegister(SR, sr);
+    // Must return the result to set the rest of the status register
+    return tmp;
+  }
+
+  private int bitTest(int src, int dst, int sr) {
+    dst = src & dst;
+    // Clear overflow and carry!
+    sr = sr & ~(CARRY | OVERFLOW);
+    // Set carry if result is non-zero!
+    if (dst != 0) {
+      sr |= CARRY;
+    }
+    writeRegister(SR, sr);
+    return dst;
+  }
+
+  private int xor(int src, int dst, int sr, AccessMode mode) {
+    sr = sr & ~(CARRY | OVERFLOW);
+    int b = mode.msb;
+    if ((src & b) != 0 && (dst & b) != 0) {
+      sr |= OVERFLOW;
+    }
+    dst = src ^ dst;
+    if (dst != 0) {
+      sr |= CARRY;
+    }
+    writeRegister(SR, sr);
+    return dst;
+  }
+
+  private int and(int src, int dst, int sr) {
+    sr = sr & ~(CARRY | OVERFLOW);
+    dst = src & dst;
+    if (dst != 0) {
+      sr |= CARRY;
+    }
+    writeRegister(SR, sr);
+    return dst;
+  }
+
+  /* CMP and BIT only update the status register */
+  static boolean writesResult(int op) {
+    switch (op) {
+    case MOV: case ADD: case ADDC: case SUBC: case SUB: case DADD:
+    case BIC: case BIS: case XOR: case AND:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /* MOV, BIC and BIS leave the status register as is */
+  static boolean updatesStatus(int op) {
+    return op != MOV && op != BIC && op != BIS;
+  }
+
+  void writeResult(boolean write, boolean updateStatus, boolean dstRegMode,
+      int dstRegister, int dstAddress, int dst, AccessMode mode) {
     dst &= mode.mask;
     if (write) {
       if (dstRegMode) {
-	writeRegister(dstRegister, dst);
+        writeRegister(dstRegister, dst);
       } else {
         currentSegment.write(dstAddress, dst, mode);
       }
@@ -2159,27 +2524,48 @@ public class MSP430Core extends Chip implements MSP430Constants {
     if (updateStatus) {
       // Update the Zero and Negative status!
       // Carry and overflow must be set separately!
-      sr = readRegister(SR);
+      int sr = readRegister(SR);
       sr = (sr & ~(ZERO | NEGATIVE)) |
-	((dst == 0) ? ZERO : 0) | ((dst & mode.msb) > 0 ? NEGATIVE : 0);
+        ((dst == 0) ? ZERO : 0) | ((dst & mode.msb) > 0 ? NEGATIVE : 0);
       writeRegister(SR, sr);
     }
+  }
 
-    //System.out.println("CYCLES AFTER: " + cycles);
+  boolean isJumpTaken(int instruction, int sr) {
+    switch(instruction & 0xfc00) {
+    case JNE:
+      return (sr & ZERO) == 0;
+    case JEQ:
+      return (sr & ZERO) > 0;
+    case JNC:
+      return (sr & CARRY) == 0;
+    case JC:
+      return (sr & CARRY) > 0;
+    case JN:
+      return (sr & NEGATIVE) > 0;
+    case JGE:
+      return (sr & NEGATIVE) > 0 == (sr & OVERFLOW) > 0;
+    case JL:
+      return (sr & NEGATIVE) > 0 != (sr & OVERFLOW) > 0;
+    case JMP:
+      return true;
+    default:
+      logw(WarningType.EMULATION_ERROR, "Not implemented instruction: #" + Utils.binary16(instruction));
+      return false;
+    }
+  }
 
+  void endInstruction(long startCycles) {
     // -------------------------------------------------------------------
     // Event processing (when CPU is awake)
     // -------------------------------------------------------------------
     while (cycles >= nextEventCycles) {
       executeEvents();
     }
-    
+
     cpuCycles += cycles - startCycles;
-    
-    /* return the address that was executed */
-    return pcBefore;
   }
-  
+
   private static int convertTwoComplement16(int index) {
 	  if(index > 0x8000) {
 		  return -(0x10000 - index);
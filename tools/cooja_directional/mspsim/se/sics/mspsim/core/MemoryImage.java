@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * MemoryImage
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+
+package se.sics.mspsim.core;
+
+/**
+ * Immutable memory contents of a loaded firmware, split into pages of
+ * FlashMemory.PAGE_SIZE bytes. Pages left in their reset state are null.
+ *
+ * The same image can be loaded into any number of CPUs with the same
+ * configuration; flash pages are then shared until written.
+ *
+ * @see MSP430Core#createMemoryImage(byte[])
+ * @see MSP430Core#loadMemoryImage(MemoryImage)
+ */
+public class MemoryImage {
+
+    final byte[][] pages;
+    /* Instructions decoded from the pages, shared by all CPUs running them */
+    private final DecodedInstruction[][] decoded;
+
+    MemoryImage(byte[][] pages) {
+        this.pages = pages;
+        this.decoded = new DecodedInstruction[pages.length][];
+    }
+
+    /* Creates the table on first use. Should two CPUs race here, the
+     * instructions decoded into the table that is lost are decoded again. */
+    DecodedInstruction[] getDecoded(int page) {
+        if (page >= decoded.length) {
+            return null;
+        }
+        DecodedInstruction[] table = decoded[page];
+        if (table == null) {
+            table = decoded[page] = new DecodedInstruction[FlashMemory.PAGE_SIZE / 2];
+        }
+        return table;
+    }
+
+}
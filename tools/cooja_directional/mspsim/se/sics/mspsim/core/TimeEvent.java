@@ -48,6 +48,9 @@ public abstract class TimeEvent {
 
   // Keeps track of where this is scheduled
   EventQueue scheduledIn = null;
+  // Used by HeapEventQueue
+  int heapIndex = -1;
+  long sequence;
   String name;
   
   protected long time;
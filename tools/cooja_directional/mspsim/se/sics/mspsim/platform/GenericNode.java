@@ -55,6 +55,7 @@ import se.sics.mspsim.core.EmulationException;
 import se.sics.mspsim.core.MSP430;
 import se.sics.mspsim.core.MSP430Config;
 import se.sics.mspsim.core.MSP430Constants;
+import se.sics.mspsim.core.MemoryImage;
 import se.sics.mspsim.extutil.highlight.HighlightSourceViewer;
 import se.sics.mspsim.ui.ConsoleUI;
 import se.sics.mspsim.ui.ControlUI;
@@ -138,9 +139,10 @@ public abstract class GenericNode extends Chip implements Runnable {
 
     if (firmwareFile.endsWith("ihex")) {
       // IHEX Reading
-      int[] memory = cpu.memory;
+      byte[] memory = cpu.createMemoryContents();
       IHexReader reader = new IHexReader();
       reader.readFile(memory, firmwareFile);
+      cpu.loadMemoryImage(cpu.createMemoryImage(memory));
     } else {
       loadFirmware(firmwareFile);
     }
@@ -214,6 +216,11 @@ public abstract class GenericNode extends Chip implements Runnable {
     registry.registerComponent("cpu", cpu);
     registry.registerComponent("node", this);
     registry.registerComponent("config", config);
+
+    String eventQueue = config.getProperty("eventqueue");
+    if (eventQueue != null && !cpu.setEventQueueType(eventQueue)) {
+      System.err.println("Unknown event queue type: " + eventQueue);
+    }
     
     CommandHandler ch = registry.getComponent(CommandHandler.class, "commandHandler");
 
@@ -297,10 +304,14 @@ public abstract class GenericNode extends Chip implements Runnable {
   }
 
   public ELF loadFirmware(URL url) throws IOException {
-      return loadFirmware(url, cpu.memory);
+      return loadFirmware(readELF(url));
+  }
+
+  @Deprecated public ELF loadFirmware(URL url, byte[] memory) throws IOException {
+    return loadFirmware(readELF(url), memory);
   }
 
-  @Deprecated public ELF loadFirmware(URL url, int[] memory) throws IOException {
+  private static ELF readELF(URL url) throws IOException {
     DataInputStream inputStream = new DataInputStream(url.openStream());
     ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
     byte[] firmwareData = new byte[2048];
@@ -311,27 +322,44 @@ public abstract class GenericNode extends Chip implements Runnable {
     inputStream.close();
     ELF elf = new ELF(byteStream.toByteArray());
     elf.readAll();
-    return loadFirmware(elf, memory);
+    return elf;
   }
 
   public ELF loadFirmware(String name) throws IOException {
-      return loadFirmware(name, cpu.memory);
+      return loadFirmware(ELF.readELF(firmwareFile = name));
   }
 
-  @Deprecated public ELF loadFirmware(String name, int[] memory) throws IOException {
+  @Deprecated public ELF loadFirmware(String name, byte[] memory) throws IOException {
     return loadFirmware(ELF.readELF(firmwareFile = name), memory);
   }
 
   public ELF loadFirmware(ELF elf) {
-      return loadFirmware(elf, cpu.memory);
+      return loadFirmware(elf, cpu.createMemoryImage(elf));
   }
 
-  @Deprecated public ELF loadFirmware(ELF elf, int[] memory) {
+  /**
+   * Loads firmware from a memory image created by a CPU with the same
+   * configuration. Nodes loading the same image share its flash pages
+   * until they write to them.
+   */
+  public ELF loadFirmware(ELF elf, MemoryImage image) {
+    if (cpu.isRunning()) {
+        stop();
+    }
+    cpu.loadMemoryImage(image);
+    return setELF(elf);
+  }
+
+  @Deprecated public ELF loadFirmware(ELF elf, byte[] memory) {
     if (cpu.isRunning()) {
         stop();
     }
-    this.elf = elf;
     elf.loadPrograms(memory);
+    return setELF(elf);
+  }
+
+  private ELF setELF(ELF elf) {
+    this.elf = elf;
     MapTable map = elf.getMap();
     cpu.getDisAsm().setMap(map);
     cpu.setMap(map);
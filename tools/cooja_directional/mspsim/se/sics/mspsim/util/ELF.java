@@ -316,7 +316,7 @@ public class ELF {
     }
   }
 
-  public void loadPrograms(int[] memory) {
+  public void loadPrograms(byte[] memory) {
     for (int i = 0, n = phnum; i < n; i++) {
       // paddr or vaddr???
       loadBytes(memory, programs[i].offset, programs[i].paddr,
@@ -324,14 +324,14 @@ public class ELF {
     }
   }
 
-  private void loadBytes(int[] memory, int offset, int addr, int len,
+  private void loadBytes(byte[] memory, int offset, int addr, int len,
 			 int fill) {
     if (DEBUG) {
       System.out.println("Loading " + len + " bytes into " +
              Integer.toString(addr, 16) + " fill " + fill);
     }
     for (int i = 0, n = len; i < n; i++) {
-      memory[addr++] = elfData[offset++] & 0xff;
+      memory[addr++] = elfData[offset++];
     }
     if (fill > len) {
       int n = fill - len;
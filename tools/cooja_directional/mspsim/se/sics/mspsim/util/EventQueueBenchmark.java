@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * $Id$
+ *
+ * -----------------------------------------------------------------
+ *
+ * EventQueueBenchmark
+ *
+ * Author  : agent
+ * Created : 2026
+ * Updated : $Date$
+ *           $Revision$
+ */
+package se.sics.mspsim.util;
+import java.util.Random;
+
+import se.sics.mspsim.core.EventQueue;
+import se.sics.mspsim.core.TimeEvent;
+
+/**
+ * EventQueueBenchmark - compares the event queue implementations using a
+ * synthetic event load similar to a Sky node: timers, USART, radio and
+ * DMA events that reschedule themselves, and some events that are
+ * removed and rescheduled before they expire.
+ *
+ * Usage: EventQueueBenchmark [events] [sources]
+ */
+public class EventQueueBenchmark {
+
+  private static class BenchEvent extends TimeEvent {
+    private final EventQueue queue;
+    private final int period;
+    private final Random random;
+    long checksum;
+
+    BenchEvent(EventQueue queue, int period, Random random) {
+      super(0, "bench");
+      this.queue = queue;
+      this.period = period;
+      this.random = random;
+    }
+
+    public void execute(long t) {
+      checksum = checksum * 31 + t;
+      queue.addEvent(this, t + period + random.nextInt(period));
+    }
+  }
+
+  private static long run(String type, int events, int sources, long seed) {
+    EventQueue queue = EventQueue.create(type);
+    Random random = new Random(seed);
+    BenchEvent[] all = new BenchEvent[sources];
+    for (int i = 0; i < sources; i++) {
+      // Mix of short (radio/USART) and long (timer) periods
+      int period = (i % 4 == 0) ? 10000 + random.nextInt(100000) : 10 + random.nextInt(500);
+      all[i] = new BenchEvent(queue, period, random);
+      queue.addEvent(all[i], random.nextInt(period));
+    }
+    long checksum = 0;
+    for (int i = 0; i < events; i++) {
+      TimeEvent te = queue.popFirst();
+      te.execute(te.getTime());
+      checksum = checksum * 17 + te.getTime();
+      if ((i & 7) == 0) {
+        // Reprogram a timer before it expires
+        BenchEvent ev = all[random.nextInt(sources)];
+        if (ev.isScheduled()) {
+          ev.remove();
+          queue.addEvent(ev, queue.nextTime + random.nextInt(1000));
+        }
+      }
+    }
+    return checksum;
+  }
+
+  public static void main(String[] args) {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    int sources = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    String[] types = new String[] { EventQueue.LINKED, EventQueue.HEAP };
+    long[] checksums = new long[types.length];
+
+    // Warm up
+    for (int i = 0; i < types.length; i++) {
+      run(types[i], events / 10, sources, 4711);
+    }
+    for (int i = 0; i < types.length; i++) {
+      long start = System.nanoTime();
+      checksums[i] = run(types[i], events, sources, 4711);
+      long elapsed = System.nanoTime() - start;
+      System.out.println(types[i] + ": " + events + " events, " + sources + " sources: "
+          + (elapsed / 1000000) + " ms (" + (elapsed / events) + " ns/event)");
+    }
+    for (int i = 1; i < types.length; i++) {
+      if (checksums[i] != checksums[0]) {
+        System.out.println("Event order differs between " + types[0] + " and " + types[i] + "!");
+        System.exit(1);
+      }
+    }
+    System.out.println("Event order identical");
+  }
+}
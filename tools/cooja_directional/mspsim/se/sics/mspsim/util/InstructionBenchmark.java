@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2026, agent.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * InstructionBenchmark
+ *
+ * Author  : agent
+ * Created : 2026
+ */
+package se.sics.mspsim.util;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import se.sics.mspsim.Main;
+import se.sics.mspsim.cli.CommandHandler;
+import se.sics.mspsim.core.EmulationException;
+import se.sics.mspsim.core.MSP430;
+import se.sics.mspsim.platform.GenericNode;
+
+/**
+ * InstructionBenchmark - measures how fast the CPU core emulates a
+ * firmware, e.g. one of the bundled ones in the firmware directory. The
+ * platform is given by the firmware filename suffix, as for Main.
+ *
+ * The final cycle count and registers are printed as well, so that the
+ * emulation of two builds can be compared.
+ *
+ * Usage: InstructionBenchmark [firmware] [instructions] [runs]
+ */
+public class InstructionBenchmark {
+
+  public static void main(String[] args) throws IOException, EmulationException {
+    String firmware = args.length > 0 ? args[0] : "firmware/z1/blink.z1";
+    int instructions = args.length > 1 ? Integer.parseInt(args[1]) : 20000000;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    String platform = firmware.substring(firmware.lastIndexOf('.') + 1);
+    GenericNode node = Main.createNode(Main.getNodeTypeByPlatform(platform));
+    if (node == null) {
+      System.err.println("MSPSim does not currently support the platform '" + platform + "'.");
+      System.exit(1);
+    }
+    // Discard firmware output
+    PrintStream out = new PrintStream(new OutputStream() {
+      public void write(int b) {
+      }
+    });
+    node.setCommandHandler(new CommandHandler(out, out));
+    node.setup(new ConfigManager());
+    node.loadFirmware(firmware);
+    MSP430 cpu = node.getCPU();
+    cpu.reset();
+
+    // Warm up
+    cpu.stepInstructions(instructions / 10);
+    for (int i = 0; i < runs; i++) {
+      long start = System.nanoTime();
+      cpu.stepInstructions(instructions);
+      long elapsed = System.nanoTime() - start;
+      System.out.printf("%s: %d instructions: %d ms (%.1f M instructions/s)%n",
+          platform, instructions, elapsed / 1000000, instructions * 1000.0 / elapsed);
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 16; i++) {
+      sb.append(' ').append(Utils.hex(cpu.reg[i], 4));
+    }
+    System.out.println("Cycles: " + cpu.cycles + " Registers:" + sb);
+  }
+}